@@ -0,0 +1,262 @@
+package edu.ucdenver.ccp.nlp.core.annotation;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.ucdenver.ccp.common.collections.tree.TreeNode;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.StrictSpanComparator;
+import edu.ucdenver.ccp.nlp.core.mention.ClassMention;
+import edu.ucdenver.ccp.nlp.core.mention.ComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.mention.Mention;
+import edu.ucdenver.ccp.nlp.core.mention.PrimitiveSlotMention;
+
+/**
+ * A 128-bit structural fingerprint of a {@link TextAnnotation} that covers
+ * exactly the properties examined by {@link TextAnnotation#equals(Object)}: the
+ * sorted span list, the document ID and document collection ID, and the mention
+ * hierarchy (mention types, case-insensitive mention names, sorted primitive
+ * slot values and the spans of the annotations referenced by each class
+ * mention). Annotations that are equal therefore always have equal
+ * fingerprints; the chance of two unequal annotations sharing a fingerprint is
+ * on the order of 2^-128.
+ * <p>
+ * Fingerprints are cached by {@link TextAnnotation} and tagged with the
+ * modification stamp current at the time they were computed. Modifications of
+ * spans and mentions are propagated up to the annotations that contain them by
+ * {@link ModificationTracker}s, so a cached fingerprint is stale once the
+ * annotation's own stamp is later than the fingerprint's. Code
+ * that modifies wrapped objects directly, e.g. the CAS feature structures
+ * underlying a wrapped annotation, must call
+ * {@link #invalidateCachedFingerprints()} before comparing annotations that
+ * were hashed previously.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationFingerprint {
+
+	private static final AtomicLong MODIFICATION_STAMP = new AtomicLong();
+
+	private static volatile long invalidationStamp = 0;
+
+	private static final int CLASS_MENTION = 1;
+	private static final int PRIMITIVE_SLOT_MENTION = 2;
+	private static final int COMPLEX_SLOT_MENTION = 3;
+	private static final int NULL_VALUE = 4;
+
+	private static final StrictSpanComparator STRICT_SPAN_COMPARATOR = new StrictSpanComparator();
+
+	private final long high;
+	private final long low;
+	private final long modificationStamp;
+
+	private AnnotationFingerprint(long high, long low, long modificationStamp) {
+		this.high = high;
+		this.low = low;
+		this.modificationStamp = modificationStamp;
+	}
+
+	/**
+	 * @return a modification stamp that is greater than any stamp returned
+	 *         previously. Called by the annotation, span, and mention mutators
+	 *         that affect annotation equality to record the time of the
+	 *         modification.
+	 */
+	public static long nextModificationStamp() {
+		return MODIFICATION_STAMP.incrementAndGet();
+	}
+
+	/**
+	 * Marks all cached fingerprints as stale. This is only needed if objects
+	 * underlying an annotation are modified without going through its
+	 * mutators.
+	 */
+	public static void invalidateCachedFingerprints() {
+		invalidationStamp = nextModificationStamp();
+	}
+
+	/**
+	 * @param ta
+	 *            the annotation this fingerprint was computed for
+	 * @return true if neither the annotation nor any span or mention it was
+	 *         computed from has been modified since this fingerprint was
+	 *         computed; a comparison of two stamps
+	 */
+	boolean isCurrent(TextAnnotation ta) {
+		return invalidationStamp <= modificationStamp && !ta.isModifiedSince(modificationStamp);
+	}
+
+	/**
+	 * Computes the fingerprint of the specified annotation by walking its spans
+	 * and its mention hierarchy once
+	 * 
+	 * @param ta
+	 * @return
+	 */
+	public static AnnotationFingerprint compute(TextAnnotation ta) {
+		long modificationStamp = MODIFICATION_STAMP.get();
+		Hasher hasher = new Hasher();
+		hasher.addSpans(ta.getSpans());
+		hasher.addString(ta.getDocumentID());
+		hasher.add(ta.getDocumentCollectionID());
+		ClassMention cm = ta.getClassMention();
+		if (cm == null) {
+			hasher.add(NULL_VALUE);
+		} else {
+			for (Iterator<TreeNode<Mention>> nodeIter = Mention.getMentionTreeNodeIterator(cm); nodeIter.hasNext();) {
+				TreeNode<Mention> node = nodeIter.next();
+				hasher.addMentionNode(node);
+			}
+		}
+		return new AnnotationFingerprint(hasher.h1, hasher.h2, modificationStamp);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof AnnotationFingerprint)) {
+			return false;
+		}
+		AnnotationFingerprint fingerprint = (AnnotationFingerprint) obj;
+		return high == fingerprint.high && low == fingerprint.low;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (high ^ (high >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", high, low);
+	}
+
+	/**
+	 * Accumulates two independent 64-bit hashes over a stream of values
+	 */
+	private static class Hasher {
+		private long h1 = 0x6A09E667F3BCC908L;
+		private long h2 = 0xBB67AE8584CAA73BL;
+
+		private void add(long value) {
+			h1 = mix(h1 ^ value) * 0x9E3779B97F4A7C15L + 1;
+			h2 = Long.rotateLeft(h2 ^ mix(value + 0x632BE59BD9B4E019L), 31) * 0xC2B2AE3D27D4EB4FL;
+		}
+
+		private void addString(String s) {
+			if (s == null) {
+				add(NULL_VALUE);
+				add(-1);
+				return;
+			}
+			add(s.length());
+			for (int i = 0; i < s.length(); i++) {
+				add(s.charAt(i));
+			}
+		}
+
+		/**
+		 * Case-folds each character the same way {@link String#equalsIgnoreCase(String)} compares
+		 * them so that mention names that match ignoring case hash identically
+		 */
+		private void addStringIgnoreCase(String s) {
+			if (s == null) {
+				add(NULL_VALUE);
+				add(-1);
+				return;
+			}
+			add(s.length());
+			for (int i = 0; i < s.length(); i++) {
+				add(Character.toLowerCase(Character.toUpperCase(s.charAt(i))));
+			}
+		}
+
+		private void addSpans(List<Span> spans) {
+			if (spans == null) {
+				add(NULL_VALUE);
+				return;
+			}
+			List<Span> sortedSpans = new ArrayList<Span>(spans);
+			Collections.sort(sortedSpans, STRICT_SPAN_COMPARATOR);
+			add(sortedSpans.size());
+			for (Span span : sortedSpans) {
+				add(span.getSpanStart());
+				add(span.getSpanEnd());
+			}
+		}
+
+		private void addMentionNode(TreeNode<Mention> node) {
+			Mention mention = node.getNodeValue();
+			add(node.getDepth());
+			int childCount = 0;
+			for (Iterator<TreeNode<Mention>> childIter = node.getChildren(); childIter.hasNext();) {
+				childIter.next();
+				childCount++;
+			}
+			add(childCount);
+			addStringIgnoreCase(mention.getMentionName());
+			if (mention instanceof ClassMention) {
+				add(CLASS_MENTION);
+				TextAnnotation referencedTa = ((ClassMention) mention).getTextAnnotation();
+				addSpans((referencedTa == null) ? null : referencedTa.getSpans());
+			} else if (mention instanceof PrimitiveSlotMention<?>) {
+				add(PRIMITIVE_SLOT_MENTION);
+				Collection<?> slotValues = ((PrimitiveSlotMention<?>) mention).getSlotValues();
+				List<String> slotValueStrs = new ArrayList<String>();
+				for (Object slotValue : slotValues) {
+					slotValueStrs.add(slotValue.toString());
+				}
+				Collections.sort(slotValueStrs);
+				add(slotValueStrs.size());
+				for (String slotValueStr : slotValueStrs) {
+					addString(slotValueStr);
+				}
+			} else if (mention instanceof ComplexSlotMention) {
+				add(COMPLEX_SLOT_MENTION);
+			}
+		}
+
+		private static long mix(long z) {
+			z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+			z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+			return z ^ (z >>> 33);
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+package edu.ucdenver.ccp.nlp.core.annotation;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Records the stamp of the most recent modification of a span, mention or annotation, or of
+ * anything below it, that affects annotation equality. Each tracker propagates its new stamps to
+ * the trackers of the objects that own it: a span to its annotations, a slot mention to its class
+ * mention, a class mention to the complex slot mentions it fills and to its annotation, and an
+ * annotation to its class mention, whose fingerprint includes the annotation's spans. Checking
+ * whether a cached {@link AnnotationFingerprint} is still valid therefore only requires comparing
+ * the annotation's own stamp.
+ * <p>
+ * Owners are never removed, so an object that is detached from its owner may still cause the
+ * owner's fingerprint to be recomputed unnecessarily, but never causes a stale fingerprint to be
+ * used.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ModificationTracker {
+
+	private static final AtomicLongFieldUpdater<ModificationTracker> STAMP_UPDATER = AtomicLongFieldUpdater
+			.newUpdater(ModificationTracker.class, "stamp");
+
+	private static final ModificationTracker[] NO_OWNERS = new ModificationTracker[0];
+
+	private volatile long stamp;
+
+	/**
+	 * copied on write; owners are added rarely but read on every modification
+	 */
+	private volatile ModificationTracker[] owners = NO_OWNERS;
+
+	/**
+	 * @return the stamp of the most recent modification of the tracked object, or of any object
+	 *         tracked by a tracker that has this tracker as an owner
+	 */
+	public long getStamp() {
+		return stamp;
+	}
+
+	/**
+	 * Records a modification of the tracked object and propagates it to the owners
+	 */
+	public void markModified() {
+		propagate(AnnotationFingerprint.nextModificationStamp());
+	}
+
+	/**
+	 * Subsequent modifications of the object tracked by this tracker are propagated to the owner
+	 * 
+	 * @param owner
+	 */
+	public synchronized void addOwner(ModificationTracker owner) {
+		if (owner == null || owner == this) {
+			return;
+		}
+		for (ModificationTracker existingOwner : owners) {
+			if (existingOwner == owner) {
+				return;
+			}
+		}
+		ModificationTracker[] updatedOwners = Arrays.copyOf(owners, owners.length + 1);
+		updatedOwners[owners.length] = owner;
+		owners = updatedOwners;
+	}
+
+	/**
+	 * Stops at trackers that already carry the stamp (or a later one), which also ends the
+	 * propagation around cycles such as annotation -&gt; class mention -&gt; annotation
+	 */
+	private void propagate(long newStamp) {
+		long currentStamp;
+		do {
+			currentStamp = stamp;
+			if (currentStamp >= newStamp) {
+				return;
+			}
+		} while (!STAMP_UPDATER.compareAndSet(this, currentStamp, newStamp));
+		for (ModificationTracker owner : owners) {
+			owner.propagate(newStamp);
+		}
+	}
+
+}
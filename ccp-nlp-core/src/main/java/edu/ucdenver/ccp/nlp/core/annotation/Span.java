@@ -58,6 +58,13 @@ public class Span implements Comparable<Span>, Serializable {
 
 	private int spanEnd;
 
+	/**
+	 * Tracks modifications of this span for the annotations it belongs to, see
+	 * {@link AnnotationFingerprint}. Created when first needed, which also covers deserialized
+	 * spans.
+	 */
+	private transient volatile ModificationTracker modificationTracker;
+
 	public Span(int spanStart, int spanEnd) {
 		this.spanStart = spanStart;
 		this.spanEnd = spanEnd;
@@ -69,6 +76,7 @@ public class Span implements Comparable<Span>, Serializable {
 	}
 
 	public void setSpanEnd(int spanEnd) {
+		markModified();
 		this.spanEnd = spanEnd;
 		validateSpan();
 	}
@@ -78,10 +86,46 @@ public class Span implements Comparable<Span>, Serializable {
 	}
 
 	public void setSpanStart(int spanStart) {
+		markModified();
 		this.spanStart = spanStart;
 		validateSpan();
 	}
 
+	/**
+	 * @return the stamp of the most recent modification of this span
+	 */
+	public long getModificationStamp() {
+		ModificationTracker tracker = modificationTracker;
+		return (tracker == null) ? 0 : tracker.getStamp();
+	}
+
+	/**
+	 * @return the tracker that propagates modifications of this span to the annotations that own it
+	 */
+	public ModificationTracker getModificationTracker() {
+		ModificationTracker tracker = modificationTracker;
+		if (tracker == null) {
+			synchronized (this) {
+				tracker = modificationTracker;
+				if (tracker == null) {
+					tracker = new ModificationTracker();
+					modificationTracker = tracker;
+				}
+			}
+		}
+		return tracker;
+	}
+
+	/**
+	 * a span without a tracker has no owners whose fingerprints could be stale
+	 */
+	private void markModified() {
+		ModificationTracker tracker = modificationTracker;
+		if (tracker != null) {
+			tracker.markModified();
+		}
+	}
+
 	private void validateSpan() {
 		if (!isValid()) {
 			throw new InvalidSpanException(
@@ -35,6 +35,7 @@ import java.util.Collections;
  * #L%
  */
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -199,6 +200,102 @@ public class SpanUtils {
 		return spans;
 	}
 
+	/**
+	 * Converts the input spans into a sorted array of non-overlapping [start, end) intervals such
+	 * that each character offset covered by at least one span is covered by exactly one interval.
+	 * Overlapping and adjacent spans are coalesced, and empty spans are dropped. The input list is
+	 * not modified.
+	 * 
+	 * @param spans
+	 * @return a flattened array of interval offsets, i.e. {start0, end0, start1, end1, ...}
+	 */
+	public static int[] toCoveredIntervals(List<Span> spans) {
+		long[] packedSpans = new long[spans.size()];
+		int count = 0;
+		for (Span span : spans) {
+			if (span.getSpanEnd() > span.getSpanStart()) {
+				packedSpans[count++] = ((long) span.getSpanStart() << 32) | (span.getSpanEnd() & 0xffffffffL);
+			}
+		}
+		/* span offsets are non-negative so sorting the packed values orders the spans by start */
+		Arrays.sort(packedSpans, 0, count);
+
+		int[] intervals = new int[count * 2];
+		int intervalIndex = -2;
+		for (int i = 0; i < count; i++) {
+			int start = (int) (packedSpans[i] >>> 32);
+			int end = (int) packedSpans[i];
+			if (intervalIndex >= 0 && start <= intervals[intervalIndex + 1]) {
+				intervals[intervalIndex + 1] = max(intervals[intervalIndex + 1], end);
+			} else {
+				intervalIndex += 2;
+				intervals[intervalIndex] = start;
+				intervals[intervalIndex + 1] = end;
+			}
+		}
+		return Arrays.copyOf(intervals, intervalIndex + 2);
+	}
+
+	/**
+	 * @param intervals
+	 *            as returned by {@link #toCoveredIntervals(List)}
+	 * @return the number of character offsets covered by the intervals
+	 */
+	public static int coveredLength(int[] intervals) {
+		int length = 0;
+		for (int i = 0; i < intervals.length; i += 2) {
+			length += intervals[i + 1] - intervals[i];
+		}
+		return length;
+	}
+
+	/**
+	 * @param spans
+	 * @return the number of distinct character offsets covered by the spans
+	 */
+	public static int coveredLength(List<Span> spans) {
+		return coveredLength(toCoveredIntervals(spans));
+	}
+
+	/**
+	 * Computes the number of character offsets covered by both sets of intervals in
+	 * O(intervals1.length + intervals2.length).
+	 * 
+	 * @param intervals1
+	 *            as returned by {@link #toCoveredIntervals(List)}
+	 * @param intervals2
+	 *            as returned by {@link #toCoveredIntervals(List)}
+	 * @return the number of character offsets covered by both sets of intervals
+	 */
+	public static int intersectionLength(int[] intervals1, int[] intervals2) {
+		int length = 0;
+		int i = 0;
+		int j = 0;
+		while (i < intervals1.length && j < intervals2.length) {
+			int start = max(intervals1[i], intervals2[j]);
+			int end = Math.min(intervals1[i + 1], intervals2[j + 1]);
+			if (end > start) {
+				length += end - start;
+			}
+			/* advance past whichever interval ends first */
+			if (intervals1[i + 1] < intervals2[j + 1]) {
+				i += 2;
+			} else {
+				j += 2;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * @param spans1
+	 * @param spans2
+	 * @return the number of distinct character offsets covered by both lists of spans
+	 */
+	public static int intersectionLength(List<Span> spans1, List<Span> spans2) {
+		return intersectionLength(toCoveredIntervals(spans1), toCoveredIntervals(spans2));
+	}
+
 	public static List<Span> spansEqualOrLesser(List<Span> spans, int val) {
 		LinkedList<Span> selectedSpans = new LinkedList<Span>();
 		if (spans.isEmpty()) {
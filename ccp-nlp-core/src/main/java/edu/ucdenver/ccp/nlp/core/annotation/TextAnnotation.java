@@ -49,6 +49,7 @@ import edu.ucdenver.ccp.nlp.core.annotation.comparison.AnnotationComparator;
 import edu.ucdenver.ccp.nlp.core.annotation.comparison.StrictSpanComparator;
 import edu.ucdenver.ccp.nlp.core.annotation.metadata.AnnotationMetadata;
 import edu.ucdenver.ccp.nlp.core.mention.ClassMention;
+import edu.ucdenver.ccp.nlp.core.mention.comparison.IdenticalMentionComparator;
 
 /**
  * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
@@ -58,8 +59,26 @@ public abstract class TextAnnotation implements Comparable<TextAnnotation> {
 
 	protected static Logger logger = LogManager.getLogger(TextAnnotation.class);
 
+	/*
+	 * the comparators are stateless, so compareTo() shares one instance of each
+	 */
+	private static final AnnotationComparator ANNOTATION_COMPARATOR = new AnnotationComparator();
+	private static final StrictSpanComparator STRICT_SPAN_COMPARATOR = new StrictSpanComparator();
+	private static final IdenticalMentionComparator IDENTICAL_MENTION_COMPARATOR = new IdenticalMentionComparator();
+
 	protected boolean hasWrappedAnnotation = false;
 
+	/**
+	 * Cached structural fingerprint used by {@link #equals(Object)} and {@link #hashCode()}
+	 */
+	private transient volatile AnnotationFingerprint fingerprint;
+
+	/**
+	 * Tracks modifications of this annotation, its spans and its mention hierarchy that affect
+	 * equality
+	 */
+	private final transient ModificationTracker modificationTracker = new ModificationTracker();
+
 	public TextAnnotation(Object... wrappedObjectAndGlobalVars) {
 		if (wrappedObjectAndGlobalVars != null) {
 			hasWrappedAnnotation = true;
@@ -407,14 +426,16 @@ public abstract class TextAnnotation implements Comparable<TextAnnotation> {
 		if (!(textAnnotationToCompare instanceof TextAnnotation)) {
 			throw new ClassCastException("A TextAnnotation object expected.");
 		} else {
-			AnnotationComparator ac = new AnnotationComparator();
-			return ac.compare(this, (TextAnnotation) textAnnotationToCompare);
+			return ANNOTATION_COMPARATOR.compare(this, (TextAnnotation) textAnnotationToCompare,
+					STRICT_SPAN_COMPARATOR, IDENTICAL_MENTION_COMPARATOR);
 		}
 	}
 
 	/**
 	 * The default equals() method requires exact span match, as well as identical class mention
-	 * match to return true.
+	 * match to return true. This is decided by comparing the cached 128-bit
+	 * {@link AnnotationFingerprint}s, which cover the same properties as the
+	 * {@link AnnotationComparator}.
 	 */
 	@Override
 	public boolean equals(Object textAnnotationToEquate) {
@@ -422,15 +443,70 @@ public abstract class TextAnnotation implements Comparable<TextAnnotation> {
 			throw new ClassCastException("A TextAnnotation object expected.");
 		} else {
 			TextAnnotation ta = (TextAnnotation) textAnnotationToEquate;
-
-			if (this.compareTo(ta) == 0) {
+			if (this == ta) {
 				return true;
-			} else {
-				return false;
 			}
+			return getFingerprint().equals(ta.getFingerprint());
 		}
 	}
 
+	/**
+	 * @return the {@link AnnotationFingerprint} for this annotation, computed on first use and
+	 *         recomputed if this annotation, its spans or its mention hierarchy have been modified
+	 *         since
+	 */
+	public AnnotationFingerprint getFingerprint() {
+		AnnotationFingerprint currentFingerprint = fingerprint;
+		if (currentFingerprint == null || !currentFingerprint.isCurrent(this)) {
+			currentFingerprint = AnnotationFingerprint.compute(this);
+			fingerprint = currentFingerprint;
+		}
+		return currentFingerprint;
+	}
+
+	/**
+	 * Records a modification of this annotation that affects equality. To be called by mutators.
+	 */
+	protected void markModified() {
+		modificationTracker.markModified();
+	}
+
+	/**
+	 * @return the tracker that records modifications of this annotation and of the spans and
+	 *         mentions that propagate their modifications to it
+	 */
+	public ModificationTracker getModificationTracker() {
+		return modificationTracker;
+	}
+
+	/**
+	 * Propagates subsequent modifications of the span to this annotation. To be called when a span
+	 * is added.
+	 * 
+	 * @param span
+	 */
+	protected void trackModificationsOf(Span span) {
+		span.getModificationTracker().addOwner(modificationTracker);
+	}
+
+	/**
+	 * @return the stamp of the most recent modification of this annotation, its spans, or any
+	 *         mention, span or referenced annotation in its mention hierarchy
+	 */
+	public long getModificationStamp() {
+		return modificationTracker.getStamp();
+	}
+
+	/**
+	 * @param stamp
+	 * @return true if this annotation, its spans, or any mention, span or referenced annotation in
+	 *         its mention hierarchy has been modified after the specified modification stamp was
+	 *         issued
+	 */
+	public boolean isModifiedSince(long stamp) {
+		return getModificationStamp() > stamp;
+	}
+
 	/**
 	 * Returns the total span of this annotation (i.e. from the start of the first span to the end
 	 * of the last span)
@@ -466,8 +542,7 @@ public abstract class TextAnnotation implements Comparable<TextAnnotation> {
 
 	@Override
 	public int hashCode() {
-		return (getSpanStr() + getDocumentCollectionID() + getDocumentID() + getClassMention().toDocumentLevelString())
-				.hashCode();
+		return getFingerprint().hashCode();
 	}
 
 	/**
@@ -41,6 +41,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -54,8 +55,12 @@ import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileReaderUtil;
 import edu.ucdenver.ccp.nlp.core.annotation.impl.DefaultTextAnnotation;
 import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperException;
+import edu.ucdenver.ccp.nlp.core.mention.BooleanSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.ClassMention;
 import edu.ucdenver.ccp.nlp.core.mention.ComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.mention.FloatSlotMention;
+import edu.ucdenver.ccp.nlp.core.mention.IntegerSlotMention;
+import edu.ucdenver.ccp.nlp.core.mention.Mention;
 import edu.ucdenver.ccp.nlp.core.mention.PrimitiveSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultClassMention;
 import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultComplexSlotMention;
@@ -131,7 +136,14 @@ public class TextAnnotationUtil {
 		return documentID2AnnotationsMap;
 	}
 
-	private static TextAnnotation getAnnotationFromLine(String line) {
+	/**
+	 * Parses a single line of the format read by
+	 * {@link #loadAnnotationsFromFile(File, CharacterEncoding)}
+	 * 
+	 * @param line
+	 * @return the annotation represented by the line, or null if the line is malformed
+	 */
+	public static TextAnnotation getAnnotationFromLine(String line) {
 		String[] toks = line.split("\\|");
 		if (toks.length > 4) {
 			String documentID = toks[0];
@@ -293,6 +305,111 @@ public class TextAnnotationUtil {
 		return annotationsToKeep;
 	}
 
+	/**
+	 * Copies the specified annotations, including their mention hierarchies, into the default
+	 * in-memory implementations, e.g. so that annotations wrapping CAS feature structures can be
+	 * read from threads other than the one that owns the CAS. Mentions and annotations shared
+	 * between the input annotations are shared between the copies. Slot values of primitive types
+	 * without a default implementation are copied as strings.
+	 * 
+	 * @param textAnnotations
+	 * @return the copies, in the iteration order of the input
+	 */
+	public static List<TextAnnotation> copyToDefaultTextAnnotations(Collection<TextAnnotation> textAnnotations) {
+		Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+		List<TextAnnotation> copiedAnnotations = new ArrayList<TextAnnotation>(textAnnotations.size());
+		for (TextAnnotation ta : textAnnotations) {
+			copiedAnnotations.add(copyToDefaultTextAnnotation(ta, copies));
+		}
+		return copiedAnnotations;
+	}
+
+	private static DefaultTextAnnotation copyToDefaultTextAnnotation(TextAnnotation ta, Map<Object, Object> copies) {
+		Object key = getCopyKey(ta);
+		DefaultTextAnnotation copy = (DefaultTextAnnotation) copies.get(key);
+		if (copy != null) {
+			return copy;
+		}
+		copy = new DefaultTextAnnotation(ta.getSpans());
+		copies.put(key, copy);
+		swapAnnotationInfo(ta, copy);
+		ClassMention cm = ta.getClassMention();
+		if (cm != null) {
+			copy.setClassMention(copyToDefaultClassMention(cm, copies));
+		}
+		return copy;
+	}
+
+	private static ClassMention copyToDefaultClassMention(ClassMention cm, Map<Object, Object> copies) {
+		Object key = getCopyKey(cm);
+		ClassMention copy = (ClassMention) copies.get(key);
+		if (copy != null) {
+			return copy;
+		}
+		copy = new DefaultClassMention(cm.getMentionName());
+		copies.put(key, copy);
+		copy.setMentionID(cm.getMentionID());
+		for (PrimitiveSlotMention<?> sm : cm.getPrimitiveSlotMentions()) {
+			copy.addPrimitiveSlotMention(copyToDefaultPrimitiveSlotMention(sm));
+		}
+		for (ComplexSlotMention csm : cm.getComplexSlotMentions()) {
+			ComplexSlotMention csmCopy = new DefaultComplexSlotMention(csm.getMentionName());
+			csmCopy.setMentionID(csm.getMentionID());
+			for (ClassMention slotValue : csm.getClassMentions()) {
+				csmCopy.addClassMention(copyToDefaultClassMention(slotValue, copies));
+			}
+			copy.addComplexSlotMention(csmCopy);
+		}
+		TextAnnotation referencedTa = cm.getTextAnnotation();
+		if (referencedTa != null) {
+			/* sets the reference from the copied class mention to the copied annotation */
+			copyToDefaultTextAnnotation(referencedTa, copies);
+		}
+		return copy;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static PrimitiveSlotMention copyToDefaultPrimitiveSlotMention(PrimitiveSlotMention<?> sm) {
+		PrimitiveSlotMention copy;
+		if (sm instanceof IntegerSlotMention) {
+			copy = DefaultPrimitiveSlotMentionFactory.createPrimitiveSlotMentionWithIntegerCollection(
+					sm.getMentionName(), (Collection<Integer>) sm.getSlotValues());
+		} else if (sm instanceof FloatSlotMention) {
+			copy = DefaultPrimitiveSlotMentionFactory.createPrimitiveSlotMentionWithFloatCollection(
+					sm.getMentionName(), (Collection<Float>) sm.getSlotValues());
+		} else if (sm instanceof BooleanSlotMention) {
+			copy = DefaultPrimitiveSlotMentionFactory.createPrimitiveSlotMentionWithBooleanCollection(
+					sm.getMentionName(), (Collection<Boolean>) sm.getSlotValues());
+		} else {
+			List<String> slotValues = new ArrayList<String>();
+			for (Object slotValue : sm.getSlotValues()) {
+				slotValues.add(slotValue.toString());
+			}
+			copy = DefaultPrimitiveSlotMentionFactory.createPrimitiveSlotMentionWithStringCollection(
+					sm.getMentionName(), slotValues);
+		}
+		copy.setMentionID(sm.getMentionID());
+		return copy;
+	}
+
+	/**
+	 * @return the wrapped object, if any, so that several wrappers of the same underlying object
+	 *         map to a single copy
+	 */
+	private static Object getCopyKey(TextAnnotation ta) {
+		return ta.hasWrappedAnnotation ? ta.getWrappedObject() : ta;
+	}
+
+	private static Object getCopyKey(Mention mention) {
+		try {
+			Object wrappedObject = mention.getWrappedObject();
+			return (wrappedObject == null) ? mention : wrappedObject;
+		} catch (UnsupportedOperationException e) {
+			/* the default implementations do not wrap another object */
+			return mention;
+		}
+	}
+
 	/**
 	 * Adds a slot value to a text annotation. If the slot is not present, it is created.
 	 * 
@@ -33,14 +33,9 @@ package edu.ucdenver.ccp.nlp.core.annotation.comparison;
  * #L%
  */
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.List;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import java.util.concurrent.ForkJoinPool;
 
 
 import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
@@ -71,8 +66,6 @@ import edu.ucdenver.ccp.nlp.core.mention.comparison.MentionComparator;
  */
 
 public class AnnotationComparator implements Comparator<TextAnnotation> {
-	private static Logger logger = LogManager.getLogger(AnnotationComparator.class);
-
 	/**
 	 * TextAnnotation comparison utilizes the StrictSpanComparator and the
 	 * IdenticalMentionComparator family
@@ -158,181 +151,28 @@ public class AnnotationComparator implements Comparator<TextAnnotation> {
 	 */
 	public PRFResult compare(Collection<TextAnnotation> goldTas, Collection<TextAnnotation> testTas,
 			SpanComparator spanComparator, MentionComparator mentionComparator, int maximumComparisonDepth) {
+		return new AnnotationComparisonEngine(this).compare(goldTas, testTas, spanComparator, mentionComparator,
+				maximumComparisonDepth);
+	}
 
-		List<TextAnnotation> goldTaList = Collections.list(Collections.enumeration(goldTas));
-		List<TextAnnotation> testTaList = Collections.list(Collections.enumeration(testTas));
-
-		boolean[] foundMatchForGold = new boolean[goldTaList.size()];
-		boolean[] foundMatchForTest = new boolean[testTaList.size()];
-		int fn = 0;
-
-		/* keep track of the tp, fp, and fn annotations */
-		List<TextAnnotation> tpAnnotations = new ArrayList<TextAnnotation>();
-		List<TextAnnotation> fpAnnotations = new ArrayList<TextAnnotation>();
-		List<TextAnnotation> fnAnnotations = new ArrayList<TextAnnotation>();
-
-		/*
-		 * If spansMustOverlapToMatch = true, then we can limit the number of comparisons made by
-		 * only comparing those annotations that overlap. This should speed up processing,
-		 * especially for tasks such as comparing tokens in a document where it is clearly
-		 * unnecessary to compare the first token in the document with the final token. Previously
-		 * this brute force approach was used. It worked, but could be slow depending on how many
-		 * annotations are in the document.
-		 */
-		boolean spansMustOverlapToMatch = spanComparator.spansMustOverlapToMatch();
-
-		int indexInTestAnnotationSpansList = 0;
-		if (spansMustOverlapToMatch) {
-			/* ensure that the gold standard TA's are sorted. */
-			Collections.sort(goldTaList, TextAnnotation.BY_SPAN());
-			Collections.sort(testTaList, TextAnnotation.BY_SPAN());
-
-			/* make sure sorting worked */
-			int previousIndex = -1;
-			for (TextAnnotation ta : goldTaList) {
-				if (ta.getAnnotationSpanStart() < previousIndex) {
-					logger.error("Error in text annotation sorting...");
-				}
-			}
-		}
-
-		for (int i = 0; i < goldTaList.size(); i++) {
-			TextAnnotation goldTA = goldTaList.get(i);
-			if (spansMustOverlapToMatch) {
-
-				/*
-				 * advance the pointer into the test annotation list until we find one that overlaps
-				 * the gold standard annotation, or until the gold standard annotation span start
-				 * has passed the test annotation span start
-				 */
-				// if (indexInTestAnnotationSpansList < testTaList.size()) {
-				// logger.debug("Should we compare GOLD=" +
-				// goldTA.getSingleLineRepresentation(false, false) +
-				// " with TEST: " +
-				// testTaList.get(indexInTestAnnotationSpansList).getSingleLineRepresentation(false,
-				// false));
-				// }
-				while (indexInTestAnnotationSpansList < testTaList.size()
-						&& (goldTA.getAnnotationSpanStart() >= testTaList.get(indexInTestAnnotationSpansList)
-								.getAnnotationSpanStart() && !goldTA.overlaps(testTaList
-								.get(indexInTestAnnotationSpansList)))) {
-
-					// logger.debug("advancing pointer... gold does not overlap with test: "
-					// + goldTA.getSingleLineRepresentation(false, false) + " -- "
-					// +
-					// testTaList.get(indexInTestAnnotationSpansList).getSingleLineRepresentation(false,
-					// false));
-					indexInTestAnnotationSpansList++;
-
-				}
-
-				/*
-				 * if the pointer into the test annotation list is off the bottom of the list, then
-				 * there are no more test annotations to compare against. We cycle through the test
-				 * annotations while they overlap the gold standard annotation, AND while/if they
-				 * are upstream of the gold standard annotation. This last criteria is due to a
-				 * tricky situation that arose with some annotations with split spans. See the Unit
-				 * Test: testComparisonWhenEmbeddedAnnotationExists for details.
-				 */
-				// logger.debug("place holder = " + indexInTestAnnotationSpansList);
-				int indexPlaceHolder = indexInTestAnnotationSpansList;
-				while (indexInTestAnnotationSpansList < testTaList.size()
-						&& (testTaList.get(indexInTestAnnotationSpansList).getAnnotationSpanEnd() < goldTA
-								.getAnnotationSpanStart() || goldTA.overlaps(testTaList
-								.get(indexInTestAnnotationSpansList)))) {
-					TextAnnotation testTA = testTaList.get(indexInTestAnnotationSpansList);
-
-					/* compare the two TextAnnotations */
-
-					int comparisonResult = compare(goldTA, testTA, spanComparator, mentionComparator,
-							maximumComparisonDepth);
-					// logger.debug("RESULT = " + comparisonResult + " COMPARING (" +
-					// indexInTestAnnotationSpansList +
-					// "): "
-					// + goldTA.getSingleLineRepresentation(false, false) + " -- " +
-					// testTA.getSingleLineRepresentation(false, false));
-					if (comparisonResult == 0) {
-						/*
-						 * we have found an exact match, so mark that appropriate gold annotation as
-						 * matched
-						 */
-						foundMatchForGold[i] = true;
-						foundMatchForTest[indexInTestAnnotationSpansList] = true;
-					}
-
-					indexInTestAnnotationSpansList++;
-				}
-
-				/*
-				 * rollback the indexInTestAnnotationSpansList to the indexPlaceHolder to get ready
-				 * for the next Gold Standard Annotations. Since the GS annotations are sorted, we
-				 * know that we don't need to compare the next one to any of the previous test
-				 * annotations, but we might want to compare it to some of the test annotations that
-				 * were compared to the current GS annotation, so we roll back
-				 */
-				indexInTestAnnotationSpansList = indexPlaceHolder;
-
-			} else {
-				/*
-				 * Since there is no guarantee that the spans must overlap, the brute force approach
-				 * must be applied and each annotation must be compared to every other annotation in
-				 * the document
-				 */
-				for (int j = 0; j < testTaList.size(); j++) {
-					TextAnnotation testTA = testTaList.get(j);
-
-					/* compare the two TextAnnotations */
-					int comparisonResult = compare(goldTA, testTA, spanComparator, mentionComparator,
-							maximumComparisonDepth);
-					// logger.debug("RESULT = " + comparisonResult + " COMPARING (" +
-					// indexInTestAnnotationSpansList +
-					// "): "
-					// + goldTA.getSingleLineRepresentation(false, false) + " -- " +
-					// testTA.getSingleLineRepresentation(false, false));
-
-					if (comparisonResult == 0) {
-						/*
-						 * we have found an exact match, so mark that appropriate gold annotation as
-						 * matched
-						 */
-						foundMatchForGold[i] = true;
-						foundMatchForTest[j] = true;
-					}
-				}
-			}
-
-			/*
-			 * after cycling through all of the annotations in the testTAList, if we did not find a
-			 * match for this particular goldTA, then we need to increment the False Negative count
-			 */
-			if (!foundMatchForGold[i]) {
-				fn++;
-				fnAnnotations.add(goldTA);
-			}
-		}
-
-		/*
-		 * now that we have cycled through the entire set of annotations, we can compute the number
-		 * of True Positives and False Positives by examining the foundMatchForTest array
-		 */
-		int tp = 0;
-		int fp = 0;
-		for (int i = 0; i < foundMatchForTest.length; i++) {
-			if (foundMatchForTest[i]) {
-				tp++;
-				tpAnnotations.add(testTaList.get(i));
-			} else {
-				fp++;
-				fpAnnotations.add(testTaList.get(i));
-			}
-		}
-
-		PRFResult prfResult = new PRFResult(tp, fp, fn);
-		prfResult.setTPAnnotations(tpAnnotations);
-		prfResult.setFPAnnotations(fpAnnotations);
-		prfResult.setFNAnnotations(fnAnnotations);
-
-		return prfResult;
+	/**
+	 * Compares two lists of TextAnnotations using the supplied SpanComparator and
+	 * ClassMentionComparator, splitting the comparison across the supplied {@link ForkJoinPool}.
+	 * The annotations must be safe to read concurrently, see {@link AnnotationComparisonEngine}.
+	 * 
+	 * @param goldTas
+	 * @param testTas
+	 * @param spanComparator
+	 * @param mentionComparator
+	 * @param maximumComparisonDepth
+	 * @param pool
+	 * @return
+	 */
+	public PRFResult compare(Collection<TextAnnotation> goldTas, Collection<TextAnnotation> testTas,
+			SpanComparator spanComparator, MentionComparator mentionComparator, int maximumComparisonDepth,
+			ForkJoinPool pool) {
+		return new AnnotationComparisonEngine(this).compare(goldTas, testTas, spanComparator, mentionComparator,
+				maximumComparisonDepth, pool);
 	}
 
 	/**
@@ -0,0 +1,527 @@
+package edu.ucdenver.ccp.nlp.core.annotation.comparison;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import edu.ucdenver.ccp.nlp.core.annotation.Span;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.mention.ClassMention;
+import edu.ucdenver.ccp.nlp.core.mention.comparison.IdenticalMentionComparator;
+import edu.ucdenver.ccp.nlp.core.mention.comparison.MentionComparator;
+
+/**
+ * Computes the {@link PRFResult} for a gold standard and a test collection of
+ * {@link TextAnnotation}s. A gold and a test annotation match if
+ * {@link AnnotationComparator#compare(TextAnnotation, TextAnnotation, SpanComparator, MentionComparator, int)}
+ * returns 0; the engine only limits which pairs are handed to that method:
+ * <ul>
+ * <li>for the {@link StrictSpanComparator} and the {@link IgnoreSpanComparator} the annotations
+ * are joined on a hash key built from the sorted span offsets (strict only), the case-insensitive
+ * class mention name (when an {@link IdenticalMentionComparator} compares the full mention
+ * hierarchy), the document ID and the document collection ID</li>
+ * <li>for other span comparators whose spans must overlap in order to match, a sweep line over
+ * the aggregate span offsets of the annotations pairs each gold annotation with the test
+ * annotations it overlaps or touches</li>
+ * <li>for all remaining span comparators every gold annotation is compared to every test
+ * annotation</li>
+ * </ul>
+ * When a {@link ForkJoinPool} is supplied, the gold annotations are split into ranges that are
+ * matched in parallel. This requires that the annotations (and the comparators) can safely be read
+ * from multiple threads, which is the case for the in-memory annotation implementations but not
+ * for annotations that wrap UIMA feature structures.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationComparisonEngine {
+
+	/**
+	 * Parallel comparisons are not split into ranges containing fewer than this number of gold
+	 * annotations
+	 */
+	private static final int MINIMUM_GOLD_ANNOTATIONS_PER_TASK = 64;
+
+	private final AnnotationComparator annotationComparator;
+
+	/**
+	 * @param annotationComparator
+	 *            the comparator used to decide whether a gold and a test annotation match
+	 */
+	public AnnotationComparisonEngine(AnnotationComparator annotationComparator) {
+		this.annotationComparator = annotationComparator;
+	}
+
+	/**
+	 * Compares the gold and test annotations in the calling thread
+	 * 
+	 * @param goldTas
+	 * @param testTas
+	 * @param spanComparator
+	 * @param mentionComparator
+	 * @param maximumComparisonDepth
+	 * @return
+	 */
+	public PRFResult compare(Collection<TextAnnotation> goldTas, Collection<TextAnnotation> testTas,
+			SpanComparator spanComparator, MentionComparator mentionComparator, int maximumComparisonDepth) {
+		return compare(goldTas, testTas, spanComparator, mentionComparator, maximumComparisonDepth, null);
+	}
+
+	/**
+	 * Compares the gold and test annotations, splitting the work across the specified pool
+	 * 
+	 * @param goldTas
+	 * @param testTas
+	 * @param spanComparator
+	 * @param mentionComparator
+	 * @param maximumComparisonDepth
+	 * @param pool
+	 *            if null, the comparison is done in the calling thread
+	 * @return
+	 */
+	public PRFResult compare(Collection<TextAnnotation> goldTas, Collection<TextAnnotation> testTas,
+			SpanComparator spanComparator, MentionComparator mentionComparator, int maximumComparisonDepth,
+			ForkJoinPool pool) {
+		List<TextAnnotation> goldTaList = new ArrayList<TextAnnotation>(goldTas);
+		List<TextAnnotation> testTaList = new ArrayList<TextAnnotation>(testTas);
+
+		CandidateMatcher matcher;
+		if (spanComparator.getClass() == StrictSpanComparator.class
+				|| spanComparator.getClass() == IgnoreSpanComparator.class) {
+			/*
+			 * the strict span comparator requires overlapping spans, so the annotations are
+			 * returned in span order as they were prior to the hash join being introduced
+			 */
+			if (spanComparator.spansMustOverlapToMatch()) {
+				goldTaList = sortBySpan(goldTaList);
+				testTaList = sortBySpan(testTaList);
+			}
+			matcher = new HashJoinMatcher(goldTaList, testTaList, spanComparator, mentionComparator,
+					maximumComparisonDepth);
+		} else if (spanComparator.spansMustOverlapToMatch()) {
+			goldTaList = sortBySpan(goldTaList);
+			testTaList = sortBySpan(testTaList);
+			matcher = new SweepLineMatcher(goldTaList, testTaList, spanComparator, mentionComparator,
+					maximumComparisonDepth);
+		} else {
+			matcher = new NestedLoopMatcher(goldTaList, testTaList, spanComparator, mentionComparator,
+					maximumComparisonDepth);
+		}
+
+		boolean[] foundMatchForGold = new boolean[goldTaList.size()];
+		boolean[] foundMatchForTest = new boolean[testTaList.size()];
+		if (pool == null || goldTaList.size() <= MINIMUM_GOLD_ANNOTATIONS_PER_TASK) {
+			matcher.match(0, goldTaList.size(), foundMatchForGold, foundMatchForTest);
+		} else {
+			int rangeSize = Math.max(MINIMUM_GOLD_ANNOTATIONS_PER_TASK,
+					goldTaList.size() / (pool.getParallelism() * 4));
+			pool.invoke(new GoldRangeTask(matcher, 0, goldTaList.size(), rangeSize, foundMatchForGold,
+					foundMatchForTest));
+		}
+
+		return createPRFResult(goldTaList, testTaList, foundMatchForGold, foundMatchForTest);
+	}
+
+	/**
+	 * Tallies the true positive, false positive and false negative annotations
+	 */
+	private static PRFResult createPRFResult(List<TextAnnotation> goldTaList, List<TextAnnotation> testTaList,
+			boolean[] foundMatchForGold, boolean[] foundMatchForTest) {
+		List<TextAnnotation> tpAnnotations = new ArrayList<TextAnnotation>();
+		List<TextAnnotation> fpAnnotations = new ArrayList<TextAnnotation>();
+		List<TextAnnotation> fnAnnotations = new ArrayList<TextAnnotation>();
+		for (int i = 0; i < foundMatchForGold.length; i++) {
+			if (!foundMatchForGold[i]) {
+				fnAnnotations.add(goldTaList.get(i));
+			}
+		}
+		for (int i = 0; i < foundMatchForTest.length; i++) {
+			if (foundMatchForTest[i]) {
+				tpAnnotations.add(testTaList.get(i));
+			} else {
+				fpAnnotations.add(testTaList.get(i));
+			}
+		}
+		PRFResult prfResult = new PRFResult(tpAnnotations.size(), fpAnnotations.size(), fnAnnotations.size());
+		prfResult.setTPAnnotations(tpAnnotations);
+		prfResult.setFPAnnotations(fpAnnotations);
+		prfResult.setFNAnnotations(fnAnnotations);
+		return prfResult;
+	}
+
+	/**
+	 * @return a copy of the input list sorted by aggregate span (start, then end), i.e. in the
+	 *         order produced by {@link TextAnnotation#BY_SPAN()}
+	 */
+	private static List<TextAnnotation> sortBySpan(List<TextAnnotation> taList) {
+		final int[] begins = new int[taList.size()];
+		final int[] ends = new int[taList.size()];
+		Integer[] order = new Integer[taList.size()];
+		for (int i = 0; i < taList.size(); i++) {
+			int[] aggregateSpan = getAggregateSpan(taList.get(i));
+			begins[i] = aggregateSpan[0];
+			ends[i] = aggregateSpan[1];
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				if (begins[i1] != begins[i2]) {
+					return (begins[i1] < begins[i2]) ? -1 : 1;
+				}
+				return (ends[i1] < ends[i2]) ? -1 : ((ends[i1] == ends[i2]) ? 0 : 1);
+			}
+		});
+		List<TextAnnotation> sortedTaList = new ArrayList<TextAnnotation>(taList.size());
+		for (Integer index : order) {
+			sortedTaList.add(taList.get(index));
+		}
+		return sortedTaList;
+	}
+
+	/**
+	 * @return the minimum span start and maximum span end of the annotation as a two-element
+	 *         array; [0,0] for an annotation without spans
+	 */
+	private static int[] getAggregateSpan(TextAnnotation ta) {
+		List<Span> spans = ta.getSpans();
+		if (spans == null || spans.isEmpty()) {
+			return new int[] { 0, 0 };
+		}
+		int begin = Integer.MAX_VALUE;
+		int end = Integer.MIN_VALUE;
+		for (Span span : spans) {
+			begin = Math.min(begin, span.getSpanStart());
+			end = Math.max(end, span.getSpanEnd());
+		}
+		return new int[] { begin, end };
+	}
+
+	/**
+	 * Case-folds each character the same way {@link String#equalsIgnoreCase(String)} compares
+	 * characters
+	 */
+	private static String foldCase(String s) {
+		char[] chars = s.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Marks the gold and test annotations that have a match. Implementations must be safe to call
+	 * concurrently for disjoint gold ranges.
+	 */
+	private abstract class CandidateMatcher {
+		protected final List<TextAnnotation> goldTaList;
+		protected final List<TextAnnotation> testTaList;
+		private final SpanComparator spanComparator;
+		private final MentionComparator mentionComparator;
+		private final int maximumComparisonDepth;
+
+		public CandidateMatcher(List<TextAnnotation> goldTaList, List<TextAnnotation> testTaList,
+				SpanComparator spanComparator, MentionComparator mentionComparator, int maximumComparisonDepth) {
+			this.goldTaList = goldTaList;
+			this.testTaList = testTaList;
+			this.spanComparator = spanComparator;
+			this.mentionComparator = mentionComparator;
+			this.maximumComparisonDepth = maximumComparisonDepth;
+		}
+
+		/**
+		 * Compares the gold annotations with index in [goldFrom, goldTo) with their candidate
+		 * test annotations. Entries in the test array are only ever set to true, so concurrent
+		 * calls may share it.
+		 */
+		public abstract void match(int goldFrom, int goldTo, boolean[] foundMatchForGold, boolean[] foundMatchForTest);
+
+		protected void compare(int goldIndex, int testIndex, boolean[] foundMatchForGold, boolean[] foundMatchForTest) {
+			if (annotationComparator.compare(goldTaList.get(goldIndex), testTaList.get(testIndex), spanComparator,
+					mentionComparator, maximumComparisonDepth) == 0) {
+				foundMatchForGold[goldIndex] = true;
+				foundMatchForTest[testIndex] = true;
+			}
+		}
+	}
+
+	/**
+	 * Compares every gold annotation to every test annotation
+	 */
+	private class NestedLoopMatcher extends CandidateMatcher {
+
+		public NestedLoopMatcher(List<TextAnnotation> goldTaList, List<TextAnnotation> testTaList,
+				SpanComparator spanComparator, MentionComparator mentionComparator, int maximumComparisonDepth) {
+			super(goldTaList, testTaList, spanComparator, mentionComparator, maximumComparisonDepth);
+		}
+
+		@Override
+		public void match(int goldFrom, int goldTo, boolean[] foundMatchForGold, boolean[] foundMatchForTest) {
+			for (int i = goldFrom; i < goldTo; i++) {
+				for (int j = 0; j < testTaList.size(); j++) {
+					compare(i, j, foundMatchForGold, foundMatchForTest);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares each gold annotation to the test annotations whose aggregate span overlaps or
+	 * touches its own aggregate span. Both lists must be sorted by span start.
+	 */
+	private class SweepLineMatcher extends CandidateMatcher {
+		private final int[] goldBegins;
+		private final int[] goldEnds;
+		private final int[] testBegins;
+		private final int[] testEnds;
+
+		public SweepLineMatcher(List<TextAnnotation> goldTaList, List<TextAnnotation> testTaList,
+				SpanComparator spanComparator, MentionComparator mentionComparator, int maximumComparisonDepth) {
+			super(goldTaList, testTaList, spanComparator, mentionComparator, maximumComparisonDepth);
+			goldBegins = new int[goldTaList.size()];
+			goldEnds = new int[goldTaList.size()];
+			for (int i = 0; i < goldTaList.size(); i++) {
+				int[] aggregateSpan = getAggregateSpan(goldTaList.get(i));
+				goldBegins[i] = aggregateSpan[0];
+				goldEnds[i] = aggregateSpan[1];
+			}
+			testBegins = new int[testTaList.size()];
+			testEnds = new int[testTaList.size()];
+			for (int i = 0; i < testTaList.size(); i++) {
+				int[] aggregateSpan = getAggregateSpan(testTaList.get(i));
+				testBegins[i] = aggregateSpan[0];
+				testEnds[i] = aggregateSpan[1];
+			}
+		}
+
+		@Override
+		public void match(int goldFrom, int goldTo, boolean[] foundMatchForGold, boolean[] foundMatchForTest) {
+			/*
+			 * the active list holds the test annotations that have been reached by the sweep and
+			 * that do not end before the current gold annotation begins. Since gold annotations
+			 * are visited in order of span start, a test annotation that ends before the current
+			 * gold annotation begins cannot match any of the remaining gold annotations.
+			 */
+			int[] active = new int[16];
+			int activeCount = 0;
+			int nextTest = 0;
+			for (int i = goldFrom; i < goldTo; i++) {
+				int goldBegin = goldBegins[i];
+				int goldEnd = goldEnds[i];
+				while (nextTest < testBegins.length && testBegins[nextTest] <= goldEnd) {
+					if (testEnds[nextTest] >= goldBegin) {
+						if (activeCount == active.length) {
+							active = Arrays.copyOf(active, activeCount * 2);
+						}
+						active[activeCount++] = nextTest;
+					}
+					nextTest++;
+				}
+				int retained = 0;
+				for (int k = 0; k < activeCount; k++) {
+					int j = active[k];
+					if (testEnds[j] < goldBegin) {
+						continue;
+					}
+					active[retained++] = j;
+					if (testBegins[j] <= goldEnd) {
+						compare(i, j, foundMatchForGold, foundMatchForTest);
+					}
+				}
+				activeCount = retained;
+			}
+		}
+	}
+
+	/**
+	 * Compares each gold annotation to the test annotations that share its join key
+	 */
+	private class HashJoinMatcher extends CandidateMatcher {
+		private final boolean joinOnSpans;
+		private final boolean joinOnMentionName;
+		private final Map<JoinKey, int[]> keyToTestIndexes;
+
+		public HashJoinMatcher(List<TextAnnotation> goldTaList, List<TextAnnotation> testTaList,
+				SpanComparator spanComparator, MentionComparator mentionComparator, int maximumComparisonDepth) {
+			super(goldTaList, testTaList, spanComparator, mentionComparator, maximumComparisonDepth);
+			this.joinOnSpans = (spanComparator.getClass() == StrictSpanComparator.class);
+			/*
+			 * the class mention names can only be part of the key if the comparison is known to
+			 * require equivalent names at the root of the mention hierarchy
+			 */
+			this.joinOnMentionName = (mentionComparator instanceof IdenticalMentionComparator && maximumComparisonDepth == -1);
+
+			Map<JoinKey, List<Integer>> keyToIndexList = new HashMap<JoinKey, List<Integer>>();
+			for (int j = 0; j < testTaList.size(); j++) {
+				JoinKey key = createKey(testTaList.get(j));
+				List<Integer> indexes = keyToIndexList.get(key);
+				if (indexes == null) {
+					indexes = new ArrayList<Integer>(1);
+					keyToIndexList.put(key, indexes);
+				}
+				indexes.add(j);
+			}
+			keyToTestIndexes = new HashMap<JoinKey, int[]>(keyToIndexList.size() * 2);
+			for (Map.Entry<JoinKey, List<Integer>> entry : keyToIndexList.entrySet()) {
+				int[] indexes = new int[entry.getValue().size()];
+				for (int k = 0; k < indexes.length; k++) {
+					indexes[k] = entry.getValue().get(k);
+				}
+				keyToTestIndexes.put(entry.getKey(), indexes);
+			}
+		}
+
+		private JoinKey createKey(TextAnnotation ta) {
+			int[] spanOffsets = null;
+			if (joinOnSpans) {
+				List<Span> spans = new ArrayList<Span>(ta.getSpans());
+				Collections.sort(spans, new StrictSpanComparator());
+				spanOffsets = new int[spans.size() * 2];
+				for (int k = 0; k < spans.size(); k++) {
+					spanOffsets[2 * k] = spans.get(k).getSpanStart();
+					spanOffsets[2 * k + 1] = spans.get(k).getSpanEnd();
+				}
+			}
+			String mentionName = null;
+			if (joinOnMentionName) {
+				ClassMention cm = ta.getClassMention();
+				if (cm != null && cm.getMentionName() != null) {
+					mentionName = foldCase(cm.getMentionName());
+				}
+			}
+			return new JoinKey(spanOffsets, mentionName, ta.getDocumentID(), ta.getDocumentCollectionID());
+		}
+
+		@Override
+		public void match(int goldFrom, int goldTo, boolean[] foundMatchForGold, boolean[] foundMatchForTest) {
+			for (int i = goldFrom; i < goldTo; i++) {
+				int[] testIndexes = keyToTestIndexes.get(createKey(goldTaList.get(i)));
+				if (testIndexes != null) {
+					for (int j : testIndexes) {
+						compare(i, j, foundMatchForGold, foundMatchForTest);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Hash join key consisting of the sorted span offsets, the case-folded class mention name,
+	 * the document ID and the document collection ID. Components that are not part of the join
+	 * are null.
+	 */
+	private static class JoinKey {
+		private final int[] spanOffsets;
+		private final String mentionName;
+		private final String documentID;
+		private final int documentCollectionID;
+		private final int hashCode;
+
+		public JoinKey(int[] spanOffsets, String mentionName, String documentID, int documentCollectionID) {
+			this.spanOffsets = spanOffsets;
+			this.mentionName = mentionName;
+			this.documentID = documentID;
+			this.documentCollectionID = documentCollectionID;
+			int hash = Arrays.hashCode(spanOffsets);
+			hash = 31 * hash + ((mentionName == null) ? 0 : mentionName.hashCode());
+			hash = 31 * hash + ((documentID == null) ? 0 : documentID.hashCode());
+			this.hashCode = 31 * hash + documentCollectionID;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof JoinKey)) {
+				return false;
+			}
+			JoinKey key = (JoinKey) obj;
+			return hashCode == key.hashCode && documentCollectionID == key.documentCollectionID
+					&& Arrays.equals(spanOffsets, key.spanOffsets) && equal(mentionName, key.mentionName)
+					&& equal(documentID, key.documentID);
+		}
+
+		private static boolean equal(String s1, String s2) {
+			return (s1 == null) ? s2 == null : s1.equals(s2);
+		}
+	}
+
+	/**
+	 * Splits a range of gold annotations until it is small enough to be matched directly
+	 */
+	private static class GoldRangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final CandidateMatcher matcher;
+		private final int goldFrom;
+		private final int goldTo;
+		private final int rangeSize;
+		private final boolean[] foundMatchForGold;
+		private final boolean[] foundMatchForTest;
+
+		public GoldRangeTask(CandidateMatcher matcher, int goldFrom, int goldTo, int rangeSize,
+				boolean[] foundMatchForGold, boolean[] foundMatchForTest) {
+			this.matcher = matcher;
+			this.goldFrom = goldFrom;
+			this.goldTo = goldTo;
+			this.rangeSize = rangeSize;
+			this.foundMatchForGold = foundMatchForGold;
+			this.foundMatchForTest = foundMatchForTest;
+		}
+
+		@Override
+		protected void compute() {
+			if (goldTo - goldFrom <= rangeSize) {
+				matcher.match(goldFrom, goldTo, foundMatchForGold, foundMatchForTest);
+			} else {
+				int mid = (goldFrom + goldTo) >>> 1;
+				invokeAll(new GoldRangeTask(matcher, goldFrom, mid, rangeSize, foundMatchForGold, foundMatchForTest),
+						new GoldRangeTask(matcher, mid, goldTo, rangeSize, foundMatchForGold, foundMatchForTest));
+			}
+		}
+	}
+
+}
@@ -33,6 +33,7 @@ package edu.ucdenver.ccp.nlp.core.annotation.comparison;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -125,9 +126,12 @@ public abstract class SpanComparator implements Comparator<Span> {
 	 */
 	public int matches(List<Span> spanList1, List<Span> spanList2) {
 		SpanComparator sc = new StrictSpanComparator();
-		/* sort the lists just to be certain */
-		Collections.sort(spanList1, sc);
-		Collections.sort(spanList2, sc);
+		/*
+		 * sort copies of the lists just to be certain; the input lists are left untouched so that
+		 * annotations can be compared from multiple threads
+		 */
+		spanList1 = sortedCopy(spanList1, sc);
+		spanList2 = sortedCopy(spanList2, sc);
 
 		// if (spanList1.equals(spanList2)) {
 		// /* if the lists are identical, return 0 */
@@ -153,8 +157,6 @@ public abstract class SpanComparator implements Comparator<Span> {
 			 * there are members in both span lists, so pick the first and last member, since it is
 			 * sorted, and use them to determine what to return.
 			 */
-			Collections.sort(spanList1, sc);
-			Collections.sort(spanList2, sc);
 			Span firstSpanFromList1 = spanList1.get(0);
 			Span firstSpanFromList2 = spanList2.get(0);
 			Span lastSpanFromList1 = spanList1.get(spanList1.size() - 1);
@@ -306,8 +308,8 @@ public abstract class SpanComparator implements Comparator<Span> {
 			 * there are members in both span lists, so pick the first and last member, since it is
 			 * sorted, and use them to determine what to return.
 			 */
-			Collections.sort(spanList1, sc);
-			Collections.sort(spanList2, sc);
+			spanList1 = sortedCopy(spanList1, sc);
+			spanList2 = sortedCopy(spanList2, sc);
 			Span firstSpanFromList1 = spanList1.get(0);
 			Span firstSpanFromList2 = spanList2.get(0);
 			Span lastSpanFromList1 = spanList1.get(spanList1.size() - 1);
@@ -371,8 +373,8 @@ public abstract class SpanComparator implements Comparator<Span> {
 			 * there are members in both span lists, so pick the first and last member, since it is
 			 * sorted, and use them to determine what to return.
 			 */
-			Collections.sort(spanList1, sc);
-			Collections.sort(spanList2, sc);
+			spanList1 = sortedCopy(spanList1, sc);
+			spanList2 = sortedCopy(spanList2, sc);
 			Span firstSpanFromList1 = spanList1.get(0);
 			Span firstSpanFromList2 = spanList2.get(0);
 			Span lastSpanFromList1 = spanList1.get(spanList1.size() - 1);
@@ -436,8 +438,8 @@ public abstract class SpanComparator implements Comparator<Span> {
 			 * there are members in both span lists, so pick the first and last member, since it is
 			 * sorted, and use them to determine what to return.
 			 */
-			Collections.sort(spanList1, sc);
-			Collections.sort(spanList2, sc);
+			spanList1 = sortedCopy(spanList1, sc);
+			spanList2 = sortedCopy(spanList2, sc);
 			Span firstSpanFromList1 = spanList1.get(0);
 			Span firstSpanFromList2 = spanList2.get(0);
 			Span lastSpanFromList1 = spanList1.get(spanList1.size() - 1);
@@ -455,6 +457,15 @@ public abstract class SpanComparator implements Comparator<Span> {
 		}
 	}
 
+	/**
+	 * @return a sorted copy of the input span list
+	 */
+	private static List<Span> sortedCopy(List<Span> spanList, SpanComparator sc) {
+		List<Span> sortedList = new ArrayList<Span>(spanList);
+		Collections.sort(sortedList, sc);
+		return sortedList;
+	}
+
 	/**
 	 * This flag is used as an indication to allow a more optimized comparison of all annotations in
 	 * a document. When set to true, this span comparator requires spans to, at the very least,
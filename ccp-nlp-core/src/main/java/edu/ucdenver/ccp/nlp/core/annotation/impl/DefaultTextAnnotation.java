@@ -101,6 +101,7 @@ public class DefaultTextAnnotation extends TextAnnotation {
 			span = new Span(beginIndex, endIndex);
 			this.spanList = new ArrayList<Span>();
 			spanList.add(span);
+			trackModificationsOf(span);
 		} catch (InvalidSpanException e) {
 			e.printStackTrace();
 		}
@@ -146,6 +147,7 @@ public class DefaultTextAnnotation extends TextAnnotation {
 		try {
 			span = new Span(spanStart, spanEnd);
 			spanList.add(span);
+			trackModificationsOf(span);
 		} catch (InvalidSpanException e) {
 			e.printStackTrace();
 		}
@@ -163,6 +165,9 @@ public class DefaultTextAnnotation extends TextAnnotation {
 	public DefaultTextAnnotation(List<Span> spanList) {
 		super((Object[]) null);
 		this.spanList = new ArrayList<Span>(spanList);
+		for (Span span : spanList) {
+			trackModificationsOf(span);
+		}
 		this.coveredText = "";
 		this.annotator = new Annotator("", "", "");
 		this.annotationSets = new HashSet<AnnotationSet>();
@@ -274,6 +279,7 @@ public class DefaultTextAnnotation extends TextAnnotation {
 	 */
 	@Override
 	public void setDocumentCollectionID(int documentCollectionID) {
+		markModified();
 		this.documentCollectionID = documentCollectionID;
 	}
 
@@ -294,6 +300,7 @@ public class DefaultTextAnnotation extends TextAnnotation {
 	 */
 	@Override
 	public void setDocumentID(String documentID) {
+		markModified();
 		this.documentID = documentID;
 	}
 
@@ -352,6 +359,7 @@ public class DefaultTextAnnotation extends TextAnnotation {
 	 */
 	@Override
 	public void setSpans(List<Span> spans) {
+		markModified();
 		spanList = new ArrayList<Span>();
 		for (Span span : spans) {
 			addSpan(span);
@@ -365,6 +373,7 @@ public class DefaultTextAnnotation extends TextAnnotation {
 	 */
 	@Override
 	public void setSpan(Span span) {
+		markModified();
 		spanList = new ArrayList<Span>();
 		addSpan(span);
 	}
@@ -377,8 +386,10 @@ public class DefaultTextAnnotation extends TextAnnotation {
 	 */
 	@Override
 	public void addSpan(Span span) {
+		markModified();
 		if (!spanList.contains(span)) {
 			spanList.add(span);
+			trackModificationsOf(span);
 		}
 		sortSpanList();
 
@@ -396,6 +407,7 @@ public class DefaultTextAnnotation extends TextAnnotation {
 	 */
 	@Override
 	public void setAnnotationSpanStart(int spanStart) {
+		markModified();
 		sortSpanList();
 		int currentSpanStart = this.getAnnotationSpanStart();
 		try {
@@ -428,6 +440,7 @@ public class DefaultTextAnnotation extends TextAnnotation {
 	 */
 	@Override
 	public void setAnnotationSpanEnd(int spanEnd) {
+		markModified();
 		sortSpanList();
 		int currentSpanEnd = this.getAnnotationSpanEnd();
 		try {
@@ -451,6 +464,7 @@ public class DefaultTextAnnotation extends TextAnnotation {
 
 	@Override
 	public void offsetAnnotationSpans(int offset) {
+		markModified();
 		try {
 			for (Span span : this.spanList) {
 				if (offset > 0) {
@@ -480,6 +494,7 @@ public class DefaultTextAnnotation extends TextAnnotation {
 	 */
 	@Override
 	public void setClassMention(ClassMention classMention) {
+		markModified();
 		if (classMention instanceof DefaultClassMention) {
 			this.classMention = classMention;
 			super.setClassMention(classMention);
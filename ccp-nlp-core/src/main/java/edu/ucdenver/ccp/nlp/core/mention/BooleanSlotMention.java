@@ -63,6 +63,7 @@ public abstract class BooleanSlotMention extends PrimitiveSlotMention<Boolean> {
 	}
 
 	public void addSlotValue(Boolean slotValue) {
+		markModified();
 		if (this.getSlotValues().size() > 0) {
 			logger.warn("Cannot 'add' another slot value to BooleanSlotMention: " + getMentionName()
 					+ ". The previous value: " + getBooleanValue().toString() + " is being replaced with "
@@ -72,6 +73,7 @@ public abstract class BooleanSlotMention extends PrimitiveSlotMention<Boolean> {
 	}
 
 	public void addSlotValues(Collection<Boolean> slotValues) throws InvalidInputException {
+		markModified();
 		if (slotValues.size() > 1) {
 			throw new InvalidInputException("Cannot add multiple Boolean values to a Boolean Slot Mention!");
 		} else if (slotValues.size() == 0) {
@@ -86,6 +88,7 @@ public abstract class BooleanSlotMention extends PrimitiveSlotMention<Boolean> {
 	}
 
 	public void setSlotValues(Collection<Boolean> slotValues) throws InvalidInputException {
+		markModified();
 		if (slotValues.size() == 1) {
 			Boolean slotValue = Collections.list(Collections.enumeration(slotValues)).get(0);
 			setBooleanValue(slotValue);
@@ -99,6 +102,7 @@ public abstract class BooleanSlotMention extends PrimitiveSlotMention<Boolean> {
 	}
 
 	public void setBooleanValue(boolean value) {
+		markModified();
 		try {
 			overwriteSlotValues(value);
 		} catch (InvalidInputException e) {
@@ -108,6 +112,7 @@ public abstract class BooleanSlotMention extends PrimitiveSlotMention<Boolean> {
 
 	@Override
 	public void addSlotValueAsString(String slotValue) {
+		markModified();
 		slotValue = slotValue.trim();
 		if (slotValue.equalsIgnoreCase("true") | slotValue.equalsIgnoreCase("false")) {
 			Boolean booleanSlotValue = Boolean.parseBoolean(slotValue);
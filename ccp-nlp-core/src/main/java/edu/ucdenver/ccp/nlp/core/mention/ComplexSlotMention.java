@@ -69,6 +69,7 @@ public abstract class ComplexSlotMention extends SlotMention<ClassMention> {
 	 * @throws InvalidInputException
 	 */
 	public void setClassMentions(Collection<ClassMention> classMentions) throws InvalidInputException {
+		markModified();
 		setSlotValues(classMentions);
 	}
 
@@ -78,6 +79,7 @@ public abstract class ComplexSlotMention extends SlotMention<ClassMention> {
 	 * @param cm
 	 */
 	public void addClassMention(ClassMention cm) {
+		markModified();
 		try {
 			addSlotValue(cm);
 		} catch (InvalidInputException e) {
@@ -86,6 +88,7 @@ public abstract class ComplexSlotMention extends SlotMention<ClassMention> {
 	}
 
 	public void addClassMentions(Collection<ClassMention> classMentions) throws InvalidInputException {
+		markModified();
 		addSlotValues(classMentions);
 	}
 
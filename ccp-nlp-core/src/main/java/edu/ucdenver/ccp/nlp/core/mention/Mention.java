@@ -46,6 +46,7 @@ import org.apache.logging.log4j.Logger;
 
 import edu.ucdenver.ccp.common.collections.tree.Tree;
 import edu.ucdenver.ccp.common.collections.tree.TreeNode;
+import edu.ucdenver.ccp.nlp.core.annotation.ModificationTracker;
 
 /**
  * The superclass for all mentions, <code>ClassMention</code>,<code>SlotMention</code>,
@@ -59,6 +60,12 @@ public abstract class Mention implements Comparable<Mention> {
 
 	protected boolean hasWrappedMention = false;
 
+	/**
+	 * Tracks modifications of this mention and of its slot mentions and slot fillers that affect
+	 * annotation equality
+	 */
+	private final ModificationTracker modificationTracker = new ModificationTracker();
+
 	public Mention(String mentionName, Object... wrappedObjectPlusGlobalVars) {
 		super();
 		if (wrappedObjectPlusGlobalVars != null && wrappedObjectPlusGlobalVars.length > 0
@@ -81,6 +88,42 @@ public abstract class Mention implements Comparable<Mention> {
 
 	public abstract void setMentionName(String mentionName);
 
+	/**
+	 * Records a modification of this mention that affects annotation equality. To be called by
+	 * mutators.
+	 */
+	protected void markModified() {
+		modificationTracker.markModified();
+	}
+
+	/**
+	 * @return the tracker that propagates modifications of this mention to the mentions and
+	 *         annotations that own it
+	 */
+	public ModificationTracker getModificationTracker() {
+		return modificationTracker;
+	}
+
+	/**
+	 * Propagates subsequent modifications of the child mention to this mention. To be called when
+	 * a slot mention or a slot filler is added.
+	 * 
+	 * @param child
+	 */
+	protected void trackModificationsOf(Mention child) {
+		if (child != null) {
+			child.getModificationTracker().addOwner(modificationTracker);
+		}
+	}
+
+	/**
+	 * @return the stamp of the most recent modification of this mention, or of any slot mention or
+	 *         slot filler below it, that affects annotation equality
+	 */
+	public long getModificationStamp() {
+		return modificationTracker.getStamp();
+	}
+
 	protected abstract void initializeFromWrappedMention(Object... wrappedObjectPlusGlobalVars);
 
 	public abstract Object getWrappedObject();
@@ -72,6 +72,7 @@ public class DefaultBooleanSlotMention extends BooleanSlotMention {
 	}
 
 	public void overwriteSlotValues(Boolean slotValue) throws InvalidInputException {
+		markModified();
 		slotValues = new ArrayList<Boolean>();
 		slotValues.add(slotValue);
 	}
@@ -93,6 +94,7 @@ public class DefaultBooleanSlotMention extends BooleanSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		this.mentionName = mentionName;
 	}
 
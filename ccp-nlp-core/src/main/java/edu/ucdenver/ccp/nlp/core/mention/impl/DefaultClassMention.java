@@ -70,6 +70,7 @@ public class DefaultClassMention extends ClassMention {
 
 	@Override
 	public void setComplexSlotMentions(Collection<ComplexSlotMention> complexSlotMentions) {
+		markModified();
 		this.complexSlotMentionsMap = new HashMap<String, ComplexSlotMention>();
 		for (ComplexSlotMention csm : complexSlotMentions) {
 			addComplexSlotMention(csm);
@@ -83,6 +84,7 @@ public class DefaultClassMention extends ClassMention {
 
 	@Override
 	public void setPrimitiveSlotMentions(Collection<PrimitiveSlotMention> primitiveSlotMentions) {
+		markModified();
 		this.primitiveSlotMentionsMap = new HashMap<String, PrimitiveSlotMention>();
 		for (PrimitiveSlotMention psm : primitiveSlotMentions) {
 			addPrimitiveSlotMention(psm);
@@ -91,21 +93,25 @@ public class DefaultClassMention extends ClassMention {
 
 	@Override
 	public void addComplexSlotMention(ComplexSlotMention csm) {
+		markModified();
 		if (complexSlotMentionsMap.containsKey(csm.getMentionName())) {
 				for (ClassMention cm : csm.getClassMentions()){
 					complexSlotMentionsMap.get(csm.getMentionName()).addClassMention(cm);
 				}
 		} else {
 			complexSlotMentionsMap.put(csm.getMentionName(), csm);
+			trackModificationsOf(csm);
 		}
 	}
 
 	@Override
 	public void addPrimitiveSlotMention(PrimitiveSlotMention sm) {
+		markModified();
 		if (primitiveSlotMentionsMap.containsKey(sm.getMentionName())) {
 				primitiveSlotMentionsMap.get(sm.getMentionName()).addSlotValues(sm.getSlotValues());
 		} else {
 			primitiveSlotMentionsMap.put(sm.getMentionName(), sm);
+			trackModificationsOf(sm);
 		}
 	}
 
@@ -202,8 +208,15 @@ public class DefaultClassMention extends ClassMention {
 
 	@Override
 	public void setTextAnnotation(TextAnnotation textAnnotation) throws InvalidInputException {
+		markModified();
 		if (textAnnotation instanceof DefaultTextAnnotation) {
 			this.textAnnotation = (DefaultTextAnnotation) textAnnotation;
+			/*
+			 * the annotation's fingerprint covers this mention, and this mention's contribution to
+			 * the fingerprints of annotations that refer to it covers the annotation's spans
+			 */
+			getModificationTracker().addOwner(textAnnotation.getModificationTracker());
+			textAnnotation.getModificationTracker().addOwner(getModificationTracker());
 		} else {
 			throw new InvalidInputException(
 					"Input text annotation for DefaultClassMention must be of type DefaultTextAnnotation.");
@@ -228,6 +241,7 @@ public class DefaultClassMention extends ClassMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		this.mentionName = mentionName;
 	}
 
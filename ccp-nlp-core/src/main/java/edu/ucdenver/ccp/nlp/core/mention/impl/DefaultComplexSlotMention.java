@@ -79,8 +79,10 @@ public class DefaultComplexSlotMention extends ComplexSlotMention {
 	}
 
 	public void addSlotValue(ClassMention classMention) throws InvalidInputException {
+		markModified();
 		if (classMention instanceof DefaultClassMention) {
 			classMentions.add(classMention);
+			trackModificationsOf(classMention);
 		} else {
 			throw new InvalidInputException(
 					"Slot fillers for DefaultComplexSlotMentions can only be DefaultClassMentions!");
@@ -88,8 +90,10 @@ public class DefaultComplexSlotMention extends ComplexSlotMention {
 	}
 
 	public void addSlotValues(Collection<ClassMention> classMentions) throws InvalidInputException {
+		markModified();
 		for (ClassMention cm : classMentions) {
 			classMentions.add(cm);
+			trackModificationsOf(cm);
 		}
 	}
 
@@ -98,15 +102,18 @@ public class DefaultComplexSlotMention extends ComplexSlotMention {
 	}
 
 	public void overwriteSlotValues(ClassMention classMention) throws InvalidInputException {
+		markModified();
 		classMentions = new ArrayList<ClassMention>();
 		addSlotValue(classMention);
 
 	}
 
 	public void setSlotValues(Collection<ClassMention> classMentions) throws InvalidInputException {
+		markModified();
 		this.classMentions = new ArrayList<ClassMention>();
 		for (ClassMention cm : classMentions) {
 			this.classMentions.add(cm);
+			trackModificationsOf(cm);
 		}
 	}
 
@@ -127,6 +134,7 @@ public class DefaultComplexSlotMention extends ComplexSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		this.mentionName = mentionName;
 	}
 
@@ -67,10 +67,12 @@ public class DefaultFloatSlotMention extends FloatSlotMention {
 	}
 
 	public void addSlotValue(Float slotValue) throws InvalidInputException {
+		markModified();
 		slotValues.add(slotValue);
 	}
 
 	public void addSlotValues(Collection<Float> slotValues) throws InvalidInputException {
+		markModified();
 		for (Float flt : slotValues) {
 			addSlotValue(flt);
 		}
@@ -81,11 +83,13 @@ public class DefaultFloatSlotMention extends FloatSlotMention {
 	}
 
 	public void overwriteSlotValues(Float slotValue) throws InvalidInputException {
+		markModified();
 		slotValues = new ArrayList<Float>();
 		addSlotValue(slotValue);
 	}
 
 	public void setSlotValues(Collection<Float> slotValues) throws InvalidInputException {
+		markModified();
 		slotValues = new ArrayList<Float>();
 		addSlotValues(slotValues);
 	}
@@ -107,6 +111,7 @@ public class DefaultFloatSlotMention extends FloatSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		this.mentionName = mentionName;
 	}
 
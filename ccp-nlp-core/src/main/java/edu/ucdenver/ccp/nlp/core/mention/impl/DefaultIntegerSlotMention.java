@@ -67,10 +67,12 @@ public class DefaultIntegerSlotMention extends IntegerSlotMention {
 	}
 
 	public void addSlotValue(Integer slotValue) throws InvalidInputException {
+		markModified();
 		slotValues.add(slotValue);
 	}
 
 	public void addSlotValues(Collection<Integer> slotValues) throws InvalidInputException {
+		markModified();
 		for (Integer i : slotValues) {
 			addSlotValue(i);
 		}
@@ -81,11 +83,13 @@ public class DefaultIntegerSlotMention extends IntegerSlotMention {
 	}
 
 	public void overwriteSlotValues(Integer slotValue) throws InvalidInputException {
+		markModified();
 		slotValues = new ArrayList<Integer>();
 		addSlotValue(slotValue);
 	}
 
 	public void setSlotValues(Collection<Integer> slotValues) throws InvalidInputException {
+		markModified();
 		slotValues = new ArrayList<Integer>();
 		addSlotValues(slotValues);
 	}
@@ -107,6 +111,7 @@ public class DefaultIntegerSlotMention extends IntegerSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		this.mentionName = mentionName;
 	}
 
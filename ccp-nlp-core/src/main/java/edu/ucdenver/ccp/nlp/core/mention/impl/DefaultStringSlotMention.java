@@ -67,10 +67,12 @@ public class DefaultStringSlotMention extends StringSlotMention {
 	}
 
 	public void addSlotValue(String slotValue) throws InvalidInputException {
+		markModified();
 		slotValues.add(slotValue);
 	}
 
 	public void addSlotValues(Collection<String> slotValues) throws InvalidInputException {
+		markModified();
 		for (String s : slotValues) {
 			addSlotValue(s);
 		}
@@ -81,11 +83,13 @@ public class DefaultStringSlotMention extends StringSlotMention {
 	}
 
 	public void overwriteSlotValues(String slotValue) throws InvalidInputException {
+		markModified();
 		slotValues = new ArrayList<String>();
 		addSlotValue(slotValue);
 	}
 
 	public void setSlotValues(Collection<String> slotValues) throws InvalidInputException {
+		markModified();
 		this.slotValues = new ArrayList<String>();
 		addSlotValues(slotValues);
 	}
@@ -107,6 +111,7 @@ public class DefaultStringSlotMention extends StringSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		this.mentionName = mentionName;
 	}
 
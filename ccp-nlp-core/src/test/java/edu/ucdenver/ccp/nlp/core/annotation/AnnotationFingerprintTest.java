@@ -0,0 +1,151 @@
+package edu.ucdenver.ccp.nlp.core.annotation;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.annotation.impl.DefaultTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultClassMention;
+import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultStringSlotMention;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationFingerprintTest {
+
+	private static TextAnnotation createAnnotation(String mentionName, String slotValue) {
+		DefaultClassMention cm = new DefaultClassMention(mentionName);
+		DefaultStringSlotMention sm = new DefaultStringSlotMention("slot");
+		sm.addSlotValue(slotValue);
+		cm.addPrimitiveSlotMention(sm);
+		Annotator annotator = new Annotator("5", "TestAnnotatorLastName", "TestAnnotatorAffiliation");
+		AnnotationSet annotationSet = new AnnotationSet(new Integer(6), "TestAnnotationSetName",
+				"TestAnnotationSetDescription");
+		return new DefaultTextAnnotation(4, 7, "coveredText", annotator, annotationSet, "12", 8, "9", 10, cm);
+	}
+
+	@Test
+	public void testEqualAnnotationsHaveEqualFingerprints() throws Exception {
+		TextAnnotation ta1 = createAnnotation("protein", "value");
+		TextAnnotation ta2 = createAnnotation("PROTEIN", "value");
+		assertEquals(0, ta1.compareTo(ta2));
+		assertEquals(ta1.getFingerprint(), ta2.getFingerprint());
+		assertTrue(ta1.equals(ta2));
+		assertEquals(ta1.hashCode(), ta2.hashCode());
+
+		Set<TextAnnotation> set = new HashSet<TextAnnotation>();
+		set.add(ta1);
+		assertTrue(set.contains(ta2));
+	}
+
+	@Test
+	public void testUnequalAnnotationsHaveDifferentFingerprints() throws Exception {
+		TextAnnotation ta = createAnnotation("protein", "value");
+		assertFalse(ta.equals(createAnnotation("gene", "value")));
+		assertFalse(ta.equals(createAnnotation("protein", "other value")));
+
+		TextAnnotation differentSpan = createAnnotation("protein", "value");
+		differentSpan.addSpan(new Span(10, 12));
+		assertFalse(ta.equals(differentSpan));
+
+		TextAnnotation differentDocument = createAnnotation("protein", "value");
+		differentDocument.setDocumentID("10");
+		assertFalse(ta.equals(differentDocument));
+	}
+
+	@Test
+	public void testFingerprintIsRecomputedAfterModification() throws Exception {
+		TextAnnotation ta1 = createAnnotation("protein", "value");
+		TextAnnotation ta2 = createAnnotation("protein", "value");
+		assertTrue(ta1.equals(ta2));
+
+		ta2.getClassMention().getPrimitiveSlotMentionByName("slot").addSlotValueAsString("another value");
+		assertFalse(ta1.equals(ta2));
+
+		ta1.getClassMention().setMentionName("gene");
+		ta2.getClassMention().setMentionName("gene");
+		ta1.getClassMention().getPrimitiveSlotMentionByName("slot").addSlotValueAsString("another value");
+		assertTrue(ta1.equals(ta2));
+
+		ta2.getSpans().get(0).setSpanEnd(9);
+		assertFalse(ta1.equals(ta2));
+		assertFalse(ta1.getFingerprint().equals(ta2.getFingerprint()));
+	}
+
+	@Test
+	public void testModificationOfOtherAnnotationKeepsCachedFingerprint() throws Exception {
+		TextAnnotation ta1 = createAnnotation("protein", "value");
+		TextAnnotation ta2 = createAnnotation("protein", "value");
+		AnnotationFingerprint fingerprint = ta1.getFingerprint();
+
+		ta2.setDocumentID("10");
+		ta2.getClassMention().setMentionName("gene");
+		ta2.getSpans().get(0).setSpanEnd(9);
+		assertSame(fingerprint, ta1.getFingerprint());
+
+		ta1.getClassMention().getPrimitiveSlotMentionByName("slot").addSlotValueAsString("another value");
+		assertNotSame(fingerprint, ta1.getFingerprint());
+	}
+
+	@Test
+	public void testModificationsPropagateFromNestedMentionsAndReferencedAnnotations() throws Exception {
+		TextAnnotation ta = createAnnotation("protein", "value");
+		TextAnnotation referencedTa = createAnnotation("gene", "value");
+		DefaultComplexSlotMention csm = new DefaultComplexSlotMention("encoded by");
+		csm.addClassMention(referencedTa.getClassMention());
+		ta.getClassMention().addComplexSlotMention(csm);
+		AnnotationFingerprint fingerprint = ta.getFingerprint();
+		long stamp = ta.getModificationStamp();
+
+		referencedTa.getSpans().get(0).setSpanEnd(9);
+		assertTrue(ta.getModificationStamp() > stamp);
+		assertFalse(fingerprint.equals(ta.getFingerprint()));
+
+		fingerprint = ta.getFingerprint();
+		referencedTa.getClassMention().getPrimitiveSlotMentionByName("slot").addSlotValueAsString("another value");
+		assertFalse(fingerprint.equals(ta.getFingerprint()));
+	}
+
+}
@@ -33,10 +33,15 @@ package edu.ucdenver.ccp.nlp.core.annotation;
  * #L%
  */
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -301,4 +306,64 @@ public class SpanUtilsTests {
 		assertEquals(15, mergeSpan.getSpanEnd());
 	}
 
+	@Test
+	public void testToCoveredIntervals() throws Exception {
+		List<Span> spans = CollectionsUtil.createList(new Span(10, 15), new Span(0, 3), new Span(2, 5), new Span(5, 7),
+				new Span(12, 14), new Span(20, 20));
+		assertArrayEquals(new int[] { 0, 7, 10, 15 }, SpanUtils.toCoveredIntervals(spans));
+		assertEquals(12, SpanUtils.coveredLength(spans));
+		/* the input list should not be reordered */
+		assertEquals(new Span(10, 15), spans.get(0));
+		assertArrayEquals(new int[0], SpanUtils.toCoveredIntervals(new ArrayList<Span>()));
+	}
+
+	@Test
+	public void testIntersectionLength() throws Exception {
+		List<Span> spans1 = CollectionsUtil.createList(new Span(0, 3), new Span(10, 15));
+		List<Span> spans2 = CollectionsUtil.createList(new Span(0, 5), new Span(10, 20));
+		assertEquals(8, SpanUtils.intersectionLength(spans1, spans2));
+		assertEquals(8, SpanUtils.intersectionLength(spans2, spans1));
+
+		spans2 = CollectionsUtil.createList(new Span(5, 8), new Span(16, 20));
+		assertEquals(0, SpanUtils.intersectionLength(spans1, spans2));
+
+		spans2 = CollectionsUtil.createList(new Span(1, 12));
+		assertEquals(4, SpanUtils.intersectionLength(spans1, spans2));
+	}
+
+	@Test
+	public void testIntersectionLengthMatchesOffsetSets() throws Exception {
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			List<Span> spans1 = createRandomSpans(random);
+			List<Span> spans2 = createRandomSpans(random);
+			Set<Integer> offsets1 = getCoveredOffsets(spans1);
+			Set<Integer> offsets2 = getCoveredOffsets(spans2);
+			assertEquals(offsets1.size(), SpanUtils.coveredLength(spans1));
+			assertEquals(offsets2.size(), SpanUtils.coveredLength(spans2));
+			offsets1.retainAll(offsets2);
+			assertEquals(spans1 + " vs " + spans2, offsets1.size(), SpanUtils.intersectionLength(spans1, spans2));
+		}
+	}
+
+	private static List<Span> createRandomSpans(Random random) throws InvalidSpanException {
+		List<Span> spans = new ArrayList<Span>();
+		int spanCount = random.nextInt(4);
+		for (int i = 0; i < spanCount; i++) {
+			int start = random.nextInt(50);
+			spans.add(new Span(start, start + random.nextInt(15)));
+		}
+		return spans;
+	}
+
+	private static Set<Integer> getCoveredOffsets(List<Span> spans) {
+		Set<Integer> offsets = new HashSet<Integer>();
+		for (Span span : spans) {
+			for (int i = span.getSpanStart(); i < span.getSpanEnd(); i++) {
+				offsets.add(i);
+			}
+		}
+		return offsets;
+	}
+
 }
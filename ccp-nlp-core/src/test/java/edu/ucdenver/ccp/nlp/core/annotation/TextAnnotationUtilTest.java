@@ -34,17 +34,23 @@ package edu.ucdenver.ccp.nlp.core.annotation;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.Test;
 
 import edu.ucdenver.ccp.nlp.core.annotation.impl.DefaultTextAnnotation;
 import edu.ucdenver.ccp.nlp.core.mention.ClassMention;
+import edu.ucdenver.ccp.nlp.core.mention.ComplexSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.PrimitiveSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultClassMention;
+import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultComplexSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultStringSlotMention;
 
 /**
@@ -137,4 +143,38 @@ public class TextAnnotationUtilTest {
 		assertEquals(4, redundantAnnotations.size());
 
 	}
+
+	@Test
+	public void testCopyToDefaultTextAnnotations() throws Exception {
+		Annotator annotator = new Annotator("3", "last1", "affiliation1");
+		AnnotationSet annotationSet = new AnnotationSet(5, "set name1", "desc1");
+		ClassMention proteinCm = new DefaultClassMention("protein");
+		TextAnnotation proteinTa = new DefaultTextAnnotation(0, 5, "ABC1", annotator, annotationSet, "37", 4,
+				"123456", -1, proteinCm);
+		ClassMention bindingCm = new DefaultClassMention("binding");
+		TextAnnotation bindingTa = new DefaultTextAnnotation(6, 11, "binds", annotator, annotationSet, "38", 4,
+				"123456", -1, bindingCm);
+		PrimitiveSlotMention<String> sm = new DefaultStringSlotMention("slot1");
+		sm.addSlotValue("slot value 1");
+		bindingCm.addPrimitiveSlotMention(sm);
+		ComplexSlotMention csm = new DefaultComplexSlotMention("participant");
+		csm.addClassMention(proteinCm);
+		bindingCm.addComplexSlotMention(csm);
+
+		List<TextAnnotation> copies = TextAnnotationUtil.copyToDefaultTextAnnotations(Arrays.asList(bindingTa,
+				proteinTa));
+		assertEquals(2, copies.size());
+		TextAnnotation bindingCopy = copies.get(0);
+		TextAnnotation proteinCopy = copies.get(1);
+		assertNotSame(bindingTa, bindingCopy);
+		assertEquals(bindingTa, bindingCopy);
+		assertEquals(proteinTa, proteinCopy);
+		assertEquals("38", bindingCopy.getAnnotationID());
+
+		/* the protein mention shared via the complex slot maps to a single copy */
+		ClassMention slotValueCopy = bindingCopy.getClassMention().getComplexSlotMentionByName("participant")
+				.getClassMentions().iterator().next();
+		assertSame(proteinCopy.getClassMention(), slotValueCopy);
+		assertSame(proteinCopy, slotValueCopy.getTextAnnotation());
+	}
 }
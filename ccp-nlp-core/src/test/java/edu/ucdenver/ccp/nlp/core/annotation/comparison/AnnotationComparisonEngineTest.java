@@ -0,0 +1,166 @@
+package edu.ucdenver.ccp.nlp.core.annotation.comparison;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.annotation.Span;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.annotation.impl.DefaultTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.mention.comparison.IdenticalMentionComparator;
+import edu.ucdenver.ccp.nlp.core.mention.comparison.MentionComparator;
+import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultClassMention;
+
+/**
+ * Compares the results of the {@link AnnotationComparisonEngine} to an exhaustive pairwise
+ * comparison of randomly generated annotations
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationComparisonEngineTest {
+
+	private static final String[] MENTION_NAMES = new String[] { "protein", "Protein", "gene", "cell" };
+
+	private static List<TextAnnotation> createAnnotations(Random random, int count) {
+		List<TextAnnotation> annotations = new ArrayList<TextAnnotation>();
+		for (int i = 0; i < count; i++) {
+			List<Span> spans = new ArrayList<Span>();
+			int start = random.nextInt(400);
+			int end = start + random.nextInt(15);
+			spans.add(new Span(start, end));
+			if (random.nextInt(10) == 0) {
+				int secondStart = end + 1 + random.nextInt(10);
+				spans.add(new Span(secondStart, secondStart + random.nextInt(10)));
+			}
+			TextAnnotation ta = new DefaultTextAnnotation(spans);
+			ta.setClassMention(new DefaultClassMention(MENTION_NAMES[random.nextInt(MENTION_NAMES.length)]));
+			ta.setDocumentID("doc" + random.nextInt(2));
+			annotations.add(ta);
+		}
+		return annotations;
+	}
+
+	private static Set<TextAnnotation> toIdentitySet(List<TextAnnotation> annotations) {
+		Set<TextAnnotation> set = Collections.newSetFromMap(new IdentityHashMap<TextAnnotation, Boolean>());
+		set.addAll(annotations);
+		return set;
+	}
+
+	private static void assertEngineMatchesExhaustiveComparison(SpanComparator spanComparator) {
+		Random random = new Random(spanComparator.getClass().getName().hashCode());
+		List<TextAnnotation> goldAnnotations = createAnnotations(random, 500);
+		List<TextAnnotation> testAnnotations = createAnnotations(random, 500);
+		MentionComparator mentionComparator = new IdenticalMentionComparator();
+		AnnotationComparator annotationComparator = new AnnotationComparator();
+
+		List<TextAnnotation> expectedTp = new ArrayList<TextAnnotation>();
+		List<TextAnnotation> expectedFn = new ArrayList<TextAnnotation>();
+		Set<TextAnnotation> matchedTest = toIdentitySet(new ArrayList<TextAnnotation>());
+		for (TextAnnotation goldTa : goldAnnotations) {
+			boolean matched = false;
+			for (TextAnnotation testTa : testAnnotations) {
+				if (annotationComparator.compare(goldTa, testTa, spanComparator, mentionComparator, -1) == 0) {
+					matched = true;
+					matchedTest.add(testTa);
+				}
+			}
+			if (!matched) {
+				expectedFn.add(goldTa);
+			}
+		}
+		for (TextAnnotation testTa : testAnnotations) {
+			if (matchedTest.contains(testTa)) {
+				expectedTp.add(testTa);
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (ForkJoinPool p : new ForkJoinPool[] { null, pool }) {
+				PRFResult prf = annotationComparator.compare(goldAnnotations, testAnnotations, spanComparator,
+						mentionComparator, -1, p);
+				String message = spanComparator.getClass().getSimpleName() + " parallel=" + (p != null);
+				assertEquals(message, expectedTp.size(), prf.getTruePositiveCount());
+				assertEquals(message, testAnnotations.size() - expectedTp.size(), prf.getFalsePositiveCount());
+				assertEquals(message, expectedFn.size(), prf.getFalseNegativeCount());
+				assertEquals(message, toIdentitySet(expectedTp), toIdentitySet(prf.getTPAnnotations()));
+				assertEquals(message, toIdentitySet(expectedFn), toIdentitySet(prf.getFNAnnotations()));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testStrictSpanComparison() {
+		assertEngineMatchesExhaustiveComparison(new StrictSpanComparator());
+	}
+
+	@Test
+	public void testIgnoreSpanComparison() {
+		assertEngineMatchesExhaustiveComparison(new IgnoreSpanComparator());
+	}
+
+	@Test
+	public void testSloppySpanComparison() {
+		assertEngineMatchesExhaustiveComparison(new SloppySpanComparator());
+	}
+
+	@Test
+	public void testSharedStartSpanComparison() {
+		assertEngineMatchesExhaustiveComparison(new SharedStartSpanComparator());
+	}
+
+	@Test
+	public void testSharedEndSpanComparison() {
+		assertEngineMatchesExhaustiveComparison(new SharedEndSpanComparator());
+	}
+
+	@Test
+	public void testSubSpanComparison() {
+		assertEngineMatchesExhaustiveComparison(new SubSpanComparator());
+	}
+
+}
@@ -3,16 +3,23 @@ package edu.ucdenver.ccp.nlp.evaluation.bossy2013;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.OWLClass;
@@ -22,6 +29,7 @@ import org.semanticweb.owlapi.model.OWLOntologyManager;
 
 import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.nlp.core.annotation.Span;
+import edu.ucdenver.ccp.nlp.core.annotation.SpanUtils;
 import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
 import edu.ucdenver.ccp.nlp.core.annotation.comparison.SloppySpanComparator;
 import lombok.Data;
@@ -40,8 +48,12 @@ import owltools.graph.OWLGraphWrapper;
  */
 public class BossyMetric {
 
+	public static final int DEFAULT_MAX_SVALUE_CACHE_SIZE = 100000;
+	public static final int DEFAULT_MAX_SIMILARITY_CACHE_SIZE = 1000000;
+
 	private OWLGraphWrapper graph;
 	private final BigDecimal distanceWeightFactor;
+	private final WangSimilarityCache similarityCache;
 
 	public BossyMetric(InputStream ontologyStream) {
 		/* Bossy et al. 2013 suggest a default weight factor of 0.65 */
@@ -49,6 +61,34 @@ public class BossyMetric {
 	}
 
 	public BossyMetric(InputStream ontologyStream, BigDecimal distanceWeightFactor) {
+		this(ontologyStream, distanceWeightFactor, false);
+	}
+
+	/**
+	 * @param ontologyStream
+	 * @param distanceWeightFactor
+	 * @param precomputeSValues
+	 *            if true, the S-values used by the Wang semantic similarity are computed for every
+	 *            class in the ontology up front; this is worthwhile when evaluating a large corpus.
+	 *            Otherwise they are computed on demand and cached.
+	 */
+	public BossyMetric(InputStream ontologyStream, BigDecimal distanceWeightFactor, boolean precomputeSValues) {
+		this(ontologyStream, distanceWeightFactor, precomputeSValues, DEFAULT_MAX_SVALUE_CACHE_SIZE,
+				DEFAULT_MAX_SIMILARITY_CACHE_SIZE);
+	}
+
+	/**
+	 * @param ontologyStream
+	 * @param distanceWeightFactor
+	 * @param precomputeSValues
+	 * @param maxSValueCacheSize
+	 *            the maximum number of concepts whose S-values are cached (ignored if
+	 *            precomputeSValues is true)
+	 * @param maxSimilarityCacheSize
+	 *            the maximum number of concept pairs whose similarity score is cached
+	 */
+	public BossyMetric(InputStream ontologyStream, BigDecimal distanceWeightFactor, boolean precomputeSValues,
+			int maxSValueCacheSize, int maxSimilarityCacheSize) {
 		this.distanceWeightFactor = distanceWeightFactor;
 		try {
 			OWLOntologyManager inputOntologyManager = OWLManager.createOWLOntologyManager();
@@ -58,6 +98,8 @@ public class BossyMetric {
 		} catch (OWLOntologyCreationException e) {
 			throw new IllegalStateException("Unable to load ontology", e);
 		}
+		similarityCache = new WangSimilarityCache(graph, distanceWeightFactor, precomputeSValues, maxSValueCacheSize,
+				maxSimilarityCacheSize);
 	}
 
 	/**
@@ -121,6 +163,94 @@ public class BossyMetric {
 				pairedTestAnnotIds, finalScoredMatches);
 	}
 
+	/**
+	 * Evaluate a corpus of test annotations against reference annotations, one document at a
+	 * time, using a thread per available processor. See
+	 * {@link #evaluate(Map, Map, BoundaryMatchStrategy, int)}.
+	 * 
+	 * @param referenceAnnotationsByDocument
+	 * @param testAnnotationsByDocument
+	 * @param boundaryMatchStrategy
+	 * @return the slot error rate aggregated over all documents
+	 */
+	public SlotErrorRate evaluate(Map<String, ? extends Collection<TextAnnotation>> referenceAnnotationsByDocument,
+			Map<String, ? extends Collection<TextAnnotation>> testAnnotationsByDocument,
+			BoundaryMatchStrategy boundaryMatchStrategy) {
+		return evaluate(referenceAnnotationsByDocument, testAnnotationsByDocument, boundaryMatchStrategy,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Evaluate a corpus of test annotations against reference annotations. Each document is
+	 * evaluated independently (in parallel if numThreads &gt; 1) and the per-document slot error
+	 * rate components are summed. A document that is present in only one of the maps is evaluated
+	 * against an empty set of annotations.
+	 * 
+	 * @param referenceAnnotationsByDocument
+	 *            maps document ID to the reference annotations for that document
+	 * @param testAnnotationsByDocument
+	 *            maps document ID to the test annotations for that document
+	 * @param boundaryMatchStrategy
+	 * @param numThreads
+	 *            the number of documents to evaluate concurrently
+	 * @return the slot error rate aggregated over all documents
+	 */
+	public SlotErrorRate evaluate(Map<String, ? extends Collection<TextAnnotation>> referenceAnnotationsByDocument,
+			Map<String, ? extends Collection<TextAnnotation>> testAnnotationsByDocument,
+			final BoundaryMatchStrategy boundaryMatchStrategy, int numThreads) {
+		Set<String> documentIds = new TreeSet<String>(referenceAnnotationsByDocument.keySet());
+		documentIds.addAll(testAnnotationsByDocument.keySet());
+
+		List<Callable<SlotErrorRate>> documentEvaluations = new ArrayList<Callable<SlotErrorRate>>();
+		for (String documentId : documentIds) {
+			final Collection<TextAnnotation> refAnnots = getAnnotations(referenceAnnotationsByDocument, documentId);
+			final Collection<TextAnnotation> testAnnots = getAnnotations(testAnnotationsByDocument, documentId);
+			documentEvaluations.add(new Callable<SlotErrorRate>() {
+				@Override
+				public SlotErrorRate call() {
+					return evaluate(refAnnots, testAnnots, boundaryMatchStrategy);
+				}
+			});
+		}
+
+		/* per-document results are summed by the calling thread so no shared state is updated */
+		SlotErrorRate corpusSer = new SlotErrorRate(BigDecimal.valueOf(0.0), 0, 0, 0, 0);
+		if (numThreads < 2) {
+			for (Callable<SlotErrorRate> documentEvaluation : documentEvaluations) {
+				try {
+					corpusSer.update(documentEvaluation.call());
+				} catch (Exception e) {
+					throw new IllegalStateException("Error while evaluating document.", e);
+				}
+			}
+			return corpusSer;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		try {
+			for (Future<SlotErrorRate> documentSer : pool.invokeAll(documentEvaluations)) {
+				corpusSer.update(documentSer.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while evaluating documents.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Error while evaluating document.", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		return corpusSer;
+	}
+
+	private static Collection<TextAnnotation> getAnnotations(
+			Map<String, ? extends Collection<TextAnnotation>> annotationsByDocument, String documentId) {
+		Collection<TextAnnotation> annots = annotationsByDocument.get(documentId);
+		if (annots == null) {
+			return Collections.emptyList();
+		}
+		return annots;
+	}
+
 	/**
 	 * @param testIds
 	 * @param refIds
@@ -281,30 +411,17 @@ public class BossyMetric {
 	Map<String, TextAnnotation> populateReferenceIdToAnnotMap(List<TextAnnotation> refAnnots,
 			List<TextAnnotation> testAnnots, Map<String, Set<String>> testToOverlappingReferenceAnnotIdMap) {
 		Map<String, TextAnnotation> refIdToAnnotMap = new HashMap<String, TextAnnotation>();
-		SloppySpanComparator ssc = new SloppySpanComparator();
+		List<TextAnnotation> includedRefAnnots = new ArrayList<TextAnnotation>();
 		int index = 0;
 		for (TextAnnotation refAnnot : refAnnots) {
 			String conceptId = refAnnot.getClassMention().getMentionName();
 			// if the concept doesn't exist in the ontology, then log a warning and exclude the
 			// annotation.
-			OWLClass concept = getOWLClass(conceptId, graph);
-			if (concept != null) {
+			if (isInOntology(conceptId)) {
 				String id = "ref_" + index++;
 				refAnnot.setAnnotationID(id);
 				refIdToAnnotMap.put(id, refAnnot);
-				for (TextAnnotation testAnnot : testAnnots) {
-					if (ssc.overlaps(refAnnot.getSpans(), testAnnot.getSpans()) == 0) {
-						CollectionsUtil.addToOne2ManyUniqueMap(testAnnot.getAnnotationID(), id,
-								testToOverlappingReferenceAnnotIdMap);
-					}
-					if (testAnnot.getAggregateSpan().getSpanStart() > refAnnot.getAggregateSpan().getSpanEnd()) {
-						/*
-						 * then b/c the list of test annots is sorted, we can quit looking for
-						 * overlapping annotations
-						 */
-						break;
-					}
-				}
+				includedRefAnnots.add(refAnnot);
 			} else {
 				System.err.println(
 						"WARNING -- encountered reference annotation using concept not found in the specified ontology ("
@@ -312,9 +429,111 @@ public class BossyMetric {
 								+ refAnnot.getDocumentID() + " Span(s): " + Span.toString(refAnnot.getSpans()));
 			}
 		}
+		populateTestToOverlappingReferenceAnnotIdMap(includedRefAnnots, testAnnots,
+				testToOverlappingReferenceAnnotIdMap);
 		return refIdToAnnotMap;
 	}
 
+	/**
+	 * Pairs each test annotation with the reference annotations that it overlaps using a sweep
+	 * over both annotation lists ordered by aggregate span start. Test annotations become active
+	 * once they start at or before the end of the current reference annotation, and are retired
+	 * once they end before the current reference annotation starts, so each annotation enters and
+	 * leaves the active list once and only pairs whose aggregate spans intersect are compared with
+	 * the {@link SloppySpanComparator}. Neither input list needs to be sorted.
+	 * 
+	 * @param refAnnots
+	 *            reference annotations that have been assigned identifiers
+	 * @param testAnnots
+	 *            test annotations that have been assigned identifiers
+	 * @param testToOverlappingReferenceAnnotIdMap
+	 */
+	private static void populateTestToOverlappingReferenceAnnotIdMap(List<TextAnnotation> refAnnots,
+			List<TextAnnotation> testAnnots, Map<String, Set<String>> testToOverlappingReferenceAnnotIdMap) {
+		int[] refBounds = getAggregateSpanBounds(refAnnots);
+		int[] testBounds = getAggregateSpanBounds(testAnnots);
+		int[] refOrder = sortByAggregateSpanStart(refBounds);
+		int[] testOrder = sortByAggregateSpanStart(testBounds);
+
+		SloppySpanComparator ssc = new SloppySpanComparator();
+		List<Integer> activeTestIndexes = new ArrayList<Integer>();
+		int nextTest = 0;
+		for (int refIndex : refOrder) {
+			int refStart = refBounds[refIndex * 2];
+			int refEnd = refBounds[refIndex * 2 + 1];
+			while (nextTest < testOrder.length && testBounds[testOrder[nextTest] * 2] <= refEnd) {
+				activeTestIndexes.add(testOrder[nextTest++]);
+			}
+			TextAnnotation refAnnot = refAnnots.get(refIndex);
+			for (Iterator<Integer> activeIter = activeTestIndexes.iterator(); activeIter.hasNext();) {
+				int testIndex = activeIter.next();
+				if (testBounds[testIndex * 2 + 1] < refStart) {
+					/*
+					 * reference annotations are visited in order of increasing start, so this test
+					 * annotation cannot overlap any remaining reference annotation
+					 */
+					activeIter.remove();
+				} else if (testBounds[testIndex * 2] <= refEnd) {
+					TextAnnotation testAnnot = testAnnots.get(testIndex);
+					if (ssc.overlaps(refAnnot.getSpans(), testAnnot.getSpans()) == 0) {
+						CollectionsUtil.addToOne2ManyUniqueMap(testAnnot.getAnnotationID(),
+								refAnnot.getAnnotationID(), testToOverlappingReferenceAnnotIdMap);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param annots
+	 * @return the aggregate span start and end of each annotation, i.e. {start0, end0, start1,
+	 *         end1, ...}; spanless annotations are treated as [0,0]
+	 */
+	private static int[] getAggregateSpanBounds(List<TextAnnotation> annots) {
+		int[] bounds = new int[annots.size() * 2];
+		for (int i = 0; i < annots.size(); i++) {
+			List<Span> spans = annots.get(i).getSpans();
+			if (!spans.isEmpty()) {
+				int start = Integer.MAX_VALUE;
+				int end = Integer.MIN_VALUE;
+				for (Span span : spans) {
+					start = Math.min(start, span.getSpanStart());
+					end = Math.max(end, span.getSpanEnd());
+				}
+				bounds[i * 2] = start;
+				bounds[i * 2 + 1] = end;
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * @param bounds
+	 *            as returned by {@link #getAggregateSpanBounds(List)}
+	 * @return annotation indexes ordered by aggregate span start
+	 */
+	private static int[] sortByAggregateSpanStart(int[] bounds) {
+		int count = bounds.length / 2;
+		long[] packed = new long[count];
+		for (int i = 0; i < count; i++) {
+			packed[i] = ((long) bounds[i * 2] << 32) | i;
+		}
+		Arrays.sort(packed);
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = (int) packed[i];
+		}
+		return order;
+	}
+
+	/**
+	 * @param conceptId
+	 * @return true if the concept identifier can be resolved to a class in the ontology
+	 */
+	private boolean isInOntology(String conceptId) {
+		return similarityCache.getOrdinal(conceptId) >= 0;
+	}
+
 	/**
 	 * @param conceptId
 	 * @return the corresponding OWLClass if it can be found. Because CRAFT does not use fully
@@ -360,8 +579,7 @@ public class BossyMetric {
 			String conceptId = testAnnot.getClassMention().getMentionName();
 			// if the concept doesn't exist in the ontology, then log a warning and exclude the
 			// annotation.
-			OWLClass concept = getOWLClass(conceptId, graph);
-			if (concept != null) {
+			if (isInOntology(conceptId)) {
 				String id = "test_" + index++;
 				testAnnot.setAnnotationID(id);
 				testIdToAnnotMap.put(id, testAnnot);
@@ -397,40 +615,34 @@ public class BossyMetric {
 	/**
 	 * @param referenceConceptId
 	 * @param testConceptId
-	 * @return a value representing the Wang Semantic Similarity score (Wang et al. 2007).
+	 * @return a value representing the Wang Semantic Similarity score (Wang et al. 2007). The
+	 *         S-values for each concept and the score for each concept pair are cached.
 	 */
 	BigDecimal computeWangSemanticSimilarity(String referenceConceptId, String testConceptId) {
-		Map<String, BigDecimal> referenceSvalueMap = populateSvalueMap(referenceConceptId);
-		Map<String, BigDecimal> testSvalueMap = populateSvalueMap(testConceptId);
-
-		/* get the set of overlapping concept ids between the reference and test sets */
-		Set<String> overlappingConceptIds = new HashSet<String>(referenceSvalueMap.keySet());
-		overlappingConceptIds.retainAll(testSvalueMap.keySet());
-
-		/* compute SVref and SVtest by summing the scores for all ancestors */
-		BigDecimal svRef = sum(referenceSvalueMap.values());
-		BigDecimal svTest = sum(testSvalueMap.values());
-
-		/* compute the aggregate score of the overlapping concepts */
-		BigDecimal svOverlap = BigDecimal.valueOf(0.0);
-		for (String conceptId : overlappingConceptIds) {
-			svOverlap = svOverlap.add(referenceSvalueMap.get(conceptId));
-			svOverlap = svOverlap.add(testSvalueMap.get(conceptId));
+		int referenceOrdinal = similarityCache.getOrdinal(referenceConceptId);
+		int testOrdinal = similarityCache.getOrdinal(testConceptId);
+		if (referenceOrdinal < 0 || testOrdinal < 0) {
+			exitOnUnknownConcept((referenceOrdinal < 0) ? referenceConceptId : testConceptId);
 		}
+		return similarityCache.computeWangSemanticSimilarity(referenceOrdinal, testOrdinal);
+	}
 
-		return svOverlap.divide(svRef.add(svTest), 10, BigDecimal.ROUND_HALF_UP);
+	private void exitOnUnknownConcept(String conceptId) {
+		System.err.println("Concept identifier (" + conceptId
+				+ ") was not found in the ontology. Make sure the concept identifier uses the correct format, e.g. "
+				+ graph.getAllOWLClasses().iterator().next().toStringID());
+		System.err.println("Please adjust your concept identifiers accordingly and re-try. Exiting.");
+		System.exit(-1);
 	}
 
 	/**
-	 * @param values
-	 * @return the sum of the input collection of BigDecimals
+	 * @param edge
+	 * @return true if the edge is a plain subClassOf relation to a named class, i.e. an edge that
+	 *         is followed when computing S-values
 	 */
-	private BigDecimal sum(Collection<BigDecimal> values) {
-		BigDecimal sum = BigDecimal.valueOf(0.0);
-		for (BigDecimal val : values) {
-			sum = sum.add(val);
-		}
-		return sum;
+	static boolean isSubClassOfEdge(OWLGraphEdge edge) {
+		return edge.getSingleQuantifiedProperty().getProperty() == null
+				&& edge.getSingleQuantifiedProperty().isSubClassOf() && edge.getTarget() instanceof OWLClass;
 	}
 
 	/**
@@ -439,6 +651,9 @@ public class BossyMetric {
 	 * each ancestor is weighted with a factor equal to w^d, where w is the weight factor (default =
 	 * 0.65 in Bossy et al. 2013) and d is an integer specifying the distance a concept is from its
 	 * descendant (the concept asserted by the annotation).
+	 * <p>
+	 * This computes exact (uncached) S-values; {@link #computeWangSemanticSimilarity(String, String)}
+	 * uses the equivalent cached values maintained by {@link WangSimilarityCache}.
 	 * 
 	 * @param conceptId
 	 * @return a mapping from concept IDs for the ancestors of the specified concept (the
@@ -453,11 +668,7 @@ public class BossyMetric {
 		OWLClass concept = getOWLClass(conceptId, graph);
 
 		if (concept == null) {
-			System.err.println("Concept identifier (" + conceptId
-					+ ") was not found in the ontology. Make sure the concept identifier uses the correct format, e.g. "
-					+ graph.getAllOWLClasses().iterator().next().toStringID());
-			System.err.println("Please adjust your concept identifiers accordingly and re-try. Exiting.");
-			System.exit(-1);
+			exitOnUnknownConcept(conceptId);
 		}
 
 		queue.add(concept);
@@ -474,8 +685,7 @@ public class BossyMetric {
 			int distance = conceptIdToDistanceMap.get(concept.toStringID()) + 1;
 
 			for (OWLGraphEdge edge : graph.getOutgoingEdges(concept)) {
-				if (edge.getSingleQuantifiedProperty().getProperty() == null
-						&& edge.getSingleQuantifiedProperty().isSubClassOf() && edge.getTarget() instanceof OWLClass) {
+				if (isSubClassOfEdge(edge)) {
 
 					OWLClass superClass = (OWLClass) edge.getTarget();
 					String superClassId = superClass.toStringID();
@@ -527,33 +737,22 @@ public class BossyMetric {
 	}
 
 	/**
-	 * Jaccard Index adapted for segments as defined in Bossy 2012
+	 * Jaccard Index adapted for segments as defined in Bossy 2012. The intersection and union
+	 * lengths are computed directly from the span intervals (see
+	 * {@link SpanUtils#intersectionLength(int[], int[])}) rather than by enumerating character
+	 * offsets.
 	 * 
 	 * @param spans
 	 * @param spans2
 	 * @return
 	 */
 	static BigDecimal computeBoundaryJaccardScore(List<Span> referenceSpans, List<Span> testSpans) {
-		Set<Integer> referenceOffsets = new HashSet<Integer>();
-		Set<Integer> testOffsets = new HashSet<Integer>();
-
-		for (Span referenceSpan : referenceSpans) {
-			for (int i = referenceSpan.getSpanStart(); i < referenceSpan.getSpanEnd(); i++) {
-				referenceOffsets.add(i);
-			}
-		}
-
-		for (Span testSpan : testSpans) {
-			for (int i = testSpan.getSpanStart(); i < testSpan.getSpanEnd(); i++) {
-				testOffsets.add(i);
-			}
-		}
-
-		BigDecimal referenceLength = BigDecimal.valueOf(referenceOffsets.size());
-		BigDecimal testLength = BigDecimal.valueOf(testOffsets.size());
+		int[] referenceIntervals = SpanUtils.toCoveredIntervals(referenceSpans);
+		int[] testIntervals = SpanUtils.toCoveredIntervals(testSpans);
 
-		referenceOffsets.retainAll(testOffsets);
-		BigDecimal overlap = BigDecimal.valueOf(referenceOffsets.size());
+		BigDecimal referenceLength = BigDecimal.valueOf(SpanUtils.coveredLength(referenceIntervals));
+		BigDecimal testLength = BigDecimal.valueOf(SpanUtils.coveredLength(testIntervals));
+		BigDecimal overlap = BigDecimal.valueOf(SpanUtils.intersectionLength(referenceIntervals, testIntervals));
 
 		return overlap.divide(referenceLength.add(testLength).subtract(overlap), 10, BigDecimal.ROUND_HALF_UP);
 	}
@@ -0,0 +1,260 @@
+package edu.ucdenver.ccp.nlp.evaluation.bossy2013;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.semanticweb.owlapi.model.OWLClass;
+
+import owltools.graph.OWLGraphEdge;
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * Caches the per-concept S-value vectors used to compute the Wang semantic similarity (Wang et al.
+ * 2007), as well as the similarity scores for concept pairs. Concepts are interned to integer
+ * ordinals when the cache is created, and each S-value vector is stored as parallel primitive
+ * arrays sorted by ordinal so that the concepts shared by two vectors can be found with a single
+ * merge. {@link BigDecimal} is only used to round the final similarity score.
+ * <p>
+ * Instances are thread-safe. Access to the underlying {@link OWLGraphWrapper} is synchronized on
+ * the graph.
+ */
+class WangSimilarityCache {
+
+	/* the scale used when rounding the similarity score; matches BossyMetric */
+	private static final int SCORE_SCALE = 10;
+
+	private final OWLGraphWrapper graph;
+	private final double distanceWeightFactor;
+	private final OWLClass[] ordinalToClass;
+	private final Map<String, Integer> conceptIriToOrdinalMap;
+	private final Map<String, Integer> conceptIdToOrdinalMap;
+
+	/* if the S-values were precomputed, this array is indexed by concept ordinal */
+	private final SValueVector[] precomputedSValueVectors;
+	private final Map<Integer, SValueVector> sValueVectorCache;
+	private final Map<Long, BigDecimal> similarityCache;
+
+	/**
+	 * @param graph
+	 * @param distanceWeightFactor
+	 * @param precomputeSValues
+	 *            if true, the S-value vector for every class in the ontology is computed now,
+	 *            otherwise S-value vectors are computed on demand and cached
+	 * @param maxSValueVectorCacheSize
+	 *            the maximum number of S-value vectors to cache (ignored if precomputeSValues is
+	 *            true)
+	 * @param maxSimilarityCacheSize
+	 *            the maximum number of concept-pair similarity scores to cache
+	 */
+	WangSimilarityCache(OWLGraphWrapper graph, BigDecimal distanceWeightFactor, boolean precomputeSValues,
+			int maxSValueVectorCacheSize, int maxSimilarityCacheSize) {
+		this.graph = graph;
+		this.distanceWeightFactor = distanceWeightFactor.doubleValue();
+		this.conceptIdToOrdinalMap = new ConcurrentHashMap<String, Integer>();
+		this.similarityCache = createLruCache(maxSimilarityCacheSize);
+
+		synchronized (graph) {
+			this.ordinalToClass = graph.getAllOWLClasses().toArray(new OWLClass[0]);
+		}
+		Map<String, Integer> iriToOrdinalMap = new HashMap<String, Integer>();
+		for (int ordinal = 0; ordinal < ordinalToClass.length; ordinal++) {
+			iriToOrdinalMap.put(ordinalToClass[ordinal].toStringID(), ordinal);
+		}
+		this.conceptIriToOrdinalMap = Collections.unmodifiableMap(iriToOrdinalMap);
+
+		if (precomputeSValues) {
+			this.precomputedSValueVectors = new SValueVector[ordinalToClass.length];
+			for (int ordinal = 0; ordinal < ordinalToClass.length; ordinal++) {
+				precomputedSValueVectors[ordinal] = computeSValueVector(ordinalToClass[ordinal]);
+			}
+			this.sValueVectorCache = null;
+		} else {
+			this.precomputedSValueVectors = null;
+			this.sValueVectorCache = createLruCache(maxSValueVectorCacheSize);
+		}
+	}
+
+	/**
+	 * @param maxSize
+	 * @return a synchronized map that discards the least recently used entry once it holds more
+	 *         than maxSize entries
+	 */
+	private static <K, V> Map<K, V> createLruCache(final int maxSize) {
+		return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<K, V> eldest) {
+				return size() > maxSize;
+			}
+		});
+	}
+
+	/**
+	 * @param conceptId
+	 * @return the ordinal for the specified concept identifier, or -1 if the concept cannot be
+	 *         found in the ontology
+	 */
+	int getOrdinal(String conceptId) {
+		Integer ordinal = conceptIdToOrdinalMap.get(conceptId);
+		if (ordinal == null) {
+			OWLClass concept;
+			synchronized (graph) {
+				concept = BossyMetric.getOWLClass(conceptId, graph);
+			}
+			if (concept == null) {
+				return -1;
+			}
+			ordinal = getOrdinal(concept);
+			conceptIdToOrdinalMap.put(conceptId, ordinal);
+		}
+		return ordinal;
+	}
+
+	private int getOrdinal(OWLClass concept) {
+		Integer ordinal = conceptIriToOrdinalMap.get(concept.toStringID());
+		if (ordinal == null) {
+			throw new IllegalStateException("Concept is not a class in the ontology: " + concept.toStringID());
+		}
+		return ordinal;
+	}
+
+	/**
+	 * @param referenceOrdinal
+	 * @param testOrdinal
+	 * @return the Wang semantic similarity for the concepts with the specified ordinals
+	 */
+	BigDecimal computeWangSemanticSimilarity(int referenceOrdinal, int testOrdinal) {
+		/* the similarity is symmetric so the pair is keyed independent of order */
+		long key = (referenceOrdinal < testOrdinal) ? pairKey(referenceOrdinal, testOrdinal) : pairKey(testOrdinal,
+				referenceOrdinal);
+		BigDecimal similarity = similarityCache.get(key);
+		if (similarity == null) {
+			similarity = computeWangSemanticSimilarity(getSValueVector(referenceOrdinal), getSValueVector(testOrdinal));
+			similarityCache.put(key, similarity);
+		}
+		return similarity;
+	}
+
+	private static long pairKey(int lowOrdinal, int highOrdinal) {
+		return ((long) lowOrdinal << 32) | (highOrdinal & 0xffffffffL);
+	}
+
+	/**
+	 * @param referenceVector
+	 * @param testVector
+	 * @return svOverlap / (svRef + svTest) where svOverlap sums the S-values from both vectors for
+	 *         the concepts they have in common
+	 */
+	private static BigDecimal computeWangSemanticSimilarity(SValueVector referenceVector, SValueVector testVector) {
+		double svOverlap = 0.0;
+		int i = 0;
+		int j = 0;
+		while (i < referenceVector.ordinals.length && j < testVector.ordinals.length) {
+			int refOrdinal = referenceVector.ordinals[i];
+			int testOrdinal = testVector.ordinals[j];
+			if (refOrdinal == testOrdinal) {
+				svOverlap += referenceVector.sValues[i++] + testVector.sValues[j++];
+			} else if (refOrdinal < testOrdinal) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return BigDecimal.valueOf(svOverlap).divide(BigDecimal.valueOf(referenceVector.sum + testVector.sum),
+				SCORE_SCALE, BigDecimal.ROUND_HALF_UP);
+	}
+
+	SValueVector getSValueVector(int ordinal) {
+		if (precomputedSValueVectors != null) {
+			return precomputedSValueVectors[ordinal];
+		}
+		SValueVector vector = sValueVectorCache.get(ordinal);
+		if (vector == null) {
+			vector = computeSValueVector(ordinalToClass[ordinal]);
+			sValueVectorCache.put(ordinal, vector);
+		}
+		return vector;
+	}
+
+	/**
+	 * Computes the S-values for the specified concept and all of its ancestors (via subClassOf
+	 * relations only) using the same breadth-first traversal as
+	 * {@link BossyMetric#populateSvalueMap(String)}.
+	 *
+	 * @param concept
+	 * @return the S-value vector for the specified concept
+	 */
+	private SValueVector computeSValueVector(OWLClass concept) {
+		Map<Integer, Double> ordinalToSValueMap = new HashMap<Integer, Double>();
+		Map<Integer, Integer> ordinalToDistanceMap = new HashMap<Integer, Integer>();
+		Queue<OWLClass> queue = new LinkedList<OWLClass>();
+
+		int conceptOrdinal = getOrdinal(concept);
+		queue.add(concept);
+		ordinalToSValueMap.put(conceptOrdinal, 1.0);
+		ordinalToDistanceMap.put(conceptOrdinal, 0);
+
+		synchronized (graph) {
+			while (!queue.isEmpty()) {
+				concept = queue.poll();
+				int distance = ordinalToDistanceMap.get(getOrdinal(concept)) + 1;
+				double sValue = Math.pow(distanceWeightFactor, distance);
+
+				for (OWLGraphEdge edge : graph.getOutgoingEdges(concept)) {
+					if (BossyMetric.isSubClassOfEdge(edge)) {
+						OWLClass superClass = (OWLClass) edge.getTarget();
+						int superClassOrdinal = getOrdinal(superClass);
+						Double previousSValue = ordinalToSValueMap.get(superClassOrdinal);
+						if (previousSValue == null) {
+							queue.add(superClass);
+							ordinalToDistanceMap.put(superClassOrdinal, distance);
+							ordinalToSValueMap.put(superClassOrdinal, sValue);
+						} else {
+							// store the max S-value if there is a value already present
+							ordinalToSValueMap.put(superClassOrdinal, Math.max(sValue, previousSValue));
+						}
+					}
+				}
+			}
+		}
+
+		int[] ordinals = new int[ordinalToSValueMap.size()];
+		int index = 0;
+		for (Integer ordinal : ordinalToSValueMap.keySet()) {
+			ordinals[index++] = ordinal;
+		}
+		Arrays.sort(ordinals);
+		double[] sValues = new double[ordinals.length];
+		double sum = 0.0;
+		for (index = 0; index < ordinals.length; index++) {
+			sValues[index] = ordinalToSValueMap.get(ordinals[index]);
+			sum += sValues[index];
+		}
+		return new SValueVector(ordinals, sValues, sum);
+	}
+
+	/**
+	 * The S-values of a concept and its ancestors, sorted by concept ordinal
+	 */
+	static class SValueVector {
+		private final int[] ordinals;
+		private final double[] sValues;
+		private final double sum;
+
+		SValueVector(int[] ordinals, double[] sValues, double sum) {
+			this.ordinals = ordinals;
+			this.sValues = sValues;
+			this.sum = sum;
+		}
+	}
+
+}
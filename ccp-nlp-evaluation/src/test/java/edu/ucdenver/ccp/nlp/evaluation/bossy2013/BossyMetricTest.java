@@ -713,6 +713,63 @@ public class BossyMetricTest {
 		assertEquals(expectedTestToOverlappingReferenceAnnotIdMap, testToOverlappingReferenceAnnotIdMap);
 	}
 
+	@Test
+	public void testPopulateReferenceIdToAnnotMap_UnsortedTestAnnotations() {
+		List<TextAnnotation> testAnnots = getTestAnnotations();
+		List<TextAnnotation> refAnnots = getReferenceAnnotations_Offset();
+		BossyMetric bm = new BossyMetric(ClassPathUtil.getResourceStreamFromClasspath(getClass(), "sample.obo"),
+				DISTANCE_WEIGHT_FACTOR);
+		Map<String, TextAnnotation> testIdToAnnotMap = bm.populateTestIdToAnnotMap(testAnnots);
+
+		ArrayList<TextAnnotation> sortedTestAnnots = new ArrayList<TextAnnotation>(testIdToAnnotMap.values());
+		Collections.sort(sortedTestAnnots, TextAnnotation.BY_SPAN());
+		Map<String, Set<String>> expectedTestToOverlappingReferenceAnnotIdMap = new HashMap<String, Set<String>>();
+		bm.populateReferenceIdToAnnotMap(refAnnots, sortedTestAnnots, expectedTestToOverlappingReferenceAnnotIdMap);
+
+		List<TextAnnotation> reversedTestAnnots = new ArrayList<TextAnnotation>(sortedTestAnnots);
+		Collections.reverse(reversedTestAnnots);
+		Map<String, Set<String>> testToOverlappingReferenceAnnotIdMap = new HashMap<String, Set<String>>();
+		bm.populateReferenceIdToAnnotMap(refAnnots, reversedTestAnnots, testToOverlappingReferenceAnnotIdMap);
+
+		assertEquals(expectedTestToOverlappingReferenceAnnotIdMap, testToOverlappingReferenceAnnotIdMap);
+		assertEquals(3, testToOverlappingReferenceAnnotIdMap.size());
+	}
+
+	@Test
+	public void testEvaluateCorpus() {
+		BossyMetric bm = new BossyMetric(ClassPathUtil.getResourceStreamFromClasspath(getClass(), "sample.obo"),
+				DISTANCE_WEIGHT_FACTOR);
+
+		Map<String, List<TextAnnotation>> refAnnotsByDocument = new HashMap<String, List<TextAnnotation>>();
+		refAnnotsByDocument.put("doc1", getReferenceAnnotations_Offset());
+		refAnnotsByDocument.put("doc2", getReferenceAnnotations_Extra1());
+		refAnnotsByDocument.put("doc3", getReferenceAnnotations_Missing1());
+		Map<String, List<TextAnnotation>> testAnnotsByDocument = new HashMap<String, List<TextAnnotation>>();
+		testAnnotsByDocument.put("doc1", getTestAnnotations());
+		testAnnotsByDocument.put("doc2", getTestAnnotations());
+		testAnnotsByDocument.put("doc4", getTestAnnotations());
+
+		SlotErrorRate expectedSer = new SlotErrorRate(BigDecimal.valueOf(0.0), 0, 0, 0, 0);
+		expectedSer.update(bm.evaluate(getReferenceAnnotations_Offset(), getTestAnnotations(),
+				BoundaryMatchStrategy.JACCARD));
+		expectedSer.update(bm.evaluate(getReferenceAnnotations_Extra1(), getTestAnnotations(),
+				BoundaryMatchStrategy.JACCARD));
+		expectedSer.update(bm.evaluate(getReferenceAnnotations_Missing1(), new ArrayList<TextAnnotation>(),
+				BoundaryMatchStrategy.JACCARD));
+		expectedSer.update(bm.evaluate(new ArrayList<TextAnnotation>(), getTestAnnotations(),
+				BoundaryMatchStrategy.JACCARD));
+
+		for (int numThreads : new int[] { 1, 4 }) {
+			SlotErrorRate ser = bm.evaluate(refAnnotsByDocument, testAnnotsByDocument, BoundaryMatchStrategy.JACCARD,
+					numThreads);
+			assertThat(ser.getMatches(), comparesEqualTo(expectedSer.getMatches()));
+			assertEquals(expectedSer.getInsertions(), ser.getInsertions());
+			assertEquals(expectedSer.getDeletions(), ser.getDeletions());
+			assertEquals(expectedSer.getReferenceCount(), ser.getReferenceCount());
+			assertEquals(expectedSer.getPredictedCount(), ser.getPredictedCount());
+		}
+	}
+
 	public List<TextAnnotation> getTestAnnotations() {
 		TextAnnotationFactory factory = TextAnnotationFactory.createFactoryWithDefaults();
 
@@ -872,6 +929,53 @@ public class BossyMetricTest {
 
 	}
 
+	@Test
+	public void testBossyMetric_cachedWangSimilarityMatchesExactComputation() {
+		BossyMetric bm = new BossyMetric(ClassPathUtil.getResourceStreamFromClasspath(getClass(), "sample.obo"),
+				DISTANCE_WEIGHT_FACTOR);
+		/* small cache sizes force evictions */
+		BossyMetric precomputedBm = new BossyMetric(
+				ClassPathUtil.getResourceStreamFromClasspath(getClass(), "sample.obo"), DISTANCE_WEIGHT_FACTOR, true, 2,
+				3);
+
+		List<String> conceptIds = CollectionsUtil.createList("GO:0005575", "GO:0005622", "GO:0005623", "GO:0043226",
+				"GO:0043227", "GO:0043229", "GO:0043231", "GO:0044424", "GO:0044464");
+		for (int round = 0; round < 2; round++) {
+			for (String refConceptId : conceptIds) {
+				for (String testConceptId : conceptIds) {
+					BigDecimal expectedScore = computeExactWangSemanticSimilarity(bm, refConceptId, testConceptId);
+					String message = refConceptId + " vs " + testConceptId;
+					assertThat(message, bm.computeWangSemanticSimilarity(refConceptId, testConceptId),
+							comparesEqualTo(expectedScore));
+					assertThat(message, precomputedBm.computeWangSemanticSimilarity(refConceptId, testConceptId),
+							comparesEqualTo(expectedScore));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the Wang similarity computed directly from the exact (BigDecimal) S-values
+	 */
+	private static BigDecimal computeExactWangSemanticSimilarity(BossyMetric bm, String referenceConceptId,
+			String testConceptId) {
+		Map<String, BigDecimal> referenceSvalueMap = bm.populateSvalueMap(referenceConceptId);
+		Map<String, BigDecimal> testSvalueMap = bm.populateSvalueMap(testConceptId);
+		BigDecimal svRef = BigDecimal.valueOf(0.0);
+		for (BigDecimal sValue : referenceSvalueMap.values()) {
+			svRef = svRef.add(sValue);
+		}
+		BigDecimal svTest = BigDecimal.valueOf(0.0);
+		BigDecimal svOverlap = BigDecimal.valueOf(0.0);
+		for (Entry<String, BigDecimal> entry : testSvalueMap.entrySet()) {
+			svTest = svTest.add(entry.getValue());
+			if (referenceSvalueMap.containsKey(entry.getKey())) {
+				svOverlap = svOverlap.add(entry.getValue()).add(referenceSvalueMap.get(entry.getKey()));
+			}
+		}
+		return svOverlap.divide(svRef.add(svTest), 10, BigDecimal.ROUND_HALF_UP);
+	}
+
 	@Test
 	public void testAdaptedJaccardIndex() {
 		List<Span> referenceSpans = CollectionsUtil.createList(new Span(0, 5));
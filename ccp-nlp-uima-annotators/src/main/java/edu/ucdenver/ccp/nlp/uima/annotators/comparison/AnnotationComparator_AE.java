@@ -56,6 +56,7 @@ package edu.ucdenver.ccp.nlp.uima.annotators.comparison;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
@@ -68,6 +69,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
@@ -85,6 +92,7 @@ import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
 import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
@@ -217,6 +225,25 @@ public class AnnotationComparator_AE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(description="by default, comparisons are conducted to the maximum depth of the mention hierarchy (as signified by a maximum comparison depth < 0)")
 	private int maxComparisonDepth = -1;
 	
+	/*
+	 * if > 1, the comparison groups for each CAS are scored concurrently using a pool of this many
+	 * threads
+	 */
+	public static final String PARAM_NUM_COMPARISON_THREADS = "numComparisonThreads";
+	@ConfigurationParameter(defaultValue = "1", description = "The number of threads used to score the comparison groups of each CAS. If > 1, comparison groups (and large gold standard groups) are scored concurrently.")
+	private int numComparisonThreads = 1;
+
+	/*
+	 * if filled, the cumulative scores for this instance are written to a shard file in this
+	 * directory when collection processing completes. Shards written by multiple pipeline instances
+	 * can be combined using mergeScoreShards()
+	 */
+	public static final String PARAM_SCORE_SHARD_DIRECTORY = "scoreShardDirectory";
+	@ConfigurationParameter(mandatory = false, description = "If set, the cumulative scores for this annotator instance are written to a shard file in this directory when collection processing completes. Shards from multiple pipeline instances can be combined using AnnotationComparator_AE.mergeScoreShards().")
+	private File scoreShardDirectory;
+
+	public static final String SCORE_SHARD_FILE_SUFFIX = ".prf-shard";
+
 	private SpanComparator spanComparator;
 
 	private MentionComparator mentionComparator;
@@ -243,6 +270,9 @@ public class AnnotationComparator_AE extends JCasAnnotator_ImplBase {
 
 	private BufferedWriter annotationOutputWriter;
 
+	/* only initialized if numComparisonThreads > 1 */
+	private ForkJoinPool comparisonPool;
+
 	/**
 	 * Initializes this CAS Consumer with the parameters specified in the descriptor.
 	 * 
@@ -284,6 +314,10 @@ public class AnnotationComparator_AE extends JCasAnnotator_ImplBase {
 		for (ComparisonGroup cg : comparisonGroupID2GroupMap.values())
 			comparisonGroupID2ScoreMap.put(cg.getID(), new PRFResult(0, 0, 0));
 
+		if (numComparisonThreads > 1) {
+			comparisonPool = new ForkJoinPool(numComparisonThreads);
+			logger.info("Comparison groups will be scored using " + numComparisonThreads + " threads.");
+		}
 	}
 
 	/**
@@ -707,18 +741,19 @@ public class AnnotationComparator_AE extends JCasAnnotator_ImplBase {
 	 */
 	private Map<Integer, PRFResult> doAnnotationComparisons(String documentID,
 			Map<Integer, Collection<TextAnnotation>> comparisonGroupID2MemberTextAnnotationsMap, int maxComparisonDepth) throws IOException {
-		AnnotationComparator annotationComparator = new AnnotationComparator();
-
-		Map<Integer, PRFResult> comparisonGroupID2ScoreForThisCASOnly = new HashMap<Integer, PRFResult>();
+		Map<Integer, PRFResult> comparisonGroupID2ScoreForThisCASOnly = scoreComparisonGroups(
+				comparisonGroupID2MemberTextAnnotationsMap, maxComparisonDepth);
 
+		/*
+		 * output and cumulative score updates are done serially (in comparison group order) once
+		 * all groups have been scored
+		 */
 		for (Integer comparisonGroupID : comparisonGroupID2MemberTextAnnotationsMap.keySet()) {
 			Collection<TextAnnotation> goldStandardAnnotations = comparisonGroupID2MemberTextAnnotationsMap
 					.get(goldStandardComparisonGroupID);
 			Collection<TextAnnotation> compareAnnotations = comparisonGroupID2MemberTextAnnotationsMap
 					.get(comparisonGroupID);
-
-			PRFResult prf = annotationComparator.compare(goldStandardAnnotations, compareAnnotations, spanComparator,
-					mentionComparator, maxComparisonDepth);
+			PRFResult prf = comparisonGroupID2ScoreForThisCASOnly.get(comparisonGroupID);
 
 			/*
 			 * Do not output the gold standard vs. gold standard comparison for the incremental
@@ -749,7 +784,65 @@ public class AnnotationComparator_AE extends JCasAnnotator_ImplBase {
 
 			/* update the total score with this incremental score */
 			comparisonGroupID2ScoreMap.get(comparisonGroupID).add(prf);
-			comparisonGroupID2ScoreForThisCASOnly.put(comparisonGroupID, prf);
+		}
+		return comparisonGroupID2ScoreForThisCASOnly;
+	}
+
+	/**
+	 * Scores each ComparisonGroup against the gold standard ComparisonGroup. If a comparison pool
+	 * has been initialized, the groups are scored concurrently. The annotations passed in wrap
+	 * feature structures of the CAS, which must not be read from multiple threads, so they are first
+	 * copied into default (in-memory) annotations on the calling thread and the copies are scored.
+	 * The copies retain the annotation IDs of the originals, which is all that is used to map the
+	 * results back onto the CAS.
+	 * 
+	 * @param comparisonGroupID2MemberTextAnnotationsMap
+	 * @param maxComparisonDepth
+	 * @return a mapping from ComparisonGroup ID to the {@link PRFResult} for this CAS only
+	 */
+	private Map<Integer, PRFResult> scoreComparisonGroups(
+			Map<Integer, Collection<TextAnnotation>> comparisonGroupID2MemberTextAnnotationsMap,
+			final int maxComparisonDepth) {
+		final AnnotationComparator annotationComparator = new AnnotationComparator();
+		final Collection<TextAnnotation> goldStandardAnnotations = comparisonGroupID2MemberTextAnnotationsMap
+				.get(goldStandardComparisonGroupID);
+
+		Map<Integer, PRFResult> comparisonGroupID2ScoreForThisCASOnly = new HashMap<Integer, PRFResult>();
+		if (comparisonPool == null) {
+			for (Entry<Integer, Collection<TextAnnotation>> entry : comparisonGroupID2MemberTextAnnotationsMap
+					.entrySet()) {
+				comparisonGroupID2ScoreForThisCASOnly.put(entry.getKey(), annotationComparator.compare(
+						goldStandardAnnotations, entry.getValue(), spanComparator, mentionComparator,
+						maxComparisonDepth));
+			}
+			return comparisonGroupID2ScoreForThisCASOnly;
+		}
+
+		final Collection<TextAnnotation> goldStandardAnnotationCopies = TextAnnotationUtil
+				.copyToDefaultTextAnnotations(goldStandardAnnotations);
+		Map<Integer, ForkJoinTask<PRFResult>> comparisonGroupID2TaskMap = new HashMap<Integer, ForkJoinTask<PRFResult>>();
+		for (Entry<Integer, Collection<TextAnnotation>> entry : comparisonGroupID2MemberTextAnnotationsMap.entrySet()) {
+			final Collection<TextAnnotation> compareAnnotationCopies = (entry.getKey()
+					.equals(goldStandardComparisonGroupID)) ? goldStandardAnnotationCopies : TextAnnotationUtil
+					.copyToDefaultTextAnnotations(entry.getValue());
+			comparisonGroupID2TaskMap.put(entry.getKey(), comparisonPool.submit(new Callable<PRFResult>() {
+				@Override
+				public PRFResult call() {
+					return annotationComparator.compare(goldStandardAnnotationCopies, compareAnnotationCopies,
+							spanComparator, mentionComparator, maxComparisonDepth, comparisonPool);
+				}
+			}));
+		}
+		for (Entry<Integer, ForkJoinTask<PRFResult>> entry : comparisonGroupID2TaskMap.entrySet()) {
+			try {
+				comparisonGroupID2ScoreForThisCASOnly.put(entry.getKey(), entry.getValue().get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while scoring comparison group: " + entry.getKey(), e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Error while scoring comparison group: " + entry.getKey(),
+						e.getCause());
+			}
 		}
 		return comparisonGroupID2ScoreForThisCASOnly;
 	}
@@ -864,6 +957,10 @@ public class AnnotationComparator_AE extends JCasAnnotator_ImplBase {
 
 			printPRFOnLastLine();
 
+			if (scoreShardDirectory != null) {
+				writeScoreShard();
+			}
+
 			/* close the output file if there is one */
 			if (annotationOutputWriter != null) {
 				annotationOutputWriter.close();
@@ -915,6 +1012,79 @@ public class AnnotationComparator_AE extends JCasAnnotator_ImplBase {
 		return prf;
 	}
 
+	/**
+	 * Writes the cumulative scores for this annotator instance to a uniquely named shard file in the
+	 * score shard directory. Each line is the comparison group ID followed by the format produced
+	 * by {@link #printPRFOnLastLine()}.
+	 * 
+	 * @throws IOException
+	 */
+	private void writeScoreShard() throws IOException {
+		File shardFile = new File(scoreShardDirectory, "annotation-comparison." + UUID.randomUUID()
+				+ SCORE_SHARD_FILE_SUFFIX);
+		List<String> lines = new ArrayList<String>();
+		for (Integer comparisonGroupID : comparisonGroupID2GroupMap.keySet()) {
+			PRFResult prf = comparisonGroupID2ScoreMap.get(comparisonGroupID);
+			lines.add(comparisonGroupID + StringConstants.TAB
+					+ comparisonGroupID2GroupMap.get(comparisonGroupID).getDescription() + StringConstants.TAB
+					+ prf.getTruePositiveCount() + StringConstants.TAB + prf.getFalsePositiveCount()
+					+ StringConstants.TAB + prf.getFalseNegativeCount());
+		}
+		/* write to a temporary file first so that a reducer never sees a partial shard */
+		File tempFile = new File(scoreShardDirectory, shardFile.getName() + ".tmp");
+		FileWriterUtil.printLines(lines, tempFile, CharacterEncoding.UTF_8, WriteMode.OVERWRITE,
+				FileSuffixEnforcement.OFF);
+		if (!tempFile.renameTo(shardFile)) {
+			throw new IOException("Unable to rename score shard file: " + tempFile.getAbsolutePath());
+		}
+		logger.info("Wrote comparison score shard: " + shardFile.getAbsolutePath());
+	}
+
+	/**
+	 * Combines the score shard files written by one or more instances of this annotator (e.g.
+	 * multiple pipeline replicas each configured with the same {@link #PARAM_SCORE_SHARD_DIRECTORY})
+	 * into a single set of cumulative scores.
+	 * 
+	 * @param scoreShardDirectory
+	 * @return a mapping from comparison group ID to the merged {@link PRFResult}; the title of each
+	 *         result is the comparison group description
+	 * @throws IOException
+	 */
+	public static Map<Integer, PRFResult> mergeScoreShards(File scoreShardDirectory) throws IOException {
+		File[] shardFiles = scoreShardDirectory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(SCORE_SHARD_FILE_SUFFIX);
+			}
+		});
+		if (shardFiles == null) {
+			throw new IOException("Unable to list score shard directory: " + scoreShardDirectory.getAbsolutePath());
+		}
+		Map<Integer, PRFResult> comparisonGroupID2MergedScoreMap = new TreeMap<Integer, PRFResult>();
+		for (File shardFile : shardFiles) {
+			for (String line : FileReaderUtil.loadLinesFromFile(shardFile, CharacterEncoding.UTF_8)) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				int tabIndex = line.indexOf(StringConstants.TAB);
+				Integer comparisonGroupID = Integer.valueOf(line.substring(0, tabIndex));
+				PRFResult prf = deserializeSummaryLine(line.substring(tabIndex + 1));
+				PRFResult merged = comparisonGroupID2MergedScoreMap.get(comparisonGroupID);
+				if (merged == null) {
+					comparisonGroupID2MergedScoreMap.put(comparisonGroupID, prf);
+				} else if (!merged.getTitle().equals(prf.getTitle())) {
+					throw new IllegalStateException("Score shard " + shardFile.getAbsolutePath()
+							+ " describes comparison group " + comparisonGroupID + " as \"" + prf.getTitle()
+							+ "\" but a previous shard used \"" + merged.getTitle()
+							+ "\". Shards from different comparator configurations cannot be merged.");
+				} else {
+					merged.add(prf);
+				}
+			}
+		}
+		return comparisonGroupID2MergedScoreMap;
+	}
+
 	/**
 	 * Print out a log of the annotationGroup keys that were used and those that were not used. This
 	 * can be helpful to the user for debugging configuration problems.
@@ -1005,6 +1175,15 @@ public class AnnotationComparator_AE extends JCasAnnotator_ImplBase {
 
 	}
 
+	@Override
+	public void destroy() {
+		if (comparisonPool != null) {
+			comparisonPool.shutdown();
+			comparisonPool = null;
+		}
+		super.destroy();
+	}
+
 	public Integer getGoldStandardComparisonGroupID() {
 		return goldStandardComparisonGroupID;
 	}
@@ -0,0 +1,163 @@
+package edu.ucdenver.ccp.nlp.uima.annotators.comparison;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.PRFResult;
+import edu.ucdenver.ccp.nlp.core.mention.ClassMentionType;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotator;
+import edu.ucdenver.ccp.nlp.uima.annotators.comparison.AnnotationComparator_AE.MentionComparatorType;
+import edu.ucdenver.ccp.nlp.uima.annotators.comparison.AnnotationComparator_AE.SpanComparatorType;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Annotation_Util;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationComparator_AETest extends DefaultUIMATestCase {
+
+	private static final Integer GOLD_COMPARISON_GROUP_ID = 0;
+	private static final Integer TEST_COMPARISON_GROUP_ID = 1;
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("ABC1 is a gene. DEF2 is a gene. GHI3 is a gene.");
+		addGene(0, 4, "gold", 1);
+		addGene(16, 20, "gold", 1);
+		addGene(32, 36, "gold", 1);
+		addGene(0, 4, "test", 2);
+		addGene(16, 20, "test", 2);
+		addGene(21, 23, "test", 2);
+	}
+
+	private void addGene(int spanStart, int spanEnd, String annotatorID, int annotationSetID) {
+		CCPAnnotator annotator = new CCPAnnotator(jcas);
+		annotator.setAnnotatorID(annotatorID);
+		CCPAnnotationSet annotationSet = new CCPAnnotationSet(jcas);
+		annotationSet.setAnnotationSetID(annotationSetID);
+		UIMA_Annotation_Util.createCCPTextAnnotation(ClassMentionType.GENE.typeName(), new int[] { spanStart,
+				spanEnd }, jcas, annotator, annotationSet);
+	}
+
+	private File createConfigFile() throws IOException {
+		File configFile = folder.newFile("comparator-config.xml");
+		FileWriterUtil.printLines(CollectionsUtil.createList("<AnnotationComparatorSettings>", "<AnnotationGroup>",
+				"<GroupID>0</GroupID>", "<AnnotationSetID>1</AnnotationSetID>", "<AnnotatorID>gold</AnnotatorID>",
+				"<AnnotationType>" + ClassMentionType.GENE.typeName() + "</AnnotationType>", "</AnnotationGroup>",
+				"<AnnotationGroup>", "<GroupID>1</GroupID>", "<AnnotationSetID>2</AnnotationSetID>",
+				"<AnnotatorID>test</AnnotatorID>", "<AnnotationType>" + ClassMentionType.GENE.typeName()
+						+ "</AnnotationType>", "</AnnotationGroup>", "<ComparisonGroup>",
+				"<GoldStandard>true</GoldStandard>", "<ComparisonGroupDescription>gold</ComparisonGroupDescription>",
+				"<AnnotationGroupID>0</AnnotationGroupID>", "</ComparisonGroup>", "<ComparisonGroup>",
+				"<ComparisonGroupDescription>test</ComparisonGroupDescription>",
+				"<AnnotationGroupID>1</AnnotationGroupID>", "</ComparisonGroup>", "</AnnotationComparatorSettings>"),
+				configFile, CharacterEncoding.UTF_8, WriteMode.OVERWRITE, FileSuffixEnforcement.OFF);
+		return configFile;
+	}
+
+	private AnalysisEngine createComparatorEngine(File configFile, int numComparisonThreads, File scoreShardDirectory)
+			throws UIMAException, IOException {
+		return AnalysisEngineFactory.createEngine(AnalysisEngineFactory.createEngineDescription(
+				AnnotationComparator_AE.class, tsd, AnnotationComparator_AE.PARAM_CONFIG_FILE,
+				configFile.getAbsolutePath(), AnnotationComparator_AE.PARAM_SPAN_COMPARATOR_TYPE_NAME,
+				SpanComparatorType.STRICT.name(), AnnotationComparator_AE.PARAM_MENTION_COMPARATOR_TYPE_NAME,
+				MentionComparatorType.IDENTICAL.name(), AnnotationComparator_AE.PARAM_ANNOTATION_OUTPUT_FILE,
+				folder.newFile().getAbsolutePath(), AnnotationComparator_AE.PARAM_MAX_COMPARISON_DEPTH, -1,
+				AnnotationComparator_AE.PARAM_NUM_COMPARISON_THREADS,
+				numComparisonThreads, AnnotationComparator_AE.PARAM_SCORE_SHARD_DIRECTORY,
+				scoreShardDirectory.getAbsolutePath()));
+	}
+
+	private static void assertCounts(PRFResult prf, int tp, int fp, int fn) {
+		assertEquals("TP count", tp, prf.getTruePositiveCount());
+		assertEquals("FP count", fp, prf.getFalsePositiveCount());
+		assertEquals("FN count", fn, prf.getFalseNegativeCount());
+	}
+
+	@Test
+	public void testSerialScoreShard() throws Exception {
+		File configFile = createConfigFile();
+		File shardDirectory = folder.newFolder("shards");
+		AnalysisEngine ae = createComparatorEngine(configFile, 1, shardDirectory);
+		ae.process(jcas);
+		ae.collectionProcessComplete();
+		ae.destroy();
+
+		Map<Integer, PRFResult> scores = AnnotationComparator_AE.mergeScoreShards(shardDirectory);
+		assertEquals(2, scores.size());
+		assertCounts(scores.get(GOLD_COMPARISON_GROUP_ID), 3, 0, 0);
+		assertCounts(scores.get(TEST_COMPARISON_GROUP_ID), 2, 1, 1);
+		assertEquals("test", scores.get(TEST_COMPARISON_GROUP_ID).getTitle());
+	}
+
+	@Test
+	public void testParallelScoringMatchesSerialAndShardsMerge() throws Exception {
+		File configFile = createConfigFile();
+		File shardDirectory = folder.newFolder("shards");
+		/* simulate two pipeline replicas, one processing the document twice */
+		AnalysisEngine replica1 = createComparatorEngine(configFile, 4, shardDirectory);
+		replica1.process(jcas);
+		replica1.process(jcas);
+		replica1.collectionProcessComplete();
+		replica1.destroy();
+
+		AnalysisEngine replica2 = createComparatorEngine(configFile, 2, shardDirectory);
+		replica2.process(jcas);
+		replica2.collectionProcessComplete();
+		replica2.destroy();
+
+		assertEquals(2, shardDirectory.listFiles().length);
+		Map<Integer, PRFResult> scores = AnnotationComparator_AE.mergeScoreShards(shardDirectory);
+		assertCounts(scores.get(GOLD_COMPARISON_GROUP_ID), 9, 0, 0);
+		assertCounts(scores.get(TEST_COMPARISON_GROUP_ID), 6, 3, 3);
+	}
+
+}
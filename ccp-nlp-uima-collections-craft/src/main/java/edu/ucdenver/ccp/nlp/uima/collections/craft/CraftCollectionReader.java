@@ -120,6 +120,11 @@ public abstract class CraftCollectionReader extends JCasCollectionReader_ImplBas
 	@ConfigurationParameter(mandatory = false, description = DESCRIPTION_CONCEPTS_TO_LOAD)
 	private String[] conceptTypesToLoad;
 
+	public static final String PARAM_PREFETCH_DEPTH = "prefetchDepth";
+	@ConfigurationParameter(mandatory = false, defaultValue = "0", description = "If greater than zero, the XMI files for up to this many upcoming "
+			+ "documents are read and decompressed in the background while the current document is processed.")
+	private int prefetchDepth;
+
 	/**
 	 * Initialized to hold references to each CRAFT document that will be
 	 * processed as part of the document collection
@@ -136,6 +141,12 @@ public abstract class CraftCollectionReader extends JCasCollectionReader_ImplBas
 	 */
 	private AnalysisEngine xmiLoaderAe;
 
+	/**
+	 * The number of threads used to prefetch XMI files if prefetching is
+	 * enabled
+	 */
+	private static final int PREFETCH_THREAD_COUNT = 2;
+
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
@@ -166,9 +177,14 @@ public abstract class CraftCollectionReader extends JCasCollectionReader_ImplBas
 		for (CraftConceptType conceptType : conceptTypes) {
 			xmiPaths.add(conceptType.getXmiPath(craftRelease, xmiTypeSystem));
 		}
+		List<String> documentIds = new ArrayList<String>();
+		for (CraftDocument craftDocument : craftDocuments) {
+			documentIds.add(craftDocument.craftAnnotatedFileName());
+		}
 		AnalysisEngineDescription xmiLoaderDesc = XmiLoaderAE.createAnalysisEngineDescription(
 				xmiTypeSystem.getTypeSystemDescription(), xmiTypeSystem.getDocumentMetadataExtractorClass(),
-				XmiPathType.CLASSPATH, XmiFileCompressionType.GZ, null, xmiPaths.toArray(new String[xmiPaths.size()]));
+				XmiPathType.CLASSPATH, XmiFileCompressionType.GZ, null, documentIds, prefetchDepth,
+				PREFETCH_THREAD_COUNT, xmiPaths.toArray(new String[xmiPaths.size()]));
 		return AnalysisEngineFactory.createPrimitive(xmiLoaderDesc);
 	}
 
@@ -219,6 +235,12 @@ public abstract class CraftCollectionReader extends JCasCollectionReader_ImplBas
 		documentIndex++;
 	}
 
+	@Override
+	public void close() throws IOException {
+		xmiLoaderAe.destroy();
+		super.close();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -34,6 +34,8 @@ package edu.ucdenver.ccp.nlp.uima.collections;
  */
 
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
@@ -109,6 +111,44 @@ public abstract class BaseTextCollectionReader extends JCasCollectionReader_Impl
 	@ConfigurationParameter(defaultValue = "false", description = DESCRIPTION_DISABLE_PROGRESS)
 	protected boolean disableProgressTracking;
 
+	/* ==== Sharding configuration ==== */
+	/**
+	 * Determines how documents are assigned to shards when a collection is
+	 * split across multiple collection readers
+	 */
+	public enum ShardAssignment {
+		/**
+		 * A document is assigned to a shard based on the hash of its document
+		 * ID. Assignment does not depend on document order, but the collection
+		 * must be traversed to find the documents in a shard.
+		 */
+		HASH,
+		/**
+		 * Each shard is assigned a contiguous range of documents. Readers that
+		 * maintain a document manifest can seek directly to the start of the
+		 * range.
+		 */
+		RANGE
+	}
+
+	private static final String DESCRIPTION_SHARD_COUNT = "The number of shards the collection is split into. If greater than one, this "
+			+ "collection reader processes only the documents assigned to the shard specified by the shardIndex parameter. The number to "
+			+ "skip and number to process parameters are applied to the documents in the shard.";
+	public static final String PARAM_SHARD_COUNT = "shardCount";
+	@ConfigurationParameter(defaultValue = "1", description = DESCRIPTION_SHARD_COUNT)
+	protected int shardCount;
+
+	private static final String DESCRIPTION_SHARD_INDEX = "The zero-based index of the shard to be processed by this collection reader.";
+	public static final String PARAM_SHARD_INDEX = "shardIndex";
+	@ConfigurationParameter(defaultValue = "0", description = DESCRIPTION_SHARD_INDEX)
+	protected int shardIndex;
+
+	private static final String DESCRIPTION_SHARD_ASSIGNMENT = "Determines how documents are assigned to shards. HASH assigns documents "
+			+ "based on their document ID; RANGE assigns each shard a contiguous range of documents.";
+	public static final String PARAM_SHARD_ASSIGNMENT = "shardAssignment";
+	@ConfigurationParameter(defaultValue = "HASH", description = DESCRIPTION_SHARD_ASSIGNMENT)
+	protected ShardAssignment shardAssignment;
+
 	/* ==== DocumentMetadataHandler configuration ==== */
 	/**
 	 * Parameter name used in the UIMA descriptor file for the token attribute
@@ -132,12 +172,30 @@ public abstract class BaseTextCollectionReader extends JCasCollectionReader_Impl
 
 	private int documentsToBeProcessedCount = 0;
 
+	/**
+	 * If the document count is being computed in the background, this
+	 * {@link Future} will hold the count once it is available
+	 */
+	private Future<Integer> documentsToBeProcessedCountFuture;
+
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
+		if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+			throw new ResourceInitializationException(new IllegalArgumentException(
+					"Invalid shard configuration. Shard index: " + shardIndex + " Shard count: " + shardCount));
+		}
+		if (isSharded() && !supportsShardAssignment(shardAssignment)) {
+			throw new ResourceInitializationException(new UnsupportedOperationException(getClass().getSimpleName()
+					+ " does not support " + shardAssignment.name() + " shard assignment."));
+		}
+		validateParameters();
 		try {
 			if (!disableProgressTracking) {
-				documentsToBeProcessedCount = countDocumentsInCollection();
+				documentsToBeProcessedCountFuture = countDocumentsInCollectionInBackground();
+				if (documentsToBeProcessedCountFuture == null) {
+					documentsToBeProcessedCount = countDocumentsInCollection();
+				}
 			}
 			initializeImplementation(context);
 			skip(numberToSkip);
@@ -157,6 +215,19 @@ public abstract class BaseTextCollectionReader extends JCasCollectionReader_Impl
 	 */
 	protected abstract void initializeImplementation(UimaContext context) throws ResourceInitializationException;
 
+	/**
+	 * Validates the configuration parameters of the collection reader. Called before the documents
+	 * in the collection are counted and before
+	 * {@link #initializeImplementation(UimaContext)}, so that invalid configurations are rejected
+	 * before any work (e.g. building an index) is done. The default implementation does nothing.
+	 * 
+	 * @throws ResourceInitializationException
+	 *             if the configuration is invalid
+	 */
+	protected void validateParameters() throws ResourceInitializationException {
+		/* no additional validation by default */
+	}
+
 	/**
 	 * Counts the number of documents in the collection that will be processed.
 	 * If the disableProgress flag is set to true then the number of documents
@@ -167,6 +238,61 @@ public abstract class BaseTextCollectionReader extends JCasCollectionReader_Impl
 	 */
 	protected abstract int countDocumentsInCollection() throws IOException;
 
+	/**
+	 * Override to count the documents in the collection without delaying
+	 * initialization. Until the returned {@link Future} completes,
+	 * getProgress() reports progress as if progress tracking were disabled.
+	 * 
+	 * @return a {@link Future} that will hold the number of documents in the
+	 *         collection that will be processed, or null if the documents
+	 *         should be counted synchronously using
+	 *         {@link #countDocumentsInCollection()}
+	 */
+	protected Future<Integer> countDocumentsInCollectionInBackground() {
+		return null;
+	}
+
+	/**
+	 * Override in collection readers that are able to process a single shard
+	 * of a collection
+	 * 
+	 * @param assignment
+	 * @return true if this collection reader supports the specified shard
+	 *         assignment
+	 */
+	protected boolean supportsShardAssignment(@SuppressWarnings("unused") ShardAssignment assignment) {
+		return false;
+	}
+
+	/**
+	 * @return true if this collection reader processes a single shard of the
+	 *         collection
+	 */
+	protected boolean isSharded() {
+		return shardCount > 1;
+	}
+
+	/**
+	 * @param documentId
+	 * @return true if the document with the specified ID is assigned to the
+	 *         shard processed by this collection reader under HASH assignment
+	 */
+	protected boolean isInShard(String documentId) {
+		return (documentId.hashCode() & Integer.MAX_VALUE) % shardCount == shardIndex;
+	}
+
+	/**
+	 * @param documentCount
+	 *            the number of documents in the collection
+	 * @return the [start, end) ordinals of the documents assigned to the shard
+	 *         processed by this collection reader under RANGE assignment
+	 */
+	protected long[] getShardRange(long documentCount) {
+		long start = documentCount * shardIndex / shardCount;
+		long end = documentCount * (shardIndex + 1) / shardCount;
+		return new long[] { start, end };
+	}
+
 	/**
 	 * Advances past numberToSkip documents in the collection
 	 * 
@@ -265,13 +391,40 @@ public abstract class BaseTextCollectionReader extends JCasCollectionReader_Impl
 
 	@Override
 	public Progress[] getProgress() {
-		if (disableProgressTracking) {
+		if (disableProgressTracking || !isDocumentsToBeProcessedCountAvailable()) {
 			documentsToBeProcessedCount = processedDocumentCount + 1;
 		}
 		return new Progress[] {
 				new ProgressImpl(processedDocumentCount, documentsToBeProcessedCount, Progress.ENTITIES) };
 	}
 
+	/**
+	 * @return true if the number of documents to be processed is known. If the
+	 *         count was being computed in the background and has just
+	 *         completed, documentsToBeProcessedCount is updated.
+	 */
+	private boolean isDocumentsToBeProcessedCountAvailable() {
+		if (documentsToBeProcessedCountFuture == null) {
+			return true;
+		}
+		if (!documentsToBeProcessedCountFuture.isDone()) {
+			return false;
+		}
+		try {
+			documentsToBeProcessedCount = documentsToBeProcessedCountFuture.get();
+			documentsToBeProcessedCountFuture = null;
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			logger.warn("Unable to count the documents in the collection. Progress will not be tracked.", e.getCause());
+			disableProgressTracking = true;
+			documentsToBeProcessedCountFuture = null;
+			return false;
+		}
+	}
+
 	/**
 	 * @return the documentMetadataHandler
 	 */
@@ -0,0 +1,145 @@
+package edu.ucdenver.ccp.nlp.uima.collections.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A manifest lists the files in a file system collection, one path per line relative to the
+ * collection root. Once written, collection readers can load the manifest instead of walking the
+ * directory structure, and can seek directly to any position in the collection.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class FileManifest {
+
+	private FileManifest() {
+		// utility class
+	}
+
+	/**
+	 * @param baseFileOrDirectory
+	 * @return the directory that paths in the manifest are relative to
+	 */
+	private static Path getRoot(File baseFileOrDirectory) {
+		File base = baseFileOrDirectory.getAbsoluteFile();
+		return (base.isDirectory() ? base : base.getParentFile()).toPath();
+	}
+
+	/**
+	 * @param file
+	 * @param root
+	 * @return the path of the file relative to the collection root, using '/' as the separator
+	 */
+	private static String getRelativePath(File file, Path root) {
+		return root.relativize(file.getAbsoluteFile().toPath()).toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Sorts the files by their path relative to the collection root. The order in which a directory
+	 * walk returns files depends on the file system, so collections that are split into ranges
+	 * without a manifest are sorted first to give every node the same order.
+	 * 
+	 * @param files
+	 * @param baseFileOrDirectory
+	 */
+	public static void sortByRelativePath(List<File> files, File baseFileOrDirectory) {
+		final Path root = getRoot(baseFileOrDirectory);
+		Collections.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File file1, File file2) {
+				return getRelativePath(file1, root).compareTo(getRelativePath(file2, root));
+			}
+		});
+	}
+
+	/**
+	 * Writes the manifest to a temporary file that is then moved into place so that concurrent
+	 * readers never observe a partially written manifest
+	 * 
+	 * @param files
+	 * @param baseFileOrDirectory
+	 * @param manifestFile
+	 * @throws IOException
+	 */
+	public static void write(List<File> files, File baseFileOrDirectory, File manifestFile) throws IOException {
+		Path root = getRoot(baseFileOrDirectory);
+		Path manifestDirectory = manifestFile.getAbsoluteFile().getParentFile().toPath();
+		Path tempFile = Files.createTempFile(manifestDirectory, manifestFile.getName(), ".tmp");
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				for (File file : files) {
+					writer.write(getRelativePath(file, root));
+					writer.newLine();
+				}
+			}
+			Files.move(tempFile, manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * @param manifestFile
+	 * @param baseFileOrDirectory
+	 * @return the files listed in the manifest, in manifest order
+	 * @throws IOException
+	 */
+	public static List<File> read(File manifestFile, File baseFileOrDirectory) throws IOException {
+		Path root = getRoot(baseFileOrDirectory);
+		List<File> files = new ArrayList<File>();
+		try (BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+			for (String line; (line = reader.readLine()) != null;) {
+				if (!line.isEmpty()) {
+					files.add(root.resolve(line).toFile());
+				}
+			}
+		}
+		return files;
+	}
+
+}
@@ -35,7 +35,10 @@ package edu.ucdenver.ccp.nlp.uima.collections.file;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
@@ -103,8 +106,41 @@ public class FileSystemCollectionReader extends BaseTextCollectionReader {
 	@ConfigurationParameter(description = DESCRIPTION_FILESUFFIXES_TO_PROCESS)
 	protected String[] fileSuffixesToProcess;
 
+	private static final String DESCRIPTION_READER_THREAD_COUNT = "If greater than zero, the directory structure is crawled on a "
+			+ "background thread and this number of threads read upcoming documents concurrently while the current document is "
+			+ "processed. The document count used for progress tracking is also computed in the background. If zero (the default), "
+			+ "documents are read one at a time as they are requested.";
+	public static final String PARAM_READER_THREAD_COUNT = "readerThreadCount";
+	@ConfigurationParameter(defaultValue = "0", description = DESCRIPTION_READER_THREAD_COUNT)
+	protected int readerThreadCount;
+
+	private static final String DESCRIPTION_READ_AHEAD_QUEUE_SIZE = "The maximum number of documents that are read ahead of the "
+			+ "document being processed. Only used if the readerThreadCount parameter is greater than zero.";
+	public static final String PARAM_READ_AHEAD_QUEUE_SIZE = "readAheadQueueSize";
+	@ConfigurationParameter(defaultValue = "64", description = DESCRIPTION_READ_AHEAD_QUEUE_SIZE)
+	protected int readAheadQueueSize;
+
+	private static final String DESCRIPTION_MANIFEST_FILE = "If set, the list of files in the collection is loaded from this manifest "
+			+ "file instead of being discovered by walking the directory structure. If the manifest file does not exist, it is created "
+			+ "by walking the directory structure once. Note that an existing manifest is used as-is, regardless of the recurse and "
+			+ "file suffix parameters. Using a manifest allows each shard of a collection to locate its documents without a directory walk.";
+	public static final String PARAM_MANIFEST_FILE = "manifestFile";
+	@ConfigurationParameter(mandatory = false, description = DESCRIPTION_MANIFEST_FILE)
+	protected File manifestFile;
+
 	private Iterator<File> fileIterator;
 
+	/**
+	 * Used instead of the fileIterator if documents are read ahead
+	 */
+	private ReadAheadFileIterator readAheadIterator;
+
+	/**
+	 * If a manifest is used or the collection is sharded, this list holds the files to be
+	 * processed after sharding, skipping and limiting have been applied
+	 */
+	private List<File> filesToProcess;
+
 	/**
 	 * @param tsd
 	 * @param baseFileOrDirectory
@@ -131,6 +167,77 @@ public class FileSystemCollectionReader extends BaseTextCollectionReader {
 				viewName, PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetadataHandlerClass.getName());
 	}
 
+	/**
+	 * Returns a description of a collection reader that crawls the directory structure in the
+	 * background and reads ahead using the specified number of reader threads
+	 * 
+	 * @param tsd
+	 * @param baseFileOrDirectory
+	 * @param recurse
+	 * @param encoding
+	 * @param language
+	 * @param disableProgress
+	 * @param num2process
+	 * @param num2skip
+	 * @param documentMetadataHandlerClass
+	 * @param viewName
+	 * @param readerThreadCount
+	 * @param readAheadQueueSize
+	 * @param fileSuffixesToProcess
+	 * @return
+	 * @throws ResourceInitializationException
+	 */
+	public static CollectionReaderDescription createDescription(TypeSystemDescription tsd, File baseFileOrDirectory,
+			boolean recurse, CharacterEncoding encoding, String language, boolean disableProgress, int num2process,
+			int num2skip, Class<? extends DocumentMetadataHandler> documentMetadataHandlerClass, String viewName,
+			int readerThreadCount, int readAheadQueueSize, String... fileSuffixesToProcess)
+			throws ResourceInitializationException {
+		return CollectionReaderFactory.createDescription(FileSystemCollectionReader.class, tsd, PARAM_BASE_FILE,
+				baseFileOrDirectory.getAbsolutePath(), PARAM_ENCODING, encoding.name(), PARAM_RECURSE, recurse,
+				PARAM_DISABLE_PROGRESS, disableProgress, PARAM_FILESUFFIXES_TO_PROCESS, fileSuffixesToProcess,
+				PARAM_LANGUAGE, language, PARAM_NUM2PROCESS, num2process, PARAM_NUM2SKIP, num2skip, PARAM_VIEWNAME,
+				viewName, PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetadataHandlerClass.getName(),
+				PARAM_READER_THREAD_COUNT, readerThreadCount, PARAM_READ_AHEAD_QUEUE_SIZE, readAheadQueueSize);
+	}
+
+	/**
+	 * Returns a description of a collection reader that processes a single shard of the collection
+	 * 
+	 * @param tsd
+	 * @param baseFileOrDirectory
+	 * @param recurse
+	 * @param encoding
+	 * @param language
+	 * @param disableProgress
+	 * @param num2process
+	 * @param num2skip
+	 *            the number of documents in the shard to skip
+	 * @param documentMetadataHandlerClass
+	 * @param viewName
+	 * @param manifestFile
+	 *            may be null, in which case the directory structure is walked
+	 * @param shardIndex
+	 * @param shardCount
+	 * @param shardAssignment
+	 * @param fileSuffixesToProcess
+	 * @return
+	 * @throws ResourceInitializationException
+	 */
+	public static CollectionReaderDescription createDescription(TypeSystemDescription tsd, File baseFileOrDirectory,
+			boolean recurse, CharacterEncoding encoding, String language, boolean disableProgress, int num2process,
+			int num2skip, Class<? extends DocumentMetadataHandler> documentMetadataHandlerClass, String viewName,
+			File manifestFile, int shardIndex, int shardCount, ShardAssignment shardAssignment,
+			String... fileSuffixesToProcess) throws ResourceInitializationException {
+		return CollectionReaderFactory.createDescription(FileSystemCollectionReader.class, tsd, PARAM_BASE_FILE,
+				baseFileOrDirectory.getAbsolutePath(), PARAM_ENCODING, encoding.name(), PARAM_RECURSE, recurse,
+				PARAM_DISABLE_PROGRESS, disableProgress, PARAM_FILESUFFIXES_TO_PROCESS, fileSuffixesToProcess,
+				PARAM_LANGUAGE, language, PARAM_NUM2PROCESS, num2process, PARAM_NUM2SKIP, num2skip, PARAM_VIEWNAME,
+				viewName, PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetadataHandlerClass.getName(),
+				PARAM_MANIFEST_FILE, (manifestFile == null) ? null : manifestFile.getAbsolutePath(),
+				PARAM_SHARD_INDEX, shardIndex, PARAM_SHARD_COUNT, shardCount, PARAM_SHARD_ASSIGNMENT,
+				shardAssignment.name());
+	}
+
 	/**
 	 * This method creates a collection reader that uses the CcpDocumentMetadataHandler class by
 	 * default
@@ -172,6 +279,9 @@ public class FileSystemCollectionReader extends BaseTextCollectionReader {
 		if (disableProgressTracking) {
 			return processedDocumentCount;
 		}
+		if (usesFileList()) {
+			return getFilesToProcess().size();
+		}
 		Iterator<File> fileIter = FileUtil.getFileIterator(baseFileOrDirectory, recurseIntoDirectory,
 				fileSuffixesToProcess);
 		skip(fileIter, numberToSkip);
@@ -186,6 +296,83 @@ public class FileSystemCollectionReader extends BaseTextCollectionReader {
 		return count;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader#
+	 * countDocumentsInCollectionInBackground()
+	 */
+	@Override
+	protected Future<Integer> countDocumentsInCollectionInBackground() {
+		if (readerThreadCount < 1 || usesFileList()) {
+			return null;
+		}
+		return ReadAheadFileIterator.countFilesInBackground(baseFileOrDirectory, recurseIntoDirectory,
+				fileSuffixesToProcess, numberToSkip, numberToProcess);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader#
+	 * supportsShardAssignment
+	 * (edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader.ShardAssignment)
+	 */
+	@Override
+	protected boolean supportsShardAssignment(ShardAssignment assignment) {
+		return true;
+	}
+
+	/**
+	 * @return true if the files to process are determined up front from a manifest or from the
+	 *         shard assignment rather than by iterating over the directory structure
+	 */
+	private boolean usesFileList() {
+		return manifestFile != null || isSharded();
+	}
+
+	/**
+	 * Loads (or creates) the manifest and selects the files assigned to this shard. The
+	 * numberToSkip and numberToProcess parameters are then applied to the files in the shard.
+	 * 
+	 * @return the files to be processed
+	 * @throws IOException
+	 */
+	private List<File> getFilesToProcess() throws IOException {
+		if (filesToProcess != null) {
+			return filesToProcess;
+		}
+		List<File> files;
+		if (manifestFile != null && manifestFile.exists()) {
+			files = FileManifest.read(manifestFile, baseFileOrDirectory);
+		} else {
+			files = ReadAheadFileIterator.listFiles(baseFileOrDirectory, recurseIntoDirectory, fileSuffixesToProcess);
+			/* the walk order is file system dependent; shards on other nodes must see the same order */
+			FileManifest.sortByRelativePath(files, baseFileOrDirectory);
+			if (manifestFile != null) {
+				FileManifest.write(files, baseFileOrDirectory, manifestFile);
+			}
+		}
+		if (isSharded()) {
+			if (shardAssignment == ShardAssignment.RANGE) {
+				long[] range = getShardRange(files.size());
+				files = files.subList((int) range[0], (int) range[1]);
+			} else {
+				List<File> shardFiles = new ArrayList<File>();
+				for (File file : files) {
+					if (isInShard(file.getName())) {
+						shardFiles.add(file);
+					}
+				}
+				files = shardFiles;
+			}
+		}
+		int start = Math.min(numberToSkip, files.size());
+		int end = (numberToProcess < 0) ? files.size() : Math.min(files.size(), start + numberToProcess);
+		filesToProcess = files.subList(start, end);
+		return filesToProcess;
+	}
+
 	/**
 	 * Advances the input Iterator<File> forward numberToSkip times.
 	 * 
@@ -201,6 +388,9 @@ public class FileSystemCollectionReader extends BaseTextCollectionReader {
 
 	@Override
 	public void close() throws IOException {
+		if (readAheadIterator != null) {
+			readAheadIterator.close();
+		}
 	}
 
 	/*
@@ -212,6 +402,37 @@ public class FileSystemCollectionReader extends BaseTextCollectionReader {
 	 */
 	@Override
 	protected void initializeImplementation(UimaContext context) throws ResourceInitializationException {
+		if (usesFileList()) {
+			List<File> files;
+			try {
+				files = getFilesToProcess();
+			} catch (IOException e) {
+				throw new ResourceInitializationException(e);
+			}
+			if (readerThreadCount > 0) {
+				readAheadIterator = new ReadAheadFileIterator(files, readerThreadCount, readAheadQueueSize,
+						new ReadAheadFileIterator.DocumentFileReader() {
+							@Override
+							public GenericDocument readDocument(File file) throws IOException {
+								return loadDocument(file);
+							}
+						});
+			} else {
+				fileIterator = files.iterator();
+			}
+			return;
+		}
+		if (readerThreadCount > 0) {
+			readAheadIterator = new ReadAheadFileIterator(baseFileOrDirectory, recurseIntoDirectory,
+					fileSuffixesToProcess, numberToSkip, numberToProcess, readerThreadCount, readAheadQueueSize,
+					new ReadAheadFileIterator.DocumentFileReader() {
+						@Override
+						public GenericDocument readDocument(File file) throws IOException {
+							return loadDocument(file);
+						}
+					});
+			return;
+		}
 		try {
 			fileIterator = FileUtil.getFileIterator(baseFileOrDirectory, recurseIntoDirectory, fileSuffixesToProcess);
 		} catch (IOException e) {
@@ -226,6 +447,12 @@ public class FileSystemCollectionReader extends BaseTextCollectionReader {
 	 */
 	@Override
 	protected void skip(int numberToSkip) throws ResourceInitializationException {
+		if (readAheadIterator != null || filesToProcess != null) {
+			/*
+			 * the read-ahead crawler and the file list have already had numberToSkip applied
+			 */
+			return;
+		}
 		skip(fileIterator, numberToSkip);
 	}
 
@@ -237,6 +464,9 @@ public class FileSystemCollectionReader extends BaseTextCollectionReader {
 	 */
 	@Override
 	protected boolean hasNextDocument() throws IOException, CollectionException {
+		if (readAheadIterator != null) {
+			return readAheadIterator.hasNext();
+		}
 		return fileIterator.hasNext();
 	}
 
@@ -248,7 +478,18 @@ public class FileSystemCollectionReader extends BaseTextCollectionReader {
 	 */
 	@Override
 	protected GenericDocument getNextDocument() throws CollectionException, IOException {
-		File file = fileIterator.next();
+		if (readAheadIterator != null) {
+			return readAheadIterator.next();
+		}
+		return loadDocument(fileIterator.next());
+	}
+
+	/**
+	 * @param file
+	 * @return a {@link GenericDocument} containing the contents of the specified file
+	 * @throws IOException
+	 */
+	private GenericDocument loadDocument(File file) throws IOException {
 		String documentId = file.getName();
 		String text = FileUtil.copyToString(file, this.encoding);
 		GenericDocument gd = new GenericDocument(documentId);
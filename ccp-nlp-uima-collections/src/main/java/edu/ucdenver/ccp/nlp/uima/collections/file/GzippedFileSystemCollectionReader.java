@@ -39,6 +39,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Iterator;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.log4j.Logger;
@@ -107,8 +108,27 @@ public class GzippedFileSystemCollectionReader extends BaseTextCollectionReader
 	@ConfigurationParameter(description = DESCRIPTION_FILESUFFIXES_TO_PROCESS)
 	protected String[] fileSuffixesToProcess;
 
+	private static final String DESCRIPTION_READER_THREAD_COUNT = "If greater than zero, the directory structure is crawled on a "
+			+ "background thread and this number of threads read upcoming documents concurrently while the current document is "
+			+ "processed. The document count used for progress tracking is also computed in the background. If zero (the default), "
+			+ "documents are read one at a time as they are requested.";
+	public static final String PARAM_READER_THREAD_COUNT = "readerThreadCount";
+	@ConfigurationParameter(defaultValue = "0", description = DESCRIPTION_READER_THREAD_COUNT)
+	protected int readerThreadCount;
+
+	private static final String DESCRIPTION_READ_AHEAD_QUEUE_SIZE = "The maximum number of documents that are read ahead of the "
+			+ "document being processed. Only used if the readerThreadCount parameter is greater than zero.";
+	public static final String PARAM_READ_AHEAD_QUEUE_SIZE = "readAheadQueueSize";
+	@ConfigurationParameter(defaultValue = "64", description = DESCRIPTION_READ_AHEAD_QUEUE_SIZE)
+	protected int readAheadQueueSize;
+
 	private Iterator<File> fileIterator;
 
+	/**
+	 * Used instead of the fileIterator if documents are read ahead
+	 */
+	private ReadAheadFileIterator readAheadIterator;
+
 	/**
 	 * @param tsd
 	 * @param baseFileOrDirectory
@@ -135,6 +155,39 @@ public class GzippedFileSystemCollectionReader extends BaseTextCollectionReader
 				viewName, PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetadataHandlerClass.getName());
 	}
 
+	/**
+	 * Returns a description of a collection reader that crawls the directory structure in the
+	 * background and reads ahead using the specified number of reader threads
+	 * 
+	 * @param tsd
+	 * @param baseFileOrDirectory
+	 * @param recurse
+	 * @param encoding
+	 * @param language
+	 * @param disableProgress
+	 * @param num2process
+	 * @param num2skip
+	 * @param documentMetadataHandlerClass
+	 * @param viewName
+	 * @param readerThreadCount
+	 * @param readAheadQueueSize
+	 * @param fileSuffixesToProcess
+	 * @return
+	 * @throws ResourceInitializationException
+	 */
+	public static CollectionReaderDescription createDescription(TypeSystemDescription tsd, File baseFileOrDirectory,
+			boolean recurse, CharacterEncoding encoding, String language, boolean disableProgress, int num2process,
+			int num2skip, Class<? extends DocumentMetadataHandler> documentMetadataHandlerClass, String viewName,
+			int readerThreadCount, int readAheadQueueSize, String... fileSuffixesToProcess)
+			throws ResourceInitializationException {
+		return CollectionReaderFactory.createDescription(GzippedFileSystemCollectionReader.class, tsd, PARAM_BASE_FILE,
+				baseFileOrDirectory.getAbsolutePath(), PARAM_ENCODING, encoding.name(), PARAM_RECURSE, recurse,
+				PARAM_DISABLE_PROGRESS, disableProgress, PARAM_FILESUFFIXES_TO_PROCESS, fileSuffixesToProcess,
+				PARAM_LANGUAGE, language, PARAM_NUM2PROCESS, num2process, PARAM_NUM2SKIP, num2skip, PARAM_VIEWNAME,
+				viewName, PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetadataHandlerClass.getName(),
+				PARAM_READER_THREAD_COUNT, readerThreadCount, PARAM_READ_AHEAD_QUEUE_SIZE, readAheadQueueSize);
+	}
+
 	/**
 	 * This method creates a collection reader that uses the CcpDocumentMetadataHandler class by
 	 * default
@@ -190,6 +243,21 @@ public class GzippedFileSystemCollectionReader extends BaseTextCollectionReader
 		return count;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader#
+	 * countDocumentsInCollectionInBackground()
+	 */
+	@Override
+	protected Future<Integer> countDocumentsInCollectionInBackground() {
+		if (readerThreadCount < 1) {
+			return null;
+		}
+		return ReadAheadFileIterator.countFilesInBackground(baseFileOrDirectory, recurseIntoDirectory,
+				fileSuffixesToProcess, numberToSkip, numberToProcess);
+	}
+
 	/**
 	 * Advances the input Iterator<File> forward numberToSkip times.
 	 * 
@@ -205,6 +273,9 @@ public class GzippedFileSystemCollectionReader extends BaseTextCollectionReader
 
 	@Override
 	public void close() throws IOException {
+		if (readAheadIterator != null) {
+			readAheadIterator.close();
+		}
 	}
 
 	/*
@@ -216,6 +287,17 @@ public class GzippedFileSystemCollectionReader extends BaseTextCollectionReader
 	 */
 	@Override
 	protected void initializeImplementation(UimaContext context) throws ResourceInitializationException {
+		if (readerThreadCount > 0) {
+			readAheadIterator = new ReadAheadFileIterator(baseFileOrDirectory, recurseIntoDirectory,
+					fileSuffixesToProcess, numberToSkip, numberToProcess, readerThreadCount, readAheadQueueSize,
+					new ReadAheadFileIterator.DocumentFileReader() {
+						@Override
+						public GenericDocument readDocument(File file) throws IOException {
+							return loadDocument(file);
+						}
+					});
+			return;
+		}
 		try {
 			fileIterator = FileUtil.getFileIterator(baseFileOrDirectory, recurseIntoDirectory, fileSuffixesToProcess);
 		} catch (IOException e) {
@@ -230,6 +312,10 @@ public class GzippedFileSystemCollectionReader extends BaseTextCollectionReader
 	 */
 	@Override
 	protected void skip(int numberToSkip) throws ResourceInitializationException {
+		if (readAheadIterator != null) {
+			/* the read-ahead crawler skips documents itself */
+			return;
+		}
 		skip(fileIterator, numberToSkip);
 	}
 
@@ -241,6 +327,9 @@ public class GzippedFileSystemCollectionReader extends BaseTextCollectionReader
 	 */
 	@Override
 	protected boolean hasNextDocument() throws IOException, CollectionException {
+		if (readAheadIterator != null) {
+			return readAheadIterator.hasNext();
+		}
 		return fileIterator.hasNext();
 	}
 
@@ -252,23 +341,34 @@ public class GzippedFileSystemCollectionReader extends BaseTextCollectionReader
 	 */
 	@Override
 	protected GenericDocument getNextDocument() throws CollectionException, IOException {
-		File file = fileIterator.next();
+		if (readAheadIterator != null) {
+			return readAheadIterator.next();
+		}
+		return loadDocument(fileIterator.next());
+	}
+
+	/**
+	 * @param file
+	 * @return a {@link GenericDocument} containing the decompressed contents of the specified
+	 *         file. Lines are joined using a single space.
+	 * @throws IOException
+	 */
+	private GenericDocument loadDocument(File file) throws IOException {
 		String filePath = file.getAbsolutePath();
 		String documentId = file.getName();
-		
-		BufferedReader gzreader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(filePath))));
-	    
-		String text = "";
-		for(String line; (line = gzreader.readLine()) != null; ) {
-			if(text.equals("")) {
-				text = line;
-			} else {
-				text = text + " " + line;
+
+		StringBuilder text = new StringBuilder();
+		try (BufferedReader gzreader = new BufferedReader(
+				new InputStreamReader(new GZIPInputStream(new FileInputStream(filePath))))) {
+			for (String line; (line = gzreader.readLine()) != null;) {
+				if (text.length() > 0) {
+					text.append(' ');
+				}
+				text.append(line);
 			}
 		}
-		//String text = FileUtil.copyToString(file, this.encoding);
 		GenericDocument gd = new GenericDocument(documentId);
-		gd.setDocumentText(text);
+		gd.setDocumentText(text.toString());
 		return gd;
 	}
 
@@ -0,0 +1,414 @@
+package edu.ucdenver.ccp.nlp.uima.collections.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import edu.ucdenver.ccp.nlp.core.document.GenericDocument;
+
+/**
+ * Iterates over the documents in a file system collection while reading ahead. A crawler thread
+ * walks the directory structure and streams matching files to a pool of reader threads. Loaded
+ * documents are returned in the order in which the crawler encountered the files. The number of
+ * documents that are read ahead of the consumer is bounded by the read-ahead queue size.
+ * <p>
+ * Skipping and limiting the number of documents are handled by the crawler so that skipped files
+ * are never read.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ReadAheadFileIterator implements Closeable {
+
+	/**
+	 * Converts a file into a {@link GenericDocument}. Called on a reader thread.
+	 */
+	public interface DocumentFileReader {
+		GenericDocument readDocument(File file) throws IOException;
+	}
+
+	/**
+	 * Marks the end of the crawl in the read-ahead queue
+	 */
+	private static final QueueEntry END_OF_COLLECTION = new QueueEntry(null, null);
+
+	private final BlockingQueue<QueueEntry> readAheadQueue;
+	private final ExecutorService readerExecutor;
+	private Thread crawlerThread;
+	private QueueEntry nextEntry;
+
+	/**
+	 * @param baseFileOrDirectory
+	 * @param recurse
+	 * @param fileSuffixesToProcess
+	 *            if null or empty, all files are processed
+	 * @param numberToSkip
+	 * @param numberToProcess
+	 *            any number < 0 results in all remaining files being processed
+	 * @param readerThreadCount
+	 *            the number of threads used to read files concurrently
+	 * @param readAheadQueueSize
+	 *            the maximum number of documents to read ahead
+	 * @param documentReader
+	 */
+	public ReadAheadFileIterator(final File baseFileOrDirectory, final boolean recurse,
+			final String[] fileSuffixesToProcess, final int numberToSkip, final int numberToProcess,
+			int readerThreadCount, int readAheadQueueSize, final DocumentFileReader documentReader) {
+		this(readerThreadCount, readAheadQueueSize);
+		startCrawler(new Runnable() {
+			@Override
+			public void run() {
+				crawl(baseFileOrDirectory, recurse, fileSuffixesToProcess, numberToSkip, numberToProcess,
+						documentReader);
+			}
+		});
+	}
+
+	/**
+	 * Reads ahead through a list of files that is already known, e.g. from a manifest
+	 * 
+	 * @param files
+	 *            the files to read, in order
+	 * @param readerThreadCount
+	 *            the number of threads used to read files concurrently
+	 * @param readAheadQueueSize
+	 *            the maximum number of documents to read ahead
+	 * @param documentReader
+	 */
+	public ReadAheadFileIterator(final List<File> files, int readerThreadCount, int readAheadQueueSize,
+			final DocumentFileReader documentReader) {
+		this(readerThreadCount, readAheadQueueSize);
+		startCrawler(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (File file : files) {
+						submit(file, documentReader);
+					}
+					readAheadQueue.put(END_OF_COLLECTION);
+				} catch (InterruptedException e) {
+					/* the iterator has been closed */
+				}
+			}
+		});
+	}
+
+	private ReadAheadFileIterator(int readerThreadCount, int readAheadQueueSize) {
+		this.readAheadQueue = new ArrayBlockingQueue<QueueEntry>(readAheadQueueSize);
+		this.readerExecutor = Executors.newFixedThreadPool(readerThreadCount, new DaemonThreadFactory("file-reader"));
+	}
+
+	private void startCrawler(Runnable crawler) {
+		crawlerThread = new Thread(crawler, "file-crawler");
+		crawlerThread.setDaemon(true);
+		crawlerThread.start();
+	}
+
+	/**
+	 * Submits the file to the reader threads and places the pending document on the read-ahead
+	 * queue, blocking if the queue is full
+	 * 
+	 * @throws InterruptedException
+	 */
+	private void submit(final File file, final DocumentFileReader documentReader) throws InterruptedException {
+		Future<GenericDocument> document = readerExecutor.submit(new Callable<GenericDocument>() {
+			@Override
+			public GenericDocument call() throws Exception {
+				return documentReader.readDocument(file);
+			}
+		});
+		readAheadQueue.put(new QueueEntry(document, null));
+	}
+
+	/**
+	 * Walks the directory structure, submitting each file to be processed to the reader threads
+	 * and placing the pending result on the read-ahead queue
+	 */
+	private void crawl(File baseFileOrDirectory, boolean recurse, String[] fileSuffixesToProcess,
+			final int numberToSkip, final int numberToProcess, final DocumentFileReader documentReader) {
+		QueueEntry lastEntry = END_OF_COLLECTION;
+		try {
+			walkFiles(baseFileOrDirectory, recurse, fileSuffixesToProcess, new FileHandler() {
+				private int fileCount = 0;
+
+				@Override
+				public boolean handle(final File file) throws InterruptedException {
+					fileCount++;
+					if (fileCount <= numberToSkip) {
+						return true;
+					}
+					if (numberToProcess >= 0 && fileCount - numberToSkip > numberToProcess) {
+						return false;
+					}
+					submit(file, documentReader);
+					return numberToProcess < 0 || fileCount - numberToSkip < numberToProcess;
+				}
+			});
+		} catch (IOException e) {
+			lastEntry = new QueueEntry(null, e);
+		} catch (InterruptedException e) {
+			/* the iterator has been closed */
+			return;
+		}
+		try {
+			readAheadQueue.put(lastEntry);
+		} catch (InterruptedException e) {
+			/* the iterator has been closed */
+		}
+	}
+
+	/**
+	 * @return true if there is another document in the collection. Blocks until the crawler has
+	 *         found the next file or reached the end of the collection.
+	 * @throws IOException
+	 *             if an error occurred while traversing the directory structure
+	 */
+	public boolean hasNext() throws IOException {
+		if (nextEntry == null) {
+			try {
+				nextEntry = readAheadQueue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+		}
+		if (nextEntry.crawlError != null) {
+			throw nextEntry.crawlError;
+		}
+		return nextEntry != END_OF_COLLECTION;
+	}
+
+	/**
+	 * @return the next document in the collection, waiting for it to be read if necessary
+	 * @throws IOException
+	 *             if an error occurred while reading the document
+	 */
+	public GenericDocument next() throws IOException {
+		if (!hasNext()) {
+			throw new IllegalStateException("There are no more documents in the collection.");
+		}
+		Future<GenericDocument> document = nextEntry.document;
+		nextEntry = null;
+		try {
+			return document.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Stops the crawler and reader threads
+	 */
+	@Override
+	public void close() {
+		crawlerThread.interrupt();
+		readerExecutor.shutdownNow();
+		readAheadQueue.clear();
+	}
+
+	/**
+	 * Counts the files that will be processed on a background thread
+	 * 
+	 * @param baseFileOrDirectory
+	 * @param recurse
+	 * @param fileSuffixesToProcess
+	 * @param numberToSkip
+	 * @param numberToProcess
+	 * @return a {@link Future} that will hold the number of files that will be processed once they
+	 *         have been counted
+	 */
+	public static Future<Integer> countFilesInBackground(final File baseFileOrDirectory, final boolean recurse,
+			final String[] fileSuffixesToProcess, final int numberToSkip, final int numberToProcess) {
+		FutureTask<Integer> countTask = new FutureTask<Integer>(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				final int[] fileCount = new int[1];
+				walkFiles(baseFileOrDirectory, recurse, fileSuffixesToProcess, new FileHandler() {
+					@Override
+					public boolean handle(File file) {
+						if (numberToProcess >= 0 && fileCount[0] - numberToSkip >= numberToProcess) {
+							return false;
+						}
+						fileCount[0]++;
+						return numberToProcess < 0 || fileCount[0] - numberToSkip < numberToProcess;
+					}
+				});
+				return Math.max(0, fileCount[0] - numberToSkip);
+			}
+		});
+		new DaemonThreadFactory("file-counter").newThread(countTask).start();
+		return countTask;
+	}
+
+	/**
+	 * @param baseFileOrDirectory
+	 * @param recurse
+	 * @param fileSuffixesToProcess
+	 * @return the files to be processed, in the order in which the directory structure is walked
+	 * @throws IOException
+	 */
+	static List<File> listFiles(File baseFileOrDirectory, boolean recurse, String[] fileSuffixesToProcess)
+			throws IOException {
+		final List<File> files = new ArrayList<File>();
+		try {
+			walkFiles(baseFileOrDirectory, recurse, fileSuffixesToProcess, new FileHandler() {
+				@Override
+				public boolean handle(File file) {
+					files.add(file);
+					return true;
+				}
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+		return files;
+	}
+
+	private interface FileHandler {
+		/**
+		 * @param file
+		 * @return true if the walk should continue
+		 * @throws InterruptedException
+		 */
+		boolean handle(File file) throws InterruptedException;
+	}
+
+	/**
+	 * Walks the directory structure depth-first, following symbolic links, passing each regular file
+	 * whose name ends with one of the specified suffixes to the handler
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void walkFiles(File baseFileOrDirectory, boolean recurse, final String[] fileSuffixesToProcess,
+			final FileHandler handler) throws IOException, InterruptedException {
+		final InterruptedException[] interruption = new InterruptedException[1];
+		int maxDepth = recurse ? Integer.MAX_VALUE : 1;
+		Files.walkFileTree(baseFileOrDirectory.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), maxDepth,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+						/* a symbolic link pointing back up the tree is skipped rather than followed */
+						if (e instanceof FileSystemLoopException) {
+							return FileVisitResult.CONTINUE;
+						}
+						throw e;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+						if (!attrs.isRegularFile() || !hasSuffixToProcess(path, fileSuffixesToProcess)) {
+							return FileVisitResult.CONTINUE;
+						}
+						try {
+							return handler.handle(path.toFile()) ? FileVisitResult.CONTINUE
+									: FileVisitResult.TERMINATE;
+						} catch (InterruptedException e) {
+							interruption[0] = e;
+							return FileVisitResult.TERMINATE;
+						}
+					}
+				});
+		if (interruption[0] != null) {
+			throw interruption[0];
+		}
+	}
+
+	private static boolean hasSuffixToProcess(Path path, String[] fileSuffixesToProcess) {
+		if (fileSuffixesToProcess == null || fileSuffixesToProcess.length == 0) {
+			return true;
+		}
+		String fileName = path.getFileName().toString();
+		for (String suffix : fileSuffixesToProcess) {
+			if (fileName.endsWith(suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static class QueueEntry {
+		private final Future<GenericDocument> document;
+		private final IOException crawlError;
+
+		public QueueEntry(Future<GenericDocument> document, IOException crawlError) {
+			this.document = document;
+			this.crawlError = crawlError;
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String threadName;
+
+		public DaemonThreadFactory(String threadName) {
+			this.threadName = threadName;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, threadName);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -0,0 +1,253 @@
+package edu.ucdenver.ccp.nlp.uima.collections.file.medline;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import org.medline.PubmedArticle;
+
+/**
+ * Unmarshals PubmedArticles on a pool of worker threads. A scanner thread extracts the XML for
+ * each article from the {@link MedlineXmlScanner} and submits it to the workers; the pending
+ * results are placed on a bounded queue so that articles are returned in document order.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class ConcurrentPubmedArticleIterator implements Closeable {
+
+	/**
+	 * Marks the end of the input in the queue
+	 */
+	private static final QueueEntry END_OF_INPUT = new QueueEntry(null, null);
+
+	/**
+	 * The maximum time {@link #close()} waits for the scanner thread to stop. An interrupt does not
+	 * stop a read that is blocked on the underlying stream, so the scanner thread may need to finish
+	 * the read in progress first.
+	 */
+	private static final long SCANNER_STOP_TIMEOUT_MS = 10000;
+
+	/**
+	 * {@link Unmarshaller} instances are not thread-safe, so each worker thread has its own
+	 */
+	private static final ThreadLocal<Unmarshaller> UNMARSHALLER = new ThreadLocal<Unmarshaller>() {
+		@Override
+		protected Unmarshaller initialValue() {
+			try {
+				return MedlineXmlScanner.getJaxbContext().createUnmarshaller();
+			} catch (JAXBException e) {
+				throw new IllegalStateException("Unable to create Medline XML unmarshaller.", e);
+			}
+		}
+	};
+
+	private final MedlineXmlScanner scanner;
+	private final MedlineXmlScanner.PmidFilter filter;
+	private final BlockingQueue<QueueEntry> queue;
+	private final ExecutorService workerExecutor;
+	private final Thread scannerThread;
+	private QueueEntry nextEntry;
+
+	/**
+	 * @param scanner
+	 *            the scanner is consumed by a background thread and must not be used by the caller
+	 *            after this iterator has been created
+	 * @param workerThreadCount
+	 *            the number of threads used to unmarshal articles
+	 * @param queueSize
+	 *            the maximum number of articles that are scanned ahead of the caller
+	 */
+	public ConcurrentPubmedArticleIterator(MedlineXmlScanner scanner, int workerThreadCount, int queueSize) {
+		this(scanner, null, workerThreadCount, queueSize);
+	}
+
+	/**
+	 * @param scanner
+	 *            the scanner is consumed by a background thread and must not be used by the caller
+	 *            after this iterator has been created
+	 * @param filter
+	 *            articles whose PMIDs are rejected by the filter are skipped by the scanner thread
+	 *            without being unmarshalled. If null, all articles are returned. The filter is called
+	 *            on the scanner thread.
+	 * @param workerThreadCount
+	 *            the number of threads used to unmarshal articles
+	 * @param queueSize
+	 *            the maximum number of articles that are scanned ahead of the caller
+	 */
+	public ConcurrentPubmedArticleIterator(MedlineXmlScanner scanner, MedlineXmlScanner.PmidFilter filter,
+			int workerThreadCount, int queueSize) {
+		this.scanner = scanner;
+		this.filter = filter;
+		this.queue = new ArrayBlockingQueue<QueueEntry>(queueSize);
+		this.workerExecutor = Executors.newFixedThreadPool(workerThreadCount, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "medline-unmarshaller");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.scannerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				scan();
+			}
+		}, "medline-scanner");
+		this.scannerThread.setDaemon(true);
+		this.scannerThread.start();
+	}
+
+	private void scan() {
+		QueueEntry lastEntry = END_OF_INPUT;
+		try {
+			while (!Thread.currentThread().isInterrupted() && scanner.hasNext()) {
+				final String pubmedArticleXml = scanner.nextAsXml(filter);
+				if (pubmedArticleXml == null) {
+					continue;
+				}
+				Future<PubmedArticle> article = workerExecutor.submit(new Callable<PubmedArticle>() {
+					@Override
+					public PubmedArticle call() throws JAXBException {
+						return MedlineXmlScanner.unmarshal(pubmedArticleXml, UNMARSHALLER.get());
+					}
+				});
+				queue.put(new QueueEntry(article, null));
+			}
+		} catch (IOException e) {
+			lastEntry = new QueueEntry(null, e);
+		} catch (InterruptedException | RejectedExecutionException e) {
+			/* the iterator has been closed */
+			return;
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			/* the iterator has been closed */
+			return;
+		}
+		try {
+			queue.put(lastEntry);
+		} catch (InterruptedException e) {
+			/* the iterator has been closed */
+		}
+	}
+
+	/**
+	 * @return true if there is another article. Blocks until the scanner has found the next article
+	 *         or reached the end of the input.
+	 * @throws IOException
+	 *             if an error occurred while scanning the input
+	 */
+	public boolean hasNext() throws IOException {
+		if (nextEntry == null) {
+			try {
+				nextEntry = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+		}
+		if (nextEntry.scanError != null) {
+			throw nextEntry.scanError;
+		}
+		return nextEntry != END_OF_INPUT;
+	}
+
+	/**
+	 * @return the next article, waiting for it to be unmarshalled if necessary
+	 * @throws IOException
+	 *             if an error occurred while unmarshalling the article
+	 */
+	public PubmedArticle next() throws IOException {
+		if (!hasNext()) {
+			throw new IllegalStateException("There are no more PubmedArticles.");
+		}
+		Future<PubmedArticle> article = nextEntry.article;
+		nextEntry = null;
+		try {
+			return article.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Stops the scanner and worker threads. Waits up to {@link #SCANNER_STOP_TIMEOUT_MS} for the
+	 * scanner thread to stop, so that the caller can then close the {@link MedlineXmlScanner}
+	 * without the scanner thread still reading from it.
+	 */
+	@Override
+	public void close() throws IOException {
+		scannerThread.interrupt();
+		workerExecutor.shutdownNow();
+		queue.clear();
+		try {
+			scannerThread.join(SCANNER_STOP_TIMEOUT_MS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the Medline scanner thread to stop.", e);
+		}
+		if (scannerThread.isAlive()) {
+			throw new IOException("The Medline scanner thread did not stop within " + SCANNER_STOP_TIMEOUT_MS
+					+ "ms.");
+		}
+	}
+
+	private static class QueueEntry {
+		private final Future<PubmedArticle> article;
+		private final IOException scanError;
+
+		public QueueEntry(Future<PubmedArticle> article, IOException scanError) {
+			this.article = article;
+			this.scanError = scanError;
+		}
+	}
+
+}
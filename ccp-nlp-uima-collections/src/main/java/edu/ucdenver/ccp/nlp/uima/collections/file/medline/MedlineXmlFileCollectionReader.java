@@ -35,11 +35,12 @@ package edu.ucdenver.ccp.nlp.uima.collections.file.medline;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.NoSuchElementException;
 
-import javax.xml.bind.JAXBException;
-import javax.xml.stream.XMLStreamException;
-
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
 import org.apache.uima.collection.CollectionException;
@@ -60,7 +61,6 @@ import org.medline.Year;
 import edu.ucdenver.ccp.common.string.StringConstants;
 import edu.ucdenver.ccp.medline.core.PubMedDateUtil;
 import edu.ucdenver.ccp.medline.xml.MedlineCitationUtil;
-import edu.ucdenver.ccp.medline.xml.MedlineXmlParser;
 import edu.ucdenver.ccp.nlp.core.document.GenericDocument;
 import edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader;
 import edu.ucdenver.ccp.nlp.uima.shims.document.impl.CcpDocumentMetadataHandler;
@@ -71,6 +71,12 @@ import edu.ucdenver.ccp.nlp.uima.util.View;
  * is downloaded as part of the Medline lease for instance) and returns
  * documents containing the title and abstract for each Medline record in the
  * input file. Title and abstract are separated by a line break.
+ * <p>
+ * Multiple input files, e.g. the files comprising the annual Medline baseline,
+ * can be processed by a single reader either by specifying a directory or a
+ * list of files. Citations are counted and skipped using a StAX scan, without
+ * being unmarshalled. Unmarshalling can optionally be performed on a pool of
+ * worker threads.
  * 
  * @author Colorado Computational Pharmacology, UC Denver;
  *         ccpsupport@ucdenver.edu
@@ -83,10 +89,35 @@ public class MedlineXmlFileCollectionReader extends BaseTextCollectionReader {
 	/* ==== Input file configuration ==== */
 	public static final String PARAM_MEDLINE_XML_FILE = "medlineXmlFile";
 
-	@ConfigurationParameter(mandatory = true, description = "The file containing the Medline XML comprising this document collection")
+	@ConfigurationParameter(mandatory = false, description = "The file containing the Medline XML comprising this document collection. "
+			+ "If this is a directory, all files in the directory ending with .xml or .xml.gz are processed in file name order.")
 	protected File medlineXmlFile;
 
-	private MedlineXmlParser medlineXmlParser;
+	public static final String PARAM_MEDLINE_XML_FILES = "medlineXmlFiles";
+
+	@ConfigurationParameter(mandatory = false, description = "The paths of Medline XML files comprising this document collection. "
+			+ "The files are processed in the order specified, after the file or directory specified by the medlineXmlFile parameter.")
+	protected String[] medlineXmlFiles;
+
+	public static final String PARAM_UNMARSHALLER_THREAD_COUNT = "unmarshallerThreadCount";
+
+	@ConfigurationParameter(defaultValue = "0", description = "If greater than zero, citations are unmarshalled on this number of "
+			+ "worker threads ahead of the document being processed. Documents are still returned in input order.")
+	protected int unmarshallerThreadCount;
+
+	public static final String PARAM_UNMARSHAL_QUEUE_SIZE = "unmarshalQueueSize";
+
+	@ConfigurationParameter(defaultValue = "256", description = "The maximum number of citations that are unmarshalled ahead of "
+			+ "the document being processed. Only used if the unmarshallerThreadCount parameter is greater than zero.")
+	protected int unmarshalQueueSize;
+
+	private MedlineXmlScanner medlineXmlScanner;
+
+	/**
+	 * Used instead of the medlineXmlScanner to retrieve citations once they are
+	 * being unmarshalled by worker threads
+	 */
+	private ConcurrentPubmedArticleIterator concurrentArticleIterator;
 
 	private GenericDocument nextDocument = null;
 
@@ -99,11 +130,39 @@ public class MedlineXmlFileCollectionReader extends BaseTextCollectionReader {
 	 */
 	@Override
 	protected void initializeImplementation(UimaContext context) throws ResourceInitializationException {
-		try {
-			medlineXmlParser = new MedlineXmlParser(medlineXmlFile);
-		} catch (IOException | JAXBException | XMLStreamException e) {
-			throw new ResourceInitializationException(e);
+		medlineXmlScanner = new MedlineXmlScanner(getInputFiles());
+	}
+
+	/**
+	 * @return the Medline XML files to process, in processing order
+	 * @throws ResourceInitializationException
+	 */
+	private List<File> getInputFiles() throws ResourceInitializationException {
+		List<File> inputFiles = new ArrayList<File>();
+		if (medlineXmlFile != null) {
+			if (medlineXmlFile.isDirectory()) {
+				File[] files = medlineXmlFile.listFiles();
+				Arrays.sort(files);
+				for (File file : files) {
+					if (file.isFile() && (file.getName().endsWith(".xml") || file.getName().endsWith(".xml.gz"))) {
+						inputFiles.add(file);
+					}
+				}
+			} else {
+				inputFiles.add(medlineXmlFile);
+			}
 		}
+		if (medlineXmlFiles != null) {
+			for (String path : medlineXmlFiles) {
+				inputFiles.add(new File(path));
+			}
+		}
+		if (medlineXmlFile == null && medlineXmlFiles == null) {
+			throw new ResourceInitializationException(new IllegalArgumentException(
+					"Either the " + PARAM_MEDLINE_XML_FILE + " or the " + PARAM_MEDLINE_XML_FILES
+							+ " parameter must be set."));
+		}
+		return Collections.unmodifiableList(inputFiles);
 	}
 
 	/*
@@ -115,18 +174,12 @@ public class MedlineXmlFileCollectionReader extends BaseTextCollectionReader {
 	 */
 	@Override
 	protected int countDocumentsInCollection() throws IOException {
-		MedlineXmlParser deserializer;
 		try {
-			deserializer = new MedlineXmlParser(medlineXmlFile);
-			int documentCount = 0;
-			while (deserializer.hasNext()) {
-				documentCount++;
-				deserializer.next();
-			}
-			return documentCount;
-		} catch (JAXBException | XMLStreamException e) {
-			e.printStackTrace();
-			return -1;
+			int documentCount = MedlineXmlScanner.count(getInputFiles());
+			/* under HASH sharding, each shard is expected to receive an equal share of the documents */
+			return documentCount / shardCount;
+		} catch (ResourceInitializationException e) {
+			throw new IOException(e);
 		}
 	}
 
@@ -140,12 +193,96 @@ public class MedlineXmlFileCollectionReader extends BaseTextCollectionReader {
 	@Override
 	protected void skip(int numberToSkip) throws ResourceInitializationException {
 		int numSkipped = 0;
-		while (numSkipped < numberToSkip && medlineXmlParser.hasNext()) {
-			numSkipped++;
-			medlineXmlParser.next();
+		try {
+			while (numSkipped < numberToSkip && medlineXmlScanner.hasNext()) {
+				String pmid = medlineXmlScanner.skip();
+				if (!isSharded() || isInShard(pmid)) {
+					numSkipped++;
+				}
+			}
+		} catch (IOException e) {
+			throw new ResourceInitializationException(e);
+		}
+	}
+
+	/**
+	 * @param citation
+	 * @return true if the citation is assigned to the shard processed by this collection reader
+	 */
+	private boolean isInThisShard(MedlineCitation citation) {
+		return !isSharded() || isInShard(citation.getPMID().getvalue());
+	}
+
+	/**
+	 * @return a filter that rejects the citations assigned to other shards, or null if this
+	 *         collection reader is not sharded
+	 */
+	private MedlineXmlScanner.PmidFilter getShardFilter() {
+		if (!isSharded()) {
+			return null;
+		}
+		return new MedlineXmlScanner.PmidFilter() {
+			@Override
+			public boolean accept(String pmid) {
+				return isInShard(pmid);
+			}
+		};
+	}
+
+	/**
+	 * @return the next PubmedArticle, or null if there are no more articles. When sharded, articles
+	 *         assigned to other shards are skipped before they are unmarshalled, as long as they
+	 *         have a PMID.
+	 * @throws IOException
+	 */
+	private PubmedArticle nextPubmedArticle() throws IOException {
+		if (unmarshallerThreadCount > 0) {
+			if (concurrentArticleIterator == null) {
+				/* started here rather than during initialization so that skipped citations are not unmarshalled */
+				concurrentArticleIterator = new ConcurrentPubmedArticleIterator(medlineXmlScanner, getShardFilter(),
+						unmarshallerThreadCount, unmarshalQueueSize);
+			}
+			return concurrentArticleIterator.hasNext() ? concurrentArticleIterator.next() : null;
+		}
+		if (!isSharded()) {
+			return medlineXmlScanner.hasNext() ? medlineXmlScanner.next() : null;
+		}
+		MedlineXmlScanner.PmidFilter shardFilter = getShardFilter();
+		while (medlineXmlScanner.hasNext()) {
+			PubmedArticle pubmedArticle = medlineXmlScanner.next(shardFilter);
+			if (pubmedArticle != null) {
+				return pubmedArticle;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (concurrentArticleIterator != null) {
+				/* waits for the scanner thread to stop reading from medlineXmlScanner */
+				concurrentArticleIterator.close();
+			}
+		} finally {
+			if (medlineXmlScanner != null) {
+				medlineXmlScanner.close();
+			}
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader#
+	 * supportsShardAssignment
+	 * (edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader.ShardAssignment)
+	 */
+	@Override
+	protected boolean supportsShardAssignment(ShardAssignment assignment) {
+		return assignment == ShardAssignment.HASH;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -156,14 +293,17 @@ public class MedlineXmlFileCollectionReader extends BaseTextCollectionReader {
 	@Override
 	protected boolean hasNextDocument() throws IOException, CollectionException {
 		if (nextDocument == null) {
-			while (medlineXmlParser.hasNext() && nextDocument == null) {
-				PubmedArticle pubmedArticle = medlineXmlParser.next();
+			PubmedArticle pubmedArticle;
+			while (nextDocument == null && (pubmedArticle = nextPubmedArticle()) != null) {
 				MedlineCitation nextCitation = pubmedArticle.getMedlineCitation();
-				StringBuffer documentText = new StringBuffer();
+				if (!isInThisShard(nextCitation)) {
+					continue;
+				}
+				StringBuilder documentText = new StringBuilder();
 				documentText.append(nextCitation.getArticle().getArticleTitle().getvalue());
 				String abstractText = MedlineCitationUtil.getAbstractText(nextCitation);
 				if (abstractText != null) {
-					documentText.append(StringConstants.NEW_LINE + abstractText);
+					documentText.append(StringConstants.NEW_LINE).append(abstractText);
 				}
 				nextDocument = new GenericDocument(nextCitation.getPMID().getvalue());
 				nextDocument.setDocumentText(documentText.toString());
@@ -255,4 +395,27 @@ public class MedlineXmlFileCollectionReader extends BaseTextCollectionReader {
 				PARAM_NUM2PROCESS, numToProcess, PARAM_NUM2SKIP, numToSkip, PARAM_VIEWNAME, View.DEFAULT.name());
 	}
 
+	/**
+	 * @param tsd
+	 * @param medlineXmlFileOrDirectory
+	 *            a Medline XML file or a directory of Medline XML files
+	 * @param numToSkip
+	 * @param numToProcess
+	 * @param unmarshallerThreadCount
+	 *            the number of threads used to unmarshal citations; 0 to
+	 *            unmarshal citations on the calling thread
+	 * @param documentMetadataHandlerClass
+	 * @return
+	 * @throws ResourceInitializationException
+	 */
+	public static CollectionReaderDescription createCollectionReaderDescription(TypeSystemDescription tsd,
+			File medlineXmlFileOrDirectory, int numToSkip, int numToProcess, int unmarshallerThreadCount,
+			Class<CcpDocumentMetadataHandler> documentMetadataHandlerClass) throws ResourceInitializationException {
+		return CollectionReaderFactory.createReaderDescription(MedlineXmlFileCollectionReader.class, tsd,
+				PARAM_MEDLINE_XML_FILE, medlineXmlFileOrDirectory.getAbsolutePath(), PARAM_DISABLE_PROGRESS, true,
+				PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetadataHandlerClass.getName(), PARAM_ENCODING, "UTF_8",
+				PARAM_NUM2PROCESS, numToProcess, PARAM_NUM2SKIP, numToSkip, PARAM_VIEWNAME, View.DEFAULT.name(),
+				PARAM_UNMARSHALLER_THREAD_COUNT, unmarshallerThreadCount);
+	}
+
 }
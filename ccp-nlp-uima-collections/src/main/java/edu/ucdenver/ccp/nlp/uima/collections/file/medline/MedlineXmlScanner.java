@@ -0,0 +1,397 @@
+package edu.ucdenver.ccp.nlp.uima.collections.file.medline;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.stream.StreamSource;
+
+import org.medline.PubmedArticle;
+
+/**
+ * A StAX-based scanner over the PubmedArticle elements in one or more Medline XML files (optionally
+ * gzipped). Articles can be unmarshalled, skipped without being unmarshalled, or extracted as XML
+ * so that they can be unmarshalled on another thread.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class MedlineXmlScanner implements Closeable {
+
+	private static final String PUBMED_ARTICLE_ELEMENT = "PubmedArticle";
+	private static final String PMID_ELEMENT = "PMID";
+	private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+	private static JAXBContext jaxbContext;
+
+	private final Iterator<File> medlineXmlFiles;
+	private final XMLInputFactory inputFactory;
+	/* namespaces declared on ancestors of an article are re-declared in its standalone XML */
+	private final XMLOutputFactory outputFactory;
+	private InputStream stream;
+	private XMLStreamReader reader;
+	private Unmarshaller unmarshaller;
+
+	/**
+	 * @param medlineXmlFiles
+	 *            the files to scan, in order. Files whose names end with .gz are decompressed.
+	 */
+	public MedlineXmlScanner(List<File> medlineXmlFiles) {
+		this.medlineXmlFiles = medlineXmlFiles.iterator();
+		this.inputFactory = XMLInputFactory.newInstance();
+		/* do not retrieve the Medline DTD */
+		this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		this.outputFactory = XMLOutputFactory.newInstance();
+		this.outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+	}
+
+	/**
+	 * Selects articles by PMID so that articles that are not needed, e.g. those assigned to other
+	 * shards, are not copied or unmarshalled
+	 */
+	public interface PmidFilter {
+		/**
+		 * @param pmid
+		 * @return true if the article with the specified PMID should be returned
+		 */
+		boolean accept(String pmid);
+	}
+
+	/**
+	 * @return the {@link JAXBContext} for the Medline XML classes. {@link JAXBContext} is
+	 *         thread-safe and expensive to create, so a single instance is shared.
+	 * @throws JAXBException
+	 */
+	static synchronized JAXBContext getJaxbContext() throws JAXBException {
+		if (jaxbContext == null) {
+			jaxbContext = JAXBContext.newInstance(PubmedArticle.class);
+		}
+		return jaxbContext;
+	}
+
+	/**
+	 * @return true if there is another PubmedArticle, in which case the scanner is positioned at
+	 *         its start element
+	 * @throws IOException
+	 */
+	public boolean hasNext() throws IOException {
+		try {
+			while (true) {
+				if (reader == null) {
+					if (!medlineXmlFiles.hasNext()) {
+						return false;
+					}
+					open(medlineXmlFiles.next());
+				}
+				if (reader.isStartElement() && reader.getLocalName().equals(PUBMED_ARTICLE_ELEMENT)) {
+					return true;
+				}
+				if (reader.hasNext()) {
+					reader.next();
+				} else {
+					closeCurrentFile();
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * @return the next PubmedArticle, unmarshalled on the calling thread
+	 * @throws IOException
+	 */
+	public PubmedArticle next() throws IOException {
+		checkHasNext();
+		try {
+			if (unmarshaller == null) {
+				unmarshaller = getJaxbContext().createUnmarshaller();
+			}
+			return unmarshaller.unmarshal(reader, PubmedArticle.class).getValue();
+		} catch (JAXBException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Advances past the next PubmedArticle, unmarshalling it only if its PMID is accepted by the
+	 * filter
+	 * 
+	 * @param filter
+	 * @return the next PubmedArticle, unmarshalled on the calling thread, or null if it was
+	 *         rejected by the filter
+	 * @throws IOException
+	 */
+	public PubmedArticle next(PmidFilter filter) throws IOException {
+		String pubmedArticleXml = nextAsXml(filter);
+		if (pubmedArticleXml == null) {
+			return null;
+		}
+		try {
+			if (unmarshaller == null) {
+				unmarshaller = getJaxbContext().createUnmarshaller();
+			}
+			return unmarshal(pubmedArticleXml, unmarshaller);
+		} catch (JAXBException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Advances past the next PubmedArticle without unmarshalling it
+	 * 
+	 * @return the PMID of the skipped article
+	 * @throws IOException
+	 */
+	public String skip() throws IOException {
+		checkHasNext();
+		try {
+			String pmid = null;
+			int depth = 0;
+			while (true) {
+				if (reader.isStartElement()) {
+					depth++;
+					if (pmid == null && reader.getLocalName().equals(PMID_ELEMENT)) {
+						/* leaves the reader at the PMID end element */
+						pmid = reader.getElementText();
+						depth--;
+					}
+				} else if (reader.isEndElement()) {
+					depth--;
+				}
+				if (depth == 0) {
+					return pmid;
+				}
+				reader.next();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Advances the reader to the end element that closes the current element at the specified depth
+	 */
+	private void skipToDepthZero(int depth) throws XMLStreamException {
+		while (depth > 0) {
+			reader.next();
+			if (reader.isStartElement()) {
+				depth++;
+			} else if (reader.isEndElement()) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Advances past the next PubmedArticle, copying it to a standalone XML string
+	 * 
+	 * @return the XML for the next PubmedArticle, which can be unmarshalled using
+	 *         {@link #unmarshal(String, Unmarshaller)}
+	 * @throws IOException
+	 */
+	public String nextAsXml() throws IOException {
+		return nextAsXml(null);
+	}
+
+	/**
+	 * Advances past the next PubmedArticle, copying it to a standalone XML string if its PMID is
+	 * accepted by the filter. The PMID precedes the bulk of the article, so the remainder of a
+	 * rejected article is skipped without being copied.
+	 * 
+	 * @param filter
+	 *            if null, all articles are accepted. Articles without a PMID are always accepted.
+	 * @return the XML for the next PubmedArticle, which can be unmarshalled using
+	 *         {@link #unmarshal(String, Unmarshaller)}, or null if the article was rejected by the
+	 *         filter
+	 * @throws IOException
+	 */
+	public String nextAsXml(PmidFilter filter) throws IOException {
+		checkHasNext();
+		try {
+			StringWriter xml = new StringWriter();
+			XMLStreamWriter writer = outputFactory.createXMLStreamWriter(xml);
+			boolean pmidSeen = false;
+			int depth = 0;
+			while (true) {
+				switch (reader.getEventType()) {
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					writeStartElement(writer);
+					if (!pmidSeen && reader.getLocalName().equals(PMID_ELEMENT)) {
+						pmidSeen = true;
+						/* leaves the reader at the PMID end element */
+						String pmid = reader.getElementText();
+						writer.writeCharacters(pmid);
+						writer.writeEndElement();
+						depth--;
+						if (filter != null && !filter.accept(pmid)) {
+							skipToDepthZero(depth);
+							return null;
+						}
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					writer.writeEndElement();
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					break;
+				default:
+					break;
+				}
+				if (depth == 0) {
+					writer.close();
+					return xml.toString();
+				}
+				reader.next();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Copies the current start element, including its namespace declarations and the namespaces of
+	 * its attributes
+	 */
+	private void writeStartElement(XMLStreamWriter writer) throws XMLStreamException {
+		writer.writeStartElement(nullToEmpty(reader.getPrefix()), reader.getLocalName(),
+				nullToEmpty(reader.getNamespaceURI()));
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			if (prefix == null || prefix.isEmpty()) {
+				writer.writeDefaultNamespace(nullToEmpty(reader.getNamespaceURI(i)));
+			} else {
+				writer.writeNamespace(prefix, nullToEmpty(reader.getNamespaceURI(i)));
+			}
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			writer.writeAttribute(nullToEmpty(reader.getAttributePrefix(i)),
+					nullToEmpty(reader.getAttributeNamespace(i)), reader.getAttributeLocalName(i),
+					reader.getAttributeValue(i));
+		}
+	}
+
+	private static String nullToEmpty(String s) {
+		return (s == null) ? "" : s;
+	}
+
+	/**
+	 * @param pubmedArticleXml
+	 *            as returned by {@link #nextAsXml()}
+	 * @param unmarshaller
+	 *            created from {@link #getJaxbContext()}; must not be shared between threads
+	 * @return the unmarshalled PubmedArticle
+	 * @throws JAXBException
+	 */
+	static PubmedArticle unmarshal(String pubmedArticleXml, Unmarshaller unmarshaller) throws JAXBException {
+		return unmarshaller.unmarshal(new StreamSource(new StringReader(pubmedArticleXml)), PubmedArticle.class)
+				.getValue();
+	}
+
+	/**
+	 * @param medlineXmlFiles
+	 * @return the number of PubmedArticle elements in the specified files, counted without
+	 *         unmarshalling them
+	 * @throws IOException
+	 */
+	public static int count(List<File> medlineXmlFiles) throws IOException {
+		try (MedlineXmlScanner scanner = new MedlineXmlScanner(medlineXmlFiles)) {
+			int count = 0;
+			while (scanner.hasNext()) {
+				scanner.skip();
+				count++;
+			}
+			return count;
+		}
+	}
+
+	private void checkHasNext() throws IOException {
+		if (!hasNext()) {
+			throw new IllegalStateException("There are no more PubmedArticles.");
+		}
+	}
+
+	private void open(File medlineXmlFile) throws IOException, XMLStreamException {
+		stream = new BufferedInputStream(new FileInputStream(medlineXmlFile), STREAM_BUFFER_SIZE);
+		if (medlineXmlFile.getName().endsWith(".gz")) {
+			stream = new GZIPInputStream(stream, STREAM_BUFFER_SIZE);
+		}
+		reader = inputFactory.createXMLStreamReader(stream);
+	}
+
+	private void closeCurrentFile() throws IOException {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			} finally {
+				reader = null;
+				stream.close();
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		closeCurrentFile();
+	}
+
+}
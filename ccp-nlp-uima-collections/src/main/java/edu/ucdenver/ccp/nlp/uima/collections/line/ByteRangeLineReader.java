@@ -0,0 +1,165 @@
+package edu.ucdenver.ccp.nlp.uima.collections.line;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the lines that begin within a byte range of a file using positioned {@link FileChannel}
+ * reads. A line belongs to the range if its first byte lies in [start, end), so a file can be
+ * split at arbitrary byte offsets and each line is read by exactly one of the readers covering
+ * the splits.
+ * <p>
+ * Lines are split on '\n' (a trailing '\r' is removed) before being decoded, so the character
+ * encoding must encode '\n' as the single byte 0x0A, see {@link #isSupported(Charset)}.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ByteRangeLineReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private final Charset charset;
+	private final long end;
+	private final ByteBuffer buffer;
+	private byte[] lineBytes = new byte[256];
+
+	/**
+	 * The file offset of the next byte in the buffer
+	 */
+	private long position;
+
+	/**
+	 * @param file
+	 * @param charset
+	 * @param start
+	 *            the byte offset of the start of the range. If this offset is not at the start of
+	 *            a line, reading begins at the start of the following line.
+	 * @param end
+	 *            the byte offset of the end of the range (exclusive), or -1 to read to the end of
+	 *            the file
+	 * @throws IOException
+	 */
+	public ByteRangeLineReader(File file, Charset charset, long start, long end) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.charset = charset;
+		this.end = (end < 0) ? Long.MAX_VALUE : end;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.buffer.flip();
+		if (start > 0) {
+			/*
+			 * a line starts at the start offset only if it is preceded by a newline, so begin one
+			 * byte early and discard everything up to and including the first newline
+			 */
+			this.position = start - 1;
+			channel.position(position);
+			while (true) {
+				int b = read();
+				if (b == -1 || b == '\n') {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param charset
+	 * @return true if lines encoded using the specified charset can be read by this class
+	 */
+	public static boolean isSupported(Charset charset) {
+		byte[] newline = "\n".getBytes(charset);
+		return newline.length == 1 && newline[0] == '\n';
+	}
+
+	/**
+	 * @return the next line that begins within the byte range, or null if there are no more lines
+	 * @throws IOException
+	 */
+	public String readLine() throws IOException {
+		if (position >= end) {
+			return null;
+		}
+		int length = 0;
+		int b = read();
+		if (b == -1) {
+			return null;
+		}
+		while (b != -1 && b != '\n') {
+			if (length == lineBytes.length) {
+				lineBytes = Arrays.copyOf(lineBytes, length * 2);
+			}
+			lineBytes[length++] = (byte) b;
+			b = read();
+		}
+		if (length > 0 && lineBytes[length - 1] == '\r') {
+			length--;
+		}
+		return new String(lineBytes, 0, length, charset);
+	}
+
+	/**
+	 * @return the byte offset at which the next line begins
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	private int read() throws IOException {
+		if (!buffer.hasRemaining()) {
+			buffer.clear();
+			int bytesRead = channel.read(buffer);
+			buffer.flip();
+			if (bytesRead <= 0) {
+				return -1;
+			}
+		}
+		position++;
+		return buffer.get() & 0xFF;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
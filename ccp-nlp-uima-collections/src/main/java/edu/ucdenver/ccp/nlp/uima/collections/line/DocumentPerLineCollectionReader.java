@@ -36,6 +36,7 @@ package edu.ucdenver.ccp.nlp.uima.collections.line;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.NoSuchElementException;
 
 import org.apache.log4j.Logger;
@@ -47,6 +48,8 @@ import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.Progress;
+import org.apache.uima.util.ProgressImpl;
 
 import edu.ucdenver.ccp.common.file.FileReaderUtil;
 import edu.ucdenver.ccp.common.reflection.ConstructorUtil;
@@ -90,26 +93,169 @@ public class DocumentPerLineCollectionReader extends BaseTextCollectionReader {
 	 */
 	private DocumentExtractor documentExtractor;
 
+	/* ==== Offset index configuration ==== */
+	public static final String PARAM_OFFSET_INDEX_FILE = "offsetIndexFile";
+
+	@ConfigurationParameter(mandatory = false, description = "If set, the byte offset of each document in the collection file is "
+			+ "stored in this index file, which is created by scanning the collection file once if it does not exist. The index "
+			+ "allows the reader to seek directly to the first document to process, and is required for RANGE shard assignment.")
+	protected File offsetIndexFile;
+
+	/* ==== Byte range configuration ==== */
+	public static final String PARAM_START_OFFSET = "startOffset";
+
+	@ConfigurationParameter(defaultValue = "0", description = "The byte offset in the collection file at which this reader starts. "
+			+ "Offsets do not need to be aligned with line boundaries: the reader processes the lines that begin at or after this "
+			+ "offset. Together with the endOffset parameter, this allows multiple readers to process disjoint ranges of a single "
+			+ "collection file in parallel.")
+	protected long startOffset;
+
+	public static final String PARAM_END_OFFSET = "endOffset";
+
+	@ConfigurationParameter(defaultValue = "-1", description = "The byte offset in the collection file (exclusive) at which this "
+			+ "reader stops. Only lines that begin before this offset are processed. If < 0, the reader continues to the end of "
+			+ "the file.")
+	protected long endOffset;
+
+	/**
+	 * Used to read the collection file unless its character encoding does not represent a
+	 * newline as a single byte
+	 */
+	private ByteRangeLineReader lineReader;
+
+	/**
+	 * Used to read the collection file if it cannot be read using the lineReader
+	 */
 	private BufferedReader reader;
 
+	/**
+	 * The byte offsets of the start and end of the lines processed by this reader, used to report
+	 * progress
+	 */
+	private long firstLineOffset;
+	private long lastLineEndOffset;
+
+	/**
+	 * The number of bytes sampled from the start of the byte range in order to estimate the number
+	 * of documents in the collection
+	 */
+	private static final int DOCUMENT_COUNT_SAMPLE_SIZE = 1024 * 1024;
+
 	private GenericDocument nextDocument = null;
 
+	/**
+	 * The number of documents left to read when reading a range of documents located using the
+	 * offset index; -1 if the reader continues to the end of the file
+	 */
+	private long documentsRemaining = -1;
+
+	/**
+	 * The [start, end) ordinals of the documents to process if the offset index is used to seek
+	 * into the collection file, after sharding and skipping have been applied; null otherwise
+	 */
+	private long[] indexedRange;
+
 	@Override
 	public boolean hasNextDocument() throws IOException, CollectionException {
 		if (nextDocument == null) {
-			String line = reader.readLine();
-			while (line != null && nextDocument == null) {
-				nextDocument = documentExtractor.extractDocument(line);
-				if (nextDocument != null)
-					break;
-				line = reader.readLine();
+			nextDocument = readNextDocument();
+		}
+		return nextDocument != null;
+	}
+
+	/**
+	 * @return the next document in the collection that is assigned to this shard, or null if
+	 *         there are no more documents
+	 * @throws IOException
+	 */
+	private GenericDocument readNextDocument() throws IOException {
+		while (documentsRemaining != 0) {
+			String line = (lineReader == null) ? reader.readLine() : lineReader.readLine();
+			if (line == null) {
+				return null;
 			}
-			if (nextDocument != null)
-				return true;
+			GenericDocument document = documentExtractor.extractDocument(line);
+			if (document != null) {
+				if (documentsRemaining > 0) {
+					documentsRemaining--;
+				}
+				if (!isHashSharded() || isInShard(document.getDocumentID())) {
+					return document;
+				}
+			}
+		}
+		return null;
+	}
+
+	private boolean isHashSharded() {
+		return isSharded() && shardAssignment == ShardAssignment.HASH;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader#
+	 * supportsShardAssignment
+	 * (edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader.ShardAssignment)
+	 */
+	@Override
+	protected boolean supportsShardAssignment(ShardAssignment assignment) {
+		return assignment == ShardAssignment.HASH || offsetIndexFile != null;
+	}
+
+	/**
+	 * Builds the offset index if it does not exist or was built from a different version of the
+	 * collection file, and computes the range of documents to process
+	 * 
+	 * @return the [start, end) ordinals of the documents to process, or null if the offset index
+	 *         is not used to seek into the collection file
+	 * @throws IOException
+	 */
+	private long[] getIndexedRange() throws IOException {
+		if (indexedRange != null || offsetIndexFile == null || isHashSharded()) {
+			return indexedRange;
+		}
+		if (!LineOffsetIndex.isCurrent(offsetIndexFile, collectionFile)) {
+			LineOffsetIndex.build(collectionFile, getCharset(), getDocumentExtractor(), offsetIndexFile);
+		}
+		long documentCount = LineOffsetIndex.getDocumentCount(offsetIndexFile);
+		long[] range = isSharded() ? getShardRange(documentCount) : new long[] { 0, documentCount };
+		long start = Math.min(range[0] + numberToSkip, range[1]);
+		indexedRange = new long[] { start, range[1] };
+		return indexedRange;
+	}
+
+	private Charset getCharset() {
+		return Charset.forName(encoding.getCharacterSetName());
+	}
 
-			return false;
+	private boolean isByteRange() {
+		return startOffset > 0 || endOffset >= 0;
+	}
+
+	private DocumentExtractor getDocumentExtractor() {
+		if (documentExtractor == null) {
+			documentExtractor = (DocumentExtractor) ConstructorUtil.invokeConstructor(documentExtractorClassName);
+		}
+		return documentExtractor;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader#validateParameters()
+	 */
+	@Override
+	protected void validateParameters() throws ResourceInitializationException {
+		if (isByteRange() && offsetIndexFile != null) {
+			throw new ResourceInitializationException(new IllegalArgumentException(
+					"Byte offsets cannot be specified when the offset index is used to locate documents."));
+		}
+		if ((isByteRange() || (offsetIndexFile != null && !isHashSharded()))
+				&& !ByteRangeLineReader.isSupported(getCharset())) {
+			throw new ResourceInitializationException(new IllegalArgumentException(
+					"Byte offsets are not supported for the " + encoding.name() + " character encoding."));
 		}
-		return true;
 	}
 
 	/*
@@ -121,13 +267,29 @@ public class DocumentPerLineCollectionReader extends BaseTextCollectionReader {
 	 */
 	@Override
 	protected void initializeImplementation(UimaContext context) throws ResourceInitializationException {
+		documentExtractor = getDocumentExtractor();
 		try {
-			reader = FileReaderUtil.initBufferedReader(collectionFile, encoding);
+			long[] range = getIndexedRange();
+			if (ByteRangeLineReader.isSupported(getCharset())) {
+				long start = startOffset;
+				if (range != null) {
+					start = (range[0] < range[1]) ? LineOffsetIndex.getOffset(offsetIndexFile, range[0])
+							: collectionFile.length();
+					documentsRemaining = range[1] - range[0];
+				}
+				lineReader = new ByteRangeLineReader(collectionFile, getCharset(), start, endOffset);
+				firstLineOffset = lineReader.getPosition();
+				lastLineEndOffset = (endOffset < 0) ? collectionFile.length() : Math.min(endOffset,
+						collectionFile.length());
+			} else if (range != null || isByteRange()) {
+				throw new ResourceInitializationException(new IllegalArgumentException(
+						"Byte offsets are not supported for the " + encoding.name() + " character encoding."));
+			} else {
+				reader = FileReaderUtil.initBufferedReader(collectionFile, encoding);
+			}
 		} catch (IOException e) {
 			throw new ResourceInitializationException(e);
 		}
-		documentExtractor = (DocumentExtractor) ConstructorUtil.invokeConstructor(documentExtractorClassName);
-
 	}
 
 	/*
@@ -138,11 +300,54 @@ public class DocumentPerLineCollectionReader extends BaseTextCollectionReader {
 	 */
 	@Override
 	protected int countDocumentsInCollection() throws IOException {
-		BufferedReader br = FileReaderUtil.initBufferedReader(collectionFile, encoding);
-		int lineCount = 0;
-		while (br.readLine() != null)
-			lineCount++;
-		return lineCount;
+		long[] range = getIndexedRange();
+		if (range != null) {
+			long count = range[1] - range[0];
+			return (int) ((numberToProcess < 0) ? count : Math.min(count, numberToProcess));
+		}
+		long documentCount;
+		if (ByteRangeLineReader.isSupported(getCharset())) {
+			documentCount = estimateDocumentCount();
+		} else {
+			BufferedReader br = FileReaderUtil.initBufferedReader(collectionFile, encoding);
+			documentCount = 0;
+			while (br.readLine() != null)
+				documentCount++;
+			br.close();
+		}
+		/* under HASH sharding, each shard is expected to receive an equal share of the documents */
+		documentCount = documentCount / shardCount - numberToSkip;
+		documentCount = (numberToProcess < 0) ? documentCount : Math.min(documentCount, numberToProcess);
+		return (int) Math.max(0, documentCount);
+	}
+
+	/**
+	 * Estimates the number of documents in the byte range processed by this reader by
+	 * extracting the documents in a sample at the start of the range and extrapolating based on
+	 * the size of the range. The count is exact if the sample covers the entire range.
+	 * 
+	 * @return the estimated number of documents in the byte range
+	 * @throws IOException
+	 */
+	private long estimateDocumentCount() throws IOException {
+		try (ByteRangeLineReader sampleReader = new ByteRangeLineReader(collectionFile, getCharset(),
+				startOffset, endOffset)) {
+			long sampleStart = sampleReader.getPosition();
+			long rangeEnd = (endOffset < 0) ? collectionFile.length() : Math.min(endOffset, collectionFile.length());
+			long sampledDocumentCount = 0;
+			String line;
+			while (sampleReader.getPosition() - sampleStart < DOCUMENT_COUNT_SAMPLE_SIZE
+					&& (line = sampleReader.readLine()) != null) {
+				if (getDocumentExtractor().extractDocument(line) != null) {
+					sampledDocumentCount++;
+				}
+			}
+			long sampledBytes = sampleReader.getPosition() - sampleStart;
+			if (sampleReader.getPosition() >= rangeEnd || sampledBytes == 0) {
+				return sampledDocumentCount;
+			}
+			return sampledDocumentCount * (rangeEnd - sampleStart) / sampledBytes;
+		}
 	}
 
 	/*
@@ -152,18 +357,48 @@ public class DocumentPerLineCollectionReader extends BaseTextCollectionReader {
 	 */
 	@Override
 	protected void skip(int numberToSkip) throws ResourceInitializationException {
+		if (indexedRange != null) {
+			/* skipped documents are excluded from the indexed range */
+			return;
+		}
 		int numSkipped = 0;
 		try {
-			String line;
-			while (numSkipped < numberToSkip && (line = reader.readLine()) != null) {
-				if (documentExtractor.extractDocument(line) != null)
-					numSkipped++;
+			while (numSkipped < numberToSkip && readNextDocument() != null) {
+				numSkipped++;
 			}
 		} catch (IOException e) {
 			throw new ResourceInitializationException(e);
 		}
 	}
 
+	/**
+	 * In addition to the document progress reported by {@link BaseTextCollectionReader}, reports
+	 * the number of bytes of the byte range that have been read
+	 * 
+	 * @see edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader#getProgress()
+	 */
+	@Override
+	public Progress[] getProgress() {
+		Progress documentProgress = super.getProgress()[0];
+		if (lineReader == null) {
+			return new Progress[] { documentProgress };
+		}
+		long bytesRead = Math.min(lineReader.getPosition(), lastLineEndOffset) - firstLineOffset;
+		long bytesInRange = lastLineEndOffset - firstLineOffset;
+		return new Progress[] { documentProgress,
+				new ProgressImpl(Math.max(0, bytesRead), Math.max(0, bytesInRange), Progress.BYTES) };
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (lineReader != null) {
+			lineReader.close();
+		}
+		if (reader != null) {
+			reader.close();
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -213,4 +448,63 @@ public class DocumentPerLineCollectionReader extends BaseTextCollectionReader {
 				PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetadataHandlerClass.getName(), PARAM_ENCODING, "UTF_8",
 				PARAM_NUM2PROCESS, numToProcess, PARAM_NUM2SKIP, numToSkip, PARAM_VIEWNAME, View.DEFAULT.name());
 	}
+
+	/**
+	 * Returns a description of a collection reader that processes a single shard of the collection
+	 * 
+	 * @param tsd
+	 * @param collectionFile
+	 * @param numToSkip
+	 *            the number of documents in the shard to skip
+	 * @param numToProcess
+	 * @param documentExtractorClass
+	 * @param documentMetadataHandlerClass
+	 * @param offsetIndexFile
+	 *            may be null unless RANGE shard assignment is used
+	 * @param shardIndex
+	 * @param shardCount
+	 * @param shardAssignment
+	 * @return
+	 * @throws ResourceInitializationException
+	 */
+	public static CollectionReaderDescription createCollectionReaderDescription(TypeSystemDescription tsd,
+			File collectionFile, int numToSkip, int numToProcess,
+			Class<? extends DocumentExtractor> documentExtractorClass,
+			Class<? extends DocumentMetadataHandler> documentMetadataHandlerClass, File offsetIndexFile,
+			int shardIndex, int shardCount, ShardAssignment shardAssignment) throws ResourceInitializationException {
+		return CollectionReaderFactory.createReaderDescription(DocumentPerLineCollectionReader.class, tsd,
+				PARAM_COLLECTION_FILE, collectionFile.getAbsolutePath(), PARAM_DISABLE_PROGRESS, true,
+				PARAM_DOCUMENT_EXTRACTOR_CLASS, documentExtractorClass.getName(),
+				PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetadataHandlerClass.getName(), PARAM_ENCODING, "UTF_8",
+				PARAM_NUM2PROCESS, numToProcess, PARAM_NUM2SKIP, numToSkip, PARAM_VIEWNAME, View.DEFAULT.name(),
+				PARAM_OFFSET_INDEX_FILE, (offsetIndexFile == null) ? null : offsetIndexFile.getAbsolutePath(),
+				PARAM_SHARD_INDEX, shardIndex, PARAM_SHARD_COUNT, shardCount, PARAM_SHARD_ASSIGNMENT,
+				shardAssignment.name());
+	}
+
+	/**
+	 * Returns a description of a collection reader that processes the lines beginning within the
+	 * specified byte range of the collection file
+	 * 
+	 * @param tsd
+	 * @param collectionFile
+	 * @param startOffset
+	 * @param endOffset
+	 *            exclusive; -1 to read to the end of the file
+	 * @param documentExtractorClass
+	 * @param documentMetadataHandlerClass
+	 * @return
+	 * @throws ResourceInitializationException
+	 */
+	public static CollectionReaderDescription createByteRangeCollectionReaderDescription(TypeSystemDescription tsd,
+			File collectionFile, long startOffset, long endOffset,
+			Class<? extends DocumentExtractor> documentExtractorClass,
+			Class<? extends DocumentMetadataHandler> documentMetadataHandlerClass)
+			throws ResourceInitializationException {
+		return CollectionReaderFactory.createReaderDescription(DocumentPerLineCollectionReader.class, tsd,
+				PARAM_COLLECTION_FILE, collectionFile.getAbsolutePath(), PARAM_DOCUMENT_EXTRACTOR_CLASS,
+				documentExtractorClass.getName(), PARAM_DOCUMENT_METADATA_HANDLER_CLASS,
+				documentMetadataHandlerClass.getName(), PARAM_ENCODING, "UTF_8", PARAM_VIEWNAME, View.DEFAULT.name(),
+				PARAM_START_OFFSET, startOffset, PARAM_END_OFFSET, endOffset);
+	}
 }
@@ -0,0 +1,180 @@
+package edu.ucdenver.ccp.nlp.uima.collections.line;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An index of the byte offsets at which documents begin in a document-per-line collection file.
+ * The index is stored as a header, which records the length and modification time of the
+ * collection file when it was indexed, followed by a sequence of 8-byte offsets, one per document,
+ * so the offset of the n<sup>th</sup> document can be looked up without reading the preceding
+ * entries. Lines that do not produce a document (as determined by the {@link DocumentExtractor})
+ * are not indexed.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineOffsetIndex {
+
+	private static final int OFFSET_SIZE_IN_BYTES = 8;
+
+	/* identifies (and versions) the index format */
+	private static final long MAGIC = 0x4c4f494458000002L;
+
+	/* magic number, collection file length, collection file modification time */
+	private static final int HEADER_SIZE_IN_BYTES = 3 * 8;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private LineOffsetIndex() {
+		// utility class
+	}
+
+	/**
+	 * Scans the collection file and writes the offset of each line that yields a document to the
+	 * index file. The index is written to a temporary file that is then moved into place so that
+	 * concurrent readers never observe a partially written index. The length and modification time
+	 * of the collection file are recorded before it is scanned, so an index built while the
+	 * collection file was being modified is not considered current.
+	 * 
+	 * @param collectionFile
+	 * @param charset
+	 * @param documentExtractor
+	 * @param indexFile
+	 * @throws IOException
+	 */
+	public static void build(File collectionFile, Charset charset, DocumentExtractor documentExtractor,
+			File indexFile) throws IOException {
+		Path indexDirectory = indexFile.getAbsoluteFile().getParentFile().toPath();
+		Path tempFile = Files.createTempFile(indexDirectory, indexFile.getName(), ".tmp");
+		long collectionFileLength = collectionFile.length();
+		long collectionFileLastModified = collectionFile.lastModified();
+		try {
+			try (InputStream is = new FileInputStream(collectionFile);
+					DataOutputStream indexStream = new DataOutputStream(
+							new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				indexStream.writeLong(MAGIC);
+				indexStream.writeLong(collectionFileLength);
+				indexStream.writeLong(collectionFileLastModified);
+				ByteArrayOutputStream line = new ByteArrayOutputStream();
+				byte[] buffer = new byte[BUFFER_SIZE];
+				long bufferStart = 0;
+				long lineStart = 0;
+				for (int length; (length = is.read(buffer)) != -1; bufferStart += length) {
+					int segmentStart = 0;
+					for (int i = 0; i < length; i++) {
+						if (buffer[i] == '\n') {
+							line.write(buffer, segmentStart, i - segmentStart);
+							indexLine(line, lineStart, charset, documentExtractor, indexStream);
+							segmentStart = i + 1;
+							lineStart = bufferStart + segmentStart;
+						}
+					}
+					line.write(buffer, segmentStart, length - segmentStart);
+				}
+				if (line.size() > 0) {
+					indexLine(line, lineStart, charset, documentExtractor, indexStream);
+				}
+			}
+			Files.move(tempFile, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private static void indexLine(ByteArrayOutputStream line, long lineStart, Charset charset,
+			DocumentExtractor documentExtractor, DataOutputStream indexStream) throws IOException {
+		String text = new String(line.toByteArray(), charset);
+		line.reset();
+		if (text.endsWith("\r")) {
+			text = text.substring(0, text.length() - 1);
+		}
+		if (documentExtractor.extractDocument(text) != null) {
+			indexStream.writeLong(lineStart);
+		}
+	}
+
+	/**
+	 * @param indexFile
+	 * @param collectionFile
+	 * @return true if the index file exists and was built from the collection file at its current
+	 *         length and modification time
+	 * @throws IOException
+	 */
+	public static boolean isCurrent(File indexFile, File collectionFile) throws IOException {
+		if (!indexFile.exists() || indexFile.length() < HEADER_SIZE_IN_BYTES) {
+			return false;
+		}
+		try (RandomAccessFile index = new RandomAccessFile(indexFile, "r")) {
+			return index.readLong() == MAGIC && index.readLong() == collectionFile.length()
+					&& index.readLong() == collectionFile.lastModified();
+		}
+	}
+
+	/**
+	 * @param indexFile
+	 * @return the number of documents in the index
+	 */
+	public static long getDocumentCount(File indexFile) {
+		return Math.max(0, indexFile.length() - HEADER_SIZE_IN_BYTES) / OFFSET_SIZE_IN_BYTES;
+	}
+
+	/**
+	 * @param indexFile
+	 * @param documentOrdinal
+	 *            the zero-based position of the document in the collection
+	 * @return the byte offset in the collection file at which the specified document begins
+	 * @throws IOException
+	 */
+	public static long getOffset(File indexFile, long documentOrdinal) throws IOException {
+		try (RandomAccessFile index = new RandomAccessFile(indexFile, "r")) {
+			index.seek(HEADER_SIZE_IN_BYTES + documentOrdinal * OFFSET_SIZE_IN_BYTES);
+			return index.readLong();
+		}
+	}
+
+}
@@ -38,7 +38,12 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.uima.UIMAException;
 import org.apache.uima.collection.CollectionReaderDescription;
@@ -53,6 +58,8 @@ import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
 import edu.ucdenver.ccp.common.test.DefaultTestCase;
+import edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader.ShardAssignment;
+import edu.ucdenver.ccp.nlp.uima.shims.document.impl.CcpDocumentMetadataHandler;
 import edu.ucdenver.ccp.nlp.uima.util.TypeSystemUtil;
 import edu.ucdenver.ccp.nlp.uima.util.View;
 
@@ -259,4 +266,128 @@ public class FileSystemCollectionReaderTest extends DefaultTestCase {
 		assertEquals(8, casCount);
 	}
 
+	@Test
+	public void testFileSystemCollectionReader_readAhead_SuffixTxt_Skip2() throws UIMAException, IOException {
+		CollectionReaderDescription desc = FileSystemCollectionReader.createDescription(
+				TypeSystemUtil.getCcpTypeSystem(), baseDir, true, ENCODING, "en", false, 2, 2,
+				CcpDocumentMetadataHandler.class, View.DEFAULT.viewName(), 3, 2, ".txt");
+
+		Set<String> documentTexts = new HashSet<String>();
+		for (JCas jcas : new JCasIterable(desc)) {
+			documentTexts.add(jcas.getDocumentText().trim());
+		}
+
+		assertEquals(2, documentTexts.size());
+		for (String documentText : documentTexts) {
+			assertTrue(documentText.startsWith("This is sample document"));
+		}
+	}
+
+	@Test
+	public void testFileSystemCollectionReader_readAhead_recurseTrue() throws UIMAException, IOException {
+		CollectionReaderDescription desc = FileSystemCollectionReader.createDescription(
+				TypeSystemUtil.getCcpTypeSystem(), baseDir, true, ENCODING, "en", false, -1, 0,
+				CcpDocumentMetadataHandler.class, View.DEFAULT.viewName(), 2, 1);
+
+		int casCount = 0;
+		for (JCas jcas : new JCasIterable(desc)) {
+			casCount++;
+		}
+
+		assertEquals(8, casCount);
+	}
+
+	@Test
+	public void testFileSystemCollectionReader_readAheadMatchesSync() throws UIMAException, IOException {
+		File linkedDoc = folder.newFile("doc9.txt");
+		FileWriterUtil.printLines(CollectionsUtil.createList("This is sample document 9."), linkedDoc, ENCODING,
+				WriteMode.OVERWRITE, FileSuffixEnforcement.OFF);
+		Files.createSymbolicLink(new File(baseDir, "doc9.txt").toPath(), linkedDoc.toPath());
+		File linkedBaseDir = new File(folder.getRoot(), "base-link");
+		Files.createSymbolicLink(linkedBaseDir.toPath(), baseDir.toPath());
+
+		for (File base : CollectionsUtil.createList(baseDir, linkedBaseDir)) {
+			for (int num2process : new int[] { -1, 0, 3 }) {
+				CollectionReaderDescription syncDesc = FileSystemCollectionReader.createDescription(
+						TypeSystemUtil.getCcpTypeSystem(), base, true, ENCODING, "en", false, num2process, 0,
+						CcpDocumentMetadataHandler.class, View.DEFAULT.viewName(), 0, 64);
+				CollectionReaderDescription readAheadDesc = FileSystemCollectionReader.createDescription(
+						TypeSystemUtil.getCcpTypeSystem(), base, true, ENCODING, "en", false, num2process, 0,
+						CcpDocumentMetadataHandler.class, View.DEFAULT.viewName(), 2, 2);
+				Set<String> syncTexts = getDocumentTexts(syncDesc);
+				Set<String> readAheadTexts = getDocumentTexts(readAheadDesc);
+				assertEquals(num2process < 0 ? 9 : num2process, readAheadTexts.size());
+				if (num2process < 0) {
+					assertEquals(syncTexts, readAheadTexts);
+				} else {
+					assertEquals(syncTexts.size(), readAheadTexts.size());
+				}
+			}
+		}
+	}
+
+	private static Set<String> getDocumentTexts(CollectionReaderDescription desc) throws UIMAException, IOException {
+		Set<String> documentTexts = new HashSet<String>();
+		for (JCas jcas : new JCasIterable(desc)) {
+			documentTexts.add(jcas.getDocumentText().trim());
+		}
+		return documentTexts;
+	}
+
+	@Test
+	public void testFileSystemCollectionReader_rangeShardsUsingManifest() throws UIMAException, IOException {
+		File manifestFile = new File(folder.getRoot(), "manifest.txt");
+		Set<String> documentTexts = new HashSet<String>();
+		int casCount = 0;
+		for (int shardIndex = 0; shardIndex < 3; shardIndex++) {
+			CollectionReaderDescription desc = FileSystemCollectionReader.createDescription(
+					TypeSystemUtil.getCcpTypeSystem(), baseDir, true, ENCODING, "en", false, -1, 0,
+					CcpDocumentMetadataHandler.class, View.DEFAULT.viewName(), manifestFile, shardIndex, 3,
+					ShardAssignment.RANGE);
+			for (JCas jcas : new JCasIterable(desc)) {
+				documentTexts.add(jcas.getDocumentText().trim());
+				casCount++;
+			}
+			assertTrue(manifestFile.exists());
+		}
+
+		assertEquals(8, casCount);
+		assertEquals(8, documentTexts.size());
+	}
+
+	@Test
+	public void testFileSystemCollectionReader_rangeShardsWithoutManifestUseRelativePathOrder()
+			throws UIMAException, IOException {
+		List<String> documentTexts = new ArrayList<String>();
+		for (int shardIndex = 0; shardIndex < 3; shardIndex++) {
+			CollectionReaderDescription desc = FileSystemCollectionReader.createDescription(
+					TypeSystemUtil.getCcpTypeSystem(), baseDir, true, ENCODING, "en", false, -1, 0,
+					CcpDocumentMetadataHandler.class, View.DEFAULT.viewName(), null, shardIndex, 3,
+					ShardAssignment.RANGE);
+			for (JCas jcas : new JCasIterable(desc)) {
+				documentTexts.add(jcas.getDocumentText().trim());
+			}
+		}
+
+		/* dir1/doc5.xml, dir2/dir3/doc7.csv, dir2/dir3/doc8.txt, dir2/doc6.txt, doc1.txt, ... */
+		assertEquals(CollectionsUtil.createList(DOC5_TEXT, DOC7_TEXT, DOC8_TEXT, DOC6_TEXT, DOC1_TEXT, DOC2_TEXT,
+				DOC3_TEXT, DOC4_TEXT), documentTexts);
+	}
+
+	@Test
+	public void testFileSystemCollectionReader_hashShards_SuffixTxt() throws UIMAException, IOException {
+		int casCount = 0;
+		for (int shardIndex = 0; shardIndex < 2; shardIndex++) {
+			CollectionReaderDescription desc = FileSystemCollectionReader.createDescription(
+					TypeSystemUtil.getCcpTypeSystem(), baseDir, true, ENCODING, "en", false, -1, 0,
+					CcpDocumentMetadataHandler.class, View.DEFAULT.viewName(), null, shardIndex, 2,
+					ShardAssignment.HASH, ".txt");
+			for (JCas jcas : new JCasIterable(desc)) {
+				casCount++;
+			}
+		}
+
+		assertEquals(5, casCount);
+	}
+
 }
@@ -35,10 +35,16 @@ package edu.ucdenver.ccp.nlp.uima.collections.file.medline;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.uima.UIMAException;
 import org.apache.uima.collection.CollectionReaderDescription;
 import org.apache.uima.fit.pipeline.JCasIterable;
@@ -127,4 +133,75 @@ public class MedlineXmlFileCollectionReaderTest extends DefaultTestCase {
 
 	}
 
+	@Test
+	public void testMedlineXmlCollectionReader_DirectoryWithWorkerThreads() throws UIMAException, IOException {
+		File medlineDirectory = folder.newFolder("baseline");
+		FileUtils.copyFile(sampleMedlineXmlFile, new File(medlineDirectory, "pubmed18n0001.xml.gz"));
+		FileUtils.copyFile(sampleMedlineXmlFile, new File(medlineDirectory, "pubmed18n0002.xml.gz"));
+		assertEquals(6, MedlineXmlScanner.count(Arrays.asList(medlineDirectory.listFiles())));
+
+		int numToSkip = 2;
+		int numToProcess = -1; // process all
+		CollectionReaderDescription cr = MedlineXmlFileCollectionReader.createCollectionReaderDescription(
+				TypeSystemUtil.getCcpTypeSystem(), medlineDirectory, numToSkip, numToProcess, 2,
+				CcpDocumentMetadataHandler.class);
+
+		DocumentMetadataHandler documentMetadataHandler = new CcpDocumentMetadataHandler();
+		List<String> pmids = new ArrayList<String>();
+		for (JCas jCas : new JCasIterable(cr)) {
+			pmids.add(documentMetadataHandler.extractDocumentId(jCas));
+		}
+		assertEquals(Arrays.asList(PMID_3, PMID_1, PMID_2, PMID_3), pmids);
+	}
+
+	@Test
+	public void testConcurrentPubmedArticleIterator_CloseStopsScannerThread() throws IOException {
+		int scannerThreadsBefore = countLiveScannerThreads();
+		MedlineXmlScanner scanner = new MedlineXmlScanner(Arrays.asList(sampleMedlineXmlFile, sampleMedlineXmlFile));
+		/* a queue of one leaves the scanner thread blocked ahead of the caller */
+		ConcurrentPubmedArticleIterator iterator = new ConcurrentPubmedArticleIterator(scanner, 1, 1);
+		assertTrue(iterator.hasNext());
+		assertEquals(PMID_1, iterator.next().getMedlineCitation().getPMID().getvalue());
+		iterator.close();
+		assertEquals(scannerThreadsBefore, countLiveScannerThreads());
+		scanner.close();
+	}
+
+	private static int countLiveScannerThreads() {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.isAlive() && thread.getName().equals("medline-scanner")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testMedlineXmlScanner_NamespacesAndPmidFilter() throws IOException {
+		File medlineXmlFile = folder.newFile("namespaced.xml");
+		FileUtils.writeStringToFile(medlineXmlFile, "<PubmedArticleSet xmlns:x=\"urn:x\">"
+				+ "<PubmedArticle><MedlineCitation><PMID>1</PMID><x:Note x:type=\"a\">one</x:Note>"
+				+ "</MedlineCitation></PubmedArticle>"
+				+ "<PubmedArticle><MedlineCitation><PMID>2</PMID><x:Note>two</x:Note>"
+				+ "</MedlineCitation></PubmedArticle>"
+				+ "<PubmedArticle><MedlineCitation><PMID>3</PMID></MedlineCitation></PubmedArticle>"
+				+ "</PubmedArticleSet>", "UTF-8");
+		MedlineXmlScanner.PmidFilter rejectPmid2 = new MedlineXmlScanner.PmidFilter() {
+			@Override
+			public boolean accept(String pmid) {
+				return !pmid.equals("2");
+			}
+		};
+		try (MedlineXmlScanner scanner = new MedlineXmlScanner(Arrays.asList(medlineXmlFile))) {
+			String xml = scanner.nextAsXml(rejectPmid2);
+			/* the prefix declared on the enclosing PubmedArticleSet is declared in the standalone XML */
+			assertTrue(xml, xml.contains("xmlns:x=\"urn:x\""));
+			assertTrue(xml, xml.contains("<x:Note x:type=\"a\">one</x:Note>"));
+			assertNull(scanner.nextAsXml(rejectPmid2));
+			assertEquals("3", scanner.skip());
+			assertFalse(scanner.hasNext());
+		}
+	}
+
 }
@@ -36,23 +36,33 @@ package edu.ucdenver.ccp.nlp.uima.collections.line;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.uima.UIMAException;
+import org.apache.uima.collection.CollectionReader;
 import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.fit.pipeline.JCasIterable;
 import org.apache.uima.fit.pipeline.JCasIterator;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.Progress;
 import org.junit.Test;
 
 import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
 import edu.ucdenver.ccp.common.test.DefaultTestCase;
 import edu.ucdenver.ccp.nlp.core.document.GenericDocument;
+import edu.ucdenver.ccp.nlp.uima.collections.BaseTextCollectionReader.ShardAssignment;
 import edu.ucdenver.ccp.nlp.uima.shims.document.impl.CcpDocumentMetadataHandler;
 import edu.ucdenver.ccp.nlp.uima.util.TypeSystemUtil;
 
@@ -65,6 +75,7 @@ public class DocumentPerLineCollectionReaderTest extends DefaultTestCase {
 	private static final String DOC1_TEXT = "doc1Text";
 	private static final String DOC2_TEXT = "doc2Text";
 	private static final String DOC3_TEXT = "doc3Text";
+	private static final String DOC4_TEXT = "doc4Text";
 
 	@Test
 	public void testCollectionReader() throws IOException, UIMAException {
@@ -137,6 +148,119 @@ public class DocumentPerLineCollectionReaderTest extends DefaultTestCase {
 		assertFalse(jCasIterable.hasNext());
 	}
 
+	@Test
+	public void testCollectionReader_RangeShardsUsingOffsetIndex() throws IOException, UIMAException {
+		File collectionFile = createSampleCollectionFile();
+		File offsetIndexFile = new File(folder.getRoot(), "collection.idx");
+
+		List<String> shard0Texts = readShard(collectionFile, 0, offsetIndexFile, 0, ShardAssignment.RANGE);
+		assertTrue(offsetIndexFile.exists());
+		assertEquals(3, LineOffsetIndex.getDocumentCount(offsetIndexFile));
+		assertEquals(CollectionsUtil.createList(DOC1_TEXT), shard0Texts);
+		assertEquals(CollectionsUtil.createList(DOC2_TEXT, DOC3_TEXT),
+				readShard(collectionFile, 0, offsetIndexFile, 1, ShardAssignment.RANGE));
+		assertEquals(CollectionsUtil.createList(DOC3_TEXT),
+				readShard(collectionFile, 1, offsetIndexFile, 1, ShardAssignment.RANGE));
+	}
+
+	@Test
+	public void testCollectionReader_OffsetIndexIsRebuiltWhenCollectionFileChanges() throws IOException,
+			UIMAException {
+		File collectionFile = createSampleCollectionFile();
+		File offsetIndexFile = new File(folder.getRoot(), "collection.idx");
+		readShard(collectionFile, 0, offsetIndexFile, 0, ShardAssignment.RANGE);
+		assertTrue(LineOffsetIndex.isCurrent(offsetIndexFile, collectionFile));
+		assertEquals(3, LineOffsetIndex.getDocumentCount(offsetIndexFile));
+
+		FileWriterUtil.printLines(CollectionsUtil.createList("12255684\t" + DOC4_TEXT), collectionFile,
+				CharacterEncoding.UTF_8, WriteMode.APPEND, FileSuffixEnforcement.OFF);
+		assertFalse(LineOffsetIndex.isCurrent(offsetIndexFile, collectionFile));
+		assertEquals(CollectionsUtil.createList(DOC3_TEXT, DOC4_TEXT),
+				readShard(collectionFile, 0, offsetIndexFile, 1, ShardAssignment.RANGE));
+		assertTrue(LineOffsetIndex.isCurrent(offsetIndexFile, collectionFile));
+		assertEquals(4, LineOffsetIndex.getDocumentCount(offsetIndexFile));
+	}
+
+	@Test
+	public void testCollectionReader_ByteOffsetsWithOffsetIndexAreRejectedBeforeIndexing() throws IOException,
+			UIMAException {
+		File collectionFile = createSampleCollectionFile();
+		File offsetIndexFile = new File(folder.getRoot(), "collection.idx");
+		CollectionReaderDescription crd = DocumentPerLineCollectionReader.createByteRangeCollectionReaderDescription(
+				TypeSystemUtil.getCcpTypeSystem(), collectionFile, 10, -1, TabDocumentExtractor.class,
+				CcpDocumentMetadataHandler.class);
+		crd.getCollectionReaderMetaData().getConfigurationParameterSettings().setParameterValue(
+				DocumentPerLineCollectionReader.PARAM_OFFSET_INDEX_FILE, offsetIndexFile.getAbsolutePath());
+		try {
+			CollectionReaderFactory.createReader(crd);
+			fail("Byte offsets combined with an offset index should be rejected.");
+		} catch (ResourceInitializationException e) {
+			/* expected */
+		}
+		assertFalse(offsetIndexFile.exists());
+	}
+
+	@Test
+	public void testCollectionReader_HashShards() throws IOException, UIMAException {
+		File collectionFile = createSampleCollectionFile();
+		List<String> texts = new ArrayList<String>();
+		texts.addAll(readShard(collectionFile, 0, null, 0, ShardAssignment.HASH));
+		texts.addAll(readShard(collectionFile, 0, null, 1, ShardAssignment.HASH));
+		Collections.sort(texts);
+		assertEquals(CollectionsUtil.createList(DOC1_TEXT, DOC2_TEXT, DOC3_TEXT), texts);
+	}
+
+	@Test
+	public void testCollectionReader_ByteRangeSplits() throws IOException, UIMAException {
+		File collectionFile = createSampleCollectionFile();
+		long fileLength = collectionFile.length();
+		for (long splitOffset = 0; splitOffset <= fileLength; splitOffset++) {
+			List<String> texts = new ArrayList<String>();
+			texts.addAll(readByteRange(collectionFile, 0, splitOffset));
+			texts.addAll(readByteRange(collectionFile, splitOffset, -1));
+			assertEquals("split at " + splitOffset, CollectionsUtil.createList(DOC1_TEXT, DOC2_TEXT, DOC3_TEXT),
+					texts);
+		}
+	}
+
+	@Test
+	public void testCollectionReader_ByteRangeProgress() throws IOException, UIMAException {
+		File collectionFile = createSampleCollectionFile();
+		CollectionReader cr = CollectionReaderFactory.createReader(DocumentPerLineCollectionReader
+				.createByteRangeCollectionReaderDescription(TypeSystemUtil.getCcpTypeSystem(), collectionFile, 0, -1,
+						TabDocumentExtractor.class, CcpDocumentMetadataHandler.class));
+		Progress[] progress = cr.getProgress();
+		assertEquals(3, progress[0].getTotal());
+		assertEquals(Progress.BYTES, progress[1].getUnit());
+		assertEquals(collectionFile.length(), progress[1].getTotal());
+		assertEquals(0, progress[1].getCompleted());
+		cr.destroy();
+	}
+
+	private List<String> readByteRange(File collectionFile, long startOffset, long endOffset)
+			throws UIMAException, IOException {
+		CollectionReaderDescription cr = DocumentPerLineCollectionReader.createByteRangeCollectionReaderDescription(
+				TypeSystemUtil.getCcpTypeSystem(), collectionFile, startOffset, endOffset, TabDocumentExtractor.class,
+				CcpDocumentMetadataHandler.class);
+		List<String> texts = new ArrayList<String>();
+		for (JCas jCas : new JCasIterable(cr)) {
+			texts.add(jCas.getDocumentText());
+		}
+		return texts;
+	}
+
+	private List<String> readShard(File collectionFile, int numToSkip, File offsetIndexFile, int shardIndex,
+			ShardAssignment shardAssignment) throws UIMAException, IOException {
+		CollectionReaderDescription cr = DocumentPerLineCollectionReader.createCollectionReaderDescription(
+				TypeSystemUtil.getCcpTypeSystem(), collectionFile, numToSkip, -1, TabDocumentExtractor.class,
+				CcpDocumentMetadataHandler.class, offsetIndexFile, shardIndex, 2, shardAssignment);
+		List<String> texts = new ArrayList<String>();
+		for (JCas jCas : new JCasIterable(cr)) {
+			texts.add(jCas.getDocumentText());
+		}
+		return texts;
+	}
+
 	/**
 	 * Creates a sample collection file that contains 3 valid records (tab-delimited) and some
 	 * excess lines that you might get from a SQL query
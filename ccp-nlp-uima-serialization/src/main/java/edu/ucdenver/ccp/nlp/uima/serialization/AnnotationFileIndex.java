@@ -0,0 +1,421 @@
+package edu.ucdenver.ccp.nlp.uima.serialization;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.string.StringConstants;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotationUtil;
+
+/**
+ * Provides random access, by document ID, to the annotations stored in a file of the format read by
+ * {@link TextAnnotationUtil#loadAnnotationsFromFile(File, CharacterEncoding)}, i.e. one annotation
+ * per line: <br>
+ * <br>
+ * documentID|annotatorID|spanStart spanEnd|classMentionName|coveredText
+ * <p>
+ * Only the byte offset and length of each run of lines belonging to a document are held in memory.
+ * The annotations for a document are parsed on request using positional reads of the annotation
+ * file, so instances can be shared by multiple threads. The offsets are stored in a sidecar index
+ * file so that they only need to be computed once; the index is rebuilt automatically if the
+ * annotation file has changed since it was written.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationFileIndex implements Closeable {
+
+	private static final Logger logger = Logger.getLogger(AnnotationFileIndex.class);
+
+	/**
+	 * The suffix appended to the annotation file name to form the default index file name
+	 */
+	public static final String INDEX_FILE_SUFFIX = ".idx";
+
+	/* the version suffix changes whenever the index format changes so that older indexes are rebuilt */
+	private static final String INDEX_HEADER = "#annotation-file-index-v2";
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final FileChannel channel;
+	private final CharacterEncoding encoding;
+	/* maps document ID to {offset0, length0, offset1, length1, ...} */
+	private final Map<String, long[]> documentIdToSegmentsMap;
+
+	private AnnotationFileIndex(FileChannel channel, CharacterEncoding encoding,
+			Map<String, long[]> documentIdToSegmentsMap) {
+		this.channel = channel;
+		this.encoding = encoding;
+		this.documentIdToSegmentsMap = documentIdToSegmentsMap;
+	}
+
+	/**
+	 * Opens the annotation file using the index stored in the default location, i.e. the
+	 * annotation file name with {@link #INDEX_FILE_SUFFIX} appended.
+	 * 
+	 * @param annotationFile
+	 * @param encoding
+	 * @return an {@link AnnotationFileIndex} for the specified annotation file
+	 * @throws IOException
+	 */
+	public static AnnotationFileIndex open(File annotationFile, CharacterEncoding encoding) throws IOException {
+		return open(annotationFile, getDefaultIndexFile(annotationFile), encoding);
+	}
+
+	/**
+	 * Opens the annotation file using the specified index file. The index is built (or rebuilt)
+	 * and written to the index file if it does not exist or is out of date.
+	 * 
+	 * @param annotationFile
+	 * @param indexFile
+	 * @param encoding
+	 * @return an {@link AnnotationFileIndex} for the specified annotation file
+	 * @throws IOException
+	 */
+	public static AnnotationFileIndex open(File annotationFile, File indexFile, CharacterEncoding encoding)
+			throws IOException {
+		String header = getIndexHeader(annotationFile);
+		Map<String, long[]> documentIdToSegmentsMap = null;
+		if (indexFile.exists()) {
+			documentIdToSegmentsMap = loadIndex(indexFile, header, encoding);
+		}
+		if (documentIdToSegmentsMap == null) {
+			logger.info("Indexing annotation file: " + annotationFile.getAbsolutePath());
+			documentIdToSegmentsMap = buildIndex(annotationFile, encoding);
+			writeIndex(documentIdToSegmentsMap, indexFile, header, encoding);
+		}
+		FileChannel channel = FileChannel.open(annotationFile.toPath(), StandardOpenOption.READ);
+		return new AnnotationFileIndex(channel, encoding, documentIdToSegmentsMap);
+	}
+
+	/**
+	 * @param annotationFile
+	 * @return the default location of the index for the specified annotation file
+	 */
+	public static File getDefaultIndexFile(File annotationFile) {
+		return new File(annotationFile.getParentFile(), annotationFile.getName() + INDEX_FILE_SUFFIX);
+	}
+
+	/**
+	 * @return the IDs of the documents that have annotations in the annotation file
+	 */
+	public Set<String> getDocumentIds() {
+		return Collections.unmodifiableSet(documentIdToSegmentsMap.keySet());
+	}
+
+	/**
+	 * @param documentId
+	 * @return the annotations for the specified document, or an empty list if the annotation file
+	 *         does not contain any annotations for the document
+	 * @throws IOException
+	 */
+	public List<TextAnnotation> getAnnotations(String documentId) throws IOException {
+		long[] segments = documentIdToSegmentsMap.get(documentId);
+		if (segments == null) {
+			return Collections.emptyList();
+		}
+		List<TextAnnotation> annotations = new ArrayList<TextAnnotation>();
+		for (int i = 0; i < segments.length; i += 2) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) segments[i + 1]);
+			long position = segments[i];
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer, position);
+				if (read < 0) {
+					throw new IOException("Annotation file is shorter than expected by the index. Document ID: "
+							+ documentId);
+				}
+				position += read;
+			}
+			buffer.flip();
+			String lines = encoding.getCharacterSet().decode(buffer).toString();
+			addAnnotations(new BufferedReader(new StringReader(lines)), annotations);
+		}
+		return annotations;
+	}
+
+	private static void addAnnotations(BufferedReader reader, List<TextAnnotation> annotations) throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (!line.isEmpty()) {
+				TextAnnotation ta = TextAnnotationUtil.getAnnotationFromLine(line);
+				if (ta != null) {
+					annotations.add(ta);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Scans the annotation file, recording the byte offset and length of each run of consecutive
+	 * lines that belong to the same document. Lines that do not start with a document ID are
+	 * included in the preceding run and are skipped when the annotations are parsed.
+	 * 
+	 * @param annotationFile
+	 * @param encoding
+	 * @return a mapping from document ID to {offset0, length0, offset1, length1, ...}
+	 * @throws IOException
+	 */
+	static Map<String, long[]> buildIndex(File annotationFile, CharacterEncoding encoding) throws IOException {
+		Map<String, long[]> documentIdToSegmentsMap = new HashMap<String, long[]>();
+		ByteArrayOutputStream documentIdBytes = new ByteArrayOutputStream();
+		try (InputStream is = new FileInputStream(annotationFile)) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			String currentDocumentId = null;
+			long bufferStart = 0;
+			long lineStart = 0;
+			boolean inDocumentId = true;
+			for (int length; (length = is.read(buffer)) != -1; bufferStart += length) {
+				int documentIdStart = 0;
+				for (int i = 0; i < length; i++) {
+					byte b = buffer[i];
+					if (b == '\n') {
+						if (inDocumentId) {
+							documentIdBytes.write(buffer, documentIdStart, i - documentIdStart);
+						}
+						long lineEnd = bufferStart + i + 1;
+						currentDocumentId = endLine(documentIdBytes, inDocumentId, currentDocumentId, lineStart,
+								lineEnd, documentIdToSegmentsMap, encoding);
+						lineStart = lineEnd;
+						inDocumentId = true;
+						documentIdBytes.reset();
+						documentIdStart = i + 1;
+					} else if (inDocumentId && b == '|') {
+						documentIdBytes.write(buffer, documentIdStart, i - documentIdStart);
+						inDocumentId = false;
+					}
+				}
+				if (inDocumentId) {
+					/* the document ID continues into the next buffer */
+					documentIdBytes.write(buffer, documentIdStart, length - documentIdStart);
+				}
+			}
+			if (bufferStart > lineStart) {
+				endLine(documentIdBytes, inDocumentId, currentDocumentId, lineStart, bufferStart,
+						documentIdToSegmentsMap, encoding);
+			}
+		}
+		return documentIdToSegmentsMap;
+	}
+
+	/**
+	 * Adds the line that ends at lineEnd to the index, extending the current run if the line
+	 * belongs to the same document
+	 * 
+	 * @return the document ID of the run the line was added to
+	 */
+	private static String endLine(ByteArrayOutputStream documentIdBytes, boolean inDocumentId,
+			String currentDocumentId, long lineStart, long lineEnd, Map<String, long[]> documentIdToSegmentsMap,
+			CharacterEncoding encoding) throws IOException {
+		/* a line without a '|' delimiter does not start with a document ID */
+		String documentId = (inDocumentId) ? currentDocumentId : documentIdBytes.toString(encoding
+				.getCharacterSetName());
+		if (documentId == null) {
+			return null;
+		}
+		long[] segments = documentIdToSegmentsMap.get(documentId);
+		if (documentId.equals(currentDocumentId)) {
+			/* the line directly follows the last segment for this document */
+			segments[segments.length - 1] += lineEnd - lineStart;
+		} else {
+			segments = (segments == null) ? new long[2] : Arrays.copyOf(segments, segments.length + 2);
+			segments[segments.length - 2] = lineStart;
+			segments[segments.length - 1] = lineEnd - lineStart;
+			documentIdToSegmentsMap.put(documentId, segments);
+		}
+		return documentId;
+	}
+
+	/**
+	 * @param annotationFile
+	 * @return the index header line, used to detect whether an index is out of date
+	 */
+	private static String getIndexHeader(File annotationFile) {
+		return INDEX_HEADER + StringConstants.TAB + annotationFile.length() + StringConstants.TAB
+				+ annotationFile.lastModified();
+	}
+
+	/**
+	 * @param indexFile
+	 * @param expectedHeader
+	 * @param encoding
+	 * @return the index stored in the index file, or null if the index is out of date
+	 * @throws IOException
+	 */
+	private static Map<String, long[]> loadIndex(File indexFile, String expectedHeader, CharacterEncoding encoding)
+			throws IOException {
+		try (BufferedReader reader = FileReaderUtil.initBufferedReader(indexFile, encoding)) {
+			String header = reader.readLine();
+			if (!expectedHeader.equals(header)) {
+				logger.info("Annotation file index is out of date: " + indexFile.getAbsolutePath());
+				return null;
+			}
+			Map<String, long[]> documentIdToSegmentsMap = new HashMap<String, long[]>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] toks = line.split(StringConstants.TAB);
+				long[] segments = new long[toks.length - 1];
+				for (int i = 1; i < toks.length; i++) {
+					segments[i - 1] = Long.parseLong(toks[i]);
+				}
+				documentIdToSegmentsMap.put(unescapeDocumentId(toks[0]), segments);
+			}
+			return documentIdToSegmentsMap;
+		}
+	}
+
+	/**
+	 * Writes the index, one document per line: documentID[TAB]offset0[TAB]length0[TAB]offset1...
+	 * Tabs, line breaks and backslashes in document IDs are escaped. The index is written to a
+	 * uniquely named temporary file that is then moved into place so that a partially written index
+	 * is never read, even if several processes index the same annotation file concurrently.
+	 */
+	private static void writeIndex(Map<String, long[]> documentIdToSegmentsMap, File indexFile, String header,
+			CharacterEncoding encoding) throws IOException {
+		Path indexDirectory = indexFile.getAbsoluteFile().getParentFile().toPath();
+		Path tempFile = Files.createTempFile(indexDirectory, indexFile.getName(), ".tmp");
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(tempFile, encoding.getCharacterSet())) {
+				writer.write(header);
+				writer.newLine();
+				for (Entry<String, long[]> entry : documentIdToSegmentsMap.entrySet()) {
+					StringBuilder sb = new StringBuilder(escapeDocumentId(entry.getKey()));
+					for (long value : entry.getValue()) {
+						sb.append(StringConstants.TAB).append(value);
+					}
+					writer.write(sb.toString());
+					writer.newLine();
+				}
+			}
+			Files.move(tempFile, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * @param documentId
+	 * @return the document ID with backslashes, tabs and line breaks escaped so that it can be
+	 *         stored as a single tab-delimited column of the index
+	 */
+	static String escapeDocumentId(String documentId) {
+		StringBuilder sb = new StringBuilder(documentId.length());
+		for (int i = 0; i < documentId.length(); i++) {
+			char c = documentId.charAt(i);
+			switch (c) {
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param escapedDocumentId
+	 * @return the document ID, reversing {@link #escapeDocumentId(String)}
+	 */
+	static String unescapeDocumentId(String escapedDocumentId) {
+		if (escapedDocumentId.indexOf('\\') < 0) {
+			return escapedDocumentId;
+		}
+		StringBuilder sb = new StringBuilder(escapedDocumentId.length());
+		for (int i = 0; i < escapedDocumentId.length(); i++) {
+			char c = escapedDocumentId.charAt(i);
+			if (c == '\\' && i + 1 < escapedDocumentId.length()) {
+				char escaped = escapedDocumentId.charAt(++i);
+				switch (escaped) {
+				case 't':
+					sb.append('\t');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				default:
+					sb.append(escaped);
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+}
@@ -55,32 +55,91 @@ import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
  * file is one annotation per line: <br>
  * <br>
  * documentID|annotatorID|spanStart spanEnd|classMentionName|coveredText
+ * <p>
+ * By default the entire file is loaded into memory when the AE is initialized. For large
+ * annotation files, the {@link LoadMode#INDEXED} and {@link LoadMode#SORTED} load modes read the
+ * annotations for each document from the file as it is processed instead.
  * 
  * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
  * 
  */
 public class AnnotationFromFileLoader_AE extends JCasAnnotator_ImplBase {
 
+	/**
+	 * Indicates how annotations are retrieved from the annotation file
+	 */
+	public enum LoadMode {
+		/**
+		 * The entire annotation file is loaded into memory during initialization
+		 */
+		IN_MEMORY,
+		/**
+		 * The annotations for each document are read from the annotation file using an index of
+		 * byte offsets (see {@link AnnotationFileIndex}). The index is created the first time the
+		 * annotation file is used.
+		 */
+		INDEXED,
+		/**
+		 * The annotation file is streamed. It must be sorted by document ID and CASes must be
+		 * processed in document ID order (see {@link SortedAnnotationFileReader}).
+		 */
+		SORTED
+	}
+
 	public static final String PARAM_ANNOTATION_FILE = "AnnotationFile";
 
+	/**
+	 * Optional parameter indicating the {@link LoadMode} to use. Defaults to
+	 * {@link LoadMode#IN_MEMORY}.
+	 */
+	public static final String PARAM_LOAD_MODE = "LoadMode";
+
+	/**
+	 * Optional parameter indicating where the index file is stored when using
+	 * {@link LoadMode#INDEXED}. Defaults to the annotation file name with
+	 * {@link AnnotationFileIndex#INDEX_FILE_SUFFIX} appended.
+	 */
+	public static final String PARAM_INDEX_FILE = "IndexFile";
+
 	private Map<String, List<TextAnnotation>> documentID2AnnotationsMap;
 
+	private AnnotationFileIndex annotationFileIndex;
+
+	private SortedAnnotationFileReader sortedAnnotationFileReader;
+
 	/**
-	 * Initialize the AnnotationFromFileLoader_AE by loading the annotations from file into a hash.
+	 * Initialize the AnnotationFromFileLoader_AE by loading the annotations from file into a hash,
+	 * or by opening the annotation file if the annotations are to be read on demand.
 	 */
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 
 		String annotationsFile;
 		annotationsFile = (String) context.getConfigParameterValue(PARAM_ANNOTATION_FILE);
+		String loadModeStr = (String) context.getConfigParameterValue(PARAM_LOAD_MODE);
+		LoadMode loadMode = (loadModeStr == null) ? LoadMode.IN_MEMORY : LoadMode.valueOf(loadModeStr);
 
-		/* load documentid to annotation map */
 		try {
-			System.err.println("Initializing AnnotationFromFileLoader: Loading annotations from: " + annotationsFile);
-			documentID2AnnotationsMap = TextAnnotationUtil.loadAnnotationsFromFile(new File(annotationsFile),
-					CharacterEncoding.UTF_8);
+			switch (loadMode) {
+			case INDEXED:
+				String indexFile = (String) context.getConfigParameterValue(PARAM_INDEX_FILE);
+				annotationFileIndex = (indexFile == null) ? AnnotationFileIndex.open(new File(annotationsFile),
+						CharacterEncoding.UTF_8) : AnnotationFileIndex.open(new File(annotationsFile), new File(
+						indexFile), CharacterEncoding.UTF_8);
+				break;
+			case SORTED:
+				sortedAnnotationFileReader = new SortedAnnotationFileReader(new File(annotationsFile),
+						CharacterEncoding.UTF_8);
+				break;
+			default:
+				/* load documentid to annotation map */
+				System.err.println("Initializing AnnotationFromFileLoader: Loading annotations from: "
+						+ annotationsFile);
+				documentID2AnnotationsMap = TextAnnotationUtil.loadAnnotationsFromFile(new File(annotationsFile),
+						CharacterEncoding.UTF_8);
+			}
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new ResourceInitializationException(e);
 		}
 
 		super.initialize(context);
@@ -88,7 +147,7 @@ public class AnnotationFromFileLoader_AE extends JCasAnnotator_ImplBase {
 
 	/**
 	 * For each CAS, lookup the document ID and insert any annotations associated with that document
-	 * ID from the hash.
+	 * ID from the hash (or from the annotation file).
 	 */
 	@Override
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
@@ -100,8 +159,8 @@ public class AnnotationFromFileLoader_AE extends JCasAnnotator_ImplBase {
 		// documentID = docInfo.getDocumentID();
 		// }
 
-		if (documentID2AnnotationsMap.containsKey(documentID)) {
-			List<TextAnnotation> taList = documentID2AnnotationsMap.get(documentID);
+		List<TextAnnotation> taList = getAnnotations(documentID);
+		if (taList != null && !taList.isEmpty()) {
 			UIMA_Util uimaUtil = new UIMA_Util();
 			uimaUtil.putTextAnnotationsIntoJCas(jcas, taList);
 		} else {
@@ -109,4 +168,37 @@ public class AnnotationFromFileLoader_AE extends JCasAnnotator_ImplBase {
 		}
 	}
 
+	private List<TextAnnotation> getAnnotations(String documentID) throws AnalysisEngineProcessException {
+		try {
+			if (annotationFileIndex != null) {
+				return annotationFileIndex.getAnnotations(documentID);
+			}
+			if (sortedAnnotationFileReader != null) {
+				return sortedAnnotationFileReader.getAnnotations(documentID);
+			}
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		} catch (IllegalArgumentException e) {
+			throw new AnalysisEngineProcessException(e);
+		} catch (IllegalStateException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+		return documentID2AnnotationsMap.get(documentID);
+	}
+
+	@Override
+	public void destroy() {
+		try {
+			if (annotationFileIndex != null) {
+				annotationFileIndex.close();
+			}
+			if (sortedAnnotationFileReader != null) {
+				sortedAnnotationFileReader.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		super.destroy();
+	}
+
 }
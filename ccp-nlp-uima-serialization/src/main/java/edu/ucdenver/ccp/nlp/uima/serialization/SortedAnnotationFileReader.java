@@ -0,0 +1,134 @@
+package edu.ucdenver.ccp.nlp.uima.serialization;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotationUtil;
+
+/**
+ * Streams the annotations for one document at a time from a file of the format read by
+ * {@link TextAnnotationUtil#loadAnnotationsFromFile(File, CharacterEncoding)}. The file must be
+ * sorted by document ID (e.g. using <code>LC_ALL=C sort -s -t'|' -k1,1</code>), and annotations
+ * must be requested in ascending document ID order. Documents that have no annotations in the file,
+ * and annotations for documents that are never requested, are skipped over. Only the annotations
+ * for the current document are held in memory and no index is required.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class SortedAnnotationFileReader implements Closeable {
+
+	private final BufferedReader reader;
+	private String nextLine;
+	private String nextLineDocumentId;
+	private String lastRequestedDocumentId;
+
+	/**
+	 * @param annotationFile
+	 * @param encoding
+	 * @throws IOException
+	 */
+	public SortedAnnotationFileReader(File annotationFile, CharacterEncoding encoding) throws IOException {
+		this.reader = FileReaderUtil.initBufferedReader(annotationFile, encoding);
+		advance();
+	}
+
+	/**
+	 * @param documentId
+	 * @return the annotations for the specified document, or an empty list if the annotation file
+	 *         does not contain any annotations for the document
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if the document ID sorts before the previously requested document ID
+	 * @throws IllegalStateException
+	 *             if the annotation file is found not to be sorted by document ID
+	 */
+	public List<TextAnnotation> getAnnotations(String documentId) throws IOException {
+		if (lastRequestedDocumentId != null && documentId.compareTo(lastRequestedDocumentId) < 0) {
+			throw new IllegalArgumentException("Documents must be requested in sorted order when streaming annotations. "
+					+ "Document " + documentId + " was requested after document " + lastRequestedDocumentId);
+		}
+		lastRequestedDocumentId = documentId;
+
+		while (nextLine != null && nextLineDocumentId.compareTo(documentId) < 0) {
+			advance();
+		}
+		List<TextAnnotation> annotations = new ArrayList<TextAnnotation>();
+		while (nextLine != null && nextLineDocumentId.equals(documentId)) {
+			TextAnnotation ta = TextAnnotationUtil.getAnnotationFromLine(nextLine);
+			if (ta != null) {
+				annotations.add(ta);
+			}
+			advance();
+		}
+		return annotations;
+	}
+
+	/**
+	 * Reads the next line that starts with a document ID
+	 */
+	private void advance() throws IOException {
+		String previousDocumentId = nextLineDocumentId;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			int index = line.indexOf('|');
+			if (index > 0) {
+				nextLine = line;
+				nextLineDocumentId = line.substring(0, index);
+				if (previousDocumentId != null && nextLineDocumentId.compareTo(previousDocumentId) < 0) {
+					throw new IllegalStateException("Annotation file is not sorted by document ID. Document "
+							+ nextLineDocumentId + " follows document " + previousDocumentId);
+				}
+				return;
+			}
+		}
+		nextLine = null;
+		nextLineDocumentId = null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
@@ -37,12 +37,13 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
@@ -59,7 +60,6 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 
-import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
@@ -146,6 +146,12 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 	 */
 	private Collection<InlineTagExtractor> inlineTagExtractors;
 
+	/**
+	 * true if a subclass overrides {@link #processDocumentCharacter(char)}, in which case document
+	 * text is written one character at a time
+	 */
+	private boolean processDocumentCharacterOverridden;
+
 	/**
 	 * This initialize method extracts the configuration parameters then initializes a
 	 * {@link DocumentMetaDataExtractor} and one or more {@link InlineTagExtractor} implementations.
@@ -157,6 +163,23 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 		super.initialize(context);
 		initializeMetaDataExtractor();
 		initializeInlineAnnotationExtractors();
+		processDocumentCharacterOverridden = isProcessDocumentCharacterOverridden();
+	}
+
+	/**
+	 * @return true if a subclass still relies on the per-character
+	 *         {@link #processDocumentCharacter(char)} hook
+	 */
+	private boolean isProcessDocumentCharacterOverridden() {
+		for (Class<?> c = getClass(); c != InlinePrinter.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod("processDocumentCharacter", char.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// keep looking in the superclass
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -191,8 +214,8 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 		try {
 			JCas viewToProcess = jCas.getView(viewNameToProcess);
 			writer = initializeOutputFileWriter(viewToProcess);
-			Map<Integer, Collection<InlineTag>> characterOffsetToTagMap = computeCharacterOffsetToTagMap(viewToProcess);
-			outputAnnotationsInline(characterOffsetToTagMap, viewToProcess.getDocumentText(), writer, jCas);
+			List<InlineTag> sortedTags = computeSortedTagList(viewToProcess);
+			outputAnnotationsInline(sortedTags, viewToProcess.getDocumentText(), writer, jCas);
 		} catch (IOException ioe) {
 			throw new AnalysisEngineProcessException(ioe);
 		} catch (CASException e) {
@@ -209,38 +232,74 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 
 	/**
 	 * Obtains {@link InlineTag} instances for each of the {@link InlineTagExtractor}
-	 * implementations being used. The tags are put into a map according the the character offset
-	 * where they should reside (when displayed inline with the text)
+	 * implementations being used. The tags are returned in the order they should be printed, i.e.
+	 * sorted by the character offset where they should reside (when displayed inline with the
+	 * text). At a given offset, {@link InlinePostfixTag} instances precede {@link InlinePrefixTag}
+	 * instances and each group is ordered using its respective {@link InlineTag} comparator.
 	 * 
 	 * @param viewToProcess
 	 * @return
 	 */
-	private Map<Integer, Collection<InlineTag>> computeCharacterOffsetToTagMap(JCas viewToProcess) {
-		Map<Integer, Collection<InlineTag>> offsetToTagMap = CollectionsUtil.initHashMap();
+	private List<InlineTag> computeSortedTagList(JCas viewToProcess) {
+		List<InlineTag> tags = new ArrayList<InlineTag>();
 		for (InlineTagExtractor extractor : inlineTagExtractors) {
 			for (Iterator<InlineTag> tagIterator = extractor.getInlineTagIterator(viewToProcess); tagIterator.hasNext();) {
 				InlineTag tag = tagIterator.next();
-				if (tag instanceof InlinePrefixTag)
-					CollectionsUtil.addToOne2ManyMap(tag.getAnnotationSpan().getSpanStart(), tag, offsetToTagMap);
-				else if (tag instanceof InlinePostfixTag)
-					CollectionsUtil.addToOne2ManyMap(tag.getAnnotationSpan().getSpanEnd(), tag, offsetToTagMap);
-				else
+				if (!(tag instanceof InlinePrefixTag) && !(tag instanceof InlinePostfixTag))
 					throw new IllegalStateException("Unknown type of InlineTag: " + tag.getClass().getName());
+				tags.add(tag);
 			}
 		}
-		logger.info("offsetToTagMap: " + offsetToTagMap.toString());
-		return offsetToTagMap;
+		Collections.sort(tags, TAG_OUTPUT_ORDER_COMPARATOR);
+		if (logger.isDebugEnabled())
+			logger.debug("Inlining " + tags.size() + " tags.");
+		return tags;
+	}
+
+	/**
+	 * @return the character offset in the document text where the input tag is to be printed
+	 */
+	private static int getTagOffset(InlineTag tag) {
+		return (tag instanceof InlinePrefixTag) ? tag.getAnnotationSpan().getSpanStart() : tag.getAnnotationSpan()
+				.getSpanEnd();
 	}
 
 	/**
-	 * Outputs the document text including the inline annotations to the output file
+	 * Orders tags by output offset, then postfix tags before prefix tags, then using the
+	 * prefix/postfix comparators from {@link InlineTag}
+	 */
+	private static final Comparator<InlineTag> TAG_OUTPUT_ORDER_COMPARATOR = new Comparator<InlineTag>() {
+		private final Comparator<? super InlinePrefixTag> prefixComparator = InlineTag.getInlinePrefixTagComparator();
+		private final Comparator<? super InlinePostfixTag> postfixComparator = InlineTag
+				.getInlinePostfixTagComparator();
+
+		@Override
+		public int compare(InlineTag tag1, InlineTag tag2) {
+			int offset1 = getTagOffset(tag1);
+			int offset2 = getTagOffset(tag2);
+			if (offset1 != offset2)
+				return offset1 < offset2 ? -1 : 1;
+			boolean isPrefix1 = tag1 instanceof InlinePrefixTag;
+			boolean isPrefix2 = tag2 instanceof InlinePrefixTag;
+			if (isPrefix1 != isPrefix2)
+				return isPrefix1 ? 1 : -1;
+			if (isPrefix1)
+				return prefixComparator.compare((InlinePrefixTag) tag1, (InlinePrefixTag) tag2);
+			return postfixComparator.compare((InlinePostfixTag) tag1, (InlinePostfixTag) tag2);
+		}
+	};
+
+	/**
+	 * Outputs the document text including the inline annotations to the output file. The tag
+	 * offsets are copied into a primitive array and the untagged text between consecutive tag
+	 * offsets is written as a single run via {@link #writeDocumentText(char[], int, int, Writer)}.
+	 * Tags whose offset is at (or beyond) the end of the document text are printed after the final
+	 * run of text.
 	 * 
-	 * @param characterOffsetToTagMap
-	 *            a {@link Map<Integer, Collection<InlineTag>>} containing mappings from character
-	 *            offset position to tags that need to be printed at that particular offset
-	 *            position.
-	 * @param viewToProcess
-	 *            the JCas view to use when extracting annotations and the document text
+	 * @param sortedTags
+	 *            the tags to print, sorted in output order
+	 * @param documentText
+	 *            the document text from the view being processed
 	 * @param writer
 	 *            the writer to use when printing to the output file
 	 * @param jCas
@@ -248,42 +307,76 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 	 * @throws IOException
 	 *             if an error occurs while writing to the output file
 	 */
-	private void outputAnnotationsInline(Map<Integer, Collection<InlineTag>> characterOffsetToTagMap,
-			String documentText, BufferedWriter writer, JCas jCas) throws IOException {
+	private void outputAnnotationsInline(List<InlineTag> sortedTags, String documentText, BufferedWriter writer,
+			JCas jCas) throws IOException {
 		insertOutputFileHeader(writer, documentMetadataHandler.extractDocumentEncoding(jCas));
 		char[] charArray = documentText.toCharArray();
-		Character previousCharacter = null;
-		for (int i = 0; i < charArray.length; i++) {
-			printInlinePostfixTags(i, characterOffsetToTagMap, writer);
-			printInlinePrefixTags(i, characterOffsetToTagMap, writer);
-			char c = charArray[i];
-			String cStr = Character.toString(c);
+		int[] tagOffsets = new int[sortedTags.size()];
+		for (int i = 0; i < tagOffsets.length; i++)
+			tagOffsets[i] = Math.max(0, Math.min(getTagOffset(sortedTags.get(i)), charArray.length));
+
+		int textOffset = 0;
+		for (int i = 0; i < tagOffsets.length; i++) {
+			if (tagOffsets[i] > textOffset) {
+				writeDocumentText(charArray, textOffset, tagOffsets[i], writer);
+				textOffset = tagOffsets[i];
+			}
+			writer.write(sortedTags.get(i).getTagContents());
+		}
+		if (textOffset < charArray.length)
+			writeDocumentText(charArray, textOffset, charArray.length, writer);
+	}
+
+	/**
+	 * Writes a run of document text that contains no tags, i.e. <code>text[start, end)</code>.
+	 * This is the hook for a subclass of {@link InlinePrinter} that would like to process the
+	 * document text prior to outputting it to the inlined file. This is the case, for example, when
+	 * outputting XML as certain characters must be converted to an XML-safe representation e.g.
+	 * "&" --> "&amp;". The default implementation copies the run in bulk unless
+	 * {@link #processDocumentCharacter(char)} has been overridden, in which case that method is
+	 * applied to each character.
+	 * 
+	 * @param text
+	 *            the document text
+	 * @param start
+	 *            offset of the first character in the run
+	 * @param end
+	 *            offset one past the last character in the run
+	 * @param writer
+	 *            the writer to use when printing to the output file
+	 * @throws IOException
+	 *             if an error occurs while writing to the output file
+	 */
+	protected void writeDocumentText(char[] text, int start, int end, Writer writer) throws IOException {
+		if (!processDocumentCharacterOverridden) {
+			writer.write(text, start, end - start);
+			return;
+		}
+		for (int i = start; i < end; i++) {
 			/*
 			 * If the previous character is a "high surrogate" then the current character is its
 			 * low-surrogate pair. This pair of characters is treated as a single unit and for
-			 * simplicity we will not process either character in the pair. I'm not sure if this is
-			 * necessary as the high-surrogate and low-surrogates each have distinct ranges, but
-			 * we'll leave it in just in case (high-surrogates range, (\uD800-\uDBFF), the second
-			 * from the low-surrogates range (\uDC00-\uDFFF)).
+			 * simplicity we will not process either character in the pair.
 			 */
-			if (previousCharacter != null && !Character.isHighSurrogate(previousCharacter))
-				cStr = processDocumentCharacter(c);
-			writer.append(cStr);
-			previousCharacter = c;
+			if (Character.isHighSurrogate(text[i]) || (i > 0 && Character.isHighSurrogate(text[i - 1])))
+				writer.write(text[i]);
+			else
+				writer.write(processDocumentCharacter(text[i]));
 		}
 	}
 
 	/**
-	 * This method intentionally does nothing. It is designed as a hook for a subclass of
-	 * {@link InlinePrinter} in case the subclass would like to process the document characters
-	 * prior to outputting them to the inlined file. This is the case, for example, when outputting
-	 * XML as certain characters must be converted to an XML-safe representation e.g. "&" -->
-	 * "&amp;" Note that if a high-surrogate Unicode character is detected, then no conversion is
-	 * applied for that character and its low-surrogate pair (the next character).
+	 * Per-character processing hook retained for existing subclasses. Prefer overriding
+	 * {@link #writeDocumentText(char[], int, int, Writer)}, which processes runs of text and avoids
+	 * creating a {@link String} for every character. Note that if a high-surrogate Unicode
+	 * character is detected, then no conversion is applied for that character and its
+	 * low-surrogate pair (the next character).
 	 * 
 	 * @param c
 	 * @return
+	 * @deprecated override {@link #writeDocumentText(char[], int, int, Writer)} instead
 	 */
+	@Deprecated
 	protected String processDocumentCharacter(char c) {
 		return Character.toString(c);
 	}
@@ -304,79 +397,6 @@ public class InlinePrinter extends JCasAnnotator_ImplBase {
 		// output file
 	}
 
-	/**
-	 * Prints the {@InlinePrefixTag} instances at the current character offset in
-	 * a reproducible order
-	 * 
-	 * @param offset
-	 *            the offset into the document text where the tags need to be printed
-	 * @param characterOffsetToTagMap
-	 *            a {@link Map<Integer, Collection<InlineTag>>} containing mappings from character
-	 *            offset position to tags that need to be printed at that particular offset
-	 *            position.
-	 * @param writer
-	 *            the writer to use when printing to output
-	 * @throws IOException
-	 *             if an error occurs while writing the tags to the output file
-	 */
-	private void printInlinePrefixTags(int offset, Map<Integer, Collection<InlineTag>> characterOffsetToTagMap,
-			BufferedWriter writer) throws IOException {
-		if (!characterOffsetToTagMap.containsKey(offset))
-			return;
-		List<InlinePrefixTag> prefixTags = isolateTagType(characterOffsetToTagMap.get(offset), InlinePrefixTag.class);
-		Collections.sort(prefixTags, InlineTag.getInlinePrefixTagComparator());
-		for (InlinePrefixTag prefixTag : prefixTags)
-			writer.append(prefixTag.getTagContents());
-	}
-
-	/**
-	 * Prints the {@InlinePostfixTag} instances at the current character offset
-	 * in a reproducible order
-	 * 
-	 * @param offset
-	 *            the offset into the document text where the tags need to be printed
-	 * @param characterOffsetToTagMap
-	 *            a {@link Map<Integer, Collection<InlineTag>>} containing mappings from character
-	 *            offset position to tags that need to be printed at that particular offset
-	 *            position.
-	 * @param writer
-	 *            the writer to use when printing to output
-	 * @throws IOException
-	 *             if an error occurs while writing the tags to the output file
-	 */
-	private void printInlinePostfixTags(int offset, Map<Integer, Collection<InlineTag>> characterOffsetToTagMap,
-			BufferedWriter writer) throws IOException {
-		if (!characterOffsetToTagMap.containsKey(offset))
-			return;
-		List<InlinePostfixTag> prefixTags = isolateTagType(characterOffsetToTagMap.get(offset), InlinePostfixTag.class);
-		Collections.sort(prefixTags, InlineTag.getInlinePostfixTagComparator());
-		for (InlinePostfixTag prefixTag : prefixTags)
-			writer.append(prefixTag.getTagContents());
-	}
-
-	/**
-	 * Given the input collection of {@link InlineTag} instances, this method returns only those
-	 * instances of the specified class.
-	 * 
-	 * @param <T>
-	 *            the class type of interest (either InlinePrefixTag.class or InlinePostfixTag.class
-	 *            in this case)
-	 * @param a
-	 *            collection containing both {@link InlinePrefixTag} and {@link InlinePostfixTag}
-	 *            instances
-	 * @param tagClassOfInterest
-	 *            the class type of interest (either InlinePrefixTag.class or InlinePostfixTag.class
-	 *            in this case)
-	 * @return a {@link List} containing only the class type of interest
-	 */
-	private <T extends InlineTag> List<T> isolateTagType(Collection<InlineTag> tags, Class<T> tagClassOfInterest) {
-		List<T> tagsOfInterest = new ArrayList<T>();
-		for (InlineTag tag : tags)
-			if (tagClassOfInterest.isInstance(tag))
-				tagsOfInterest.add(tagClassOfInterest.cast(tag));
-		return tagsOfInterest;
-	}
-
 	/**
 	 * Initializes a new {@link BufferedWriter} to write to an output file for a particular
 	 * {@link JCas}. The output file name is composed of the document identifier (extracted from the
@@ -41,6 +41,8 @@ import java.util.Collection;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
 
 import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
 
@@ -53,4 +55,29 @@ public interface AnnotationRdfGenerator {
 
 	public Collection<? extends Statement> generateRdf(AnnotationDataExtractor annotationDataExtractor,
 			Annotation annotation, UriFactory uriFactory, URI documentUri, String documentText);
+
+	/**
+	 * Streams the RDF statements for the input annotation directly to the
+	 * specified {@link RDFHandler} rather than collecting them first. The
+	 * default implementation delegates to
+	 * {@link #generateRdf(AnnotationDataExtractor, Annotation, UriFactory, URI, String)};
+	 * implementations that generate many statements per annotation should
+	 * override it.
+	 * 
+	 * @param annotationDataExtractor
+	 * @param annotation
+	 * @param uriFactory
+	 * @param documentUri
+	 * @param documentText
+	 * @param handler
+	 *            receives each generated statement
+	 * @throws RDFHandlerException
+	 */
+	public default void generateRdf(AnnotationDataExtractor annotationDataExtractor, Annotation annotation,
+			UriFactory uriFactory, URI documentUri, String documentText, RDFHandler handler)
+			throws RDFHandlerException {
+		for (Statement s : generateRdf(annotationDataExtractor, annotation, uriFactory, documentUri, documentText)) {
+			handler.handleStatement(s);
+		}
+	}
 }
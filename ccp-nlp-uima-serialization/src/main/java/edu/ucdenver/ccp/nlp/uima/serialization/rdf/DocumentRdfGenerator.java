@@ -41,6 +41,8 @@ import java.util.Collection;
 import org.apache.uima.jcas.JCas;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
 import org.semanticweb.owlapi.model.IRI;
 
 import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
@@ -77,4 +79,23 @@ public interface DocumentRdfGenerator {
 	 */
 	public Collection<Statement> generateRdf(JCas jCas, DocumentMetadataHandler documentMetadataHandler);
 
+	/**
+	 * Streams the RDF statements for the document represented by the input
+	 * {@link JCas} to the specified {@link RDFHandler}. The default
+	 * implementation delegates to
+	 * {@link #generateRdf(JCas, DocumentMetadataHandler)}.
+	 * 
+	 * @param jCas
+	 * @param documentMetadataHandler
+	 * @param handler
+	 *            receives each generated statement
+	 * @throws RDFHandlerException
+	 */
+	public default void generateRdf(JCas jCas, DocumentMetadataHandler documentMetadataHandler, RDFHandler handler)
+			throws RDFHandlerException {
+		for (Statement s : generateRdf(jCas, documentMetadataHandler)) {
+			handler.handleStatement(s);
+		}
+	}
+
 }
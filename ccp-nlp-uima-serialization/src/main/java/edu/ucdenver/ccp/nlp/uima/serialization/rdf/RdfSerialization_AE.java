@@ -35,11 +35,10 @@ package edu.ucdenver.ccp.nlp.uima.serialization.rdf;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.util.Collection;
+import java.nio.charset.StandardCharsets;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.uima.UimaContext;
@@ -54,14 +53,13 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.Level;
 import org.apache.uima.util.Logger;
-import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFWriter;
 
 import edu.ucdenver.ccp.common.file.FileUtil;
-import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.reflection.ConstructorUtil;
 import edu.ucdenver.ccp.datasource.rdfizer.rdf.ice.RdfUtil.RdfFormat;
 import edu.ucdenver.ccp.nlp.uima.shims.ShimDefaults;
@@ -167,8 +165,25 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 	@ConfigurationParameter(mandatory = true, description = "This string specifies the RDF format to use")
 	private RdfFormat rdfFormat;
 
+	/**
+	 * The number of documents to write to each output file. By default each
+	 * document is serialized to its own file. If greater than one, RDF for
+	 * consecutive documents is appended to a single rolling output file that
+	 * is named after the first document it contains and is closed once it
+	 * holds the specified number of documents (or when processing completes).
+	 */
+	public static final String PARAM_DOCUMENTS_PER_OUTPUT_FILE = "documentsPerOutputFile";
+	@ConfigurationParameter(mandatory = false, description = "The number of documents to write to each output file. Defaults to one file per document.", defaultValue = "1")
+	private int documentsPerOutputFile;
+
+	private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
 	private Logger logger;
 
+	private BufferedWriter outputWriter;
+	private RDFWriter rdfWriter;
+	private int documentsInOutputFile;
+
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		logger = context.getLogger();
@@ -193,14 +208,34 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 
 		uriFactory = (UriFactory) ConstructorUtil.invokeConstructor(uriFactoryClassName);
 
+		if (documentsPerOutputFile < 1) {
+			throw new ResourceInitializationException(new IllegalArgumentException(
+					"The documentsPerOutputFile parameter must be >= 1 but was " + documentsPerOutputFile));
+		}
+	}
+
+	private void openOutputFile(File outputFile) throws IOException, RDFHandlerException {
+		if (compressOutput) {
+			outputWriter = new BufferedWriter(new OutputStreamWriter(
+					new GZIPOutputStream(new FileOutputStream(outputFile), OUTPUT_BUFFER_SIZE), StandardCharsets.UTF_8),
+					OUTPUT_BUFFER_SIZE);
+		} else {
+			outputWriter = new BufferedWriter(
+					new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+		}
+		rdfWriter = rdfFormat.createWriter(outputWriter);
+		rdfWriter.startRDF();
+		documentsInOutputFile = 0;
 	}
 
-	private void writeStatements(Collection<? extends Statement> stmts, RDFWriter writer) {
-		for (Statement s : stmts) {
+	private void closeOutputFile() throws IOException, RDFHandlerException {
+		if (outputWriter != null) {
 			try {
-				writer.handleStatement(s);
-			} catch (RDFHandlerException e) {
-				throw new IllegalStateException(e);
+				rdfWriter.endRDF();
+			} finally {
+				outputWriter.close();
+				outputWriter = null;
+				rdfWriter = null;
 			}
 		}
 	}
@@ -244,23 +279,19 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 
 	@Override
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
-
-		String documentId = documentMetadataHandler.extractDocumentId(jcas);
-		File outputFile = getOutputFile(jcas, documentId);
-
-		try (BufferedWriter writer = (compressOutput)
-				? new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(outputFile))))
-				: FileWriterUtil.initBufferedWriter(outputFile)) {
-			RDFWriter rdfWriter = rdfFormat.createWriter(writer);
-			rdfWriter.startRDF();
+		try {
+			if (rdfWriter == null) {
+				String documentId = documentMetadataHandler.extractDocumentId(jcas);
+				openOutputFile(getOutputFile(jcas, documentId));
+			}
 
 			JCas view = View_Util.getView(jcas, outputViewName);
 			/* Write the document RDF */
-			Collection<Statement> documentStmts = documentRdfGenerator.generateRdf(jcas, documentMetadataHandler);
-			writeStatements(documentStmts, rdfWriter);
+			documentRdfGenerator.generateRdf(jcas, documentMetadataHandler, rdfWriter);
 
 			/* Write the annotation RDF */
 			URI documentUri = documentRdfGenerator.getDocumentUri(view, documentMetadataHandler);
+			String documentText = view.getDocumentText();
 			for (Annotation annot : JCasUtil.select(view, Annotation.class)) {
 				/*
 				 * by checking for a null type here we are checking that the
@@ -269,22 +300,43 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 				 */
 				String type = annotationDataExtractor.getAnnotationType(annot);
 				if (type != null) {
-					Collection<? extends Statement> stmts = annotationRdfGenerator.generateRdf(annotationDataExtractor,
-							annot, uriFactory, documentUri, view.getDocumentText());
-					writeStatements(stmts, rdfWriter);
+					annotationRdfGenerator.generateRdf(annotationDataExtractor, annot, uriFactory, documentUri,
+							documentText, rdfWriter);
 				}
 			}
-			rdfWriter.endRDF();
-		} catch (FileNotFoundException e) {
-			throw new AnalysisEngineProcessException(e);
-		} catch (IOException e) {
-			throw new AnalysisEngineProcessException(e);
-		} catch (RDFHandlerException e) {
+
+			if (++documentsInOutputFile >= documentsPerOutputFile) {
+				closeOutputFile();
+			}
+		} catch (IOException | RDFHandlerException | CASException e) {
+			try {
+				closeOutputFile();
+			} catch (IOException | RDFHandlerException closeException) {
+				e.addSuppressed(closeException);
+			}
 			throw new AnalysisEngineProcessException(e);
-		} catch (CASException e) {
+		}
+
+	}
+
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		try {
+			closeOutputFile();
+		} catch (IOException | RDFHandlerException e) {
 			throw new AnalysisEngineProcessException(e);
 		}
+	}
 
+	@Override
+	public void destroy() {
+		try {
+			closeOutputFile();
+		} catch (IOException | RDFHandlerException e) {
+			logger.log(Level.WARNING, "Unable to close RDF output file: " + e.getMessage());
+		}
+		super.destroy();
 	}
 
 	public static AnalysisEngineDescription createDescription(TypeSystemDescription tsd, File outputDirectory,
@@ -295,6 +347,24 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 			Class<? extends DocumentRdfGenerator> documentRdfGeneratorClass,
 			Class<? extends UriFactory> uriFactoryClass, String sourceViewName, String outputViewName)
 			throws ResourceInitializationException {
+		return createDescription(tsd, outputDirectory, outputFileInfix, format, compressOutput, 1,
+				documentMetaDataExtractorClass, annotationDataExtractorClass, annotationRdfGeneratorClass,
+				documentRdfGeneratorClass, uriFactoryClass, sourceViewName, outputViewName);
+	}
+
+	/**
+	 * @param documentsPerOutputFile
+	 *            the number of documents to serialize to each rolling output
+	 *            file
+	 */
+	public static AnalysisEngineDescription createDescription(TypeSystemDescription tsd, File outputDirectory,
+			String outputFileInfix, RdfFormat format, boolean compressOutput, int documentsPerOutputFile,
+			Class<? extends DocumentMetadataHandler> documentMetaDataExtractorClass,
+			Class<? extends AnnotationDataExtractor> annotationDataExtractorClass,
+			Class<? extends AnnotationRdfGenerator> annotationRdfGeneratorClass,
+			Class<? extends DocumentRdfGenerator> documentRdfGeneratorClass,
+			Class<? extends UriFactory> uriFactoryClass, String sourceViewName, String outputViewName)
+			throws ResourceInitializationException {
 		// @formatter:off
 		return AnalysisEngineFactory.createEngineDescription(RdfSerialization_AE.class, tsd, 
 				PARAM_ANNOTATION_RDF_GENERATOR_CLASS, annotationRdfGeneratorClass.getName(),
@@ -307,7 +377,8 @@ public class RdfSerialization_AE extends JCasAnnotator_ImplBase {
 				PARAM_OUTPUT_FILE_INFIX, outputFileInfix,
 				PARAM_OUTPUT_DIRECTORY, outputDirectory.getAbsolutePath(),
 				PARAM_SOURCE_VIEW_NAME, sourceViewName,
-				PARAM_OUTPUT_VIEW_NAME, outputViewName
+				PARAM_OUTPUT_VIEW_NAME, outputViewName,
+				PARAM_DOCUMENTS_PER_OUTPUT_FILE, documentsPerOutputFile
 				);
 		// @formatter:on
 	}
@@ -44,13 +44,19 @@ public enum WebAnnotationClass {
 
 	public static final String WEB_ANNOTATION_NAMESPACE = "http://www.w3.org/ns/oa#";
 	private final String propertyName;
+	/*
+	 * URIImpl is immutable so a single instance per constant is shared rather
+	 * than created for every statement
+	 */
+	private final URIImpl uri;
 
 	private WebAnnotationClass(String propertyName) {
 		this.propertyName = propertyName;
+		this.uri = new URIImpl(WEB_ANNOTATION_NAMESPACE + propertyName);
 	}
 
 	public URIImpl uri() {
-		return new URIImpl(WEB_ANNOTATION_NAMESPACE + propertyName);
+		return uri;
 	}
 
 }
@@ -33,7 +33,6 @@ package edu.ucdenver.ccp.nlp.uima.serialization.rdf.webannot;
  * #L%
  */
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -44,10 +43,13 @@ import org.openrdf.model.URI;
 import org.openrdf.model.impl.StatementImpl;
 import org.openrdf.model.impl.URIImpl;
 import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.StatementCollector;
 
-import edu.ucdenver.ccp.common.digest.DigestUtil;
 import edu.ucdenver.ccp.datasource.identifiers.DataSource;
 import edu.ucdenver.ccp.nlp.uima.serialization.rdf.AnnotationRdfGenerator;
+import edu.ucdenver.ccp.nlp.uima.serialization.rdf.Base64Sha1Digester;
 import edu.ucdenver.ccp.nlp.uima.serialization.rdf.UriFactory;
 import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
 import edu.ucdenver.ccp.uima.shims.annotation.Span;
@@ -55,10 +57,18 @@ import edu.ucdenver.ccp.uima.shims.annotation.Span;
 /**
  * Generates RDF representing annotations using the W3C Web Annotation standard.
  * https://www.w3.org/TR/annotation-model/
+ * <p>
+ * Instances reuse a single {@link Base64Sha1Digester} and are therefore not
+ * thread-safe.
  */
 public class WebAnnotationRdfGenerator implements AnnotationRdfGenerator {
 
+	private static final String ANNOTATION_URI_PREFIX = DataSource.KABOB.longName() + "lice/A_";
+	private static final String SPECIFIC_RESOURCE_URI_PREFIX = DataSource.KABOB.longName() + "lice/SR_";
+
 	private final WebAnnotationSelectorType selectorType;
+	private final Base64Sha1Digester digester = new Base64Sha1Digester();
+	private final StringBuilder keyBuilder = new StringBuilder();
 
 	public WebAnnotationRdfGenerator(WebAnnotationSelectorType selectorType) {
 		this.selectorType = selectorType;
@@ -67,8 +77,19 @@ public class WebAnnotationRdfGenerator implements AnnotationRdfGenerator {
 	@Override
 	public Collection<? extends Statement> generateRdf(AnnotationDataExtractor annotationDataExtractor,
 			Annotation annotation, UriFactory uriFactory, URI documentUri, String documentText) {
-		List<Statement> stmts = new ArrayList<Statement>();
+		StatementCollector collector = new StatementCollector();
+		try {
+			generateRdf(annotationDataExtractor, annotation, uriFactory, documentUri, documentText, collector);
+		} catch (RDFHandlerException e) {
+			throw new IllegalStateException(e);
+		}
+		return collector.getStatements();
+	}
 
+	@Override
+	public void generateRdf(AnnotationDataExtractor annotationDataExtractor, Annotation annotation,
+			UriFactory uriFactory, URI documentUri, String documentText, RDFHandler handler)
+			throws RDFHandlerException {
 		URI bodyUri = uriFactory.getResourceUri(annotationDataExtractor, annotation);
 
 		/*
@@ -79,30 +100,32 @@ public class WebAnnotationRdfGenerator implements AnnotationRdfGenerator {
 		if (bodyUri != null) {
 			List<Span> spans = annotationDataExtractor.getAnnotationSpans(annotation);
 			Collections.sort(spans, Span.ASCENDING());
-			String annotationKey = annotationDataExtractor.getAnnotationType(annotation) + "_" + documentUri + "_"
-					+ spans.toString();
-			String annotationDigest = DigestUtil.getBase64Sha1Digest(annotationKey);
+			keyBuilder.setLength(0);
+			keyBuilder.append(annotationDataExtractor.getAnnotationType(annotation)).append('_').append(documentUri)
+					.append('_').append(spans.toString());
+			String annotationDigest = digester.digest(keyBuilder.toString());
 
-			URIImpl annotationUri = new URIImpl(DataSource.KABOB.longName() + "lice/A_" + annotationDigest);
+			URIImpl annotationUri = new URIImpl(ANNOTATION_URI_PREFIX + annotationDigest);
 
-			URIImpl targetUri = new URIImpl(DataSource.KABOB.longName() + "lice/SR_" + annotationDigest);
+			URIImpl targetUri = new URIImpl(SPECIFIC_RESOURCE_URI_PREFIX + annotationDigest);
 
 			/* annotationInstance --rdf:type--> oa:Annotation */
-			stmts.add(new StatementImpl(annotationUri, RDF.TYPE, WebAnnotationClass.ANNOTATION.uri()));
+			handler.handleStatement(new StatementImpl(annotationUri, RDF.TYPE, WebAnnotationClass.ANNOTATION.uri()));
 			/* annotationInstance --oa:hasBody--> body */
-			stmts.add(new StatementImpl(annotationUri, WebAnnotationProperty.HAS_BODY.uri(), bodyUri));
+			handler.handleStatement(new StatementImpl(annotationUri, WebAnnotationProperty.HAS_BODY.uri(), bodyUri));
 			/* annotationInstance --oa:hasTarget--> targetInstance */
-			stmts.add(new StatementImpl(annotationUri, WebAnnotationProperty.HAS_TARGET.uri(), targetUri));
+			handler.handleStatement(
+					new StatementImpl(annotationUri, WebAnnotationProperty.HAS_TARGET.uri(), targetUri));
 			/* targetInstance --rdf:type--> oa:SpecificResource */
-			stmts.add(new StatementImpl(targetUri, RDF.TYPE, WebAnnotationClass.SPECIFIC_RESOURCE.uri()));
+			handler.handleStatement(
+					new StatementImpl(targetUri, RDF.TYPE, WebAnnotationClass.SPECIFIC_RESOURCE.uri()));
 			/* targetInstance --oa:hasSource--> documentIri */
-			stmts.add(new StatementImpl(targetUri, WebAnnotationProperty.HAS_SOURCE.uri(), documentUri));
+			handler.handleStatement(
+					new StatementImpl(targetUri, WebAnnotationProperty.HAS_SOURCE.uri(), documentUri));
 
-			stmts.addAll(selectorType.getStatements(targetUri, documentUri,
-					annotationDataExtractor.getAnnotationSpans(annotation), documentText));
+			/* the spans have already been sorted so they are reused here */
+			selectorType.handleStatements(targetUri, documentUri, spans, documentText, digester, handler);
 		}
-
-		return stmts;
 	}
 
 	public static class TextPositionWebAnnotationRdfGenerator extends WebAnnotationRdfGenerator {
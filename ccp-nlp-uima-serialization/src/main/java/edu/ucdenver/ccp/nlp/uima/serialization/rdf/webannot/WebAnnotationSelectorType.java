@@ -33,7 +33,6 @@ package edu.ucdenver.ccp.nlp.uima.serialization.rdf.webannot;
  * #L%
  */
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -43,41 +42,69 @@ import org.openrdf.model.URI;
 import org.openrdf.model.impl.StatementImpl;
 import org.openrdf.model.impl.URIImpl;
 import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.StatementCollector;
 
-import edu.ucdenver.ccp.common.digest.DigestUtil;
 import edu.ucdenver.ccp.datasource.identifiers.DataSource;
 import edu.ucdenver.ccp.datasource.rdfizer.rdf.ice.RdfUtil;
+import edu.ucdenver.ccp.nlp.uima.serialization.rdf.Base64Sha1Digester;
 import edu.ucdenver.ccp.uima.shims.annotation.Span;
 
 public enum WebAnnotationSelectorType {
 	TEXT_POSITION {
 		@Override
-		public Collection<? extends Statement> getStatements(URIImpl specificResourceUri, URI documentUri,
-				List<Span> spans, String documentText) {
-			List<Statement> stmts = new ArrayList<Statement>();
-
+		public void handleStatements(URI specificResourceUri, URI documentUri, List<Span> spans,
+				String documentText, Base64Sha1Digester digester, RDFHandler handler) throws RDFHandlerException {
 			Collections.sort(spans, Span.ASCENDING());
 			String selectorKey = spans.toString();
-			String selectorDigest = DigestUtil.getBase64Sha1Digest(selectorKey);
+			URIImpl selectorUri = new URIImpl(SELECTOR_URI_PREFIX + digester.digest(selectorKey));
 
 			for (Span span : spans) {
-				URIImpl selectorUri = new URIImpl(DataSource.KABOB.longName() + "lice/S_" + selectorDigest);
 				/* selectorInstance --rdf:type--> oa:TextPositionSelector */
-				stmts.add(new StatementImpl(selectorUri, RDF.TYPE, WebAnnotationClass.TEXT_POSITION_SELECTOR.uri()));
+				handler.handleStatement(
+						new StatementImpl(selectorUri, RDF.TYPE, WebAnnotationClass.TEXT_POSITION_SELECTOR.uri()));
 				/* specificResourceInstance --oa:hasSelector--> selectorInst. */
-				stmts.add(
+				handler.handleStatement(
 						new StatementImpl(specificResourceUri, WebAnnotationProperty.HAS_SELECTOR.uri(), selectorUri));
 				/* selectorInstance --oa:start--> spanStartOffset */
-				stmts.add(new StatementImpl(selectorUri, WebAnnotationProperty.START.uri(),
+				handler.handleStatement(new StatementImpl(selectorUri, WebAnnotationProperty.START.uri(),
 						RdfUtil.createLiteral(span.getSpanStart())));
 				/* selectorInstance --oa:end--> spanEndOffset */
-				stmts.add(new StatementImpl(selectorUri, WebAnnotationProperty.END.uri(),
+				handler.handleStatement(new StatementImpl(selectorUri, WebAnnotationProperty.END.uri(),
 						RdfUtil.createLiteral(span.getSpanEnd())));
 			}
-			return stmts;
 		}
 	};
 
-	public abstract Collection<? extends Statement> getStatements(URIImpl specificResourceUri, URI documentUri,
-			List<Span> spans, String documentText);
+	private static final String SELECTOR_URI_PREFIX = DataSource.KABOB.longName() + "lice/S_";
+
+	public Collection<? extends Statement> getStatements(URIImpl specificResourceUri, URI documentUri,
+			List<Span> spans, String documentText) {
+		StatementCollector collector = new StatementCollector();
+		try {
+			handleStatements(specificResourceUri, documentUri, spans, documentText, new Base64Sha1Digester(),
+					collector);
+		} catch (RDFHandlerException e) {
+			throw new IllegalStateException(e);
+		}
+		return collector.getStatements();
+	}
+
+	/**
+	 * Streams the selector statements for the specified spans to the input
+	 * {@link RDFHandler}
+	 * 
+	 * @param specificResourceUri
+	 * @param documentUri
+	 * @param spans
+	 *            will be sorted in place
+	 * @param documentText
+	 * @param digester
+	 *            used to compute the selector identifier
+	 * @param handler
+	 * @throws RDFHandlerException
+	 */
+	public abstract void handleStatements(URI specificResourceUri, URI documentUri, List<Span> spans,
+			String documentText, Base64Sha1Digester digester, RDFHandler handler) throws RDFHandlerException;
 }
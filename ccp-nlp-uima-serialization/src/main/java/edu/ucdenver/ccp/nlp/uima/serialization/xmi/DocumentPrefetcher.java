@@ -0,0 +1,203 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.xmi;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads the data for upcoming documents on background threads while the current document is
+ * being processed. Documents are loaded in the order supplied, and at most {@code depth}
+ * documents are loaded ahead of the document being processed.
+ * <p>
+ * Instances are not thread-safe; {@link #get(String)} is expected to be called from the single
+ * thread that processes documents.
+ * 
+ * @param <T>
+ *            the type of the loaded document data
+ */
+class DocumentPrefetcher<T> implements Closeable {
+
+	/**
+	 * Loads the data for a single document. Called on a background thread.
+	 */
+	interface DocumentLoader<T> {
+		T load(String documentId) throws Exception;
+	}
+
+	private final DocumentLoader<T> loader;
+	private final List<String> documentIds;
+	/* index into documentIds of the next document to schedule */
+	private int nextDocumentIndex = 0;
+	private final int depth;
+	private int prefetchedCount = 0;
+	private final ExecutorService executor;
+	private final Deque<PendingDocument<T>> pendingDocuments;
+
+	/**
+	 * @param loader
+	 * @param documentIds
+	 *            the IDs of the documents that will be requested, in request order
+	 * @param depth
+	 *            the maximum number of documents to load ahead
+	 * @param numThreads
+	 */
+	DocumentPrefetcher(DocumentLoader<T> loader, List<String> documentIds, int depth, int numThreads) {
+		this.loader = loader;
+		this.documentIds = documentIds;
+		this.depth = depth;
+		this.pendingDocuments = new ArrayDeque<PendingDocument<T>>(depth);
+		this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "document-prefetch");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @param documentId
+	 * @return the data for the specified document, waiting for it to finish loading if necessary,
+	 *         or null if the document is not among the documents currently being prefetched, in
+	 *         which case the caller should load it directly. Prefetched documents that precede the
+	 *         requested document were skipped by the caller and are discarded. If the requested
+	 *         document is further ahead than the prefetch window, the window is moved to the
+	 *         documents that follow it.
+	 * @throws ExecutionException
+	 *             if the loader failed for the requested document
+	 * @throws InterruptedException
+	 */
+	T get(String documentId) throws ExecutionException, InterruptedException {
+		fill();
+		if (!isPending(documentId)) {
+			skipPast(documentId);
+			return null;
+		}
+		PendingDocument<T> pending = pendingDocuments.poll();
+		while (!pending.documentId.equals(documentId)) {
+			pending.future.cancel(true);
+			pending = pendingDocuments.poll();
+		}
+		fill();
+		T data = pending.future.get();
+		prefetchedCount++;
+		return data;
+	}
+
+	/**
+	 * If the specified document has not yet been scheduled, discards the pending documents and
+	 * restarts prefetching with the document that follows it. Documents that are not in the list
+	 * of upcoming documents leave the prefetch window unchanged.
+	 * 
+	 * @param documentId
+	 */
+	private void skipPast(String documentId) {
+		int index = documentIds.subList(nextDocumentIndex, documentIds.size()).indexOf(documentId);
+		if (index < 0) {
+			return;
+		}
+		for (PendingDocument<T> pending : pendingDocuments) {
+			pending.future.cancel(true);
+		}
+		pendingDocuments.clear();
+		nextDocumentIndex += index + 1;
+		fill();
+	}
+
+	/**
+	 * @return the number of documents returned by {@link #get(String)} that were loaded in the
+	 *         background
+	 */
+	int getPrefetchedCount() {
+		return prefetchedCount;
+	}
+
+	private boolean isPending(String documentId) {
+		for (PendingDocument<T> pending : pendingDocuments) {
+			if (pending.documentId.equals(documentId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Schedules upcoming documents until {@code depth} documents are pending
+	 */
+	private void fill() {
+		while (pendingDocuments.size() < depth && nextDocumentIndex < documentIds.size()) {
+			final String documentId = documentIds.get(nextDocumentIndex++);
+			Future<T> future = executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					return loader.load(documentId);
+				}
+			});
+			pendingDocuments.add(new PendingDocument<T>(documentId, future));
+		}
+	}
+
+	/**
+	 * Cancels any pending loads and stops the background threads
+	 */
+	@Override
+	public void close() {
+		for (PendingDocument<T> pending : pendingDocuments) {
+			pending.future.cancel(true);
+		}
+		pendingDocuments.clear();
+		executor.shutdownNow();
+	}
+
+	private static class PendingDocument<T> {
+		private final String documentId;
+		private final Future<T> future;
+
+		public PendingDocument(String documentId, Future<T> future) {
+			this.documentId = documentId;
+			this.future = future;
+		}
+	}
+
+}
@@ -33,19 +33,27 @@ package edu.ucdenver.ccp.nlp.uima.serialization.xmi;
  * #L%
  */
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASRuntimeException;
 import org.apache.uima.cas.impl.XmiCasDeserializer;
 import org.apache.uima.cas.impl.XmiSerializationSharedData;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
@@ -54,8 +62,12 @@ import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCopier;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.CasIOUtils;
 import org.apache.uima.util.Level;
 import org.apache.uima.util.Logger;
+import org.apache.uima.util.TypeSystemUtil;
 import org.xml.sax.SAXException;
 
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
@@ -63,6 +75,8 @@ import edu.ucdenver.ccp.common.io.ClassPathUtil;
 import edu.ucdenver.ccp.common.io.StreamUtil;
 import edu.ucdenver.ccp.common.reflection.ConstructorUtil;
 import edu.ucdenver.ccp.common.string.StringConstants;
+import edu.ucdenver.ccp.nlp.uima.serialization.xmi.DocumentPrefetcher.DocumentLoader;
+import edu.ucdenver.ccp.nlp.uima.serialization.xmi.XmiPrinterAE.CasSerializationFormat;
 import edu.ucdenver.ccp.nlp.uima.shims.ShimDefaults;
 import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
 
@@ -70,6 +84,18 @@ import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
  * This {@link AnalysisEngine} implementation is capable of loading UIMA XMI
  * files. File can be loaded from the file system or classpath. Compressed (.gz)
  * XMI files can be used.
+ * <p>
+ * Binary CAS files written by the {@link XmiPrinterAE} (see
+ * {@link CasSerializationFormat#BINARY}) are also supported. If the XMI file
+ * for a document/infix combination is not present, the corresponding binary
+ * CAS file is loaded instead. The format of each file is detected from its
+ * content.
+ * <p>
+ * If the IDs of the documents to be processed are known in advance (see
+ * {@link #PARAM_PREFETCH_DOCUMENT_IDS}), the files for upcoming documents can
+ * be read and decompressed on background threads while the current document
+ * is being processed. Deserialization into the CAS always takes place on the
+ * calling thread, in the order of the xmiPaths and infixes parameters.
  * 
  * @author Colorado Computational Pharmacology, UC Denver;
  *         ccpsupport@ucdenver.edu
@@ -159,6 +185,31 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 	 */
 	private DocumentMetadataHandler documentMetaDataHandler;
 
+	public static final String PARAM_PREFETCH_DOCUMENT_IDS = "prefetchDocumentIds";
+	@ConfigurationParameter(mandatory = false, description = "The IDs of the documents that will be processed by this AnalysisEngine, in processing order. "
+			+ "If set, and prefetchDepth is greater than zero, the files for upcoming documents are read and decompressed in the background. "
+			+ "Prefetching requires the xmiPaths parameter to be set.")
+	private String[] prefetchDocumentIds;
+
+	public static final String PARAM_PREFETCH_DEPTH = "prefetchDepth";
+	@ConfigurationParameter(mandatory = false, defaultValue = "0", description = "The maximum number of upcoming documents whose files are loaded in the background. Zero disables prefetching.")
+	private int prefetchDepth;
+
+	public static final String PARAM_PREFETCH_THREAD_COUNT = "prefetchThreadCount";
+	@ConfigurationParameter(mandatory = false, defaultValue = "2", description = "The number of background threads used to prefetch files.")
+	private int prefetchThreadCount;
+
+	/**
+	 * Holds the decompressed file contents for each (xmiPath x infix)
+	 * combination of upcoming documents. Null if prefetching is disabled.
+	 */
+	private DocumentPrefetcher<List<byte[]>> prefetcher;
+
+	/**
+	 * Buffer size used when reading and decompressing files
+	 */
+	private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
 	private Logger logger;
 
 	/**
@@ -167,6 +218,18 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 	 */
 	boolean THROW_EXCEPTION_ON_UNKNOWN_TYPE_OBSERVATION = true;
 
+	/**
+	 * Binary CAS files begin with this header
+	 */
+	private static final byte[] BINARY_CAS_HEADER = new byte[] { 'U', 'I', 'M', 'A' };
+
+	/**
+	 * Binary CAS files replace the contents of the CAS they are loaded into, so
+	 * they are loaded into this CAS first and then copied into the CAS being
+	 * processed. Created when the first binary file is encountered.
+	 */
+	private CAS binaryCasBuffer;
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -180,6 +243,84 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 		logger = aContext.getLogger();
 		documentMetaDataHandler = (DocumentMetadataHandler) ConstructorUtil
 				.invokeConstructor(documentMetadataHandlerClassName);
+		if (prefetchDepth > 0 && prefetchDocumentIds != null && prefetchDocumentIds.length > 0) {
+			if (xmiPaths == null) {
+				throw new ResourceInitializationException(new IllegalArgumentException(
+						"The xmiPaths parameter must be set in order to prefetch XMI files."));
+			}
+			prefetcher = new DocumentPrefetcher<List<byte[]>>(new DocumentLoader<List<byte[]>>() {
+				@Override
+				public List<byte[]> load(String documentId) throws Exception {
+					return readFiles(documentId);
+				}
+			}, Arrays.asList(prefetchDocumentIds), prefetchDepth, prefetchThreadCount);
+		}
+	}
+
+	/**
+	 * Reads the contents of each (xmiPath x infix) file for the specified
+	 * document into memory, decompressing them if necessary. Called on a
+	 * prefetch thread.
+	 * 
+	 * @param documentId
+	 * @return the file contents, in the order they are to be loaded, with null
+	 *         entries for files that do not exist
+	 * @throws AnalysisEngineProcessException
+	 * @throws IOException
+	 */
+	private List<byte[]> readFiles(String documentId) throws AnalysisEngineProcessException, IOException {
+		List<byte[]> fileContents = new ArrayList<byte[]>();
+		for (String xmiPathBase : xmiPaths) {
+			for (String infix : getInfixesToLoad()) {
+				InputStream xmiStream = initializeXmiInputStream(documentId, xmiPathBase, infix);
+				fileContents.add((xmiStream == null) ? null : readFully(xmiStream));
+			}
+		}
+		return fileContents;
+	}
+
+	private static byte[] readFully(InputStream stream) throws IOException {
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+			int length;
+			while ((length = stream.read(buffer)) != -1) {
+				baos.write(buffer, 0, length);
+			}
+			return baos.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+
+	private List<String> getInfixesToLoad() {
+		List<String> infixesToLoad = new ArrayList<String>();
+		if (infixes == null || infixes.length == 0) {
+			infixesToLoad.add(null);
+		} else {
+			infixesToLoad.addAll(Arrays.asList(infixes));
+		}
+		return infixesToLoad;
+	}
+
+	/**
+	 * @return the number of documents whose files were loaded by the prefetcher
+	 */
+	int getPrefetchedDocumentCount() {
+		return (prefetcher == null) ? 0 : prefetcher.getPrefetchedCount();
+	}
+
+	@Override
+	public void destroy() {
+		if (prefetcher != null) {
+			prefetcher.close();
+			prefetcher = null;
+		}
+		if (binaryCasBuffer != null) {
+			binaryCasBuffer.reset();
+			binaryCasBuffer = null;
+		}
+		super.destroy();
 	}
 
 	/*
@@ -219,22 +360,30 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 					null);
 		}
 
-		List<String> infixesToLoad = new ArrayList<String>();
-		if (infixes == null || infixes.length == 0) {
-			infixesToLoad.add(null);
-		} else {
-			infixesToLoad.addAll(Arrays.asList(infixes));
-		}
-
+		List<byte[]> prefetchedFiles = getPrefetchedFiles(documentId);
+		int fileIndex = 0;
 		for (String xmiPathBase : filePaths) {
-			for (String infix : infixesToLoad) {
-				InputStream xmiStream = initializeXmiInputStream(documentId, xmiPathBase, infix);
+			for (String infix : getInfixesToLoad()) {
+				InputStream xmiStream;
+				if (prefetchedFiles != null) {
+					byte[] fileContents = prefetchedFiles.get(fileIndex++);
+					xmiStream = (fileContents == null) ? null : new ByteArrayInputStream(fileContents);
+				} else {
+					xmiStream = initializeXmiInputStream(documentId, xmiPathBase, infix);
+				}
 				if (xmiStream != null) {
 					try {
-						XmiCasDeserializer.deserialize(xmiStream, jcas.getCas(),
-								!THROW_EXCEPTION_ON_UNKNOWN_TYPE_OBSERVATION, sharedData, sharedData.getMaxXmiId());
+						if (!xmiStream.markSupported()) {
+							xmiStream = new BufferedInputStream(xmiStream, STREAM_BUFFER_SIZE);
+						}
+						if (isBinaryCas(xmiStream)) {
+							loadBinaryCas(xmiStream, jcas.getCas());
+						} else {
+							XmiCasDeserializer.deserialize(xmiStream, jcas.getCas(),
+									!THROW_EXCEPTION_ON_UNKNOWN_TYPE_OBSERVATION, sharedData, sharedData.getMaxXmiId());
+						}
 						xmiStream.close();
-					} catch (IOException | SAXException e) {
+					} catch (IOException | SAXException | ResourceInitializationException e) {
 						logger.log(Level.SEVERE, "Error loading XMI file. Document Id: " + documentId + " xmi path: " + xmiPathBase + " infix: " + infix);
 						throw new AnalysisEngineProcessException(e);
 					}
@@ -243,6 +392,84 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 		}
 	}
 
+	/**
+	 * @param documentId
+	 * @return the prefetched file contents for the specified document, or null
+	 *         if prefetching is disabled or the document was not prefetched
+	 * @throws AnalysisEngineProcessException
+	 */
+	private List<byte[]> getPrefetchedFiles(String documentId) throws AnalysisEngineProcessException {
+		if (prefetcher == null) {
+			return null;
+		}
+		try {
+			List<byte[]> prefetchedFiles = prefetcher.get(documentId);
+			if (prefetchedFiles == null) {
+				logger.log(Level.FINE, "Document was not prefetched. Loading directly: " + documentId);
+			}
+			return prefetchedFiles;
+		} catch (ExecutionException e) {
+			throw new AnalysisEngineProcessException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+
+	/**
+	 * @param stream
+	 *            must support mark/reset
+	 * @return true if the stream begins with the binary CAS header; the stream
+	 *         is reset to its starting position
+	 * @throws IOException
+	 */
+	private static boolean isBinaryCas(InputStream stream) throws IOException {
+		stream.mark(BINARY_CAS_HEADER.length);
+		try {
+			for (byte b : BINARY_CAS_HEADER) {
+				if (stream.read() != b) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			stream.reset();
+		}
+	}
+
+	/**
+	 * Deserializes a binary CAS and adds its contents to the specified CAS.
+	 * Document text is only copied into views that do not already have it.
+	 * 
+	 * @param binaryStream
+	 * @param cas
+	 * @throws IOException
+	 * @throws ResourceInitializationException
+	 */
+	private void loadBinaryCas(InputStream binaryStream, CAS cas) throws IOException,
+			ResourceInitializationException {
+		if (binaryCasBuffer == null) {
+			binaryCasBuffer = CasCreationUtils.createCas(
+					TypeSystemUtil.typeSystem2TypeSystemDescription(cas.getTypeSystem()), null, null);
+		} else {
+			binaryCasBuffer.reset();
+		}
+		CasIOUtils.load(binaryStream, binaryCasBuffer);
+		CasCopier copier = new CasCopier(binaryCasBuffer, cas);
+		for (Iterator<CAS> viewIter = binaryCasBuffer.getViewIterator(); viewIter.hasNext();) {
+			CAS sourceView = viewIter.next();
+			CAS targetView;
+			try {
+				targetView = cas.getView(sourceView.getViewName());
+			} catch (CASRuntimeException e) {
+				targetView = cas.createView(sourceView.getViewName());
+			}
+			boolean copySofa = targetView.getSofaDataString() == null && targetView.getSofaDataArray() == null
+					&& targetView.getSofaDataURI() == null;
+			copier.copyCasView(sourceView, targetView, copySofa);
+		}
+	}
+
 	/**
 	 * @param documentId
 	 * @param xmiPathBase
@@ -257,9 +484,9 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 		} else {
 			xmiStream = getStreamFromClasspath(documentId, xmiPathBase, infix);
 		}
-		if (xmiFileCompressionType.equals(XmiFileCompressionType.GZ)) {
+		if (xmiStream != null && xmiFileCompressionType.equals(XmiFileCompressionType.GZ)) {
 			try {
-				xmiStream = new GZIPInputStream(xmiStream);
+				xmiStream = new GZIPInputStream(xmiStream, STREAM_BUFFER_SIZE);
 			} catch (IOException e) {
 				throw new AnalysisEngineProcessException(e);
 			}
@@ -277,6 +504,12 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 		String xmiFilePath = xmiPathBase + StringConstants.FORWARD_SLASH
 				+ XmiPrinterAE.getXmiFileName(documentId, infix, xmiFileCompressionType == XmiFileCompressionType.GZ);
 		xmiStream = ClassPathUtil.getResourceStreamFromClasspath(getClass(), xmiFilePath);
+		if (xmiStream == null) {
+			String binaryFilePath = xmiPathBase + StringConstants.FORWARD_SLASH
+					+ XmiPrinterAE.getOutputFileName(documentId, infix,
+							xmiFileCompressionType == XmiFileCompressionType.GZ, CasSerializationFormat.BINARY);
+			xmiStream = ClassPathUtil.getResourceStreamFromClasspath(getClass(), binaryFilePath);
+		}
 		if (xmiStream == null) {
 			logger.log(Level.WARNING, "Unable to load XMI file from classpath: " + xmiFilePath);
 		}
@@ -297,14 +530,18 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 		String xmiFileName = XmiPrinterAE.getXmiFileName(documentId, infix,
 				(xmiFileCompressionType == XmiFileCompressionType.GZ));
 		File xmiFile = new File(xmiDirectory, xmiFileName);
-		if (!xmiFile.exists()) {
-			logger.log(Level.WARNING, "Expected XMI file does not exist: " + xmiFile.getAbsolutePath());
-		} else {
-			try {
+		File binaryFile = new File(xmiDirectory, XmiPrinterAE.getOutputFileName(documentId, infix,
+				(xmiFileCompressionType == XmiFileCompressionType.GZ), CasSerializationFormat.BINARY));
+		try {
+			if (xmiFile.exists()) {
 				xmiStream = StreamUtil.getEncodingSafeInputStream(xmiFile, CharacterEncoding.UTF_8);
-			} catch (FileNotFoundException e) {
-				throw new AnalysisEngineProcessException(e);
+			} else if (binaryFile.exists()) {
+				xmiStream = new FileInputStream(binaryFile);
+			} else {
+				logger.log(Level.WARNING, "Expected XMI file does not exist: " + xmiFile.getAbsolutePath());
 			}
+		} catch (FileNotFoundException e) {
+			throw new AnalysisEngineProcessException(e);
 		}
 		return xmiStream;
 	}
@@ -330,6 +567,38 @@ public class XmiLoaderAE extends JCasAnnotator_ImplBase {
 				(infixes == null) ? null : infixes.toArray(new String[infixes.size()]));
 	}
 
+	/**
+	 * Returns a description of an XmiLoader {@link AnalysisEngine} that reads
+	 * and decompresses the files for upcoming documents in the background
+	 * 
+	 * @param tsd
+	 * @param documentMetaDataHandlerClass
+	 * @param xmiPathType
+	 * @param xmiCompressionType
+	 * @param infixes
+	 * @param documentIds
+	 *            the IDs of the documents that will be processed, in
+	 *            processing order
+	 * @param prefetchDepth
+	 *            the maximum number of documents to load ahead
+	 * @param prefetchThreadCount
+	 * @param xmiPaths
+	 * @return
+	 * @throws ResourceInitializationException
+	 */
+	public static AnalysisEngineDescription createAnalysisEngineDescription(TypeSystemDescription tsd,
+			Class<? extends DocumentMetadataHandler> documentMetaDataHandlerClass, XmiPathType xmiPathType,
+			XmiFileCompressionType xmiCompressionType, List<String> infixes, List<String> documentIds,
+			int prefetchDepth, int prefetchThreadCount, String... xmiPaths) throws ResourceInitializationException {
+		return AnalysisEngineFactory.createEngineDescription(XmiLoaderAE.class, tsd,
+				XmiLoaderAE.PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetaDataHandlerClass.getName(),
+				PARAM_XMI_PATH_TYPE, xmiPathType.name(), PARAM_XMI_FILE_COMPRESSION_TYPE, xmiCompressionType.name(),
+				XmiLoaderAE.PARAM_XMI_PATH_NAMES, xmiPaths, XmiLoaderAE.PARAM_XMI_FILENAME_INFIXES,
+				(infixes == null) ? null : infixes.toArray(new String[infixes.size()]), PARAM_PREFETCH_DOCUMENT_IDS,
+				documentIds.toArray(new String[documentIds.size()]), PARAM_PREFETCH_DEPTH, prefetchDepth,
+				PARAM_PREFETCH_THREAD_COUNT, prefetchThreadCount);
+	}
+
 	public static AnalysisEngineDescription createAnalysisEngineDescription_LoadFromSourceFileDirectory(
 			TypeSystemDescription tsd, Class<? extends DocumentMetadataHandler> documentMetaDataHandlerClass,
 			XmiFileCompressionType xmiCompressionType, String... infixes) throws ResourceInitializationException {
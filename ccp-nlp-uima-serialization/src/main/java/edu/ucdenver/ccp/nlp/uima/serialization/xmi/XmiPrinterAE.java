@@ -1,5 +1,6 @@
 package edu.ucdenver.ccp.nlp.uima.serialization.xmi;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 
 /*
@@ -38,6 +39,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.zip.GZIPOutputStream;
@@ -46,6 +48,7 @@ import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.SerialFormat;
 import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
@@ -53,6 +56,7 @@ import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasIOUtils;
 import org.apache.uima.util.XMLSerializer;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormatter;
@@ -70,6 +74,11 @@ import edu.ucdenver.ccp.uima.shims.document.DocumentMetadataHandler;
  * An {@link AnalysisEngine} implementation that outputs the CAS to an XMI file.
  * This class is loosely based on a class from the Apache UIMA examples project:
  * org.apache.uima.examples.xmi.XmiWriterCasConsumer
+ * <p>
+ * The CAS can optionally be written in UIMA's compressed binary format instead
+ * of XMI (see {@link CasSerializationFormat}). Binary output files follow the
+ * same naming scheme as XMI files, but use the {@link #BINARY_CAS_FILE_SUFFIX}
+ * suffix. The {@link XmiLoaderAE} loads either format.
  * 
  * @author Colorado Computational Pharmacology, UC Denver;
  *         ccpsupport@ucdenver.edu
@@ -81,6 +90,33 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 	 */
 	public static final String XMI_FILE_SUFFIX = ".xmi";
 
+	/**
+	 * File suffix appended to the binary CAS output files
+	 */
+	public static final String BINARY_CAS_FILE_SUFFIX = ".bcas";
+
+	/**
+	 * The formats available for serializing the CAS
+	 */
+	public enum CasSerializationFormat {
+		/**
+		 * XML Metadata Interchange, written using the {@link XmiCasSerializer}
+		 */
+		XMI,
+		/**
+		 * UIMA's compressed binary form (form 6) preceded by the type system
+		 * used to write the CAS ({@link SerialFormat#COMPRESSED_FILTERED_TSI}).
+		 * Binary files are smaller than XMI and are much faster to write and
+		 * load. Form 6 is already compressed, so there is little to gain from
+		 * also gzipping the output.
+		 */
+		BINARY
+	}
+
+	public static final String PARAM_SERIALIZATION_FORMAT = "serializationFormat";
+	@ConfigurationParameter(mandatory = false, description = "The format used to serialize the CAS, XMI or BINARY.", defaultValue = "XMI")
+	private CasSerializationFormat serializationFormat;
+
 	public static final String PARAM_OUTPUT_FILENAME_INFIX = "outputFilenameInfix";
 	@ConfigurationParameter(mandatory = false, description = "An option string that, if not null, is appended to the output file. "
 			+ "This can be useful for identifying the type of annotations containined in an XMI file, for example.")
@@ -153,6 +189,26 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 				compressOutput);
 	}
 
+	/**
+	 * @param tsd
+	 * @param documentMetaDataExtractorClass
+	 * @param outputDirectory
+	 * @param infix
+	 * @param compressOutput
+	 * @param serializationFormat
+	 * @return a description of an {@link XmiPrinterAE} that writes the CAS in
+	 *         the specified format
+	 * @throws ResourceInitializationException
+	 */
+	public static AnalysisEngineDescription getDescription(TypeSystemDescription tsd,
+			Class<? extends DocumentMetadataHandler> documentMetaDataExtractorClass, File outputDirectory, String infix,
+			boolean compressOutput, CasSerializationFormat serializationFormat) throws ResourceInitializationException {
+		return AnalysisEngineFactory.createEngineDescription(XmiPrinterAE.class, tsd,
+				PARAM_DOCUMENT_METADATA_HANDLER_CLASS, documentMetaDataExtractorClass.getName(), PARAM_OUTPUT_DIRECTORY,
+				outputDirectory.getAbsolutePath(), PARAM_OUTPUT_FILENAME_INFIX, infix, PARAM_COMPRESS_OUTPUT,
+				compressOutput, PARAM_SERIALIZATION_FORMAT, serializationFormat.name());
+	}
+
 	public static AnalysisEngine createAnalysisEngine(TypeSystemDescription tsd,
 			Class<? extends DocumentMetadataHandler> documentMetaDataExtractorClass, File outputDirectory, String infix,
 			boolean compressOutput) throws ResourceInitializationException {
@@ -185,9 +241,9 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 	}
 
 	/**
-	 * Each CAS is output as XMI to a file. The output file name is the document
-	 * ID + ".xmi" and is located in the output directory specified by the
-	 * configuration parameter.
+	 * Each CAS is output as XMI (or binary) to a file. The output file name is
+	 * the document ID + ".xmi" (or ".bcas") and is located in the output
+	 * directory specified by the configuration parameter.
 	 * 
 	 * @see org.apache.uima.analysis_component.JCasAnnotator_ImplBase#process(org.apache.uima.jcas.JCas)
 	 */
@@ -221,7 +277,7 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 					null);
 		}
 		try {
-			serializeCasToXmi(jcas, xmiFile);
+			serializeCas(jcas, xmiFile);
 			logSerializedFile(jcas, xmiFile);
 		} catch (IOException e) {
 			throw new AnalysisEngineProcessException(e);
@@ -243,14 +299,14 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 
 	/**
 	 * Given a document Id, this method returns the name of the corresponding
-	 * XMI file that will be created
+	 * XMI (or binary CAS) file that will be created
 	 * 
 	 * @param documentId
 	 * 
 	 * @return
 	 */
 	public String getXmiFileName(String documentId) {
-		return getXmiFileName(documentId, outputFilenameInfix, compressOutput);
+		return getOutputFileName(documentId, outputFilenameInfix, compressOutput, serializationFormat);
 	}
 
 	/**
@@ -260,10 +316,53 @@ public class XmiPrinterAE extends JCasAnnotator_ImplBase {
 	 * @return
 	 */
 	public static String getXmiFileName(String documentId, String infix, boolean compressOutput) {
+		return getOutputFileName(documentId, infix, compressOutput, CasSerializationFormat.XMI);
+	}
+
+	/**
+	 * @param documentId
+	 * @param infix
+	 *            optional text string to insert as part of the filename
+	 * @param compressOutput
+	 * @param serializationFormat
+	 * @return the name of the file used to store the CAS for the specified
+	 *         document in the specified format
+	 */
+	public static String getOutputFileName(String documentId, String infix, boolean compressOutput,
+			CasSerializationFormat serializationFormat) {
+		String suffix = ((serializationFormat == CasSerializationFormat.BINARY) ? BINARY_CAS_FILE_SUFFIX
+				: XMI_FILE_SUFFIX) + ((compressOutput) ? ".gz" : "");
 		if (infix == null) {
-			return documentId + XMI_FILE_SUFFIX + ((compressOutput) ? ".gz" : "");
+			return documentId + suffix;
 		} else {
-			return documentId + "-" + infix + XMI_FILE_SUFFIX + ((compressOutput) ? ".gz" : "");
+			return documentId + "-" + infix + suffix;
+		}
+	}
+
+	/**
+	 * Serializes the CAS using the configured {@link CasSerializationFormat}
+	 * 
+	 * @param jcas
+	 *            the CAS that will be serialized
+	 * @param outputFile
+	 *            the output file where the serialized CAS will be stored
+	 * @throws IOException
+	 *             if there's an issue writing to the output file
+	 * @throws SAXException
+	 *             if there's an issue serializing the CAS
+	 */
+	private void serializeCas(JCas jcas, File outputFile) throws IOException, SAXException {
+		if (serializationFormat == CasSerializationFormat.BINARY) {
+			serializeCasToBinary(jcas, outputFile);
+		} else {
+			serializeCasToXmi(jcas, outputFile);
+		}
+	}
+
+	private void serializeCasToBinary(JCas jcas, File binaryFile) throws IOException {
+		try (OutputStream os = new BufferedOutputStream((compressOutput)
+				? new GZIPOutputStream(new FileOutputStream(binaryFile)) : new FileOutputStream(binaryFile))) {
+			CasIOUtils.save(jcas.getCas(), os, SerialFormat.COMPRESSED_FILTERED_TSI);
 		}
 	}
 
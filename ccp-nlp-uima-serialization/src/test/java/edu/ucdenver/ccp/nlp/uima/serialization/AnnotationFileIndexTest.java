@@ -0,0 +1,197 @@
+package edu.ucdenver.ccp.nlp.uima.serialization;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationFileIndexTest extends DefaultTestCase {
+
+	private static final CharacterEncoding ENCODING = CharacterEncoding.UTF_8;
+
+	private File annotationFile;
+
+	@Before
+	public void setUp() throws IOException {
+		annotationFile = folder.newFile("annotations.txt");
+		/* the lines for doc1 are not contiguous */
+		FileWriterUtil.printLines(CollectionsUtil.createList("doc1|annotator|0 5|protein|p53é",
+				"doc1|annotator|10 15|gene|brca1", "doc2|annotator|0 4|cell|cell", "",
+				"doc1|annotator|20 25|protein|abcde", "doc3|annotator|3 7|gene|abcd"), annotationFile, ENCODING,
+				WriteMode.OVERWRITE, FileSuffixEnforcement.OFF);
+	}
+
+	@Test
+	public void testGetAnnotations() throws IOException {
+		AnnotationFileIndex index = AnnotationFileIndex.open(annotationFile, ENCODING);
+		try {
+			assertEquals(CollectionsUtil.createSet("doc1", "doc2", "doc3"), index.getDocumentIds());
+			assertEquals(CollectionsUtil.createList("p53é", "brca1", "abcde"),
+					getCoveredText(index.getAnnotations("doc1")));
+			assertEquals(CollectionsUtil.createList("cell"), getCoveredText(index.getAnnotations("doc2")));
+			List<TextAnnotation> doc3Annots = index.getAnnotations("doc3");
+			assertEquals(1, doc3Annots.size());
+			assertEquals(3, doc3Annots.get(0).getAnnotationSpanStart());
+			assertEquals(7, doc3Annots.get(0).getAnnotationSpanEnd());
+			assertEquals("gene", doc3Annots.get(0).getClassMention().getMentionName());
+			assertEquals("doc3", doc3Annots.get(0).getDocumentID());
+			assertTrue(index.getAnnotations("doc4").isEmpty());
+		} finally {
+			index.close();
+		}
+		assertTrue(AnnotationFileIndex.getDefaultIndexFile(annotationFile).exists());
+	}
+
+	@Test
+	public void testIndexIsReusedAndRebuiltWhenStale() throws IOException {
+		File indexFile = new File(folder.getRoot(), "annotations.index");
+		AnnotationFileIndex.open(annotationFile, indexFile, ENCODING).close();
+		assertTrue(indexFile.exists());
+		long indexLastModified = indexFile.lastModified();
+
+		AnnotationFileIndex index = AnnotationFileIndex.open(annotationFile, indexFile, ENCODING);
+		try {
+			assertEquals(indexLastModified, indexFile.lastModified());
+			assertEquals(CollectionsUtil.createList("cell"), getCoveredText(index.getAnnotations("doc2")));
+		} finally {
+			index.close();
+		}
+
+		FileWriterUtil.printLines(CollectionsUtil.createList("doc2|annotator|0 7|cell|neurons"), annotationFile,
+				ENCODING, WriteMode.APPEND, FileSuffixEnforcement.OFF);
+		index = AnnotationFileIndex.open(annotationFile, indexFile, ENCODING);
+		try {
+			assertEquals(CollectionsUtil.createList("cell", "neurons"), getCoveredText(index.getAnnotations("doc2")));
+		} finally {
+			index.close();
+		}
+	}
+
+	@Test
+	public void testDocumentIdsWithTabsAndBackslashesSurviveTheIndexFile() throws IOException {
+		File tabbedAnnotationFile = folder.newFile("tabbed-annotations.txt");
+		FileWriterUtil.printLines(
+				CollectionsUtil.createList("doc\t1|annotator|0 5|protein|p53", "doc\\t2|annotator|0 4|cell|cell"),
+				tabbedAnnotationFile, ENCODING, WriteMode.OVERWRITE, FileSuffixEnforcement.OFF);
+		/* the first open builds and writes the index, the second reads it back from disk */
+		AnnotationFileIndex.open(tabbedAnnotationFile, ENCODING).close();
+		AnnotationFileIndex index = AnnotationFileIndex.open(tabbedAnnotationFile, ENCODING);
+		try {
+			assertEquals(CollectionsUtil.createSet("doc\t1", "doc\\t2"), index.getDocumentIds());
+			assertEquals(CollectionsUtil.createList("p53"), getCoveredText(index.getAnnotations("doc\t1")));
+			assertEquals(CollectionsUtil.createList("cell"), getCoveredText(index.getAnnotations("doc\\t2")));
+		} finally {
+			index.close();
+		}
+		for (File file : folder.getRoot().listFiles()) {
+			assertFalse("temporary index file was not removed: " + file, file.getName().endsWith(".tmp"));
+		}
+	}
+
+	@Test
+	public void testSortedAnnotationFileReader() throws IOException {
+		SortedAnnotationFileReader reader = new SortedAnnotationFileReader(createSortedAnnotationFile(), ENCODING);
+		try {
+			assertTrue(reader.getAnnotations("doc0").isEmpty());
+			assertEquals(CollectionsUtil.createList("p53é", "brca1"), getCoveredText(reader.getAnnotations("doc1")));
+			/* doc2 is never requested */
+			assertEquals(CollectionsUtil.createList("abcd"), getCoveredText(reader.getAnnotations("doc3")));
+			assertTrue(reader.getAnnotations("doc4").isEmpty());
+			assertEquals(CollectionsUtil.createList("abc"), getCoveredText(reader.getAnnotations("doc5")));
+			assertTrue(reader.getAnnotations("doc6").isEmpty());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSortedAnnotationFileReader_OutOfOrderRequest() throws IOException {
+		SortedAnnotationFileReader reader = new SortedAnnotationFileReader(createSortedAnnotationFile(), ENCODING);
+		try {
+			reader.getAnnotations("doc2");
+			reader.getAnnotations("doc1");
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSortedAnnotationFileReader_UnsortedFile() throws IOException {
+		SortedAnnotationFileReader reader = new SortedAnnotationFileReader(annotationFile, ENCODING);
+		try {
+			reader.getAnnotations("doc3");
+		} finally {
+			reader.close();
+		}
+	}
+
+	private File createSortedAnnotationFile() throws IOException {
+		File sortedFile = folder.newFile("sorted.txt");
+		FileWriterUtil.printLines(CollectionsUtil.createList("doc1|annotator|0 5|protein|p53é",
+				"doc1|annotator|10 15|gene|brca1", "doc2|annotator|0 4|cell|cell", "doc3|annotator|3 7|gene|abcd",
+				"doc5|annotator|0 3|gene|abc"), sortedFile, ENCODING, WriteMode.OVERWRITE,
+				FileSuffixEnforcement.OFF);
+		return sortedFile;
+	}
+
+	private static List<String> getCoveredText(List<TextAnnotation> annotations) {
+		List<String> coveredText = new ArrayList<String>();
+		for (TextAnnotation annotation : annotations) {
+			coveredText.add(annotation.getCoveredText());
+		}
+		return coveredText;
+	}
+
+}
@@ -38,6 +38,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 import org.apache.uima.UIMAException;
@@ -261,6 +262,51 @@ public class InlinePrinterTest extends DefaultUIMATestCase {
 		assertEquals(String.format("Inlined output should be as expected"), expectedOutput, inlinedAnnotationOutput);
 	}
 
+	/**
+	 * Tests that tags for an annotation ending at the end of the document text are printed and
+	 * that a subclass can escape runs of document text via
+	 * {@link InlinePrinter#writeDocumentText(char[], int, int, Writer)}
+	 * 
+	 * @throws ResourceInitializationException
+	 * @throws IOException
+	 * @throws AnalysisEngineProcessException
+	 */
+	@Test
+	public void testInlinePrinter_EscapedTextAndDocumentEndTag() throws ResourceInitializationException,
+			IOException, AnalysisEngineProcessException {
+		addSimpleSampleAnnotations();
+		addTextAnnotationToJCas(89, 97, "state"); // blocked.
+		String expectedOutput = String
+				.format("The <%s>cow</%s> jumped over the <%s>moon</%s> &amp; the nai\u0308ve stars, but the cd2 and cd5 receptors were not <state>blocked.</state>",
+						ANIMAL_CLASS, ANIMAL_CLASS, CELESTIAL_BODY_CLASS, CELESTIAL_BODY_CLASS);
+		AnalysisEngine inlinePrinterAe = InlinePrinter.createAnalysisEngine(AmpersandEscapingInlinePrinter.class, TSD,
+				outputDirectory, CAS.NAME_DEFAULT_SOFA, CcpDocumentMetadataHandler.class,
+				new String[] { SimpleInlineAnnotationExtractor.class.getName() });
+		inlinePrinterAe.process(jcas);
+		File expectedOutputFile = new File(outputDirectory, SAMPLE_DOCUMENT_ID + InlinePrinter.OUTPUT_FILE_SUFFIX);
+		assertTrue("output file should exist", expectedOutputFile.exists());
+		String inlinedAnnotationOutput = FileUtil.copyToString(expectedOutputFile, SAMPLE_DOCUMENT_ENCODING);
+		assertEquals(String.format("Inlined output should be as expected"), expectedOutput, inlinedAnnotationOutput);
+	}
+
+	/**
+	 * Escapes ampersands in the document text one run at a time
+	 */
+	public static class AmpersandEscapingInlinePrinter extends InlinePrinter {
+		@Override
+		protected void writeDocumentText(char[] text, int start, int end, Writer writer) throws IOException {
+			int runStart = start;
+			for (int i = start; i < end; i++) {
+				if (text[i] == '&') {
+					writer.write(text, runStart, i - runStart);
+					writer.write("&amp;");
+					runStart = i + 1;
+				}
+			}
+			writer.write(text, runStart, end - runStart);
+		}
+	}
+
 	/**
 	 * A very straightforward extension of the {@link InlineTagExtractor_ImplBase}. This class
 	 * returns XML tags whose names are determined by the annotation class mention name.
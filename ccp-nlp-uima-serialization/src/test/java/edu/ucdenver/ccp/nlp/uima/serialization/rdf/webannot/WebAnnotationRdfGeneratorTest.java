@@ -38,6 +38,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -47,6 +48,7 @@ import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -54,14 +56,18 @@ import org.junit.Test;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.model.impl.URIImpl;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.StatementCollector;
 import org.semanticweb.owlapi.io.SystemOutDocumentTarget;
 
+import edu.ucdenver.ccp.common.digest.DigestUtil;
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileReaderUtil;
 import edu.ucdenver.ccp.datasource.rdfizer.rdf.ice.RdfUtil.RdfFormat;
 import edu.ucdenver.ccp.nlp.core.annotation.Annotator;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
 import edu.ucdenver.ccp.nlp.uima.serialization.rdf.AnnotationRdfGenerator;
+import edu.ucdenver.ccp.nlp.uima.serialization.rdf.Base64Sha1Digester;
 import edu.ucdenver.ccp.nlp.uima.serialization.rdf.DocumentRdfGenerator;
 import edu.ucdenver.ccp.nlp.uima.serialization.rdf.RdfSerialization_AE;
 import edu.ucdenver.ccp.nlp.uima.serialization.rdf.UriFactory;
@@ -167,6 +173,61 @@ public class WebAnnotationRdfGeneratorTest extends DefaultUIMATestCase {
 
 	}
 
+	@Test
+	public void testAnnotationRdfGen_batchOutput()
+			throws ResourceInitializationException, AnalysisEngineProcessException, IOException {
+		File outputDirectory = folder.newFolder("output");
+		String outputFileInfix = "all";
+
+		AnalysisEngineDescription desc = RdfSerialization_AE.createDescription(getTypeSystem(), outputDirectory,
+				outputFileInfix, RdfFormat.NTRIPLES, false, 3, CcpDocumentMetadataHandler.class,
+				CcpAnnotationDataExtractor.class, WebAnnotationRdfGenerator.TextPositionWebAnnotationRdfGenerator.class,
+				SampleDocumentRdfGenerator.class, SampleUriFactory.class, View.DEFAULT.viewName(),
+				View.DEFAULT.viewName());
+
+		AnalysisEngine engine = AnalysisEngineFactory.createEngine(desc);
+
+		/*
+		 * the same CAS is processed twice, so both documents end up in the
+		 * rolling file named after the first document
+		 */
+		engine.process(jcas);
+		engine.process(jcas);
+		engine.collectionProcessComplete();
+
+		File expectedOutputFile = new File(outputDirectory, DOC_ID + "-" + outputFileInfix + "-annots.nt");
+		assertTrue(expectedOutputFile.exists());
+		assertEquals(1, outputDirectory.listFiles().length);
+
+		List<String> lines = FileReaderUtil.loadLinesFromFile(expectedOutputFile, CharacterEncoding.UTF_8);
+		assertEquals(18, lines.size());
+	}
+
+	@Test
+	public void testStreamingRdfGenMatchesCollection() throws RDFHandlerException {
+		CcpAnnotationDataExtractor extractor = new CcpAnnotationDataExtractor();
+		Annotation annot = JCasUtil.selectSingle(jcas, CCPTextAnnotation.class);
+		URI documentUri = new URIImpl("http://example/document/" + DOC_ID);
+
+		WebAnnotationRdfGenerator generator = new WebAnnotationRdfGenerator.TextPositionWebAnnotationRdfGenerator();
+		Collection<? extends Statement> stmts = generator.generateRdf(extractor, annot, new SampleUriFactory(),
+				documentUri, DOCUMENT_TEXT);
+		StatementCollector collector = new StatementCollector();
+		generator.generateRdf(extractor, annot, new SampleUriFactory(), documentUri, DOCUMENT_TEXT, collector);
+
+		assertEquals(9, stmts.size());
+		assertEquals(new ArrayList<Statement>(stmts), new ArrayList<Statement>(collector.getStatements()));
+	}
+
+	@Test
+	public void testDigesterMatchesDigestUtil() {
+		Base64Sha1Digester digester = new Base64Sha1Digester();
+		for (String key : new String[] { "", "http://example/token_http://example/document/12345_[[0..4]]",
+				"\u00e9\u00e8 non-ascii key" }) {
+			assertEquals(DigestUtil.getBase64Sha1Digest(key), digester.digest(key));
+		}
+	}
+
 	public static class SampleDocumentRdfGenerator implements DocumentRdfGenerator {
 
 		@Override
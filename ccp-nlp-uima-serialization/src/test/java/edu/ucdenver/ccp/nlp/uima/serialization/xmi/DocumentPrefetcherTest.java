@@ -0,0 +1,93 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.xmi;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.uima.serialization.xmi.DocumentPrefetcher.DocumentLoader;
+
+public class DocumentPrefetcherTest {
+
+	private static class RecordingLoader implements DocumentLoader<String> {
+		private final List<String> loadedDocumentIds = new CopyOnWriteArrayList<String>();
+
+		@Override
+		public String load(String documentId) {
+			loadedDocumentIds.add(documentId);
+			return "data-" + documentId;
+		}
+	}
+
+	@Test
+	public void testPrefetchInOrder() throws Exception {
+		RecordingLoader loader = new RecordingLoader();
+		DocumentPrefetcher<String> prefetcher = new DocumentPrefetcher<String>(loader, Arrays.asList("1", "2", "3"),
+				2, 1);
+		try {
+			assertEquals("data-1", prefetcher.get("1"));
+			assertEquals("data-2", prefetcher.get("2"));
+			assertEquals("data-3", prefetcher.get("3"));
+			assertEquals(3, prefetcher.getPrefetchedCount());
+		} finally {
+			prefetcher.close();
+		}
+	}
+
+	@Test
+	public void testRequestBeyondWindowResynchronizes() throws Exception {
+		RecordingLoader loader = new RecordingLoader();
+		DocumentPrefetcher<String> prefetcher = new DocumentPrefetcher<String>(loader, Arrays.asList("1", "2", "3",
+				"4", "5", "6"), 2, 1);
+		try {
+			/* document 4 is outside the window [1, 2]; the caller loads it directly */
+			assertNull(prefetcher.get("4"));
+			/* prefetching continues with the documents that follow it */
+			assertEquals("data-5", prefetcher.get("5"));
+			assertEquals("data-6", prefetcher.get("6"));
+			assertEquals(2, prefetcher.getPrefetchedCount());
+			/* unknown documents leave the window unchanged */
+			assertNull(prefetcher.get("unknown"));
+		} finally {
+			prefetcher.close();
+		}
+	}
+
+}
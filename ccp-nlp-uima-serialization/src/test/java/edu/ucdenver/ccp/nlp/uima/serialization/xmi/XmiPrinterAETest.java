@@ -0,0 +1,200 @@
+package edu.ucdenver.ccp.nlp.uima.serialization.xmi;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.UimaContextFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.NameValuePair;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.mention.ClassMentionType;
+import edu.ucdenver.ccp.nlp.uima.serialization.xmi.XmiLoaderAE.XmiFileCompressionType;
+import edu.ucdenver.ccp.nlp.uima.serialization.xmi.XmiLoaderAE.XmiPathType;
+import edu.ucdenver.ccp.nlp.uima.serialization.xmi.XmiPrinterAE.CasSerializationFormat;
+import edu.ucdenver.ccp.nlp.uima.shims.document.impl.CcpDocumentMetadataHandler;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+public class XmiPrinterAETest extends DefaultUIMATestCase {
+
+	private static final String DOCUMENT_TEXT = "ABC-1 regulates the expression of DEF-2 in the liver.";
+	private static final String DOCUMENT_ID = "12345";
+
+	@Override
+	protected void initJCas() throws UIMAException, IOException {
+		jcas.setDocumentText(DOCUMENT_TEXT);
+		UIMA_Util.setDocumentID(jcas, DOCUMENT_ID);
+	}
+
+	private void printCas(JCas cas, File outputDirectory, String infix, CasSerializationFormat format)
+			throws UIMAException {
+		AnalysisEngine engine = AnalysisEngineFactory.createEngine(XmiPrinterAE.getDescription(tsd,
+				CcpDocumentMetadataHandler.class, outputDirectory, infix, false, format));
+		engine.process(cas);
+		engine.destroy();
+	}
+
+	/**
+	 * @return a new CAS containing only the document text and ID, loaded from the specified
+	 *         directory using the specified infixes
+	 */
+	private JCas loadCas(File inputDirectory, String... infixes) throws UIMAException {
+		JCas loadedJCas = JCasFactory.createJCas(tsd);
+		loadedJCas.setDocumentText(DOCUMENT_TEXT);
+		UIMA_Util.setDocumentID(loadedJCas, DOCUMENT_ID);
+		AnalysisEngine engine = AnalysisEngineFactory.createEngine(XmiLoaderAE.createAnalysisEngineDescription(tsd,
+				CcpDocumentMetadataHandler.class, XmiPathType.FILESYSTEM, XmiFileCompressionType.NONE,
+				Arrays.asList(infixes), inputDirectory.getAbsolutePath()));
+		engine.process(loadedJCas);
+		engine.destroy();
+		return loadedJCas;
+	}
+
+	private static List<TextAnnotation> getAnnotations(JCas cas, String type) {
+		return UIMA_Util.getAnnotationsFromCas(cas, type);
+	}
+
+	@Test
+	public void testBinaryRoundTrip() throws Exception {
+		addGeneAnnotationToJCas(0, 5, 1);
+		addGeneAnnotationToJCas(34, 39, 2);
+		File outputDirectory = folder.newFolder("output");
+		printCas(jcas, outputDirectory, "genes", CasSerializationFormat.BINARY);
+
+		File binaryFile = new File(outputDirectory, DOCUMENT_ID + "-genes" + XmiPrinterAE.BINARY_CAS_FILE_SUFFIX);
+		assertTrue(binaryFile.exists());
+		byte[] header = new byte[4];
+		try (InputStream is = new FileInputStream(binaryFile)) {
+			assertEquals(4, is.read(header));
+		}
+		assertEquals("UIMA", new String(header, "US-ASCII"));
+
+		JCas loadedJCas = loadCas(outputDirectory, "genes");
+		assertEquals(DOCUMENT_TEXT, loadedJCas.getDocumentText());
+		List<TextAnnotation> genes = getAnnotations(loadedJCas, ClassMentionType.GENE.typeName());
+		assertEquals(2, genes.size());
+		assertEquals("DEF-2", genes.get(1).getCoveredText());
+		assertEquals("2", genes.get(1).getClassMention().getPrimitiveSlotMentionByName(HAS_ENTREZ_GENE_ID_SLOT_NAME)
+				.getSingleSlotValue());
+		loadedJCas.release();
+	}
+
+	@Test
+	public void testLoadMixedFormats() throws Exception {
+		File outputDirectory = folder.newFolder("output");
+		addSentenceAnnotationToJCas(0, DOCUMENT_TEXT.length());
+		printCas(jcas, outputDirectory, "sentences", CasSerializationFormat.XMI);
+
+		JCas geneJCas = JCasFactory.createJCas(tsd);
+		geneJCas.setDocumentText(DOCUMENT_TEXT);
+		UIMA_Util.setDocumentID(geneJCas, DOCUMENT_ID);
+		jcas.release();
+		jcas = geneJCas;
+		addGeneAnnotationToJCas(0, 5, 1);
+		printCas(geneJCas, outputDirectory, "genes", CasSerializationFormat.BINARY);
+
+		JCas loadedJCas = loadCas(outputDirectory, "sentences", "genes");
+		assertEquals(1, getAnnotations(loadedJCas, ClassMentionType.SENTENCE.typeName()).size());
+		assertEquals(1, getAnnotations(loadedJCas, ClassMentionType.GENE.typeName()).size());
+		loadedJCas.release();
+	}
+
+	@Test
+	public void testPrefetchedLoad() throws Exception {
+		addGeneAnnotationToJCas(0, 5, 1);
+		File outputDirectory = folder.newFolder("output");
+		printCas(jcas, outputDirectory, "genes", CasSerializationFormat.XMI);
+		addSentenceAnnotationToJCas(0, DOCUMENT_TEXT.length());
+		printCas(jcas, outputDirectory, "sentences", CasSerializationFormat.BINARY);
+
+		/*
+		 * the first document ID is never requested so its prefetched files are discarded. The
+		 * loader is instantiated directly so that use of the prefetched files can be checked.
+		 */
+		AnalysisEngineDescription description = XmiLoaderAE.createAnalysisEngineDescription(tsd,
+				CcpDocumentMetadataHandler.class, XmiPathType.FILESYSTEM, XmiFileCompressionType.NONE,
+				Arrays.asList("genes", "sentences"), Arrays.asList("00000", DOCUMENT_ID), 2, 1,
+				outputDirectory.getAbsolutePath());
+		List<Object> configurationData = new ArrayList<Object>();
+		for (NameValuePair nvp : description.getAnalysisEngineMetaData().getConfigurationParameterSettings()
+				.getParameterSettings()) {
+			configurationData.add(nvp.getName());
+			configurationData.add(nvp.getValue());
+		}
+		XmiLoaderAE loader = new XmiLoaderAE();
+		loader.initialize(UimaContextFactory.createUimaContext(configurationData.toArray()));
+		JCas loadedJCas = JCasFactory.createJCas(tsd);
+		loadedJCas.setDocumentText(DOCUMENT_TEXT);
+		UIMA_Util.setDocumentID(loadedJCas, DOCUMENT_ID);
+		loader.process(loadedJCas);
+		assertEquals(1, loader.getPrefetchedDocumentCount());
+		loader.destroy();
+
+		assertEquals(1, getAnnotations(loadedJCas, ClassMentionType.SENTENCE.typeName()).size());
+		assertEquals(2, getAnnotations(loadedJCas, ClassMentionType.GENE.typeName()).size());
+		loadedJCas.release();
+	}
+
+	@Test
+	public void testBinaryFileIsSmallerThanXmi() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			addGeneAnnotationToJCas(0, 5, i);
+		}
+		File outputDirectory = folder.newFolder("output");
+		printCas(jcas, outputDirectory, null, CasSerializationFormat.XMI);
+		printCas(jcas, outputDirectory, null, CasSerializationFormat.BINARY);
+
+		File xmiFile = new File(outputDirectory, DOCUMENT_ID + XmiPrinterAE.XMI_FILE_SUFFIX);
+		File binaryFile = new File(outputDirectory, DOCUMENT_ID + XmiPrinterAE.BINARY_CAS_FILE_SUFFIX);
+		assertTrue(binaryFile.length() < xmiFile.length() / 4);
+	}
+
+}
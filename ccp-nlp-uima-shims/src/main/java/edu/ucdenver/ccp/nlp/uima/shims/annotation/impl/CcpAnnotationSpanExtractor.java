@@ -34,12 +34,14 @@ package edu.ucdenver.ccp.nlp.uima.shims.annotation.impl;
  */
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.uima.cas.CAS;
 import org.apache.uima.jcas.cas.FSArray;
 import org.apache.uima.jcas.tcas.Annotation;
 
-import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPSpan;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
 import edu.ucdenver.ccp.uima.shims.annotation.AnnotationSpanExtractor;
@@ -47,12 +49,23 @@ import edu.ucdenver.ccp.uima.shims.annotation.Span;
 
 /**
  * Implementation of {@link AnnotationSpanExtractor} for use with the CCP type system
+ * <p>
+ * Span offsets are read from the {@link CCPSpan} {@link FSArray} once per annotation and cached
+ * (keyed on annotation identity) until a different CAS, or a CAS with new document text, is
+ * encountered. A cached entry is discarded if the annotation's begin/end offsets or its span
+ * array have been replaced since it was cached. This class is not thread-safe.
  * 
  * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
  * 
  */
 public class CcpAnnotationSpanExtractor implements AnnotationSpanExtractor {
 
+	private static final String SPAN_TEXT_DELIMITER = " .. ";
+
+	private final Map<Annotation, CachedSpans> spanCache = new IdentityHashMap<Annotation, CachedSpans>();
+	private CAS cachedCas;
+	private String cachedDocumentText;
+
 	/**
 	 * @see AnnotationSpanExtractor#getAnnotationSpans(org.apache.uima.jcas.tcas.Annotation)
 	 * @throws IllegalArgumentException
@@ -60,21 +73,43 @@ public class CcpAnnotationSpanExtractor implements AnnotationSpanExtractor {
 	 */
 	@Override
 	public List<Span> getAnnotationSpans(Annotation annotation) {
+		/* a new list is returned each time as callers are free to sort or modify it */
+		int[] offsets = getAnnotationSpanOffsets(annotation);
+		List<Span> spans = new ArrayList<Span>(offsets.length / 2);
+		for (int i = 0; i < offsets.length; i += 2) {
+			spans.add(new Span(offsets[i], offsets[i + 1]));
+		}
+		return spans;
+	}
+
+	/**
+	 * @see AnnotationSpanExtractor#getAnnotationSpanOffsets(org.apache.uima.jcas.tcas.Annotation)
+	 * @throws IllegalArgumentException
+	 *             if the input {@link Annotation} is not an instance of {@link CCPTextAnnotation}
+	 */
+	@Override
+	public int[] getAnnotationSpanOffsets(Annotation annotation) {
 		if (annotation instanceof CCPTextAnnotation) {
 			CCPTextAnnotation ccpTa = (CCPTextAnnotation) annotation;
-			List<Span> spans = new ArrayList<Span>();
+			validateCache(ccpTa.getCAS());
 			FSArray ccpSpans = ccpTa.getSpans();
+			CachedSpans cached = spanCache.get(ccpTa);
+			if (cached != null && cached.isCurrent(ccpTa, ccpSpans)) {
+				return cached.offsets;
+			}
+			int[] offsets;
 			if (ccpSpans.size() == 0) {
-				Span span = new Span(ccpTa.getBegin(), ccpTa.getEnd());
-				spans.add(span);
+				offsets = new int[] { ccpTa.getBegin(), ccpTa.getEnd() };
 			} else {
+				offsets = new int[ccpSpans.size() * 2];
 				for (int i = 0; i < ccpSpans.size(); i++) {
 					CCPSpan ccpSpan = (CCPSpan) ccpSpans.get(i);
-					Span span = new Span(ccpSpan.getSpanStart(), ccpSpan.getSpanEnd());
-					spans.add(span);
+					offsets[i * 2] = ccpSpan.getSpanStart();
+					offsets[i * 2 + 1] = ccpSpan.getSpanEnd();
 				}
 			}
-			return spans;
+			spanCache.put(ccpTa, new CachedSpans(ccpTa.getBegin(), ccpTa.getEnd(), ccpSpans, offsets));
+			return offsets;
 		}
 		throw new IllegalArgumentException("Cannot return spans for a non-CCPTextAnnotation annotation: "
 				+ annotation.getClass().getName() + " --" + annotation.getCoveredText() + " -- "
@@ -86,16 +121,49 @@ public class CcpAnnotationSpanExtractor implements AnnotationSpanExtractor {
 	 */
 	@Override
 	public String getCoveredText(Annotation annotation) {
-		List<Span> spans = getAnnotationSpans(annotation);
+		int[] offsets = getAnnotationSpanOffsets(annotation);
 		String coveredText = annotation.getCoveredText();
+		int minSpanOffset = offsets[0];
+		StringBuilder sb = new StringBuilder(coveredText.length() + offsets.length * 2);
+		for (int i = 0; i < offsets.length; i += 2) {
+			if (i > 0) {
+				sb.append(SPAN_TEXT_DELIMITER);
+			}
+			sb.append(coveredText, offsets[i] - minSpanOffset, offsets[i + 1] - minSpanOffset);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Clears the span cache if the input CAS differs from the one the cache was populated from.
+	 * A CAS that has been reset and reused for a new document is detected by a change in its
+	 * document text instance.
+	 */
+	private void validateCache(CAS cas) {
+		String documentText = cas.getDocumentText();
+		if (cas != cachedCas || documentText != cachedDocumentText) {
+			spanCache.clear();
+			cachedCas = cas;
+			cachedDocumentText = documentText;
+		}
+	}
+
+	private static class CachedSpans {
+		private final int begin;
+		private final int end;
+		private final FSArray ccpSpans;
+		private final int[] offsets;
+
+		public CachedSpans(int begin, int end, FSArray ccpSpans, int[] offsets) {
+			this.begin = begin;
+			this.end = end;
+			this.ccpSpans = ccpSpans;
+			this.offsets = offsets;
+		}
 
-		List<String> spanTexts = new ArrayList<String>();
-		int minSpanOffset = spans.get(0).getSpanStart();
-		for (Span span : spans) {
-			spanTexts
-					.add(coveredText.substring(span.getSpanStart() - minSpanOffset, span.getSpanEnd() - minSpanOffset));
+		public boolean isCurrent(CCPTextAnnotation annotation, FSArray currentSpans) {
+			return begin == annotation.getBegin() && end == annotation.getEnd() && ccpSpans == currentSpans;
 		}
-		return CollectionsUtil.createDelimitedString(spanTexts, " .. ");
 	}
 
 }
@@ -40,12 +40,11 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 
 import edu.ucdenver.ccp.nlp.core.mention.ClassMentionType;
-import edu.ucdenver.ccp.nlp.core.mention.PrimitiveSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.SlotMentionType;
 import edu.ucdenver.ccp.nlp.core.mention.StringSlotMention;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
 import edu.ucdenver.ccp.nlp.uima.annotation.impl.WrappedCCPTextAnnotation;
-import edu.ucdenver.ccp.nlp.uima.mention.impl.CCPPrimitiveSlotMentionFactory;
+import edu.ucdenver.ccp.nlp.uima.util.SlotMentionBuilder;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Annotation_Util;
 import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
 import edu.ucdenver.ccp.uima.shims.annotation.Span;
@@ -84,16 +83,8 @@ public class CcpLemmaDecorator implements LemmaDecorator {
 	@Override
 	public void insertLemma(Annotation annotation, Lemma lemma) {
 		checkAnnotationType(annotation);
-		WrappedCCPTextAnnotation wrappedCcpTa = new WrappedCCPTextAnnotation((CCPTextAnnotation) annotation);
-		StringSlotMention lemmaSlot = (StringSlotMention) wrappedCcpTa.getClassMention().getPrimitiveSlotMentionByName(
-				SlotMentionType.TOKEN_LEMMA.typeName());
-		if (lemmaSlot == null) {
-			PrimitiveSlotMention<?> psm = wrappedCcpTa.getClassMention().createPrimitiveSlotMention(SlotMentionType.TOKEN_LEMMA.typeName(),
-					lemma.serializeToString());
-			wrappedCcpTa.getClassMention().addPrimitiveSlotMention(psm);
-		} else {
-			lemmaSlot.addSlotValue(lemma.serializeToString());
-		}
+		new SlotMentionBuilder(((CCPTextAnnotation) annotation).getClassMention()).addSlotValue(
+				SlotMentionType.TOKEN_LEMMA.typeName(), lemma.serializeToString()).commit();
 	}
 
 	/**
@@ -40,11 +40,11 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 
 import edu.ucdenver.ccp.nlp.core.mention.ClassMentionType;
-import edu.ucdenver.ccp.nlp.core.mention.PrimitiveSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.SlotMentionType;
 import edu.ucdenver.ccp.nlp.core.mention.StringSlotMention;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
 import edu.ucdenver.ccp.nlp.uima.annotation.impl.WrappedCCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.util.SlotMentionBuilder;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Annotation_Util;
 import edu.ucdenver.ccp.uima.shims.annotation.AnnotationDataExtractor;
 import edu.ucdenver.ccp.uima.shims.annotation.Span;
@@ -84,16 +84,8 @@ public class CcpPartOfSpeechDecorator implements PartOfSpeechDecorator {
 	@Override
 	public void insertPartOfSpeech(Annotation annotation, PartOfSpeech pos) {
 		checkAnnotationType(annotation);
-		WrappedCCPTextAnnotation wrappedCcpTa = new WrappedCCPTextAnnotation((CCPTextAnnotation) annotation);
-		StringSlotMention posSlot = (StringSlotMention) wrappedCcpTa.getClassMention().getPrimitiveSlotMentionByName(
-				SlotMentionType.TOKEN_PARTOFSPEECH.typeName());
-		if (posSlot != null) {
-			posSlot.addSlotValue(pos.serializeToString());
-		} else {
-			PrimitiveSlotMention<?> psm = wrappedCcpTa.getClassMention().createPrimitiveSlotMention(SlotMentionType.TOKEN_PARTOFSPEECH.typeName(),
-					pos.serializeToString());
-			wrappedCcpTa.getClassMention().addPrimitiveSlotMention(psm);
-		}
+		new SlotMentionBuilder(((CCPTextAnnotation) annotation).getClassMention()).addSlotValue(
+				SlotMentionType.TOKEN_PARTOFSPEECH.typeName(), pos.serializeToString()).commit();
 	}
 
 	/**
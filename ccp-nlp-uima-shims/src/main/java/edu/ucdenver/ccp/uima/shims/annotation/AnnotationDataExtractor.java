@@ -126,4 +126,12 @@ public abstract class AnnotationDataExtractor implements AnnotationTypeExtractor
 		return spanExtractor.getCoveredText(annotation);
 	}
 
+	/**
+	 * @see edu.ucdenver.ccp.uima.shims.annotation.AnnotationSpanExtractor#getAnnotationSpanOffsets(org.apache.uima.jcas.tcas.Annotation)
+	 */
+	@Override
+	public int[] getAnnotationSpanOffsets(Annotation annotation) {
+		return spanExtractor.getAnnotationSpanOffsets(annotation);
+	}
+
 }
@@ -94,4 +94,25 @@ public interface AnnotationSpanExtractor {
 	 * @return a {@link String} representation of the text that is covered by the input annotation
 	 */
 	public String getCoveredText(Annotation annotation);
+
+	/**
+	 * Returns the spans of the input {@link Annotation} as a flat array of offsets, i.e.
+	 * <code>[start0, end0, start1, end1, ...]</code>. Implementations may return a cached array,
+	 * so callers must not modify it. The default implementation builds the array from
+	 * {@link #getAnnotationSpans(Annotation)}.
+	 * 
+	 * @param annotation
+	 *            the {@link Annotation} whose span offsets will be returned
+	 * @return the span offsets associated with the input {@link Annotation}
+	 */
+	public default int[] getAnnotationSpanOffsets(Annotation annotation) {
+		List<Span> spans = getAnnotationSpans(annotation);
+		int[] offsets = new int[spans.size() * 2];
+		int i = 0;
+		for (Span span : spans) {
+			offsets[i++] = span.getSpanStart();
+			offsets[i++] = span.getSpanEnd();
+		}
+		return offsets;
+	}
 }
@@ -99,4 +99,12 @@ public class DefaultAnnotationSpanExtractor implements AnnotationSpanExtractor {
 		return annotation.getCoveredText();
 	}
 
+	/**
+	 * @see edu.ucdenver.ccp.uima.shims.annotation.AnnotationSpanExtractor#getAnnotationSpanOffsets(org.apache.uima.jcas.tcas.Annotation)
+	 */
+	@Override
+	public int[] getAnnotationSpanOffsets(Annotation annotation) {
+		return new int[] { annotation.getBegin(), annotation.getEnd() };
+	}
+
 }
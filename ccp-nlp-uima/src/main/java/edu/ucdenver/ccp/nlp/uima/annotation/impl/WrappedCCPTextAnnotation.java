@@ -53,6 +53,7 @@ import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
 import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
 import edu.ucdenver.ccp.nlp.uima.mention.impl.WrappedCCPClassMention;
+import edu.ucdenver.ccp.nlp.uima.util.CasModificationStamp;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Annotation_Util;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
@@ -94,6 +95,24 @@ public class WrappedCCPTextAnnotation extends TextAnnotation {
 		return wrappedCCPTextAnnotation;
 	}
 
+	/*
+	 * several wrappers may share the same feature structures, so modifications
+	 * are recorded against the CAS view rather than against this wrapper
+	 */
+	@Override
+	protected void markModified() {
+		CasModificationStamp.markModified(jcas);
+	}
+
+	/*
+	 * the spans and mentions are read from the CAS, so the modification stamp
+	 * of the CAS view covers them
+	 */
+	@Override
+	public long getModificationStamp() {
+		return CasModificationStamp.getModificationStamp(jcas);
+	}
+
 	@Override
 	public void addAnnotationSet(AnnotationSet annotationSet) {
 		CCPAnnotationSet ccpAnnotationSet = new CCPAnnotationSet(jcas);
@@ -103,6 +122,7 @@ public class WrappedCCPTextAnnotation extends TextAnnotation {
 
 	@Override
 	public void addSpan(Span span) {
+		markModified();
 		UIMA_Annotation_Util.addSpan(wrappedCCPTextAnnotation, span, jcas);
 		UIMA_Annotation_Util.sortSpanList(wrappedCCPTextAnnotation);
 	}
@@ -141,6 +161,7 @@ public class WrappedCCPTextAnnotation extends TextAnnotation {
 
 	@Override
 	public void setClassMention(ClassMention classMention) throws InvalidInputException {
+		markModified();
 		if (classMention.getWrappedObject() instanceof CCPClassMention) {
 			CCPClassMention ccpCM = (CCPClassMention) classMention.getWrappedObject();
 			wrappedCCPTextAnnotation.setClassMention(ccpCM);
@@ -183,6 +204,7 @@ public class WrappedCCPTextAnnotation extends TextAnnotation {
 
 	@Override
 	public void offsetAnnotationSpans(int offset) {
+		markModified();
 		try {
 			UIMA_Annotation_Util.offsetSpans(wrappedCCPTextAnnotation, offset);
 		} catch (KnowledgeRepresentationWrapperException e) {
@@ -205,6 +227,7 @@ public class WrappedCCPTextAnnotation extends TextAnnotation {
 
 	@Override
 	public void setAnnotationSpanEnd(int spanEnd) {
+		markModified();
 		try {
 			UIMA_Annotation_Util.setAggregateSpanEnd(wrappedCCPTextAnnotation, spanEnd, jcas);
 		} catch (KnowledgeRepresentationWrapperException e) {
@@ -216,6 +239,7 @@ public class WrappedCCPTextAnnotation extends TextAnnotation {
 
 	@Override
 	public void setAnnotationSpanStart(int spanStart) {
+		markModified();
 		try {
 			UIMA_Annotation_Util.setAggregateSpanStart(wrappedCCPTextAnnotation, spanStart, jcas);
 		} catch (KnowledgeRepresentationWrapperException e) {
@@ -238,6 +262,7 @@ public class WrappedCCPTextAnnotation extends TextAnnotation {
 
 	@Override
 	public void setDocumentCollectionID(int documentCollectionID) {
+		markModified();
 		// the document collection ID is stored in the JCas (CCPDocumentInformation), not the
 		// annotation, so we don't
 		// need to do anything here
@@ -245,6 +270,7 @@ public class WrappedCCPTextAnnotation extends TextAnnotation {
 
 	@Override
 	public void setDocumentID(String documentID) {
+		markModified();
 		// the document ID is stored in the JCas (CCPDocumentInformation), not the annotation, so we
 		// don't
 		// need to do anything here
@@ -257,12 +283,14 @@ public class WrappedCCPTextAnnotation extends TextAnnotation {
 
 	@Override
 	public void setSpan(Span span) {
+		markModified();
 		wrappedCCPTextAnnotation.setSpans(null);
 		addSpan(span);
 	}
 
 	@Override
 	public void setSpans(List<Span> spans) {
+		markModified();
 		wrappedCCPTextAnnotation.setSpans(null);
 		for (Span span : spans) {
 			addSpan(span);
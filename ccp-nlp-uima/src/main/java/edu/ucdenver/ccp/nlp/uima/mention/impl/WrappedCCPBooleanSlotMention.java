@@ -37,10 +37,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import org.apache.uima.cas.CASException;
+import org.apache.uima.jcas.JCas;
+
 import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperException;
 import edu.ucdenver.ccp.nlp.core.mention.BooleanSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.InvalidInputException;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPBooleanSlotMention;
+import edu.ucdenver.ccp.nlp.uima.util.CasModificationStamp;
 
 /**
  * Wrapper class for the {@link CCPBooleanSlotMention} that complies with the
@@ -52,6 +56,7 @@ import edu.ucdenver.ccp.nlp.core.uima.mention.CCPBooleanSlotMention;
 public class WrappedCCPBooleanSlotMention extends BooleanSlotMention {
 
 	private CCPBooleanSlotMention wrappedSM;
+	private JCas jcas;
 
 	public WrappedCCPBooleanSlotMention(CCPBooleanSlotMention ccpSSM) {
 		super(ccpSSM);
@@ -62,6 +67,22 @@ public class WrappedCCPBooleanSlotMention extends BooleanSlotMention {
 		return wrappedSM;
 	}
 
+	/*
+	 * several wrappers may share the same feature structures, so modifications
+	 * are recorded against the CAS view; they are also propagated to any
+	 * non-CAS mention this wrapper has been added to
+	 */
+	@Override
+	protected void markModified() {
+		CasModificationStamp.markModified(jcas);
+		super.markModified();
+	}
+
+	@Override
+	public long getModificationStamp() {
+		return CasModificationStamp.getModificationStamp(jcas);
+	}
+
 	@Override
 	public String getStringRepresentation(int indentLevel, boolean showReferencingAnnotationInfo) {
 		List<Boolean> sortedSlotValues = new ArrayList<Boolean>();
@@ -75,7 +96,11 @@ public class WrappedCCPBooleanSlotMention extends BooleanSlotMention {
 			Object wrappedObject = wrappedObjectPlusGlobalVars[0];
 			if (wrappedObject instanceof CCPBooleanSlotMention) {
 				wrappedSM = (CCPBooleanSlotMention) wrappedObject;
-				// jcas = wrappedSpM.getCAS().getJCas();
+				try {
+					jcas = wrappedSM.getCAS().getJCas();
+				} catch (CASException e) {
+					throw new RuntimeException(e);
+				}
 			} else {
 				throw new KnowledgeRepresentationWrapperException(
 						"Expected CCPNonComplexSlotMention. Cannot wrap class " + wrappedObject.getClass().getName()
@@ -95,6 +120,7 @@ public class WrappedCCPBooleanSlotMention extends BooleanSlotMention {
 	}
 
 	public void overwriteSlotValues(Boolean slotValue) throws InvalidInputException {
+		markModified();
 		wrappedSM.setSlotValue(slotValue);
 	}
 
@@ -115,6 +141,7 @@ public class WrappedCCPBooleanSlotMention extends BooleanSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		wrappedSM.setMentionName(mentionName);
 	}
 
@@ -54,6 +54,7 @@ import edu.ucdenver.ccp.nlp.core.uima.mention.CCPComplexSlotMention;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPPrimitiveSlotMention;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPSlotMention;
 import edu.ucdenver.ccp.nlp.uima.annotation.impl.WrappedCCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.util.CasModificationStamp;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -79,6 +80,22 @@ public class WrappedCCPClassMention extends ClassMention {
 		return wrappedCM;
 	}
 
+	/*
+	 * several wrappers may share the same feature structures, so modifications
+	 * are recorded against the CAS view; they are also propagated to any
+	 * non-CAS mention this wrapper has been added to
+	 */
+	@Override
+	protected void markModified() {
+		CasModificationStamp.markModified(jcas);
+		super.markModified();
+	}
+
+	@Override
+	public long getModificationStamp() {
+		return CasModificationStamp.getModificationStamp(jcas);
+	}
+
 	@Override
 	protected void initializeFromWrappedMention(Object... wrappedObjectPlustGlobalVars) {
 		if (wrappedObjectPlustGlobalVars[0] instanceof CCPClassMention) {
@@ -95,6 +112,7 @@ public class WrappedCCPClassMention extends ClassMention {
 	}
 
 	public void addComplexSlotMention(ComplexSlotMention csm) {
+		markModified();
 		if (csm.getWrappedObject() instanceof CCPComplexSlotMention) {
 			CCPComplexSlotMention ccpCSM = (CCPComplexSlotMention) csm.getWrappedObject();
 			FSArray slotMentions = wrappedCM.getSlotMentions();
@@ -108,6 +126,7 @@ public class WrappedCCPClassMention extends ClassMention {
 	}
 
 	public void addPrimitiveSlotMention(PrimitiveSlotMention sm) {
+		markModified();
 		if (sm.getWrappedObject() instanceof CCPPrimitiveSlotMention) {
 			CCPPrimitiveSlotMention ccpNCSM = (CCPPrimitiveSlotMention) sm.getWrappedObject();
 			FSArray slotMentions = wrappedCM.getSlotMentions();
@@ -209,6 +228,7 @@ public class WrappedCCPClassMention extends ClassMention {
 	}
 
 	public void setComplexSlotMentions(Collection<ComplexSlotMention> complexSlotMentions) {
+		markModified();
 		List<CCPSlotMention> csmList = new ArrayList<CCPSlotMention>();
 		for (ComplexSlotMention csm : complexSlotMentions) {
 			if (csm.getWrappedObject() instanceof CCPComplexSlotMention) {
@@ -223,6 +243,7 @@ public class WrappedCCPClassMention extends ClassMention {
 	}
 
 	public void setPrimitiveSlotMentions(Collection<PrimitiveSlotMention> primitiveSlotMentions) {
+		markModified();
 		List<CCPSlotMention> psmList = new ArrayList<CCPSlotMention>();
 		for (PrimitiveSlotMention psm : primitiveSlotMentions) {
 			if (psm.getWrappedObject() instanceof CCPPrimitiveSlotMention) {
@@ -237,6 +258,7 @@ public class WrappedCCPClassMention extends ClassMention {
 	}
 
 	public void setTextAnnotation(TextAnnotation textAnnotation) throws InvalidInputException {
+		markModified();
 		if (textAnnotation.getWrappedObject() instanceof CCPTextAnnotation) {
 			CCPTextAnnotation ccpTA = (CCPTextAnnotation) textAnnotation.getWrappedObject();
 			wrappedCM.setCcpTextAnnotation(ccpTA);
@@ -265,6 +287,7 @@ public class WrappedCCPClassMention extends ClassMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		wrappedCM.setMentionName(mentionName);
 	}
 
@@ -47,6 +47,7 @@ import edu.ucdenver.ccp.nlp.core.mention.ComplexSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.InvalidInputException;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPComplexSlotMention;
+import edu.ucdenver.ccp.nlp.uima.util.CasModificationStamp;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -77,6 +78,22 @@ public class WrappedCCPComplexSlotMention extends ComplexSlotMention {
 		return wrappedCSM;
 	}
 
+	/*
+	 * several wrappers may share the same feature structures, so modifications
+	 * are recorded against the CAS view; they are also propagated to any
+	 * non-CAS mention this wrapper has been added to
+	 */
+	@Override
+	protected void markModified() {
+		CasModificationStamp.markModified(jcas);
+		super.markModified();
+	}
+
+	@Override
+	public long getModificationStamp() {
+		return CasModificationStamp.getModificationStamp(jcas);
+	}
+
 	@Override
 	protected void initializeFromWrappedMention(Object... wrappedObjectPlusGlobalVars) {
 		if (wrappedObjectPlusGlobalVars.length == 1) {
@@ -100,6 +117,7 @@ public class WrappedCCPComplexSlotMention extends ComplexSlotMention {
 	}
 
 	public void addSlotValue(ClassMention slotValue) throws InvalidInputException {
+		markModified();
 		Object wrappedClassMention = slotValue.getWrappedObject();
 		if (wrappedClassMention instanceof CCPClassMention) {
 			CCPClassMention ccpCM = (CCPClassMention) wrappedClassMention;
@@ -113,9 +131,18 @@ public class WrappedCCPComplexSlotMention extends ComplexSlotMention {
 	}
 
 	public void addSlotValues(Collection<ClassMention> slotValues) throws InvalidInputException {
+		markModified();
+		List<CCPClassMention> ccpCMs = new ArrayList<CCPClassMention>(slotValues.size());
 		for (ClassMention cm : slotValues) {
-			addSlotValue(cm);
+			if (cm.getWrappedObject() instanceof CCPClassMention) {
+				ccpCMs.add((CCPClassMention) cm.getWrappedObject());
+			} else {
+				throw new InvalidInputException("Expected CCPClassMention. Cannot add class"
+						+ cm.getWrappedObject().getClass().getName()
+						+ " to the ClassMentions list of a CCPComplexSlotMention");
+			}
 		}
+		wrappedCSM.setClassMentions(UIMA_Util.addToFSArray(wrappedCSM.getClassMentions(), ccpCMs, jcas));
 	}
 
 	public Collection<ClassMention> getSlotValues() {
@@ -131,6 +158,7 @@ public class WrappedCCPComplexSlotMention extends ComplexSlotMention {
 	}
 
 	public void overwriteSlotValues(ClassMention slotValue) throws InvalidInputException {
+		markModified();
 		Object wrappedClassMention = slotValue.getWrappedObject();
 		if (wrappedClassMention instanceof CCPClassMention) {
 			CCPClassMention ccpCM = (CCPClassMention) wrappedClassMention;
@@ -145,6 +173,7 @@ public class WrappedCCPComplexSlotMention extends ComplexSlotMention {
 	}
 
 	public void setSlotValues(Collection<ClassMention> slotValues) throws InvalidInputException {
+		markModified();
 		List<CCPClassMention> updatedClassMentions = new ArrayList<CCPClassMention>();
 		for (ClassMention cm : slotValues) {
 			Object wrappedClassMention = cm.getWrappedObject();
@@ -182,6 +211,7 @@ public class WrappedCCPComplexSlotMention extends ComplexSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		wrappedCSM.setMentionName(mentionName);
 	}
 
@@ -45,6 +45,7 @@ import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperE
 import edu.ucdenver.ccp.nlp.core.mention.DoubleSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.InvalidInputException;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPDoubleSlotMention;
+import edu.ucdenver.ccp.nlp.uima.util.CasModificationStamp;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -68,6 +69,22 @@ public class WrappedCCPDoubleSlotMention extends DoubleSlotMention {
 		return wrappedSM;
 	}
 
+	/*
+	 * several wrappers may share the same feature structures, so modifications
+	 * are recorded against the CAS view; they are also propagated to any
+	 * non-CAS mention this wrapper has been added to
+	 */
+	@Override
+	protected void markModified() {
+		CasModificationStamp.markModified(jcas);
+		super.markModified();
+	}
+
+	@Override
+	public long getModificationStamp() {
+		return CasModificationStamp.getModificationStamp(jcas);
+	}
+
 	@Override
 	protected void initializeFromWrappedMention(Object... wrappedObjectPlusGlobalVars) {
 		if (wrappedObjectPlusGlobalVars.length == 1) {
@@ -92,14 +109,14 @@ public class WrappedCCPDoubleSlotMention extends DoubleSlotMention {
 	}
 
 	public void addSlotValue(Double slotValue) throws InvalidInputException {
+		markModified();
 		DoubleArray updatedDoubleArray = UIMA_Util.addToDoubleArray(wrappedSM.getSlotValues(), slotValue, jcas);
 		wrappedSM.setSlotValues(updatedDoubleArray);
 	}
 
 	public void addSlotValues(Collection<Double> slotValues) throws InvalidInputException {
-		for (Double floatToAdd : slotValues) {
-			addSlotValue(floatToAdd);
-		}
+		markModified();
+		wrappedSM.setSlotValues(UIMA_Util.addToDoubleArray(wrappedSM.getSlotValues(), slotValues, jcas));
 	}
 
 	public Collection<Double> getSlotValues() {
@@ -112,12 +129,14 @@ public class WrappedCCPDoubleSlotMention extends DoubleSlotMention {
 	}
 
 	public void overwriteSlotValues(Double slotValue) throws InvalidInputException {
+		markModified();
 		DoubleArray floatArray = new DoubleArray(jcas, 1);
 		floatArray.set(0, slotValue);
 		wrappedSM.setSlotValues(floatArray);
 	}
 
 	public void setSlotValues(Collection<Double> slotValues) throws InvalidInputException {
+		markModified();
 		List<Double> slotValuesList = new ArrayList<Double>(slotValues);
 		DoubleArray floatArray = new DoubleArray(jcas, slotValues.size());
 		for (int i = 0; i < slotValues.size(); i++) {
@@ -143,6 +162,7 @@ public class WrappedCCPDoubleSlotMention extends DoubleSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		wrappedSM.setMentionName(mentionName);
 	}
 
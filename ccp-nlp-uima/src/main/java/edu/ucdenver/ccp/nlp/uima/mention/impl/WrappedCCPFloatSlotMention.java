@@ -45,6 +45,7 @@ import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperE
 import edu.ucdenver.ccp.nlp.core.mention.FloatSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.InvalidInputException;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPFloatSlotMention;
+import edu.ucdenver.ccp.nlp.uima.util.CasModificationStamp;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -68,6 +69,22 @@ public class WrappedCCPFloatSlotMention extends FloatSlotMention {
 		return wrappedSM;
 	}
 
+	/*
+	 * several wrappers may share the same feature structures, so modifications
+	 * are recorded against the CAS view; they are also propagated to any
+	 * non-CAS mention this wrapper has been added to
+	 */
+	@Override
+	protected void markModified() {
+		CasModificationStamp.markModified(jcas);
+		super.markModified();
+	}
+
+	@Override
+	public long getModificationStamp() {
+		return CasModificationStamp.getModificationStamp(jcas);
+	}
+
 	@Override
 	protected void initializeFromWrappedMention(Object... wrappedObjectPlusGlobalVars) {
 		if (wrappedObjectPlusGlobalVars.length == 1) {
@@ -92,14 +109,14 @@ public class WrappedCCPFloatSlotMention extends FloatSlotMention {
 	}
 
 	public void addSlotValue(Float slotValue) throws InvalidInputException {
+		markModified();
 		FloatArray updatedFloatArray = UIMA_Util.addToFloatArray(wrappedSM.getSlotValues(), slotValue, jcas);
 		wrappedSM.setSlotValues(updatedFloatArray);
 	}
 
 	public void addSlotValues(Collection<Float> slotValues) throws InvalidInputException {
-		for (Float floatToAdd : slotValues) {
-			addSlotValue(floatToAdd);
-		}
+		markModified();
+		wrappedSM.setSlotValues(UIMA_Util.addToFloatArray(wrappedSM.getSlotValues(), slotValues, jcas));
 	}
 
 	public Collection<Float> getSlotValues() {
@@ -112,12 +129,14 @@ public class WrappedCCPFloatSlotMention extends FloatSlotMention {
 	}
 
 	public void overwriteSlotValues(Float slotValue) throws InvalidInputException {
+		markModified();
 		FloatArray floatArray = new FloatArray(jcas, 1);
 		floatArray.set(0, slotValue);
 		wrappedSM.setSlotValues(floatArray);
 	}
 
 	public void setSlotValues(Collection<Float> slotValues) throws InvalidInputException {
+		markModified();
 		List<Float> slotValuesList = new ArrayList<Float>(slotValues);
 		FloatArray floatArray = new FloatArray(jcas, slotValues.size());
 		for (int i = 0; i < slotValues.size(); i++) {
@@ -143,6 +162,7 @@ public class WrappedCCPFloatSlotMention extends FloatSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		wrappedSM.setMentionName(mentionName);
 	}
 
@@ -45,6 +45,7 @@ import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperE
 import edu.ucdenver.ccp.nlp.core.mention.IntegerSlotMention;
 import edu.ucdenver.ccp.nlp.core.mention.InvalidInputException;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPIntegerSlotMention;
+import edu.ucdenver.ccp.nlp.uima.util.CasModificationStamp;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -68,6 +69,22 @@ public class WrappedCCPIntegerSlotMention extends IntegerSlotMention {
 		return wrappedSM;
 	}
 
+	/*
+	 * several wrappers may share the same feature structures, so modifications
+	 * are recorded against the CAS view; they are also propagated to any
+	 * non-CAS mention this wrapper has been added to
+	 */
+	@Override
+	protected void markModified() {
+		CasModificationStamp.markModified(jcas);
+		super.markModified();
+	}
+
+	@Override
+	public long getModificationStamp() {
+		return CasModificationStamp.getModificationStamp(jcas);
+	}
+
 	@Override
 	protected void initializeFromWrappedMention(Object... wrappedObjectPlusGlobalVars) {
 		if (wrappedObjectPlusGlobalVars.length == 1) {
@@ -92,14 +109,14 @@ public class WrappedCCPIntegerSlotMention extends IntegerSlotMention {
 	}
 
 	public void addSlotValue(Integer slotValue) throws InvalidInputException {
+		markModified();
 		IntegerArray updatedIntegerArray = UIMA_Util.addToIntegerArray(wrappedSM.getSlotValues(), slotValue, jcas);
 		wrappedSM.setSlotValues(updatedIntegerArray);
 	}
 
 	public void addSlotValues(Collection<Integer> slotValues) throws InvalidInputException {
-		for (Integer integerToAdd : slotValues) {
-			addSlotValue(integerToAdd);
-		}
+		markModified();
+		wrappedSM.setSlotValues(UIMA_Util.addToIntegerArray(wrappedSM.getSlotValues(), slotValues, jcas));
 	}
 
 	public Collection<Integer> getSlotValues() {
@@ -112,12 +129,14 @@ public class WrappedCCPIntegerSlotMention extends IntegerSlotMention {
 	}
 
 	public void overwriteSlotValues(Integer slotValue) throws InvalidInputException {
+		markModified();
 		IntegerArray integerArray = new IntegerArray(jcas, 1);
 		integerArray.set(0, slotValue);
 		wrappedSM.setSlotValues(integerArray);
 	}
 
 	public void setSlotValues(Collection<Integer> slotValues) throws InvalidInputException {
+		markModified();
 		List<Integer> slotValuesList = new ArrayList<Integer>(slotValues);
 		IntegerArray integerArray = new IntegerArray(jcas, slotValues.size());
 		for (int i = 0; i < slotValues.size(); i++) {
@@ -143,6 +162,7 @@ public class WrappedCCPIntegerSlotMention extends IntegerSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		wrappedSM.setMentionName(mentionName);
 	}
 
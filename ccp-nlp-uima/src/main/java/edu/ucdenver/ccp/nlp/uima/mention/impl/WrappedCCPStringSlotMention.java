@@ -45,6 +45,7 @@ import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperE
 import edu.ucdenver.ccp.nlp.core.mention.InvalidInputException;
 import edu.ucdenver.ccp.nlp.core.mention.StringSlotMention;
 import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.util.CasModificationStamp;
 import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
 
 /**
@@ -68,6 +69,22 @@ public class WrappedCCPStringSlotMention extends StringSlotMention {
 		return wrappedSM;
 	}
 
+	/*
+	 * several wrappers may share the same feature structures, so modifications
+	 * are recorded against the CAS view; they are also propagated to any
+	 * non-CAS mention this wrapper has been added to
+	 */
+	@Override
+	protected void markModified() {
+		CasModificationStamp.markModified(jcas);
+		super.markModified();
+	}
+
+	@Override
+	public long getModificationStamp() {
+		return CasModificationStamp.getModificationStamp(jcas);
+	}
+
 	@Override
 	protected void initializeFromWrappedMention(Object... wrappedObjectPlusGlobalVars) {
 		if (wrappedObjectPlusGlobalVars.length == 1) {
@@ -92,14 +109,14 @@ public class WrappedCCPStringSlotMention extends StringSlotMention {
 	}
 
 	public void addSlotValue(String slotValue) throws InvalidInputException {
+		markModified();
 		StringArray updatedStringArray = UIMA_Util.addToStringArray(wrappedSM.getSlotValues(), slotValue, jcas);
 		wrappedSM.setSlotValues(updatedStringArray);
 	}
 
 	public void addSlotValues(Collection<String> slotValues) throws InvalidInputException {
-		for (String stringToAdd : slotValues) {
-			addSlotValue(stringToAdd);
-		}
+		markModified();
+		wrappedSM.setSlotValues(UIMA_Util.addToStringArray(wrappedSM.getSlotValues(), slotValues, jcas));
 	}
 
 	public Collection<String> getSlotValues() {
@@ -112,12 +129,14 @@ public class WrappedCCPStringSlotMention extends StringSlotMention {
 	}
 
 	public void overwriteSlotValues(String slotValue) throws InvalidInputException {
+		markModified();
 		StringArray stringArray = new StringArray(jcas, 1);
 		stringArray.set(0, slotValue);
 		wrappedSM.setSlotValues(stringArray);
 	}
 
 	public void setSlotValues(Collection<String> slotValues) throws InvalidInputException {
+		markModified();
 		List<String> slotValuesList = new ArrayList<String>(slotValues);
 		StringArray stringArray = new StringArray(jcas, slotValues.size());
 		for (int i = 0; i < slotValues.size(); i++) {
@@ -143,6 +162,7 @@ public class WrappedCCPStringSlotMention extends StringSlotMention {
 
 	@Override
 	public void setMentionName(String mentionName) {
+		markModified();
 		wrappedSM.setMentionName(mentionName);
 	}
 
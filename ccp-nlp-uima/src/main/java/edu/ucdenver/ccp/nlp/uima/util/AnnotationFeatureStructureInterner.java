@@ -0,0 +1,140 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+
+import edu.ucdenver.ccp.nlp.core.annotation.AnnotationSet;
+import edu.ucdenver.ccp.nlp.core.annotation.Annotator;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotationSet;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPAnnotator;
+
+/**
+ * Used when inserting a batch of annotations into a CAS so that annotations that share an
+ * {@link Annotator}, or an identical collection of {@link AnnotationSet}s, reference a single
+ * {@link CCPAnnotator} feature structure, or a single {@link FSArray} of {@link CCPAnnotationSet}s,
+ * instead of each allocating their own copies on the CAS heap. Feature structures are matched on
+ * their field values.
+ * <p>
+ * The shared feature structures must not be modified in place; the setters in {@link UIMA_Util}
+ * and {@link UIMA_Annotation_Util} replace, rather than modify, the annotator and annotation set
+ * array of an annotation. An instance is only valid for the CAS it was created with, until that CAS
+ * is reset.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+class AnnotationFeatureStructureInterner {
+
+	private final JCas jcas;
+	private final Map<List<Object>, CCPAnnotator> annotatorMap = new HashMap<List<Object>, CCPAnnotator>();
+	private final Map<List<Object>, CCPAnnotationSet> annotationSetMap = new HashMap<List<Object>, CCPAnnotationSet>();
+	private final Map<List<List<Object>>, FSArray> annotationSetArrayMap = new HashMap<List<List<Object>>, FSArray>();
+
+	AnnotationFeatureStructureInterner(JCas jcas) {
+		this.jcas = jcas;
+	}
+
+	/**
+	 * @param annotator
+	 * @return a {@link CCPAnnotator} populated from the specified {@link Annotator}
+	 */
+	CCPAnnotator getAnnotator(Annotator annotator) {
+		List<Object> key = getKey(annotator);
+		CCPAnnotator ccpAnnotator = annotatorMap.get(key);
+		if (ccpAnnotator == null) {
+			ccpAnnotator = new CCPAnnotator(jcas);
+			UIMA_Util.swapAnnotatorInfo(annotator, ccpAnnotator);
+			annotatorMap.put(key, ccpAnnotator);
+		}
+		return ccpAnnotator;
+	}
+
+	/**
+	 * @param annotationSets
+	 * @return an {@link FSArray} of {@link CCPAnnotationSet}s populated from the specified
+	 *         {@link AnnotationSet}s, in iteration order
+	 */
+	FSArray getAnnotationSets(Collection<AnnotationSet> annotationSets) {
+		List<List<Object>> key = new ArrayList<List<Object>>(annotationSets.size());
+		for (AnnotationSet annotationSet : annotationSets) {
+			key.add(getKey(annotationSet));
+		}
+		FSArray ccpAnnotationSets = annotationSetArrayMap.get(key);
+		if (ccpAnnotationSets == null) {
+			ccpAnnotationSets = new FSArray(jcas, key.size());
+			int index = 0;
+			for (AnnotationSet annotationSet : annotationSets) {
+				ccpAnnotationSets.set(index, getAnnotationSet(annotationSet, key.get(index)));
+				index++;
+			}
+			annotationSetArrayMap.put(key, ccpAnnotationSets);
+		}
+		return ccpAnnotationSets;
+	}
+
+	private CCPAnnotationSet getAnnotationSet(AnnotationSet annotationSet, List<Object> key) {
+		CCPAnnotationSet ccpAnnotationSet = annotationSetMap.get(key);
+		if (ccpAnnotationSet == null) {
+			ccpAnnotationSet = new CCPAnnotationSet(jcas);
+			UIMA_Util.swapAnnotationSetInfo(annotationSet, ccpAnnotationSet);
+			annotationSetMap.put(key, ccpAnnotationSet);
+		}
+		return ccpAnnotationSet;
+	}
+
+	private static List<Object> getKey(Annotator annotator) {
+		if (annotator == null) {
+			return Arrays.<Object> asList((Object) null);
+		}
+		return Arrays.<Object> asList(annotator.getAnnotatorID(), annotator.getName(), annotator.getAffiliation());
+	}
+
+	private static List<Object> getKey(AnnotationSet annotationSet) {
+		if (annotationSet == null) {
+			return Arrays.<Object> asList((Object) null);
+		}
+		return Arrays.<Object> asList(annotationSet.getAnnotationSetID(), annotationSet.getAnnotationSetName(),
+				annotationSet.getAnnotationSetDescription());
+	}
+
+}
@@ -0,0 +1,392 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.uima.cas.CASException;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationIndex;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+
+/**
+ * A static interval index over the begin/end offsets of the annotations of a
+ * single type in a {@link JCas}. Annotations are stored in annotation index
+ * order (ascending begin offset) so that annotations beginning inside a query
+ * span are located by binary search. Annotations beginning before a query span
+ * are located by descending an implicit binary tree that stores the maximum end
+ * offset of each subtree, so only subtrees that can contain a match are
+ * visited.
+ * <p>
+ * Indexes are built lazily, one per (view, type), and are cached until the CAS
+ * changes. A cached index is rebuilt when the size of the underlying annotation
+ * index changes, when the document text is replaced, e.g. when the CAS is reset
+ * for the next document, or when an annotation matched by a query no longer has
+ * the begin/end offsets it had when the index was built. The span mutators in
+ * {@link UIMA_Util} and {@link UIMA_Annotation_Util} call
+ * {@link #invalidate(Annotation)}; other code that modifies the begin/end
+ * offsets of an annotation in place, or that removes and adds annotations of an
+ * indexed type between queries leaving the index size unchanged, must call
+ * {@link #invalidate(JCas)}.
+ * <p>
+ * The index holds feature structure addresses rather than the annotations
+ * themselves so that the cache does not keep a released CAS reachable.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationSpanIndex {
+
+	private static final Map<JCas, Map<Type, AnnotationSpanIndex>> JCAS_TO_INDEX_MAP = Collections
+			.synchronizedMap(new WeakHashMap<JCas, Map<Type, AnnotationSpanIndex>>());
+
+	private final int[] addresses;
+	private final int[] begins;
+	private final int[] ends;
+	private final int annotationCount;
+
+	/*
+	 * implicit binary tree over the annotations; leaf leafOffset+i stores the
+	 * end offset of annotation i, each inner node stores the max of its children
+	 */
+	private final int[] maxEnds;
+	private final int leafOffset;
+
+	private final int indexSize;
+	private final WeakReference<String> documentText;
+
+	private AnnotationSpanIndex(JCas jcas, Type type) {
+		AnnotationIndex<Annotation> annotationIndex = jcas.getAnnotationIndex(type);
+		indexSize = annotationIndex.size();
+		documentText = new WeakReference<String>(jcas.getDocumentText());
+
+		int[] addrs = new int[indexSize];
+		int[] bs = new int[indexSize];
+		int[] es = new int[indexSize];
+		int count = 0;
+		for (FSIterator<Annotation> annotIter = annotationIndex.iterator(); annotIter.hasNext();) {
+			Annotation annot = annotIter.next();
+			if (count == addrs.length) {
+				int newLength = addrs.length * 2 + 1;
+				addrs = Arrays.copyOf(addrs, newLength);
+				bs = Arrays.copyOf(bs, newLength);
+				es = Arrays.copyOf(es, newLength);
+			}
+			addrs[count] = annot.getAddress();
+			bs[count] = annot.getBegin();
+			es[count] = annot.getEnd();
+			count++;
+		}
+		if (!isSortedByBegin(bs, count)) {
+			/*
+			 * the annotation index is no longer ordered by begin offset if an
+			 * indexed annotation was modified in place
+			 */
+			Integer[] order = new Integer[count];
+			for (int i = 0; i < count; i++) {
+				order[i] = i;
+			}
+			final int[] unsortedBegins = bs;
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer i, Integer j) {
+					return Integer.compare(unsortedBegins[i], unsortedBegins[j]);
+				}
+			});
+			int[] sortedAddrs = new int[count];
+			int[] sortedBs = new int[count];
+			int[] sortedEs = new int[count];
+			for (int i = 0; i < count; i++) {
+				sortedAddrs[i] = addrs[order[i]];
+				sortedBs[i] = bs[order[i]];
+				sortedEs[i] = es[order[i]];
+			}
+			addrs = sortedAddrs;
+			bs = sortedBs;
+			es = sortedEs;
+		}
+		addresses = addrs;
+		begins = bs;
+		ends = es;
+		annotationCount = count;
+
+		int leaves = 1;
+		while (leaves < annotationCount) {
+			leaves <<= 1;
+		}
+		leafOffset = leaves;
+		maxEnds = new int[2 * leaves];
+		Arrays.fill(maxEnds, Integer.MIN_VALUE);
+		System.arraycopy(ends, 0, maxEnds, leafOffset, annotationCount);
+		for (int node = leafOffset - 1; node > 0; node--) {
+			maxEnds[node] = Math.max(maxEnds[2 * node], maxEnds[2 * node + 1]);
+		}
+	}
+
+	/**
+	 * Returns the index for the specified annotation type in the specified
+	 * view, building it if it has not yet been built or if the CAS has changed
+	 * since it was built.
+	 * 
+	 * @param jcas
+	 * @param type
+	 * @return
+	 */
+	public static AnnotationSpanIndex getIndex(JCas jcas, Type type) {
+		return getIndex(jcas, type, null);
+	}
+
+	/**
+	 * @param staleIndex
+	 *            an index known to be stale; it is rebuilt even if the size
+	 *            and document text checks pass
+	 */
+	private static AnnotationSpanIndex getIndex(JCas jcas, Type type, AnnotationSpanIndex staleIndex) {
+		AnnotationSpanIndex index;
+		synchronized (JCAS_TO_INDEX_MAP) {
+			Map<Type, AnnotationSpanIndex> typeToIndexMap = JCAS_TO_INDEX_MAP.get(jcas);
+			index = (typeToIndexMap == null) ? null : typeToIndexMap.get(type);
+		}
+		if (index != null && index != staleIndex && !index.isStale(jcas, type)) {
+			return index;
+		}
+		/* built outside of the lock so that other views are not blocked */
+		index = new AnnotationSpanIndex(jcas, type);
+		synchronized (JCAS_TO_INDEX_MAP) {
+			Map<Type, AnnotationSpanIndex> typeToIndexMap = JCAS_TO_INDEX_MAP.get(jcas);
+			if (typeToIndexMap == null) {
+				typeToIndexMap = new HashMap<Type, AnnotationSpanIndex>();
+				JCAS_TO_INDEX_MAP.put(jcas, typeToIndexMap);
+			}
+			typeToIndexMap.put(type, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Discards any cached indexes for the specified view
+	 * 
+	 * @param jcas
+	 */
+	public static void invalidate(JCas jcas) {
+		JCAS_TO_INDEX_MAP.remove(jcas);
+	}
+
+	/**
+	 * Discards any cached indexes for the view containing the specified
+	 * annotation. To be called when the begin/end offsets of the annotation are
+	 * modified in place.
+	 * 
+	 * @param annotation
+	 */
+	public static void invalidate(Annotation annotation) {
+		try {
+			invalidate(annotation.getCAS().getJCas());
+		} catch (CASException e) {
+			JCAS_TO_INDEX_MAP.clear();
+		}
+	}
+
+	private static boolean isSortedByBegin(int[] begins, int count) {
+		for (int i = 1; i < count; i++) {
+			if (begins[i] < begins[i - 1]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isStale(JCas jcas, Type type) {
+		return jcas.getAnnotationIndex(type).size() != indexSize || documentText.get() != jcas.getDocumentText();
+	}
+
+	/**
+	 * Returns the annotations of the specified type that lie completely within
+	 * the specified span, i.e. begin &gt;= spanStart and end &lt;= spanEnd, in
+	 * annotation index order
+	 * 
+	 * @param jcas
+	 * @param type
+	 * @param spanStart
+	 * @param spanEnd
+	 * @return
+	 */
+	public static List<Annotation> getAnnotationsWithinSpan(JCas jcas, Type type, int spanStart, int spanEnd) {
+		AnnotationSpanIndex index = getIndex(jcas, type);
+		List<Annotation> annotations;
+		while ((annotations = index.getAnnotationsWithinSpan(jcas, spanStart, spanEnd)) == null) {
+			index = getIndex(jcas, type, index);
+		}
+		return annotations;
+	}
+
+	/**
+	 * Returns the annotations of the specified type that overlap the specified
+	 * span, in annotation index order. An annotation overlaps the span if it
+	 * overlaps its left edge, overlaps its right edge, or lies completely within
+	 * it.
+	 * 
+	 * @param jcas
+	 * @param type
+	 * @param spanStart
+	 * @param spanEnd
+	 * @return
+	 */
+	public static List<Annotation> getOverlappingAnnotations(JCas jcas, Type type, int spanStart, int spanEnd) {
+		AnnotationSpanIndex index = getIndex(jcas, type);
+		List<Annotation> annotations;
+		while ((annotations = index.getOverlappingAnnotations(jcas, spanStart, spanEnd)) == null) {
+			index = getIndex(jcas, type, index);
+		}
+		return annotations;
+	}
+
+	/**
+	 * @return the matching annotations, or null if a matching annotation has
+	 *         been modified since the index was built
+	 */
+	private List<Annotation> getAnnotationsWithinSpan(JCas jcas, int spanStart, int spanEnd) {
+		List<Annotation> annotations = new ArrayList<Annotation>();
+		for (int i = firstIndexBeginningAtOrAfter(spanStart); i < annotationCount && begins[i] <= spanEnd; i++) {
+			if (ends[i] <= spanEnd && !addAnnotation(jcas, i, annotations)) {
+				return null;
+			}
+		}
+		return annotations;
+	}
+
+	/**
+	 * @return the matching annotations, or null if a matching annotation has
+	 *         been modified since the index was built
+	 */
+	private List<Annotation> getOverlappingAnnotations(JCas jcas, int spanStart, int spanEnd) {
+		List<Annotation> annotations = new ArrayList<Annotation>();
+		int firstInside = firstIndexBeginningAtOrAfter(spanStart);
+		/*
+		 * an annotation that begins before the span overlaps it if it ends after
+		 * the span start or, for a zero-length span, ends at the span end
+		 */
+		int minEnd = Math.min(spanStart + 1, spanEnd);
+		if (!collectEndingAtOrAfter(1, 0, leafOffset, firstInside, minEnd, jcas, spanStart, spanEnd, annotations)) {
+			return null;
+		}
+		for (int i = firstInside; i < annotationCount && begins[i] <= spanEnd; i++) {
+			if (overlaps(begins[i], ends[i], spanStart, spanEnd) && !addAnnotation(jcas, i, annotations)) {
+				return null;
+			}
+		}
+		return annotations;
+	}
+
+	/**
+	 * Collects, from left to right, the annotations in [0, limit) covered by
+	 * the tree node [nodeLow, nodeHigh) that end at or after minEnd and overlap
+	 * the query span
+	 * 
+	 * @return false if a matching annotation has been modified since the index
+	 *         was built
+	 */
+	private boolean collectEndingAtOrAfter(int node, int nodeLow, int nodeHigh, int limit, int minEnd, JCas jcas,
+			int spanStart, int spanEnd, List<Annotation> annotations) {
+		if (nodeLow >= limit || maxEnds[node] < minEnd) {
+			return true;
+		}
+		if (node >= leafOffset) {
+			int i = node - leafOffset;
+			return !overlaps(begins[i], ends[i], spanStart, spanEnd) || addAnnotation(jcas, i, annotations);
+		}
+		int mid = (nodeLow + nodeHigh) >>> 1;
+		return collectEndingAtOrAfter(2 * node, nodeLow, mid, limit, minEnd, jcas, spanStart, spanEnd, annotations)
+				&& collectEndingAtOrAfter(2 * node + 1, mid, nodeHigh, limit, minEnd, jcas, spanStart, spanEnd,
+						annotations);
+	}
+
+	/**
+	 * Mirrors the overlap constraints historically used by
+	 * {@link UIMA_Util#getAnnotationsEncompassingSpan(edu.ucdenver.ccp.nlp.core.annotation.Span, JCas, int)}
+	 */
+	private static boolean overlaps(int begin, int end, int spanStart, int spanEnd) {
+		return (begin <= spanStart && end > spanStart) || (begin < spanEnd && end >= spanEnd)
+				|| (begin >= spanStart && end <= spanEnd);
+	}
+
+	/**
+	 * @return the index of the first annotation whose begin offset is &gt;= the
+	 *         specified offset, or the number of annotations if there is none
+	 */
+	private int firstIndexBeginningAtOrAfter(int offset) {
+		int low = 0;
+		int high = annotationCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (begins[mid] < offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Adds annotation i to the list if its begin/end offsets are still those
+	 * recorded when the index was built
+	 * 
+	 * @return false if the annotation has been modified in place
+	 */
+	private boolean addAnnotation(JCas jcas, int i, List<Annotation> annotations) {
+		/*
+		 * resolved via the low-level CAS; JCas.getJfsFromCaddr() leaves a
+		 * blocking reservation behind if no cover object exists yet
+		 */
+		Annotation annotation = jcas.getLowLevelCas().ll_getFSForRef(addresses[i]);
+		if (annotation.getBegin() != begins[i] || annotation.getEnd() != ends[i]) {
+			return false;
+		}
+		annotations.add(annotation);
+		return true;
+	}
+
+}
@@ -0,0 +1,85 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.uima.jcas.JCas;
+
+import edu.ucdenver.ccp.nlp.core.annotation.AnnotationFingerprint;
+
+/**
+ * Records, per CAS view, the stamp of the most recent modification made through
+ * the wrapped annotation and mention classes or through {@link UIMA_Util} that
+ * affects annotation equality. Annotations and mentions that wrap CAS feature
+ * structures use the stamp of their view as their own modification stamp, as
+ * several wrapper objects may share the same underlying feature structures. A
+ * modification therefore only makes the cached
+ * {@link AnnotationFingerprint}s of annotations in the same view stale.
+ * <p>
+ * Views are held weakly so that the stamps do not keep a released CAS
+ * reachable.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class CasModificationStamp {
+
+	private static final Map<JCas, Long> JCAS_TO_STAMP_MAP = Collections.synchronizedMap(new WeakHashMap<JCas, Long>());
+
+	/**
+	 * Records a modification of the specified view
+	 * 
+	 * @param jcas
+	 */
+	public static void markModified(JCas jcas) {
+		if (jcas != null) {
+			JCAS_TO_STAMP_MAP.put(jcas, AnnotationFingerprint.nextModificationStamp());
+		}
+	}
+
+	/**
+	 * @param jcas
+	 * @return the stamp of the most recent modification of the specified view,
+	 *         or 0 if it has not been modified
+	 */
+	public static long getModificationStamp(JCas jcas) {
+		Long stamp = (jcas == null) ? null : JCAS_TO_STAMP_MAP.get(jcas);
+		return (stamp == null) ? 0 : stamp;
+	}
+
+}
@@ -0,0 +1,162 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.impl.LowLevelCAS;
+import org.apache.uima.cas.impl.LowLevelException;
+import org.apache.uima.jcas.JCas;
+
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPDocumentInformation;
+
+/**
+ * Resolves the {@link CCPDocumentInformation} feature structure of a CAS once
+ * and remembers it, so that repeated document ID lookups, e.g. one per
+ * annotation when comparing or hashing
+ * {@link edu.ucdenver.ccp.nlp.uima.annotation.impl.WrappedCCPTextAnnotation}
+ * instances, do not open a new index iterator each time.
+ * <p>
+ * The address of the feature structure is cached together with a weak
+ * reference to its JCas cover object, so the cache does not keep a released
+ * CAS reachable. Resetting the CAS discards its cover objects, so a cached
+ * entry is only used if resolving the address still yields the same cover
+ * object and the annotation index still contains exactly one
+ * {@link CCPDocumentInformation}; otherwise it is looked up again. Code that
+ * replaces the {@link CCPDocumentInformation} without resetting the CAS must
+ * call {@link #put(JCas, CCPDocumentInformation)} or
+ * {@link #invalidate(JCas)}.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class DocumentInformationCache {
+
+	private static final Map<JCas, CachedDocumentInformation> JCAS_TO_DOC_INFO_MAP = Collections
+			.synchronizedMap(new WeakHashMap<JCas, CachedDocumentInformation>());
+
+	private static class CachedDocumentInformation {
+		private final int address;
+		private final WeakReference<CCPDocumentInformation> docInfo;
+
+		public CachedDocumentInformation(CCPDocumentInformation docInfo) {
+			this.address = docInfo.getAddress();
+			this.docInfo = new WeakReference<CCPDocumentInformation>(docInfo);
+		}
+	}
+
+	/**
+	 * @param jcas
+	 * @return the {@link CCPDocumentInformation} stored in the CAS, or null if
+	 *         there is none
+	 */
+	public static CCPDocumentInformation getDocumentInformation(JCas jcas) {
+		CachedDocumentInformation cached = JCAS_TO_DOC_INFO_MAP.get(jcas);
+		if (cached != null) {
+			CCPDocumentInformation docInfo = resolve(jcas, cached);
+			if (docInfo != null) {
+				return docInfo;
+			}
+		}
+		FSIterator it = jcas.getJFSIndexRepository().getAllIndexedFS(CCPDocumentInformation.type);
+		if (it.hasNext()) { /*
+							 * there will be at most one CCPDocumentInformation
+							 * annotation
+							 */
+			CCPDocumentInformation docInfo = (CCPDocumentInformation) it.next();
+			put(jcas, docInfo);
+			return docInfo;
+		}
+		return null;
+	}
+
+	/**
+	 * Records a newly created {@link CCPDocumentInformation} so that it does
+	 * not need to be looked up again
+	 * 
+	 * @param jcas
+	 * @param docInfo
+	 */
+	public static void put(JCas jcas, CCPDocumentInformation docInfo) {
+		JCAS_TO_DOC_INFO_MAP.put(jcas, new CachedDocumentInformation(docInfo));
+	}
+
+	/**
+	 * Discards the cached entry for the specified view. This is only needed if
+	 * the {@link CCPDocumentInformation} is replaced without the CAS being
+	 * reset.
+	 * 
+	 * @param jcas
+	 */
+	public static void invalidate(JCas jcas) {
+		JCAS_TO_DOC_INFO_MAP.remove(jcas);
+	}
+
+	private static CCPDocumentInformation resolve(JCas jcas, CachedDocumentInformation cached) {
+		CCPDocumentInformation cachedDocInfo = cached.docInfo.get();
+		if (cachedDocInfo == null) {
+			return null;
+		}
+		LowLevelCAS llCas = jcas.getLowLevelCas();
+		try {
+			if (llCas.ll_getFSRefType(cached.address, true) != llCas.ll_getTypeSystem().ll_getCodeForType(
+					jcas.getCasType(CCPDocumentInformation.type))) {
+				return null;
+			}
+		} catch (LowLevelException e) {
+			/* the address is no longer valid, e.g. the CAS has been reset */
+			return null;
+		}
+		/*
+		 * JCas.getJfsFromCaddr() is not used here as, for an address without
+		 * an existing cover object, it leaves a reservation in the JCas hash
+		 * map that blocks any later lookup of the same feature structure
+		 */
+		if (llCas.ll_getFSForRef(cached.address) != cachedDocInfo) {
+			/* the CAS has been reset since the entry was cached */
+			return null;
+		}
+		if (jcas.getJFSIndexRepository().getAnnotationIndex(CCPDocumentInformation.type).size() != 1) {
+			/* the document information has been removed from the indexes */
+			return null;
+		}
+		return cachedDocInfo;
+	}
+
+}
@@ -0,0 +1,294 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.uima.cas.CASException;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+
+import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperException;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPBooleanSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPDoubleSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPFloatSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPIntegerSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.mention.impl.CCPPrimitiveSlotMentionFactory;
+
+/**
+ * Accumulates slot values for a {@link CCPClassMention} outside of the CAS and writes them to the
+ * CAS when {@link #commit()} is called. On commit, the value array of each slot and the slot
+ * mention array of the class mention are each allocated at most once. In contrast, adding n values
+ * one at a time (e.g. via {@link UIMA_Util#addSlotValue(CCPClassMention, String, String)} or the
+ * wrapped slot mention classes) copies the affected CAS array n times.
+ * <p>
+ * Values added for a slot that already exists on the class mention are appended to the existing
+ * slot values. The builder can be reused after a commit.
+ */
+public class SlotMentionBuilder {
+
+	private final CCPClassMention ccpCM;
+	private final JCas jcas;
+
+	/* pending values keyed by slot name, in the order the slots were first referenced */
+	private final Map<String, List<Object>> slotNameToPrimitiveValuesMap = new LinkedHashMap<String, List<Object>>();
+	private final Map<String, List<CCPClassMention>> slotNameToComplexValuesMap = new LinkedHashMap<String, List<CCPClassMention>>();
+
+	public SlotMentionBuilder(CCPClassMention ccpCM) {
+		this.ccpCM = ccpCM;
+		try {
+			this.jcas = ccpCM.getCAS().getJCas();
+		} catch (CASException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @param slotMentionName
+	 * @param slotValue
+	 *            a String, Integer, Float, Double or Boolean
+	 * @return this builder
+	 * @throws KnowledgeRepresentationWrapperException
+	 *             if the slot value is of an unsupported type, or if its type differs from the type
+	 *             of values already added for the slot
+	 */
+	public SlotMentionBuilder addSlotValue(String slotMentionName, Object slotValue) {
+		if (!(slotValue instanceof String || slotValue instanceof Integer || slotValue instanceof Float
+				|| slotValue instanceof Double || slotValue instanceof Boolean)) {
+			throw new KnowledgeRepresentationWrapperException("Cannot use a "
+					+ ((slotValue == null) ? "null" : slotValue.getClass().getName()) + " as a primitive slot value.");
+		}
+		if (slotNameToComplexValuesMap.containsKey(slotMentionName)) {
+			throw new KnowledgeRepresentationWrapperException("Cannot add a primitive value to slot "
+					+ slotMentionName + ". Class mentions have already been added as slot fillers.");
+		}
+		List<Object> slotValues = slotNameToPrimitiveValuesMap.get(slotMentionName);
+		if (slotValues == null) {
+			slotValues = new ArrayList<Object>();
+			slotNameToPrimitiveValuesMap.put(slotMentionName, slotValues);
+		} else if (!slotValues.get(0).getClass().equals(slotValue.getClass())) {
+			throw new KnowledgeRepresentationWrapperException("Cannot add a " + slotValue.getClass().getName()
+					+ " to slot " + slotMentionName + ". Values of type " + slotValues.get(0).getClass().getName()
+					+ " have already been added.");
+		}
+		slotValues.add(slotValue);
+		return this;
+	}
+
+	/**
+	 * @param slotMentionName
+	 * @param slotValues
+	 * @return this builder
+	 * @see #addSlotValue(String, Object)
+	 */
+	public SlotMentionBuilder addSlotValues(String slotMentionName, Collection<?> slotValues) {
+		for (Object slotValue : slotValues) {
+			addSlotValue(slotMentionName, slotValue);
+		}
+		return this;
+	}
+
+	/**
+	 * @param slotMentionName
+	 * @param slotFillerCM
+	 * @return this builder
+	 */
+	public SlotMentionBuilder addSlotValue(String slotMentionName, CCPClassMention slotFillerCM) {
+		if (slotNameToPrimitiveValuesMap.containsKey(slotMentionName)) {
+			throw new KnowledgeRepresentationWrapperException("Cannot add a class mention to slot "
+					+ slotMentionName + ". Primitive values have already been added to the slot.");
+		}
+		List<CCPClassMention> slotFillers = slotNameToComplexValuesMap.get(slotMentionName);
+		if (slotFillers == null) {
+			slotFillers = new ArrayList<CCPClassMention>();
+			slotNameToComplexValuesMap.put(slotMentionName, slotFillers);
+		}
+		slotFillers.add(slotFillerCM);
+		return this;
+	}
+
+	/**
+	 * Writes the pending slot values to the CAS and clears them from this builder. All pending
+	 * values are checked against the slots already on the class mention before anything is
+	 * written, so the CAS is left unchanged if the commit fails. The pending values are cleared
+	 * whether or not the commit succeeds.
+	 * 
+	 * @throws KnowledgeRepresentationWrapperException
+	 *             if pending values are incompatible with the type of a slot that already exists on
+	 *             the class mention
+	 */
+	public void commit() {
+		if (slotNameToPrimitiveValuesMap.isEmpty() && slotNameToComplexValuesMap.isEmpty()) {
+			return;
+		}
+		try {
+			Map<String, CCPSlotMention> existingSlotMentions = getExistingSlotMentions();
+			validate(existingSlotMentions);
+			CasModificationStamp.markModified(jcas);
+			List<CCPSlotMention> slotMentionsToAdd = new ArrayList<CCPSlotMention>();
+
+			for (Entry<String, List<Object>> entry : slotNameToPrimitiveValuesMap.entrySet()) {
+				CCPSlotMention slotMention = existingSlotMentions.get(entry.getKey());
+				if (slotMention == null) {
+					slotMentionsToAdd.add(CCPPrimitiveSlotMentionFactory.createCCPPrimitiveSlotMention(
+							entry.getKey(), entry.getValue(), jcas));
+				} else {
+					appendPrimitiveSlotValues(slotMention, entry.getValue());
+				}
+			}
+
+			for (Entry<String, List<CCPClassMention>> entry : slotNameToComplexValuesMap.entrySet()) {
+				CCPSlotMention slotMention = existingSlotMentions.get(entry.getKey());
+				if (slotMention == null) {
+					CCPComplexSlotMention ccpCSM = new CCPComplexSlotMention(jcas);
+					ccpCSM.setMentionName(entry.getKey());
+					ccpCSM.setClassMentions(UIMA_Util.addToFSArray(null, entry.getValue(), jcas));
+					slotMentionsToAdd.add(ccpCSM);
+				} else {
+					CCPComplexSlotMention ccpCSM = (CCPComplexSlotMention) slotMention;
+					ccpCSM.setClassMentions(UIMA_Util.addToFSArray(ccpCSM.getClassMentions(), entry.getValue(),
+							jcas));
+				}
+			}
+
+			if (!slotMentionsToAdd.isEmpty()) {
+				ccpCM.setSlotMentions(UIMA_Util.addToFSArray(ccpCM.getSlotMentions(), slotMentionsToAdd, jcas));
+			}
+		} finally {
+			slotNameToPrimitiveValuesMap.clear();
+			slotNameToComplexValuesMap.clear();
+		}
+	}
+
+	/**
+	 * Checks that all pending values can be written given the slots already on the class mention
+	 * 
+	 * @param existingSlotMentions
+	 * @throws KnowledgeRepresentationWrapperException
+	 *             if any pending value cannot be written
+	 */
+	private void validate(Map<String, CCPSlotMention> existingSlotMentions) {
+		for (Entry<String, List<Object>> entry : slotNameToPrimitiveValuesMap.entrySet()) {
+			CCPSlotMention slotMention = existingSlotMentions.get(entry.getKey());
+			Object firstSlotValue = entry.getValue().get(0);
+			if (slotMention == null) {
+				if (firstSlotValue instanceof Boolean && entry.getValue().size() > 1) {
+					throw new KnowledgeRepresentationWrapperException(
+							"Boolean slot mentions can only store a single value. Cannot add "
+									+ entry.getValue().size() + " values to slot: " + entry.getKey());
+				}
+			} else if (slotMention instanceof CCPBooleanSlotMention) {
+				throw new KnowledgeRepresentationWrapperException("Boolean slot mentions can only store a single value. "
+						+ "Cannot add values to existing slot: " + slotMention.getMentionName());
+			} else if (!canAppendPrimitiveSlotValue(slotMention, firstSlotValue)) {
+				throw new KnowledgeRepresentationWrapperException("Cannot store a " + firstSlotValue.getClass().getName()
+						+ " in a " + slotMention.getClass().getName());
+			}
+		}
+		for (Entry<String, List<CCPClassMention>> entry : slotNameToComplexValuesMap.entrySet()) {
+			CCPSlotMention slotMention = existingSlotMentions.get(entry.getKey());
+			if (slotMention != null && !(slotMention instanceof CCPComplexSlotMention)) {
+				throw new KnowledgeRepresentationWrapperException("Cannot add class mentions to slot "
+						+ entry.getKey() + ". It is a " + slotMention.getClass().getName());
+			}
+		}
+	}
+
+	private static boolean canAppendPrimitiveSlotValue(CCPSlotMention slotMention, Object slotValue) {
+		return (slotMention instanceof CCPStringSlotMention && slotValue instanceof String)
+				|| (slotMention instanceof CCPIntegerSlotMention && slotValue instanceof Integer)
+				|| (slotMention instanceof CCPFloatSlotMention && slotValue instanceof Float)
+				|| (slotMention instanceof CCPDoubleSlotMention && slotValue instanceof Double);
+	}
+
+	/**
+	 * @return the slot mentions currently on the class mention keyed by name. If more than one slot
+	 *         mention has the same name, the first is returned, consistent with
+	 *         {@link UIMA_Util#getSlotMentionByName(CCPClassMention, String)}
+	 */
+	private Map<String, CCPSlotMention> getExistingSlotMentions() {
+		Map<String, CCPSlotMention> slotNameToSlotMentionMap = new HashMap<String, CCPSlotMention>();
+		FSArray slotMentions = ccpCM.getSlotMentions();
+		if (slotMentions != null) {
+			for (int i = 0; i < slotMentions.size(); i++) {
+				FeatureStructure fs = slotMentions.get(i);
+				if (fs instanceof CCPSlotMention) {
+					CCPSlotMention slotMention = (CCPSlotMention) fs;
+					if (!slotNameToSlotMentionMap.containsKey(slotMention.getMentionName())) {
+						slotNameToSlotMentionMap.put(slotMention.getMentionName(), slotMention);
+					}
+				}
+			}
+		}
+		return slotNameToSlotMentionMap;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void appendPrimitiveSlotValues(CCPSlotMention slotMention, List<Object> slotValues) {
+		Object firstSlotValue = slotValues.get(0);
+		if (slotMention instanceof CCPStringSlotMention && firstSlotValue instanceof String) {
+			CCPStringSlotMention ccpSSM = (CCPStringSlotMention) slotMention;
+			ccpSSM.setSlotValues(UIMA_Util.addToStringArray(ccpSSM.getSlotValues(),
+					(List<String>) (List<?>) slotValues, jcas));
+		} else if (slotMention instanceof CCPIntegerSlotMention && firstSlotValue instanceof Integer) {
+			CCPIntegerSlotMention ccpISM = (CCPIntegerSlotMention) slotMention;
+			ccpISM.setSlotValues(UIMA_Util.addToIntegerArray(ccpISM.getSlotValues(),
+					(List<Integer>) (List<?>) slotValues, jcas));
+		} else if (slotMention instanceof CCPFloatSlotMention && firstSlotValue instanceof Float) {
+			CCPFloatSlotMention ccpFSM = (CCPFloatSlotMention) slotMention;
+			ccpFSM.setSlotValues(UIMA_Util.addToFloatArray(ccpFSM.getSlotValues(),
+					(List<Float>) (List<?>) slotValues, jcas));
+		} else if (slotMention instanceof CCPDoubleSlotMention && firstSlotValue instanceof Double) {
+			CCPDoubleSlotMention ccpDSM = (CCPDoubleSlotMention) slotMention;
+			ccpDSM.setSlotValues(UIMA_Util.addToDoubleArray(ccpDSM.getSlotValues(),
+					(List<Double>) (List<?>) slotValues, jcas));
+		} else {
+			/* checked in validate() */
+			throw new IllegalStateException("Cannot store a " + firstSlotValue.getClass().getName() + " in a "
+					+ slotMention.getClass().getName());
+		}
+	}
+
+}
@@ -343,6 +343,7 @@ public class UIMA_Annotation_Util {
 			}
 			ccpTA.setBegin(aggregateSpanStart);
 			ccpTA.setEnd(aggregateSpanEnd);
+			AnnotationSpanIndex.invalidate(ccpTA);
 		} else {
 			throw new KnowledgeRepresentationWrapperException(
 					"Cannot update aggregate span, the CCPTextAnnotation has no span list.");
@@ -366,11 +367,13 @@ public class UIMA_Annotation_Util {
 		ccpTA.setSpans(new FSArray(jcas, 0));
 		ccpTA.setBegin(-1);
 		ccpTA.setEnd(-1);
+		AnnotationSpanIndex.invalidate(ccpTA);
 	}
 
 	public static void setAggregateSpanStart(CCPTextAnnotation ccpTA, int spanStart, JCas jcas)
 			throws KnowledgeRepresentationWrapperException, InvalidSpanException {
 		ccpTA.setBegin(spanStart);
+		AnnotationSpanIndex.invalidate(ccpTA);
 		CCPSpan leadingSpan = getLeadingSpan(ccpTA);
 		if (spanStart < leadingSpan.getSpanEnd()) {
 			leadingSpan.setSpanStart(spanStart);
@@ -383,6 +386,7 @@ public class UIMA_Annotation_Util {
 	public static void setAggregateSpanEnd(CCPTextAnnotation ccpTA, int spanEnd, JCas jcas)
 			throws KnowledgeRepresentationWrapperException, InvalidSpanException {
 		ccpTA.setEnd(spanEnd);
+		AnnotationSpanIndex.invalidate(ccpTA);
 		CCPSpan trailingSpan = getTrailingSpan(ccpTA);
 		if (spanEnd > trailingSpan.getSpanStart()) {
 			trailingSpan.setSpanEnd(spanEnd);
@@ -744,6 +748,7 @@ public class UIMA_Annotation_Util {
 								+ annotation.getBegin() + "  Start index after removal: ");
 			}
 			annotation.setBegin(matcher.end(1));
+			AnnotationSpanIndex.invalidate(annotation);
 			if (DEBUG) {
 				System.out.println(annotation.getBegin());
 			}
@@ -757,6 +762,7 @@ public class UIMA_Annotation_Util {
 								+ annotation.getEnd() + "  End index after removal: ");
 			}
 			annotation.setEnd(matcher.start(1));
+			AnnotationSpanIndex.invalidate(annotation);
 			if (DEBUG) {
 				System.out.println(annotation.getEnd());
 			}
@@ -40,6 +40,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -218,15 +219,9 @@ public class UIMA_Util {
 	 * @return
 	 */
 	public static String getDocumentID(JCas jcas) {
-		String documentID;
-		FSIterator it = jcas.getJFSIndexRepository().getAllIndexedFS(CCPDocumentInformation.type);
-		if (it.hasNext()) { /*
-							 * there will be at most one CCPDocumentInformation
-							 * annotation
-							 */
-			CCPDocumentInformation docInfo = (CCPDocumentInformation) it.next();
-			documentID = docInfo.getDocumentID();
-			return documentID;
+		CCPDocumentInformation docInfo = DocumentInformationCache.getDocumentInformation(jcas);
+		if (docInfo != null) {
+			return docInfo.getDocumentID();
 		}
 		logger.warn("No document ID found, returning -1.");
 		return "-1";
@@ -240,6 +235,7 @@ public class UIMA_Util {
 	 * @param documentID
 	 */
 	public static void setDocumentID(JCas jcas, String documentID) {
+		CasModificationStamp.markModified(jcas);
 		CCPDocumentInformation docInfo = getCcpDocumentInformation(jcas);
 		docInfo.setDocumentID(documentID);
 	}
@@ -250,9 +246,9 @@ public class UIMA_Util {
 	}
 
 	public static File getSourceDocumentPath(JCas jCas) {
-		TOP docInfo = jCas.getJFSIndexRepository().getAllIndexedFS(CCPDocumentInformation.type).next();
+		CCPDocumentInformation docInfo = DocumentInformationCache.getDocumentInformation(jCas);
 		if (docInfo != null) {
-			String path = ((CCPDocumentInformation) docInfo).getSourceDocumentPath();
+			String path = docInfo.getSourceDocumentPath();
 			if (path != null) {
 				return new File(path);
 			}
@@ -295,16 +291,11 @@ public class UIMA_Util {
 	}
 
 	public static CCPDocumentInformation getDocumentInfo(JCas jcas) {
-		FSIterator it = jcas.getJFSIndexRepository().getAllIndexedFS(CCPDocumentInformation.type);
-		if (it.hasNext()) { /*
-							 * there will be at most one CCPDocumentInformation
-							 * annotation
-							 */
-			CCPDocumentInformation docInfo = (CCPDocumentInformation) it.next();
-			return docInfo;
+		CCPDocumentInformation docInfo = DocumentInformationCache.getDocumentInformation(jcas);
+		if (docInfo == null) {
+			logger.warn("No document ID found, returning -1.");
 		}
-		logger.warn("No document ID found, returning -1.");
-		return null;
+		return docInfo;
 	}
 
 	/**
@@ -346,19 +337,12 @@ public class UIMA_Util {
 	 * @return
 	 */
 	public static int getDocumentCollectionID(JCas jcas) {
-		int documentCollectionID;
-		FSIterator it = jcas.getJFSIndexRepository().getAllIndexedFS(CCPDocumentInformation.type);
-		if (it.hasNext()) { /*
-							 * there will be at most one CCPDocumentInformation
-							 * annotation
-							 */
-			CCPDocumentInformation docInfo = (CCPDocumentInformation) it.next();
-			documentCollectionID = docInfo.getDocumentCollectionID();
-			return documentCollectionID;
-		} else {
-			logger.warn("No document collection ID found, returning -1.");
-			return -1;
+		CCPDocumentInformation docInfo = DocumentInformationCache.getDocumentInformation(jcas);
+		if (docInfo != null) {
+			return docInfo.getDocumentCollectionID();
 		}
+		logger.warn("No document collection ID found, returning -1.");
+		return -1;
 	}
 
 	/**
@@ -459,21 +443,17 @@ public class UIMA_Util {
 	}
 
 	public static void setDocumentCollectionID(JCas jcas, int documentCollectionID) {
+		CasModificationStamp.markModified(jcas);
 		CCPDocumentInformation docInfo = getCcpDocumentInformation(jcas);
 		docInfo.setDocumentCollectionID(documentCollectionID);
 	}
 
 	private static CCPDocumentInformation getCcpDocumentInformation(JCas jcas) {
-		CCPDocumentInformation docInfo;
-		FSIterator it = jcas.getJFSIndexRepository().getAllIndexedFS(CCPDocumentInformation.type);
-		if (it.hasNext()) { /*
-							 * there should be at most one
-							 * CCPDocumentInformation annotation
-							 */
-			docInfo = (CCPDocumentInformation) it.next();
-		} else {
+		CCPDocumentInformation docInfo = DocumentInformationCache.getDocumentInformation(jcas);
+		if (docInfo == null) {
 			docInfo = new CCPDocumentInformation(jcas);
 			docInfo.addToIndexes();
+			DocumentInformationCache.put(jcas, docInfo);
 		}
 		return docInfo;
 	}
@@ -517,29 +497,47 @@ public class UIMA_Util {
 	 * @param ccpAnnotation
 	 */
 	public static void swapAnnotationInfo(TextAnnotation fromTA, CCPTextAnnotation toUIMA, JCas jcas) {
+		swapAnnotationInfo(fromTA, toUIMA, jcas, null);
+	}
+
+	/**
+	 * @param fromTA
+	 * @param toUIMA
+	 * @param jcas
+	 * @param interner
+	 *            if not null, the annotator and annotation set feature structures are obtained from
+	 *            the interner and may be shared with other annotations
+	 */
+	private static void swapAnnotationInfo(TextAnnotation fromTA, CCPTextAnnotation toUIMA, JCas jcas,
+			AnnotationFeatureStructureInterner interner) {
 		// set the Annotation ID
 		toUIMA.setAnnotationID(fromTA.getAnnotationID());
 
 		// set the Annotation Sets
 		Set<AnnotationSet> annotationSets = fromTA.getAnnotationSets();
-		FSArray ccpAnnotationSets = new FSArray(jcas, annotationSets.size());
-		int index = 0;
-		for (AnnotationSet aSet : annotationSets) {
-			CCPAnnotationSet ccpAnnotationSet = new CCPAnnotationSet(jcas);
-			UIMA_Util.swapAnnotationSetInfo(aSet, ccpAnnotationSet);
-			ccpAnnotationSets.set(index++, ccpAnnotationSet);
-		}
-		toUIMA.setAnnotationSets(ccpAnnotationSets);
-		CCPAnnotator ccpAnnotator = new CCPAnnotator(jcas);
-		UIMA_Util.swapAnnotatorInfo(fromTA.getAnnotator(), ccpAnnotator);
-		toUIMA.setAnnotator(ccpAnnotator);
-
-		/* Swap metadata info */
-		edu.ucdenver.ccp.nlp.core.annotation.metadata.AnnotationMetadata annotationMetadata = fromTA
-				.getAnnotationMetadata();
-		edu.ucdenver.ccp.nlp.core.uima.annotation.AnnotationMetadata ccpAnnotationMetadata = new edu.ucdenver.ccp.nlp.core.uima.annotation.AnnotationMetadata(
-				jcas);
-		UIMA_Util.swapAnnotationMetadata(annotationMetadata, ccpAnnotationMetadata, jcas);
+		if (interner != null) {
+			toUIMA.setAnnotationSets(interner.getAnnotationSets(annotationSets));
+			toUIMA.setAnnotator(interner.getAnnotator(fromTA.getAnnotator()));
+		} else {
+			FSArray ccpAnnotationSets = new FSArray(jcas, annotationSets.size());
+			int index = 0;
+			for (AnnotationSet aSet : annotationSets) {
+				CCPAnnotationSet ccpAnnotationSet = new CCPAnnotationSet(jcas);
+				UIMA_Util.swapAnnotationSetInfo(aSet, ccpAnnotationSet);
+				ccpAnnotationSets.set(index++, ccpAnnotationSet);
+			}
+			toUIMA.setAnnotationSets(ccpAnnotationSets);
+			CCPAnnotator ccpAnnotator = new CCPAnnotator(jcas);
+			UIMA_Util.swapAnnotatorInfo(fromTA.getAnnotator(), ccpAnnotator);
+			toUIMA.setAnnotator(ccpAnnotator);
+		}
+
+		/*
+		 * Annotation metadata is not transferred by this method. (An
+		 * AnnotationMetadata feature structure used to be populated here but
+		 * was never attached to the annotation.) Annotation comments are
+		 * transferred by putTextAnnotationsIntoJCas().
+		 */
 
 		/*
 		 * set the Span(s) A CCPSpan object is created for each Span object
@@ -549,7 +547,7 @@ public class UIMA_Util {
 		 */
 		int minSpanIndex = Integer.MAX_VALUE;
 		int maxSpanIndex = Integer.MIN_VALUE;
-		ArrayList<Span> spans = (ArrayList<Span>) fromTA.getSpans();
+		List<Span> spans = fromTA.getSpans();
 
 		toUIMA.setNumberOfSpans(spans.size());
 		FSArray supplementarySpans = new FSArray(jcas, spans.size());
@@ -580,6 +578,7 @@ public class UIMA_Util {
 			toUIMA.setBegin(0);
 			toUIMA.setEnd(0);
 		}
+		AnnotationSpanIndex.invalidate(toUIMA);
 
 		// set the DocumentSection ID
 		toUIMA.setDocumentSectionID(fromTA.getDocumentSectionID());
@@ -693,6 +692,7 @@ public class UIMA_Util {
 		// set the default Begin and End fields
 		toUIMA.setBegin(fromUIMA.getBegin());
 		toUIMA.setEnd(fromUIMA.getEnd());
+		AnnotationSpanIndex.invalidate(toUIMA);
 
 		// set the DocumentSection ID
 		toUIMA.setDocumentSectionID(fromUIMA.getDocumentSectionID());
@@ -990,25 +990,38 @@ public class UIMA_Util {
 		}
 	}
 
+	/**
+	 * Adds the specified annotations to the CAS. Annotations are added in span order, which keeps
+	 * insertion into the CAS annotation index cheap, and annotations that share an annotator or an
+	 * identical set of annotation sets share the corresponding feature structures.
+	 * 
+	 * @param jcas
+	 * @param textAnnotations
+	 */
 	public void putTextAnnotationsIntoJCas(JCas jcas, Collection<TextAnnotation> textAnnotations) {
 		HashMap<String, String> alreadyCreatedAnnotations = new HashMap<String, String>();
 		HashMap<String, CCPClassMention> alreadyCreatedMentions = new HashMap<String, CCPClassMention>();
+		AnnotationFeatureStructureInterner interner = new AnnotationFeatureStructureInterner(jcas);
 
-		for (TextAnnotation ta : textAnnotations) {
-			createUIMAAnnotation(ta, jcas, alreadyCreatedAnnotations, alreadyCreatedMentions, null);
+		List<TextAnnotation> sortedAnnotations = new ArrayList<TextAnnotation>(textAnnotations);
+		Collections.sort(sortedAnnotations, TextAnnotation.BY_SPAN());
+		for (TextAnnotation ta : sortedAnnotations) {
+			createUIMAAnnotation(ta, jcas, alreadyCreatedAnnotations, alreadyCreatedMentions, null, interner);
 		}
 	}
 
 	private void createUIMAAnnotation(TextAnnotation ta, JCas jcas, HashMap<String, String> alreadyCreatedAnnotations,
-			HashMap<String, CCPClassMention> alreadyCreatedMentions, CCPClassMention classMention) {
+			HashMap<String, CCPClassMention> alreadyCreatedMentions, CCPClassMention classMention,
+			AnnotationFeatureStructureInterner interner) {
 
-		if (!alreadyCreatedAnnotations.containsKey(ta.getSingleLineRepresentation())) {
+		String annotationKey = ta.getSingleLineRepresentation();
+		if (!alreadyCreatedAnnotations.containsKey(annotationKey)) {
 
 			CCPTextAnnotation ccpTextAnnotation = new CCPTextAnnotation(jcas);
 
 			// extract the annotation information from the TextAnnotation and
 			// fill the corresponding fields in the SemanticAnnotation
-			UIMA_Util.swapAnnotationInfo(ta, ccpTextAnnotation, jcas);
+			UIMA_Util.swapAnnotationInfo(ta, ccpTextAnnotation, jcas, interner);
 
 			/**
 			 * This has the potential to introduce a duplicate comment, however
@@ -1020,7 +1033,7 @@ public class UIMA_Util {
 				UIMA_Annotation_Util.addAnnotationCommentProperty(ccpTextAnnotation, comment, jcas);
 
 			// add key to alreadyAddedAnnotations
-			alreadyCreatedAnnotations.put(ta.getSingleLineRepresentation(), "");
+			alreadyCreatedAnnotations.put(annotationKey, "");
 
 			// if mention is null, then create a new UIMA mention from the
 			// associated ClassMention, else, use mention
@@ -1031,7 +1044,7 @@ public class UIMA_Util {
 				// create associated class mention
 				ClassMention cm = ta.getClassMention();
 				classMention = (CCPClassMention) this.createUIMAMention(cm, jcas, alreadyCreatedAnnotations,
-						alreadyCreatedMentions);
+						alreadyCreatedMentions, interner);
 			}
 
 			if (classMention == null) {
@@ -1050,20 +1063,20 @@ public class UIMA_Util {
 	}
 
 	private CCPMention createUIMAMention(Mention mentionToAdd, JCas jcas,
-			HashMap<String, String> alreadyCreatedAnnotations,
-			HashMap<String, CCPClassMention> alreadyCreatedMentions) {
+			HashMap<String, String> alreadyCreatedAnnotations, HashMap<String, CCPClassMention> alreadyCreatedMentions,
+			AnnotationFeatureStructureInterner interner) {
 
 		CCPMention returnMention;
 
 		if (mentionToAdd instanceof ClassMention) {
 			returnMention = processClassMention((ClassMention) mentionToAdd, jcas, alreadyCreatedAnnotations,
-					alreadyCreatedMentions);
+					alreadyCreatedMentions, interner);
 		} else if (mentionToAdd instanceof ComplexSlotMention) {
 			returnMention = processComplexSlotMention((ComplexSlotMention) mentionToAdd, jcas,
-					alreadyCreatedAnnotations, alreadyCreatedMentions);
+					alreadyCreatedAnnotations, alreadyCreatedMentions, interner);
 		} else if (mentionToAdd instanceof SlotMention) {
 			returnMention = processSlotMention((SlotMention) mentionToAdd, jcas, alreadyCreatedAnnotations,
-					alreadyCreatedMentions);
+					alreadyCreatedMentions, interner);
 		} else {
 			System.err.println(
 					"The mention you are trying to create is an instance of: " + mentionToAdd.getClass().getName());
@@ -1076,7 +1089,7 @@ public class UIMA_Util {
 
 	private CCPClassMention processClassMention(ClassMention classMention, JCas jcas,
 			HashMap<String, String> alreadyCreatedAnnotations,
-			HashMap<String, CCPClassMention> alreadyCreatedMentions) {
+			HashMap<String, CCPClassMention> alreadyCreatedMentions, AnnotationFeatureStructureInterner interner) {
 
 		CCPClassMention ccpClassMention;
 
@@ -1112,7 +1125,7 @@ public class UIMA_Util {
 			int fsArrayIndex = 0;
 			for (ComplexSlotMention csm : complexSlotMentions) {
 				CCPComplexSlotMention ccpComplexSlotMention = (CCPComplexSlotMention) createUIMAMention(csm, jcas,
-						alreadyCreatedAnnotations, alreadyCreatedMentions);
+						alreadyCreatedAnnotations, alreadyCreatedMentions, interner);
 
 				if (ccpComplexSlotMention != null) {
 					slotMentionFSArray.set(fsArrayIndex++, ccpComplexSlotMention);
@@ -1121,7 +1134,7 @@ public class UIMA_Util {
 
 			for (SlotMention sm : slotMentions) {
 				CCPPrimitiveSlotMention ccpNonComplexSlotMention = (CCPPrimitiveSlotMention) createUIMAMention(sm, jcas,
-						alreadyCreatedAnnotations, alreadyCreatedMentions);
+						alreadyCreatedAnnotations, alreadyCreatedMentions, interner);
 
 				if (ccpNonComplexSlotMention != null) {
 					slotMentionFSArray.set(fsArrayIndex++, ccpNonComplexSlotMention);
@@ -1134,14 +1147,14 @@ public class UIMA_Util {
 			// create Knowtator annotation of TextAnnotation(s) associated with
 			// this ClassMention
 			createUIMAAnnotation(classMention.getTextAnnotation(), jcas, alreadyCreatedAnnotations,
-					alreadyCreatedMentions, ccpClassMention);
+					alreadyCreatedMentions, ccpClassMention, interner);
 		}
 		return ccpClassMention;
 	}
 
 	private CCPComplexSlotMention processComplexSlotMention(ComplexSlotMention complexSlotMention, JCas jcas,
 			HashMap<String, String> alreadyCreatedAnnotations,
-			HashMap<String, CCPClassMention> alreadyCreatedMentions) {
+			HashMap<String, CCPClassMention> alreadyCreatedMentions, AnnotationFeatureStructureInterner interner) {
 
 		// create a new Knowtator mention
 		CCPComplexSlotMention ccpComplexSlotMention = new CCPComplexSlotMention(jcas);
@@ -1159,7 +1172,7 @@ public class UIMA_Util {
 
 		for (ClassMention cm : classMentions) {
 			CCPClassMention ccpClassMention = (CCPClassMention) createUIMAMention(cm, jcas, alreadyCreatedAnnotations,
-					alreadyCreatedMentions);
+					alreadyCreatedMentions, interner);
 			classMentionFSArray.set(fsArrayIndex++, ccpClassMention);
 		}
 
@@ -1171,7 +1184,7 @@ public class UIMA_Util {
 
 	private CCPPrimitiveSlotMention processSlotMention(SlotMention slotMention, JCas jcas,
 			HashMap<String, String> alreadyCreatedAnnotations,
-			HashMap<String, CCPClassMention> alreadyCreatedMentions) {
+			HashMap<String, CCPClassMention> alreadyCreatedMentions, AnnotationFeatureStructureInterner interner) {
 
 		Collection<Object> slotValues = slotMention.getSlotValues();
 		CCPPrimitiveSlotMention ccpPSM = null;
@@ -1281,11 +1294,7 @@ public class UIMA_Util {
 	}
 
 	public static void addSlotMentions(CCPClassMention ccpCM, Collection<CCPSlotMention> slotMentions, JCas jcas) {
-		FSArray updatedSlotMentions = ccpCM.getSlotMentions();
-		for (CCPSlotMention ccpSM : slotMentions) {
-			updatedSlotMentions = addToFSArray(updatedSlotMentions, ccpSM, jcas);
-		}
-		ccpCM.setSlotMentions(updatedSlotMentions);
+		ccpCM.setSlotMentions(addToFSArray(ccpCM.getSlotMentions(), slotMentions, jcas));
 	}
 
 	/**
@@ -1394,22 +1403,22 @@ public class UIMA_Util {
 
 	/**
 	 * Returns a new FSArray consisting of the contents of the input FSArray and
-	 * the Collection of FeatureStructure objects
+	 * the Collection of FeatureStructure objects. The returned array is
+	 * allocated once, sized to hold both the existing and the added feature
+	 * structures.
 	 * 
 	 * @param fsArray
+	 *            may be null
 	 * @param featureStructuresToAdd
 	 * @return
-	 * @throws CASException
 	 */
-	public static FSArray addToFSArray(FSArray fsArray, Collection<TOP> featureStructuresToAdd, JCas jcas) {
-		if (fsArray == null) {
-			fsArray = new FSArray(jcas, 0);
-		}
-		FSArray fsArrayToReturn = new FSArray(jcas, fsArray.size() + featureStructuresToAdd.size());
-		for (int i = 0; i < fsArray.size(); i++) {
+	public static FSArray addToFSArray(FSArray fsArray, Collection<? extends TOP> featureStructuresToAdd, JCas jcas) {
+		int size = (fsArray == null) ? 0 : fsArray.size();
+		FSArray fsArrayToReturn = new FSArray(jcas, size + featureStructuresToAdd.size());
+		for (int i = 0; i < size; i++) {
 			fsArrayToReturn.set(i, fsArray.get(i));
 		}
-		int index = fsArray.size();
+		int index = size;
 		for (TOP fs : featureStructuresToAdd) {
 			fsArrayToReturn.set(index++, fs);
 		}
@@ -1417,7 +1426,10 @@ public class UIMA_Util {
 	}
 
 	/**
-	 * Adds a single feature structure to a FSArray
+	 * Adds a single feature structure to a FSArray. Appending n feature
+	 * structures one at a time copies the array n times; use
+	 * {@link #addToFSArray(FSArray, Collection, JCas)} or
+	 * {@link SlotMentionBuilder} when adding several.
 	 * 
 	 * @param fsArray
 	 * @param featureStructureToAdd
@@ -1425,74 +1437,132 @@ public class UIMA_Util {
 	 * @return
 	 */
 	public static FSArray addToFSArray(FSArray fsArray, TOP featureStructureToAdd, JCas jcas) {
-		if (fsArray == null) {
-			fsArray = new FSArray(jcas, 0);
-		}
-		FSArray fsArrayToReturn = new FSArray(jcas, fsArray.size() + 1);
-		for (int i = 0; i < fsArray.size(); i++) {
-			fsArrayToReturn.set(i, fsArray.get(i));
-		}
-		fsArrayToReturn.set(fsArray.size(), featureStructureToAdd);
-		return fsArrayToReturn;
+		return addToFSArray(fsArray, Collections.singleton(featureStructureToAdd), jcas);
 	}
 
 	public static StringArray addToStringArray(StringArray stringArray, String stringToAdd, JCas jcas) {
-		if (stringArray == null) {
-			stringArray = new StringArray(jcas, 0);
-		}
-		StringArray stringArrayToReturn = new StringArray(jcas, stringArray.size() + 1);
-		for (int i = 0; i < stringArray.size(); i++) {
+		return addToStringArray(stringArray, Collections.singleton(stringToAdd), jcas);
+	}
+
+	/**
+	 * @param stringArray
+	 *            may be null
+	 * @param stringsToAdd
+	 * @param jcas
+	 * @return a new {@link StringArray} containing the contents of the input
+	 *         array followed by the strings to add
+	 */
+	public static StringArray addToStringArray(StringArray stringArray, Collection<String> stringsToAdd, JCas jcas) {
+		int size = (stringArray == null) ? 0 : stringArray.size();
+		StringArray stringArrayToReturn = new StringArray(jcas, size + stringsToAdd.size());
+		for (int i = 0; i < size; i++) {
 			stringArrayToReturn.set(i, stringArray.get(i));
 		}
-		stringArrayToReturn.set(stringArray.size(), stringToAdd);
+		int index = size;
+		for (String s : stringsToAdd) {
+			stringArrayToReturn.set(index++, s);
+		}
 		return stringArrayToReturn;
 	}
 
 	public static IntegerArray addToIntegerArray(IntegerArray integerArray, Integer integerToAdd, JCas jcas) {
-		if (integerArray == null) {
-			integerArray = new IntegerArray(jcas, 0);
-		}
-		IntegerArray integerArrayToReturn = new IntegerArray(jcas, integerArray.size() + 1);
-		for (int i = 0; i < integerArray.size(); i++) {
+		return addToIntegerArray(integerArray, Collections.singleton(integerToAdd), jcas);
+	}
+
+	/**
+	 * @param integerArray
+	 *            may be null
+	 * @param integersToAdd
+	 * @param jcas
+	 * @return a new {@link IntegerArray} containing the contents of the input
+	 *         array followed by the integers to add
+	 */
+	public static IntegerArray addToIntegerArray(IntegerArray integerArray, Collection<Integer> integersToAdd,
+			JCas jcas) {
+		int size = (integerArray == null) ? 0 : integerArray.size();
+		IntegerArray integerArrayToReturn = new IntegerArray(jcas, size + integersToAdd.size());
+		for (int i = 0; i < size; i++) {
 			integerArrayToReturn.set(i, integerArray.get(i));
 		}
-		integerArrayToReturn.set(integerArray.size(), integerToAdd);
+		int index = size;
+		for (Integer i : integersToAdd) {
+			integerArrayToReturn.set(index++, i);
+		}
 		return integerArrayToReturn;
 	}
 
 	public static LongArray addToLongArray(LongArray longArray, Long longToAdd, JCas jcas) {
-		if (longArray == null) {
-			longArray = new LongArray(jcas, 0);
-		}
-		LongArray longArrayToReturn = new LongArray(jcas, longArray.size() + 1);
-		for (int i = 0; i < longArray.size(); i++) {
+		return addToLongArray(longArray, Collections.singleton(longToAdd), jcas);
+	}
+
+	/**
+	 * @param longArray
+	 *            may be null
+	 * @param longsToAdd
+	 * @param jcas
+	 * @return a new {@link LongArray} containing the contents of the input
+	 *         array followed by the longs to add
+	 */
+	public static LongArray addToLongArray(LongArray longArray, Collection<Long> longsToAdd, JCas jcas) {
+		int size = (longArray == null) ? 0 : longArray.size();
+		LongArray longArrayToReturn = new LongArray(jcas, size + longsToAdd.size());
+		for (int i = 0; i < size; i++) {
 			longArrayToReturn.set(i, longArray.get(i));
 		}
-		longArrayToReturn.set(longArray.size(), longToAdd);
+		int index = size;
+		for (Long l : longsToAdd) {
+			longArrayToReturn.set(index++, l);
+		}
 		return longArrayToReturn;
 	}
 
 	public static FloatArray addToFloatArray(FloatArray floatArray, Float floatToAdd, JCas jcas) {
-		if (floatArray == null) {
-			floatArray = new FloatArray(jcas, 0);
-		}
-		FloatArray floatArrayToReturn = new FloatArray(jcas, floatArray.size() + 1);
-		for (int i = 0; i < floatArray.size(); i++) {
+		return addToFloatArray(floatArray, Collections.singleton(floatToAdd), jcas);
+	}
+
+	/**
+	 * @param floatArray
+	 *            may be null
+	 * @param floatsToAdd
+	 * @param jcas
+	 * @return a new {@link FloatArray} containing the contents of the input
+	 *         array followed by the floats to add
+	 */
+	public static FloatArray addToFloatArray(FloatArray floatArray, Collection<Float> floatsToAdd, JCas jcas) {
+		int size = (floatArray == null) ? 0 : floatArray.size();
+		FloatArray floatArrayToReturn = new FloatArray(jcas, size + floatsToAdd.size());
+		for (int i = 0; i < size; i++) {
 			floatArrayToReturn.set(i, floatArray.get(i));
 		}
-		floatArrayToReturn.set(floatArray.size(), floatToAdd);
+		int index = size;
+		for (Float f : floatsToAdd) {
+			floatArrayToReturn.set(index++, f);
+		}
 		return floatArrayToReturn;
 	}
 
 	public static DoubleArray addToDoubleArray(DoubleArray doubleArray, Double doubleToAdd, JCas jcas) {
-		if (doubleArray == null) {
-			doubleArray = new DoubleArray(jcas, 0);
-		}
-		DoubleArray doubleArrayToReturn = new DoubleArray(jcas, doubleArray.size() + 1);
-		for (int i = 0; i < doubleArray.size(); i++) {
+		return addToDoubleArray(doubleArray, Collections.singleton(doubleToAdd), jcas);
+	}
+
+	/**
+	 * @param doubleArray
+	 *            may be null
+	 * @param doublesToAdd
+	 * @param jcas
+	 * @return a new {@link DoubleArray} containing the contents of the input
+	 *         array followed by the doubles to add
+	 */
+	public static DoubleArray addToDoubleArray(DoubleArray doubleArray, Collection<Double> doublesToAdd, JCas jcas) {
+		int size = (doubleArray == null) ? 0 : doubleArray.size();
+		DoubleArray doubleArrayToReturn = new DoubleArray(jcas, size + doublesToAdd.size());
+		for (int i = 0; i < size; i++) {
 			doubleArrayToReturn.set(i, doubleArray.get(i));
 		}
-		doubleArrayToReturn.set(doubleArray.size(), doubleToAdd);
+		int index = size;
+		for (Double d : doublesToAdd) {
+			doubleArrayToReturn.set(index++, d);
+		}
 		return doubleArrayToReturn;
 	}
 
@@ -1767,38 +1837,13 @@ public class UIMA_Util {
 
 	private static void addClassMentionAsCSMSlotFiller(CCPComplexSlotMention ccpCSM, CCPClassMention ccpCM)
 			throws CASException {
-		FSArray slotFillerCMs = ccpCSM.getClassMentions();
-		if (slotFillerCMs == null) {
-			slotFillerCMs = new FSArray(ccpCSM.getCAS().getJCas(), 1);
-			slotFillerCMs.set(0, ccpCM);
-			ccpCSM.setClassMentions(slotFillerCMs);
-		} else {
-			FeatureStructure[] featureStructures = slotFillerCMs.toArray();
-			FSArray fsArray = new FSArray(ccpCSM.getCAS().getJCas(), featureStructures.length + 1);
-			for (int i = 0; i < featureStructures.length; i++) {
-				fsArray.set(i, featureStructures[i]);
-			}
-			fsArray.set(fsArray.size() - 1, ccpCM);
-			ccpCSM.setClassMentions(fsArray);
-		}
+		ccpCSM.setClassMentions(addToFSArray(ccpCSM.getClassMentions(), ccpCM, ccpCSM.getCAS().getJCas()));
 	}
 
 	private static void addSlotMention(CCPClassMention ccpClassMention, CCPSlotMention ccpSlotMention)
 			throws CASException {
-		FSArray slotMentions = ccpClassMention.getSlotMentions();
-		if (slotMentions == null) {
-			slotMentions = new FSArray(ccpClassMention.getCAS().getJCas(), 1);
-			slotMentions.set(0, ccpSlotMention);
-		} else {
-			FeatureStructure[] featureStructures = slotMentions.toArray();
-			int index = 0;
-			slotMentions = new FSArray(ccpClassMention.getCAS().getJCas(), featureStructures.length + 1);
-			for (FeatureStructure fs : featureStructures) {
-				slotMentions.set(index++, fs);
-			}
-			slotMentions.set(index, ccpSlotMention);
-		}
-		ccpClassMention.setSlotMentions(slotMentions);
+		ccpClassMention.setSlotMentions(addToFSArray(ccpClassMention.getSlotMentions(), ccpSlotMention,
+				ccpClassMention.getCAS().getJCas()));
 	}
 
 	/**
@@ -1941,122 +1986,22 @@ public class UIMA_Util {
 	 * @return
 	 */
 	public static Iterator<Annotation> getAnnotationsWithinSpan(Span span, JCas jcas, int annotationType) {
-
-		// System.out.println("Looking for annotations within " +
-		// span.getSpanStart() + " -- " +
-		// span.getSpanEnd());
-		/* Get a reference to the CAS and the CAS ConstraintFactory */
-		CAS cas = jcas.getCas();
-		ConstraintFactory cf = cas.getConstraintFactory();
-
-		/* Constraints are built from tests and feature-paths */
-		/* First build the tests */
-		FSIntConstraint gtEqToSpanStart = cf.createIntConstraint();
-		gtEqToSpanStart.geq(span.getSpanStart());
-
-		FSIntConstraint ltEqToSpanEnd = cf.createIntConstraint();
-		ltEqToSpanEnd.leq(span.getSpanEnd());
-
-		/* Get handles to the features, use the type system */
-		TypeSystem ts = cas.getTypeSystem();
-
-		Feature beginFeature = ts.getFeatureByFullName(CAS.FEATURE_FULL_NAME_BEGIN);
-		Feature endFeature = ts.getFeatureByFullName(CAS.FEATURE_FULL_NAME_END);
-
-		/* Create a feature path for each feature */
-		FeaturePath pathToBeginValue = cas.createFeaturePath();
-		pathToBeginValue.addFeature(beginFeature);
-		FeaturePath pathToEndValue = cas.createFeaturePath();
-		pathToEndValue.addFeature(endFeature);
-
-		/*
-		 * Connect the tests to the feature paths (s = the span of the trigger
-		 * annotation, c = the span of the phrases and tokens to compare)
-		 */
-
-		/**
-		 * is it within the span
-		 * 
-		 * <pre>
-		 *                           ccccc
-		 *                          ssssssss
-		 * </pre>
-		 */
-		FSMatchConstraint testBegin = cf.embedConstraint(pathToBeginValue, gtEqToSpanStart);
-		FSMatchConstraint testEnd = cf.embedConstraint(pathToEndValue, ltEqToSpanEnd);
-
-		/*
-		 * AND the tests for each of the three cases, then OR the AND'ed tests
-		 * together
-		 */
-		FSMatchConstraint testBoth = cf.and(testBegin, testEnd);
-
-		/* Create a filtered iterator that uses this constraint */
-		Iterator<Annotation> iter = (Iterator<Annotation>) cas.createFilteredIterator(
-				jcas.getJFSIndexRepository().getAnnotationIndex(annotationType).iterator(), testBoth);
-
-		return iter;
-
+		return getAnnotationsWithinSpan(span, jcas, jcas.getCasType(annotationType));
 	}
 
+	/**
+	 * return all annotations of the specified type that lie completely within
+	 * the input span. Queries are answered by the {@link AnnotationSpanIndex}
+	 * for the CAS, which is built the first time it is needed.
+	 * 
+	 * @param span
+	 * @param jcas
+	 * @param annotationType
+	 * @return
+	 */
 	public static Iterator<Annotation> getAnnotationsWithinSpan(Span span, JCas jcas, Type annotationType) {
-
-		// System.out.println("Looking for annotations within " +
-		// span.getSpanStart() + " -- " +
-		// span.getSpanEnd());
-
-		/* Get a reference to the CAS and the CAS ConstraintFactory */
-		CAS cas = jcas.getCas();
-		ConstraintFactory cf = cas.getConstraintFactory();
-
-		/* Constraints are built from tests and feature-paths */
-		/* First build the tests */
-		FSIntConstraint gtEqToSpanStart = cf.createIntConstraint();
-		gtEqToSpanStart.geq(span.getSpanStart());
-
-		FSIntConstraint ltEqToSpanEnd = cf.createIntConstraint();
-		ltEqToSpanEnd.leq(span.getSpanEnd());
-
-		/* Get handles to the features, use the type system */
-		TypeSystem ts = cas.getTypeSystem();
-
-		Feature beginFeature = ts.getFeatureByFullName(CAS.FEATURE_FULL_NAME_BEGIN);
-		Feature endFeature = ts.getFeatureByFullName(CAS.FEATURE_FULL_NAME_END);
-
-		/* Create a feature path for each feature */
-		FeaturePath pathToBeginValue = cas.createFeaturePath();
-		pathToBeginValue.addFeature(beginFeature);
-		FeaturePath pathToEndValue = cas.createFeaturePath();
-		pathToEndValue.addFeature(endFeature);
-
-		/*
-		 * Connect the tests to the feature paths (s = the span of the trigger
-		 * annotation, c = the span of the phrases and tokens to compare)
-		 */
-
-		/**
-		 * is it within the span
-		 * 
-		 * <pre>
-		 *                           ccccc
-		 *                          ssssssss
-		 * </pre>
-		 */
-		FSMatchConstraint testBegin = cf.embedConstraint(pathToBeginValue, gtEqToSpanStart);
-		FSMatchConstraint testEnd = cf.embedConstraint(pathToEndValue, ltEqToSpanEnd);
-
-		/*
-		 * AND the tests for each of the three cases, then OR the AND'ed tests
-		 * together
-		 */
-		FSMatchConstraint testBoth = cf.and(testBegin, testEnd);
-
-		/* Create a filtered iterator that uses this constraint */
-		Iterator<Annotation> iter = (Iterator<Annotation>) cas
-				.createFilteredIterator(jcas.getAnnotationIndex(annotationType).iterator(), testBoth);
-
-		return iter;
-
+		return AnnotationSpanIndex
+				.getAnnotationsWithinSpan(jcas, annotationType, span.getSpanStart(), span.getSpanEnd()).iterator();
 	}
 
 	public static Iterator<Annotation> getOverlappingAnnotations(CCPTextAnnotation ccpTA, JCas jcas, int annotType) {
@@ -2077,104 +2022,18 @@ public class UIMA_Util {
 	}
 
 	/**
-	 * return all annotations that contain the input span
+	 * return all annotations that overlap the input span, i.e. annotations that
+	 * overlap its left edge, overlap its right edge, or lie completely within
+	 * it. Queries are answered by the {@link AnnotationSpanIndex} for the CAS,
+	 * which is built the first time it is needed.
 	 * 
 	 * @param span
 	 * @param jcas
 	 * @return
 	 */
 	public static Iterator<Annotation> getAnnotationsEncompassingSpan(Span span, JCas jcas, int annotType) {
-
-		// System.out.println("Looking for annotations overlapping " +
-		// span.getSpanStart() + " -- "
-		// +
-		// span.getSpanEnd());
-
-		/* Get a reference to the CAS and the CAS ConstraintFactory */
-		CAS cas = jcas.getCas();
-		ConstraintFactory cf = cas.getConstraintFactory();
-
-		/* Constraints are built from tests and feature-paths */
-		/* First build the tests */
-		FSIntConstraint ltEqToSpanStart = cf.createIntConstraint();
-		ltEqToSpanStart.leq(span.getSpanStart());
-		FSIntConstraint gtSpanStart = cf.createIntConstraint();
-		gtSpanStart.gt(span.getSpanStart());
-		FSIntConstraint gtEqToSpanStart = cf.createIntConstraint();
-		gtEqToSpanStart.geq(span.getSpanStart());
-
-		FSIntConstraint gtEqToSpanEnd = cf.createIntConstraint();
-		gtEqToSpanEnd.geq(span.getSpanEnd());
-		FSIntConstraint ltSpanEnd = cf.createIntConstraint();
-		ltSpanEnd.lt(span.getSpanEnd());
-		FSIntConstraint ltEqToSpanEnd = cf.createIntConstraint();
-		ltEqToSpanEnd.leq(span.getSpanEnd());
-
-		/* Get handles to the features, use the type system */
-		TypeSystem ts = cas.getTypeSystem();
-
-		Feature beginFeature = ts.getFeatureByFullName(CAS.FEATURE_FULL_NAME_BEGIN);
-		Feature endFeature = ts.getFeatureByFullName(CAS.FEATURE_FULL_NAME_END);
-
-		/* Create a feature path for each feature */
-		FeaturePath pathToBeginValue = cas.createFeaturePath();
-		pathToBeginValue.addFeature(beginFeature);
-		FeaturePath pathToEndValue = cas.createFeaturePath();
-		pathToEndValue.addFeature(endFeature);
-
-		/*
-		 * Connect the tests to the feature paths (s = the span of the trigger
-		 * annotation, c = the span of the phrases and tokens to compare)
-		 */
-
-		/**
-		 * does it overlap the left
-		 * 
-		 * <pre>
-		 *                      cccccccc
-		 *                          ssssssss
-		 * </pre>
-		 */
-		FSMatchConstraint testBegin1 = cf.embedConstraint(pathToBeginValue, ltEqToSpanStart);
-		FSMatchConstraint testEnd1 = cf.embedConstraint(pathToEndValue, gtSpanStart);
-		/**
-		 * does it overlap the right
-		 * 
-		 * <pre>
-		 *                        ccccccccc 
-		 *                     sssssss
-		 * </pre>
-		 */
-		FSMatchConstraint testBegin2 = cf.embedConstraint(pathToBeginValue, ltSpanEnd);
-		FSMatchConstraint testEnd2 = cf.embedConstraint(pathToEndValue, gtEqToSpanEnd);
-		/**
-		 * is it completely in the middle
-		 * 
-		 * <pre>
-		 *                      cccc 
-		 *                    sssssssssss
-		 * </pre>
-		 */
-		FSMatchConstraint testBegin3 = cf.embedConstraint(pathToBeginValue, gtEqToSpanStart);
-		FSMatchConstraint testEnd3 = cf.embedConstraint(pathToEndValue, ltEqToSpanEnd);
-
-		/*
-		 * AND the tests for each of the three cases, then OR the AND'ed tests
-		 * together
-		 */
-		FSMatchConstraint testBoth1 = cf.and(testBegin1, testEnd1);
-		FSMatchConstraint testBoth2 = cf.and(testBegin2, testEnd2);
-		FSMatchConstraint testBoth3 = cf.and(testBegin3, testEnd3);
-
-		FSMatchConstraint testBoth12 = cf.or(testBoth1, testBoth2);
-		FSMatchConstraint testBoth123 = cf.or(testBoth12, testBoth3);
-
-		/* Create a filtered iterator that uses this constraint */
-		Iterator<Annotation> iter = (Iterator<Annotation>) cas.createFilteredIterator(
-				jcas.getJFSIndexRepository().getAnnotationIndex(annotType).iterator(), testBoth123);
-
-		return iter;
-
+		return AnnotationSpanIndex.getOverlappingAnnotations(jcas, jcas.getCasType(annotType), span.getSpanStart(),
+				span.getSpanEnd()).iterator();
 	}
 
 	/**
@@ -2334,6 +2193,7 @@ public class UIMA_Util {
 		ccpTA.setSpans(ccpSpans);
 		ccpTA.setBegin(spanStart);
 		ccpTA.setEnd(spanEnd);
+		AnnotationSpanIndex.invalidate(ccpTA);
 
 		// /* update class mention to point to this text annotation */
 		// CCPClassMention ccpCM = ccpTA.getClassMention();
@@ -0,0 +1,163 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CASException;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.nlp.core.annotation.Span;
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPTextAnnotation;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+
+/**
+ * Checks the span queries in {@link UIMA_Util} that are backed by the
+ * {@link AnnotationSpanIndex} against a brute-force scan of the annotation
+ * index
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class AnnotationSpanIndexTest extends DefaultUIMATestCase {
+
+	private static final int DOCUMENT_LENGTH = 500;
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < DOCUMENT_LENGTH; i++) {
+			sb.append('x');
+		}
+		jcas.setDocumentText(sb.toString());
+		Random random = new Random(42);
+		for (int i = 0; i < 300; i++) {
+			int start = random.nextInt(DOCUMENT_LENGTH);
+			int end = Math.min(DOCUMENT_LENGTH, start + random.nextInt(40));
+			addTextAnnotationToJCas(start, end, "entity");
+		}
+		/* zero-length annotations exercise the edge cases of the overlap test */
+		addTextAnnotationToJCas(100, 100, "entity");
+		addTextAnnotationToJCas(250, 250, "entity");
+	}
+
+	@Test
+	public void testWithinSpanMatchesBruteForce() {
+		for (int start = 0; start < DOCUMENT_LENGTH; start += 7) {
+			for (int end = start; end <= DOCUMENT_LENGTH && end < start + 80; end += 5) {
+				List<Annotation> expected = new ArrayList<Annotation>();
+				for (Iterator<Annotation> annotIter = allAnnotations(); annotIter.hasNext();) {
+					Annotation annot = annotIter.next();
+					if (annot.getBegin() >= start && annot.getEnd() <= end) {
+						expected.add(annot);
+					}
+				}
+				assertEquals(expected, CollectionsUtil.createList(UIMA_Util.getAnnotationsWithinSpan(new Span(start,
+						end), jcas, CCPTextAnnotation.type)));
+			}
+		}
+	}
+
+	@Test
+	public void testOverlappingMatchesBruteForce() {
+		for (int start = 0; start < DOCUMENT_LENGTH; start += 7) {
+			for (int end = start; end <= DOCUMENT_LENGTH && end < start + 80; end += 5) {
+				List<Annotation> expected = new ArrayList<Annotation>();
+				for (Iterator<Annotation> annotIter = allAnnotations(); annotIter.hasNext();) {
+					Annotation annot = annotIter.next();
+					int b = annot.getBegin();
+					int e = annot.getEnd();
+					if ((b <= start && e > start) || (b < end && e >= end) || (b >= start && e <= end)) {
+						expected.add(annot);
+					}
+				}
+				assertEquals(expected, CollectionsUtil.createList(UIMA_Util.getAnnotationsEncompassingSpan(new Span(
+						start, end), jcas, CCPTextAnnotation.type)));
+			}
+		}
+	}
+
+	@Test
+	public void testIndexIsRebuiltWhenAnnotationsAreAdded() {
+		Span span = new Span(490, 500);
+		int before = CollectionsUtil.createList(UIMA_Util.getAnnotationsWithinSpan(span, jcas)).size();
+		addTextAnnotationToJCas(495, 496, "entity");
+		assertEquals(before + 1, CollectionsUtil.createList(UIMA_Util.getAnnotationsWithinSpan(span, jcas)).size());
+	}
+
+	@Test
+	public void testIndexIsRebuiltWhenSpanIsUpdated() throws CASException {
+		Span span = new Span(490, 500);
+		CCPTextAnnotation moved = null;
+		for (Iterator<Annotation> annotIter = allAnnotations(); annotIter.hasNext() && moved == null;) {
+			Annotation annot = annotIter.next();
+			if (annot.getEnd() < 400) {
+				moved = (CCPTextAnnotation) annot;
+			}
+		}
+		assertFalse(CollectionsUtil.createList(UIMA_Util.getAnnotationsWithinSpan(span, jcas)).contains(moved));
+		UIMA_Util.setCCPTextAnnotationSpan(moved, 495, 496);
+		assertTrue(CollectionsUtil.createList(UIMA_Util.getAnnotationsWithinSpan(span, jcas)).contains(moved));
+	}
+
+	@Test
+	public void testAnnotationModifiedInPlaceIsNotReturned() {
+		Span span = new Span(0, 50);
+		List<Annotation> withinSpan = CollectionsUtil.createList(UIMA_Util.getAnnotationsWithinSpan(span, jcas,
+				CCPTextAnnotation.type));
+		Annotation modified = withinSpan.get(0);
+		modified.setBegin(DOCUMENT_LENGTH - 1);
+		modified.setEnd(DOCUMENT_LENGTH);
+		List<Annotation> updated = CollectionsUtil.createList(UIMA_Util.getAnnotationsWithinSpan(span, jcas,
+				CCPTextAnnotation.type));
+		assertFalse(updated.contains(modified));
+		assertEquals(withinSpan.size() - 1, updated.size());
+	}
+
+	private Iterator<Annotation> allAnnotations() {
+		return jcas.getAnnotationIndex(jcas.getCasType(CCPTextAnnotation.type)).iterator();
+	}
+
+}
@@ -0,0 +1,102 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.uima.UIMAException;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.uima.annotation.CCPDocumentInformation;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class DocumentInformationCacheTest extends DefaultUIMATestCase {
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("The first document.");
+		UIMA_Util.setDocumentID(jcas, "doc1");
+		UIMA_Util.setDocumentCollectionID(jcas, 7);
+	}
+
+	@Test
+	public void testRepeatedLookupsReturnSameDocumentInformation() {
+		CCPDocumentInformation docInfo = UIMA_Util.getDocumentInfo(jcas);
+		assertSame(docInfo, UIMA_Util.getDocumentInfo(jcas));
+		assertEquals("doc1", UIMA_Util.getDocumentID(jcas));
+		assertEquals(7, UIMA_Util.getDocumentCollectionID(jcas));
+	}
+
+	@Test
+	public void testLookupAfterUpdate() {
+		UIMA_Util.setDocumentID(jcas, "doc1-updated");
+		assertEquals("doc1-updated", UIMA_Util.getDocumentID(jcas));
+	}
+
+	@Test
+	public void testLookupAfterCasReset() {
+		assertEquals("doc1", UIMA_Util.getDocumentID(jcas));
+		jcas.reset();
+		jcas.setDocumentText("The second document.");
+		assertNull(UIMA_Util.getDocumentInfo(jcas));
+		assertEquals("-1", UIMA_Util.getDocumentID(jcas));
+
+		UIMA_Util.setDocumentID(jcas, "doc2");
+		assertEquals("doc2", UIMA_Util.getDocumentID(jcas));
+	}
+
+	@Test
+	public void testLookupAfterSameTextIsReloaded() {
+		String documentText = jcas.getDocumentText();
+		assertEquals("doc1", UIMA_Util.getDocumentID(jcas));
+		jcas.reset();
+		jcas.setDocumentText(documentText);
+		assertNull(UIMA_Util.getDocumentInfo(jcas));
+	}
+
+	@Test
+	public void testLookupAfterRemovalFromIndexes() {
+		CCPDocumentInformation docInfo = UIMA_Util.getDocumentInfo(jcas);
+		docInfo.removeFromIndexes();
+		assertNull(UIMA_Util.getDocumentInfo(jcas));
+	}
+
+}
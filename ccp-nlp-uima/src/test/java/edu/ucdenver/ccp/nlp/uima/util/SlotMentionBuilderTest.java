@@ -0,0 +1,168 @@
+package edu.ucdenver.ccp.nlp.uima.util;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CASException;
+import org.apache.uima.cas.impl.CASImpl;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.nlp.core.annotation.impl.KnowledgeRepresentationWrapperException;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPClassMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPComplexSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPIntegerSlotMention;
+import edu.ucdenver.ccp.nlp.core.uima.mention.CCPStringSlotMention;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+
+public class SlotMentionBuilderTest extends DefaultUIMATestCase {
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		jcas.setDocumentText("The protein binds the receptor.");
+	}
+
+	private CCPClassMention createClassMention(String mentionName, int start, int end) {
+		return UIMA_Annotation_Util.createCCPTextAnnotation(mentionName, start, end, jcas).getClassMention();
+	}
+
+	private int getHeapSize() {
+		return ((CASImpl) jcas.getCas()).getHeap().getNextId();
+	}
+
+	@Test
+	public void testCommitCreatesSlots() {
+		CCPClassMention ccpCM = createClassMention("protein", 4, 11);
+		CCPClassMention fillerCM = createClassMention("receptor", 22, 30);
+
+		new SlotMentionBuilder(ccpCM).addSlotValue("name", "p1").addSlotValues("name", Arrays.asList("p2", "p3"))
+				.addSlotValue("count", 2).addSlotValue("count", 5).addSlotValue("binds", fillerCM).commit();
+
+		assertEquals(3, ccpCM.getSlotMentions().size());
+		CCPStringSlotMention nameSlot = (CCPStringSlotMention) UIMA_Util.getSlotMentionByName(ccpCM, "name");
+		assertEquals(Arrays.asList("p1", "p2", "p3"), Arrays.asList(nameSlot.getSlotValues().toArray()));
+		CCPIntegerSlotMention countSlot = (CCPIntegerSlotMention) UIMA_Util.getSlotMentionByName(ccpCM, "count");
+		assertEquals(2, countSlot.getSlotValues().size());
+		assertEquals(5, countSlot.getSlotValues().get(1));
+		CCPComplexSlotMention bindsSlot = (CCPComplexSlotMention) UIMA_Util.getSlotMentionByName(ccpCM, "binds");
+		assertSame(fillerCM, bindsSlot.getClassMentions().get(0));
+	}
+
+	@Test
+	public void testCommitAppendsToExistingSlot() throws CASException {
+		CCPClassMention ccpCM = createClassMention("token", 0, 3);
+		UIMA_Util.addSlotValue(ccpCM, "pos", "DT");
+
+		SlotMentionBuilder builder = new SlotMentionBuilder(ccpCM);
+		builder.addSlotValue("pos", "NN").addSlotValue("pos", "JJ").commit();
+		/* the builder is reusable once committed */
+		builder.addSlotValue("pos", "VB").commit();
+
+		assertEquals(1, ccpCM.getSlotMentions().size());
+		CCPStringSlotMention posSlot = (CCPStringSlotMention) UIMA_Util.getSlotMentionByName(ccpCM, "pos");
+		assertEquals(Arrays.asList("DT", "NN", "JJ", "VB"), Arrays.asList(posSlot.getSlotValues().toArray()));
+	}
+
+	/**
+	 * Adding n values one at a time copies the value array n times, whereas a single commit
+	 * allocates it once
+	 */
+	@Test
+	public void testCommitAllocatesValueArrayOnce() throws CASException {
+		int valueCount = 200;
+		CCPClassMention incrementalCM = createClassMention("token", 0, 3);
+		int heapSizeBefore = getHeapSize();
+		for (int i = 0; i < valueCount; i++) {
+			UIMA_Util.addSlotValue(incrementalCM, "value", "v" + i);
+		}
+		int incrementalHeapUsage = getHeapSize() - heapSizeBefore;
+
+		CCPClassMention builderCM = createClassMention("token", 4, 11);
+		heapSizeBefore = getHeapSize();
+		SlotMentionBuilder builder = new SlotMentionBuilder(builderCM);
+		for (int i = 0; i < valueCount; i++) {
+			builder.addSlotValue("value", "v" + i);
+		}
+		builder.commit();
+		int builderHeapUsage = getHeapSize() - heapSizeBefore;
+
+		assertEquals(valueCount, ((CCPStringSlotMention) UIMA_Util.getSlotMentionByName(builderCM, "value"))
+				.getSlotValues().size());
+		/* one string array of valueCount entries plus a small constant overhead */
+		assertTrue(builderHeapUsage < 2 * valueCount);
+		assertTrue(incrementalHeapUsage > valueCount * valueCount / 2);
+	}
+
+	@Test(expected = KnowledgeRepresentationWrapperException.class)
+	public void testMixedValueTypesAreRejected() {
+		new SlotMentionBuilder(createClassMention("token", 0, 3)).addSlotValue("value", "a").addSlotValue("value", 1);
+	}
+
+	@Test(expected = KnowledgeRepresentationWrapperException.class)
+	public void testIncompatibleExistingSlotIsRejected() throws CASException {
+		CCPClassMention ccpCM = createClassMention("token", 0, 3);
+		UIMA_Util.addSlotValue(ccpCM, "value", "a");
+		new SlotMentionBuilder(ccpCM).addSlotValue("value", 1).commit();
+	}
+
+	@Test
+	public void testFailedCommitLeavesCasUnchanged() throws CASException {
+		CCPClassMention ccpCM = createClassMention("token", 0, 3);
+		UIMA_Util.addSlotValue(ccpCM, "value", "a");
+		SlotMentionBuilder builder = new SlotMentionBuilder(ccpCM).addSlotValue("name", "n1").addSlotValue("value", 1);
+		int heapSize = getHeapSize();
+		try {
+			builder.commit();
+			fail("The integer value should not be appended to a string slot.");
+		} catch (KnowledgeRepresentationWrapperException e) {
+			/* expected */
+		}
+		assertEquals(heapSize, getHeapSize());
+		assertEquals(1, ccpCM.getSlotMentions().size());
+		assertNull(UIMA_Util.getSlotMentionByName(ccpCM, "name"));
+
+		/* the pending values were cleared, so the builder can be reused */
+		builder.addSlotValue("name", "n2").commit();
+		CCPStringSlotMention nameSlot = (CCPStringSlotMention) UIMA_Util.getSlotMentionByName(ccpCM, "name");
+		assertEquals(Arrays.asList("n2"), Arrays.asList(nameSlot.getSlotValues().toArray()));
+	}
+
+}
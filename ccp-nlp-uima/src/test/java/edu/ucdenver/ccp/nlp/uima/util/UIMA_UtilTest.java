@@ -51,6 +51,7 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
 import org.apache.uima.jcas.JCas;
@@ -651,6 +652,66 @@ public class UIMA_UtilTest {
 
 	}
 
+	/**
+	 * Annotations inserted in a batch should share annotator and annotation set feature structures,
+	 * and should use less of the CAS heap than annotations inserted one at a time
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testPutTextAnnotationsIntoJCas_SharedFeatureStructures() throws Exception {
+		int annotationCount = 1000;
+		List<TextAnnotation> textAnnotations = new ArrayList<TextAnnotation>();
+		for (int i = annotationCount - 1; i >= 0; i--) {
+			TextAnnotation ta = new DefaultTextAnnotation(i * 10, i * 10 + 5);
+			ta.setAnnotator(new Annotator("99", "tagger", "CCP"));
+			ta.addAnnotationSet(new AnnotationSet(5, "set", "description"));
+			ta.setClassMention(new DefaultClassMention("protein"));
+			textAnnotations.add(ta);
+		}
+
+		JCas unsharedJCas = initializeJCas("12345", jcas.getDocumentText());
+		int heapCellsBefore = ((CASImpl) unsharedJCas.getCas()).getHeap().getNextId();
+		for (TextAnnotation ta : textAnnotations) {
+			CCPTextAnnotation ccpTA = new CCPTextAnnotation(unsharedJCas);
+			UIMA_Util.swapAnnotationInfo(ta, ccpTA, unsharedJCas);
+			CCPClassMention ccpCM = new CCPClassMention(unsharedJCas);
+			ccpCM.setMentionName("protein");
+			ccpCM.setSlotMentions(new FSArray(unsharedJCas, 0));
+			ccpCM.setCcpTextAnnotation(ccpTA);
+			ccpTA.setClassMention(ccpCM);
+			ccpTA.addToIndexes();
+		}
+		int unsharedHeapCells = ((CASImpl) unsharedJCas.getCas()).getHeap().getNextId() - heapCellsBefore;
+
+		heapCellsBefore = ((CASImpl) jcas.getCas()).getHeap().getNextId();
+		new UIMA_Util().putTextAnnotationsIntoJCas(jcas, textAnnotations);
+		int sharedHeapCells = ((CASImpl) jcas.getCas()).getHeap().getNextId() - heapCellsBefore;
+		assertTrue("batch insertion should use less of the CAS heap: " + sharedHeapCells + " >= "
+				+ unsharedHeapCells, sharedHeapCells < unsharedHeapCells);
+
+		Set<Integer> annotatorAddresses = new HashSet<Integer>();
+		Set<Integer> annotationSetsAddresses = new HashSet<Integer>();
+		int count = 0;
+		int previousBegin = -1;
+		FSIterator<Annotation> annotIter = jcas.getAnnotationIndex(CCPTextAnnotation.type).iterator();
+		while (annotIter.hasNext()) {
+			CCPTextAnnotation ccpTA = (CCPTextAnnotation) annotIter.next();
+			assertTrue(ccpTA.getBegin() > previousBegin);
+			previousBegin = ccpTA.getBegin();
+			assertEquals("99", ccpTA.getAnnotator().getAnnotatorID());
+			assertEquals("tagger", ccpTA.getAnnotator().getName());
+			assertEquals(1, ccpTA.getAnnotationSets().size());
+			assertEquals(5, ((CCPAnnotationSet) ccpTA.getAnnotationSets().get(0)).getAnnotationSetID());
+			annotatorAddresses.add(ccpTA.getAnnotator().getAddress());
+			annotationSetsAddresses.add(ccpTA.getAnnotationSets().getAddress());
+			count++;
+		}
+		assertEquals(annotationCount, count);
+		assertEquals(1, annotatorAddresses.size());
+		assertEquals(1, annotationSetsAddresses.size());
+	}
+
 	/**
 	 * This test exercises the methods designed to detect invalud mention structures.<br>
 	 * validateCCPTextAnnotation()<br>
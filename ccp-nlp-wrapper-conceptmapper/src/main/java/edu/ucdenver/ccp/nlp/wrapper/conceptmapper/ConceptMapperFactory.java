@@ -70,6 +70,7 @@ import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConceptMapperFactory.TokenNormalizerConfigParam.CaseMatchParamValue;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary.ConceptMapperDictionaryCompiler;
 import uima.tt.TokenAnnotation;
 
 /* (non javadoc) 
@@ -694,4 +695,26 @@ public class ConceptMapperFactory {
 
 		return aeDescription;
 	}
+
+	/**
+	 * Compiles the dictionary referenced by the input ConceptMapper description (unless a compiled
+	 * version with identical normalization settings is already present in the specified directory)
+	 * and updates the description to load the compiled dictionary instead of parsing, tokenizing
+	 * and stemming the XML dictionary when the ConceptMapper is initialized.
+	 * 
+	 * @param conceptMapperDescription
+	 *            a description returned by one of the buildConceptMapperDescription methods
+	 * @param compiledDictionaryDirectory
+	 *            the directory where compiled dictionaries are cached
+	 * @return the input description, now referencing the compiled dictionary
+	 * @throws IOException
+	 * @see ConceptMapperDictionaryCompiler
+	 */
+	public static AnalysisEngineDescription useCompiledDictionary(AnalysisEngineDescription conceptMapperDescription,
+			File compiledDictionaryDirectory) throws IOException {
+		File compiledDictionaryFile = ConceptMapperDictionaryCompiler.compile(conceptMapperDescription,
+				compiledDictionaryDirectory);
+		ConceptMapperDictionaryCompiler.useCompiledDictionary(conceptMapperDescription, compiledDictionaryFile);
+		return conceptMapperDescription;
+	}
 }
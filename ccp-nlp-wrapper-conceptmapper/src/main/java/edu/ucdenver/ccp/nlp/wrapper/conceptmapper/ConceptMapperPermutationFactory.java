@@ -58,6 +58,7 @@ import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConceptMapperFactory.SearchStr
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConceptMapperFactory.TokenNormalizerConfigParam.CaseMatchParamValue;
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.stemmer.ConceptMapperStemmerFactory;
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.stemmer.ConceptMapperStemmerFactory.StemmerType;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.tokenizer.OffsetTokenizerFactory;
 
 /**
  * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
@@ -365,6 +366,76 @@ public class ConceptMapperPermutationFactory {
 				orderIndependentLookup, findAllMatches, replaceCommaWithAnd);
 	}
 
+	/**
+	 * @param conceptMapperPermutationNumber
+	 * @return a key shared by all permutations that tokenize text identically, i.e. all
+	 *         permutations that use the same case match and stemmer settings
+	 */
+	public static String getTokenizationGroupKey(int conceptMapperPermutationNumber) {
+		List<String> paramValues = PARAM_COMBINATIONS.get(conceptMapperPermutationNumber);
+		return paramValues.get(1) + " " + paramValues.get(2);
+	}
+
+	/**
+	 * Returns the description of the OffsetTokenizer used by the specified permutation. Unlike
+	 * {@link #buildConceptMapperAggregatePermutation(int, TypeSystemDescription, File, Class)},
+	 * this allows the tokenizer to be run once for all permutations that share a
+	 * {@link #getTokenizationGroupKey(int)}.
+	 * 
+	 * @param conceptMapperPermutationNumber
+	 * @param tsd
+	 * @param cacheStems
+	 *            if true, the stemmer memoizes its output, see
+	 *            {@link ConceptMapperStemmerFactory#getStemmerClass(StemmerType, boolean)}
+	 * @return
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public static AnalysisEngineDescription buildOffsetTokenizerDescription(int conceptMapperPermutationNumber,
+			TypeSystemDescription tsd, boolean cacheStems) throws UIMAException, IOException {
+		List<String> paramValues = PARAM_COMBINATIONS.get(conceptMapperPermutationNumber);
+		Object[] tokenizerConfigData = OffsetTokenizerFactory.buildConfigurationData(
+				getCaseMatchParamValue(paramValues), getStemmerClass(paramValues, cacheStems));
+		return OffsetTokenizerFactory.buildOffsetTokenizerDescription(tsd, tokenizerConfigData);
+	}
+
+	/**
+	 * Returns the description of the ConceptMapper (without the tokenizer) for the specified
+	 * permutation
+	 * 
+	 * @param conceptMapperPermutationNumber
+	 * @param tsd
+	 * @param dictionaryFile
+	 *            the dictionary for the permutation's {@link #getSynonymType(int)}
+	 * @param spanFeatureStructureClass
+	 * @param offsetTokenizerDescription
+	 *            as returned by {@link #buildOffsetTokenizerDescription(int, TypeSystemDescription, boolean)}
+	 * @param cacheStems
+	 * @return
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public static AnalysisEngineDescription buildConceptMapperDescription(int conceptMapperPermutationNumber,
+			TypeSystemDescription tsd, File dictionaryFile, Class<? extends Annotation> spanFeatureStructureClass,
+			AnalysisEngineDescription offsetTokenizerDescription, boolean cacheStems) throws UIMAException,
+			IOException {
+		List<String> paramValues = PARAM_COMBINATIONS.get(conceptMapperPermutationNumber);
+		boolean replaceCommaWithAnd = false; // see buildConceptMapperAggregate()
+		return ConceptMapperFactory.buildConceptMapperDescription(tsd, dictionaryFile,
+				getCaseMatchParamValue(paramValues), getSearchStrategyParamValue(paramValues),
+				getStemmerClass(paramValues, cacheStems), getStopWordList(paramValues),
+				getOrderIndependentLookup(paramValues), getFindAllMatches(paramValues), replaceCommaWithAnd,
+				spanFeatureStructureClass, offsetTokenizerDescription);
+	}
+
+	/**
+	 * @param conceptMapperPermutationNumber
+	 * @return a String representation of the parameter settings for the specified permutation
+	 */
+	public static String getPermutationDescription(int conceptMapperPermutationNumber) {
+		return PARAM_COMBINATIONS.get(conceptMapperPermutationNumber).toString();
+	}
+
 	/**
 	 * @param paramValues
 	 * @return
@@ -392,6 +463,17 @@ public class ConceptMapperPermutationFactory {
 		return ConceptMapperStemmerParam.valueOf(value).paramValue();
 	}
 
+	/**
+	 * @param paramValues
+	 * @param cacheStems
+	 * @return
+	 */
+	private static Class<? extends Stemmer> getStemmerClass(List<String> paramValues, boolean cacheStems) {
+		String value = StringUtil.removePrefix(paramValues.get(2), STEMMER_KEY);
+		return ConceptMapperStemmerFactory.getStemmerClass(ConceptMapperStemmerParam.valueOf(value).stemmerType,
+				cacheStems);
+	}
+
 	/**
 	 * @param paramValues
 	 * @return
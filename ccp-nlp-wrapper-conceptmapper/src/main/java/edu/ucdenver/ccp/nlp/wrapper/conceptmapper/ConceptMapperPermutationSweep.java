@@ -0,0 +1,462 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+
+import edu.ucdenver.ccp.datasource.fileparsers.obo.OntologyUtil.SynonymType;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.AnnotationComparator;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.PRFResult;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.SpanComparator;
+import edu.ucdenver.ccp.nlp.core.annotation.impl.DefaultTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.mention.comparison.MentionComparator;
+import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultClassMention;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+
+/**
+ * Evaluates a set of {@link ConceptMapperPermutationFactory} permutations against a gold standard
+ * without building a separate aggregate for each permutation.
+ * <p>
+ * The corpus is read and pre-processed (e.g. sentence-split) once and held in memory in binary
+ * serialized form. Permutations are grouped by
+ * {@link ConceptMapperPermutationFactory#getTokenizationGroupKey(int)}. For each group, every
+ * document is tokenized once and then processed by the ConceptMapper of each permutation in the
+ * group; the resulting {@link OntologyTerm} annotations are scored and removed before the next
+ * permutation runs. Groups are processed in parallel, each on its own CAS and its own analysis
+ * engine instances.
+ * <p>
+ * Gold standard annotations are compared with the ConceptMapper output using the
+ * {@link AnnotationComparator}. ConceptMapper output is converted into {@link TextAnnotation}s
+ * whose class mention name is the concept identifier and whose document ID is the document ID of
+ * the CAS, so the gold annotations must be represented in the same way.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ConceptMapperPermutationSweep {
+	private static final Logger logger = Logger.getLogger(ConceptMapperPermutationSweep.class);
+
+	private final TypeSystemDescription tsd;
+	private final Map<SynonymType, File> dictionaryFiles;
+	private final Class<? extends Annotation> spanFeatureStructureClass;
+	private final int threadCount;
+	private final boolean cacheStems;
+
+	/**
+	 * @param tsd
+	 *            must include the ConceptMapper types and the types of the pre-processed corpus
+	 * @param dictionaryFiles
+	 *            the dictionary to use for each synonym type; permutations whose synonym type has
+	 *            no dictionary are not run
+	 * @param spanFeatureStructureClass
+	 *            commonly edu.ucdenver.ccp.nlp.ext.uima.types.Sentence
+	 * @param threadCount
+	 *            the number of tokenization groups to process concurrently
+	 * @param cacheStems
+	 *            if true, stemmers memoize their output, see
+	 *            {@link edu.ucdenver.ccp.nlp.wrapper.conceptmapper.stemmer.StemCache}
+	 */
+	public ConceptMapperPermutationSweep(TypeSystemDescription tsd, Map<SynonymType, File> dictionaryFiles,
+			Class<? extends Annotation> spanFeatureStructureClass, int threadCount, boolean cacheStems) {
+		this.tsd = tsd;
+		this.dictionaryFiles = dictionaryFiles;
+		this.spanFeatureStructureClass = spanFeatureStructureClass;
+		this.threadCount = threadCount;
+		this.cacheStems = cacheStems;
+	}
+
+	/**
+	 * A pre-processed document held in binary serialized form so that it can be deserialized
+	 * concurrently into the CAS of each tokenization group
+	 */
+	public static class CorpusDocument {
+		private final String documentId;
+		private final byte[] serializedCas;
+
+		private CorpusDocument(String documentId, byte[] serializedCas) {
+			this.documentId = documentId;
+			this.serializedCas = serializedCas;
+		}
+
+		public String getDocumentId() {
+			return documentId;
+		}
+	}
+
+	/**
+	 * @param jcas
+	 *            a pre-processed document, i.e. with sentence (or other span feature structure)
+	 *            annotations in place
+	 * @return the {@link CorpusDocument} for the input CAS
+	 * @throws IOException
+	 */
+	public static CorpusDocument createCorpusDocument(JCas jcas) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Serialization.serializeWithCompression(jcas.getCas(), out);
+		return new CorpusDocument(UIMA_Util.getDocumentID(jcas), out.toByteArray());
+	}
+
+	/**
+	 * Reads the corpus once, running the specified pre-processing engines (e.g. a sentence
+	 * detector) over each document
+	 * 
+	 * @param tsd
+	 * @param readerDescription
+	 * @param preprocessingDescriptions
+	 * @return
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public static List<CorpusDocument> loadCorpus(TypeSystemDescription tsd,
+			CollectionReaderDescription readerDescription, AnalysisEngineDescription... preprocessingDescriptions)
+			throws UIMAException, IOException {
+		CollectionReader reader = CollectionReaderFactory.createReader(readerDescription);
+		List<AnalysisEngine> engines = new ArrayList<AnalysisEngine>();
+		for (AnalysisEngineDescription description : preprocessingDescriptions) {
+			engines.add(AnalysisEngineFactory.createEngine(description));
+		}
+		List<CorpusDocument> corpus = new ArrayList<CorpusDocument>();
+		JCas jcas = JCasFactory.createJCas(tsd);
+		try {
+			while (reader.hasNext()) {
+				jcas.reset();
+				reader.getNext(jcas.getCas());
+				for (AnalysisEngine engine : engines) {
+					engine.process(jcas);
+				}
+				corpus.add(createCorpusDocument(jcas));
+			}
+			for (AnalysisEngine engine : engines) {
+				engine.collectionProcessComplete();
+			}
+		} finally {
+			reader.close();
+			for (AnalysisEngine engine : engines) {
+				engine.destroy();
+			}
+		}
+		logger.info("Loaded " + corpus.size() + " documents.");
+		return corpus;
+	}
+
+	/**
+	 * The evaluation result and throughput of a single permutation
+	 */
+	public static class PermutationResult {
+		private final int permutationNumber;
+		private final PRFResult prf;
+		private final int documentCount;
+		private final long processingNanos;
+		private final long groupTokenizationNanos;
+
+		private PermutationResult(int permutationNumber, PRFResult prf, int documentCount, long processingNanos,
+				long groupTokenizationNanos) {
+			this.permutationNumber = permutationNumber;
+			this.prf = prf;
+			this.documentCount = documentCount;
+			this.processingNanos = processingNanos;
+			this.groupTokenizationNanos = groupTokenizationNanos;
+		}
+
+		public int getPermutationNumber() {
+			return permutationNumber;
+		}
+
+		public PRFResult getPRFResult() {
+			return prf;
+		}
+
+		/**
+		 * @return the time spent in the ConceptMapper of this permutation, in nanoseconds
+		 */
+		public long getProcessingNanos() {
+			return processingNanos;
+		}
+
+		/**
+		 * @return the time spent tokenizing the corpus for the tokenization group of this
+		 *         permutation, in nanoseconds. This time is shared by all permutations in the group.
+		 */
+		public long getGroupTokenizationNanos() {
+			return groupTokenizationNanos;
+		}
+
+		/**
+		 * @return the number of documents processed per second by the ConceptMapper of this
+		 *         permutation
+		 */
+		public double getDocumentsPerSecond() {
+			return (processingNanos == 0) ? 0.0 : documentCount / (processingNanos / 1e9);
+		}
+	}
+
+	/**
+	 * Ranks by F-measure, then precision, then permutation number
+	 */
+	private static final Comparator<PermutationResult> RANKING_COMPARATOR = new Comparator<PermutationResult>() {
+		@Override
+		public int compare(PermutationResult r1, PermutationResult r2) {
+			int result = Double.compare(r2.prf.getFmeasure(), r1.prf.getFmeasure());
+			if (result == 0) {
+				result = Double.compare(r2.prf.getPrecision(), r1.prf.getPrecision());
+			}
+			if (result == 0) {
+				result = Integer.compare(r1.permutationNumber, r2.permutationNumber);
+			}
+			return result;
+		}
+	};
+
+	/**
+	 * Runs the specified permutations over the corpus and scores each against the gold standard
+	 * 
+	 * @param corpus
+	 * @param goldAnnotations
+	 *            gold standard annotations keyed by document ID
+	 * @param permutationNumbers
+	 *            indexes into {@link ConceptMapperPermutationFactory#PARAM_COMBINATIONS}
+	 * @param spanComparator
+	 * @param mentionComparator
+	 * @return the permutation results, ranked best first
+	 * @throws UIMAException
+	 * @throws IOException
+	 */
+	public List<PermutationResult> run(List<CorpusDocument> corpus,
+			Map<String, ? extends Collection<TextAnnotation>> goldAnnotations, Collection<Integer> permutationNumbers,
+			SpanComparator spanComparator, MentionComparator mentionComparator) throws UIMAException, IOException {
+		Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+		int runCount = 0;
+		for (Integer permutationNumber : permutationNumbers) {
+			if (!dictionaryFiles.containsKey(ConceptMapperPermutationFactory.getSynonymType(permutationNumber))) {
+				logger.warn("No dictionary for permutation " + permutationNumber + ". Skipping.");
+				continue;
+			}
+			String key = ConceptMapperPermutationFactory.getTokenizationGroupKey(permutationNumber);
+			List<Integer> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<Integer>();
+				groups.put(key, group);
+			}
+			group.add(permutationNumber);
+			runCount++;
+		}
+		logger.info("Running " + runCount + " permutations in " + groups.size()
+				+ " tokenization groups.");
+
+		ExecutorService executor = ConcurrencyUtil.newDaemonThreadPool(Math.max(1, threadCount),
+				"cm-permutation-sweep");
+		try {
+			List<Future<List<PermutationResult>>> futures = new ArrayList<Future<List<PermutationResult>>>();
+			for (List<Integer> group : groups.values()) {
+				futures.add(executor.submit(new GroupRunner(group, corpus, goldAnnotations, spanComparator,
+						mentionComparator)));
+			}
+			List<PermutationResult> results = new ArrayList<PermutationResult>();
+			for (Future<List<PermutationResult>> future : futures) {
+				results.addAll(ConcurrencyUtil.getResult(future, "running permutation sweep",
+						UIMAException.class));
+			}
+			Collections.sort(results, RANKING_COMPARATOR);
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Processes the corpus for all permutations in a single tokenization group
+	 */
+	private class GroupRunner implements Callable<List<PermutationResult>> {
+		private final List<Integer> permutationNumbers;
+		private final List<CorpusDocument> corpus;
+		private final Map<String, ? extends Collection<TextAnnotation>> goldAnnotations;
+		private final SpanComparator spanComparator;
+		private final MentionComparator mentionComparator;
+
+		public GroupRunner(List<Integer> permutationNumbers, List<CorpusDocument> corpus,
+				Map<String, ? extends Collection<TextAnnotation>> goldAnnotations, SpanComparator spanComparator,
+				MentionComparator mentionComparator) {
+			this.permutationNumbers = permutationNumbers;
+			this.corpus = corpus;
+			this.goldAnnotations = goldAnnotations;
+			this.spanComparator = spanComparator;
+			this.mentionComparator = mentionComparator;
+		}
+
+		@Override
+		public List<PermutationResult> call() throws UIMAException, IOException {
+			int permutationCount = permutationNumbers.size();
+			AnalysisEngineDescription tokenizerDescription = ConceptMapperPermutationFactory
+					.buildOffsetTokenizerDescription(permutationNumbers.get(0), tsd, cacheStems);
+			AnalysisEngine tokenizer = AnalysisEngineFactory.createEngine(tokenizerDescription);
+			AnalysisEngine[] conceptMappers = new AnalysisEngine[permutationCount];
+			try {
+				for (int i = 0; i < permutationCount; i++) {
+					int permutationNumber = permutationNumbers.get(i);
+					File dictionaryFile = dictionaryFiles.get(ConceptMapperPermutationFactory
+							.getSynonymType(permutationNumber));
+					conceptMappers[i] = AnalysisEngineFactory.createEngine(ConceptMapperPermutationFactory
+							.buildConceptMapperDescription(permutationNumber, tsd, dictionaryFile,
+									spanFeatureStructureClass, tokenizerDescription, cacheStems));
+				}
+
+				AnnotationComparator annotationComparator = new AnnotationComparator();
+				int[] tp = new int[permutationCount];
+				int[] fp = new int[permutationCount];
+				int[] fn = new int[permutationCount];
+				long[] processingNanos = new long[permutationCount];
+				long tokenizationNanos = 0;
+				JCas jcas = JCasFactory.createJCas(tsd);
+				for (CorpusDocument document : corpus) {
+					jcas.reset();
+					Serialization.deserializeCAS(jcas.getCas(), new ByteArrayInputStream(document.serializedCas));
+					long start = System.nanoTime();
+					tokenizer.process(jcas);
+					tokenizationNanos += System.nanoTime() - start;
+
+					Collection<TextAnnotation> goldTas = goldAnnotations.get(document.documentId);
+					if (goldTas == null) {
+						goldTas = Collections.emptyList();
+					}
+					for (int i = 0; i < permutationCount; i++) {
+						start = System.nanoTime();
+						conceptMappers[i].process(jcas);
+						processingNanos[i] += System.nanoTime() - start;
+						List<TextAnnotation> testTas = removeOntologyTerms(jcas, document.documentId);
+						PRFResult prf = annotationComparator.compare(goldTas, testTas, spanComparator,
+								mentionComparator);
+						tp[i] += prf.getTruePositiveCount();
+						fp[i] += prf.getFalsePositiveCount();
+						fn[i] += prf.getFalseNegativeCount();
+					}
+				}
+
+				List<PermutationResult> results = new ArrayList<PermutationResult>();
+				for (int i = 0; i < permutationCount; i++) {
+					int permutationNumber = permutationNumbers.get(i);
+					PRFResult prf = new PRFResult(tp[i], fp[i], fn[i],
+							ConceptMapperPermutationFactory.getPermutationDescription(permutationNumber));
+					results.add(new PermutationResult(permutationNumber, prf, corpus.size(), processingNanos[i],
+							tokenizationNanos));
+				}
+				logger.info("Completed tokenization group: "
+						+ ConceptMapperPermutationFactory.getTokenizationGroupKey(permutationNumbers.get(0)));
+				return results;
+			} finally {
+				tokenizer.destroy();
+				for (AnalysisEngine conceptMapper : conceptMappers) {
+					if (conceptMapper != null) {
+						conceptMapper.destroy();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Converts the {@link OntologyTerm} annotations produced by a ConceptMapper into
+	 * {@link TextAnnotation}s and removes them from the CAS so that the next permutation starts
+	 * from the tokenized document only
+	 */
+	private static List<TextAnnotation> removeOntologyTerms(JCas jcas, String documentId) {
+		List<OntologyTerm> terms = new ArrayList<OntologyTerm>(JCasUtil.select(jcas, OntologyTerm.class));
+		List<TextAnnotation> tas = new ArrayList<TextAnnotation>(terms.size());
+		for (OntologyTerm term : terms) {
+			DefaultTextAnnotation ta = new DefaultTextAnnotation(term.getBegin(), term.getEnd());
+			ta.setDocumentID(documentId);
+			ta.setCoveredText(term.getCoveredText());
+			ta.setClassMention(new DefaultClassMention(term.getID()));
+			tas.add(ta);
+			term.removeFromIndexes();
+		}
+		return tas;
+	}
+
+	/**
+	 * Writes the results as a tab-delimited table, one permutation per line in rank order
+	 * 
+	 * @param results
+	 *            as returned by
+	 *            {@link #run(List, Map, Collection, SpanComparator, MentionComparator)}
+	 * @param writer
+	 */
+	public static void writeRankedTable(List<PermutationResult> results, Writer writer) {
+		PrintWriter pw = new PrintWriter(writer);
+		pw.println("rank\tpermutation\tf-measure\tprecision\trecall\ttp\tfp\tfn\tdocs/s\tgroup tokenization s\tparameters");
+		int rank = 1;
+		for (PermutationResult result : results) {
+			PRFResult prf = result.getPRFResult();
+			pw.println(String.format("%d\t%d\t%.4f\t%.4f\t%.4f\t%d\t%d\t%d\t%.2f\t%.2f\t%s", rank++,
+					result.getPermutationNumber(), prf.getFmeasure(), prf.getPrecision(), prf.getRecall(),
+					prf.getTruePositiveCount(), prf.getFalsePositiveCount(), prf.getFalseNegativeCount(),
+					result.getDocumentsPerSecond(), result.getGroupTokenizationNanos() / 1e9, prf.getTitle()));
+		}
+		pw.flush();
+	}
+
+}
@@ -0,0 +1,160 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor helpers shared by the dictionary builders and the permutation sweep, which all render
+ * or process work in batches on an optional pool of daemon threads
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class ConcurrencyUtil {
+
+	private ConcurrencyUtil() {
+		/* utility class */
+	}
+
+	/**
+	 * @param threadCount
+	 * @param threadNamePrefix
+	 *            threads are named threadNamePrefix-1, threadNamePrefix-2, ...
+	 * @return a fixed size thread pool whose threads do not prevent the JVM from exiting
+	 */
+	public static ExecutorService newDaemonThreadPool(int threadCount, String threadNamePrefix) {
+		return Executors.newFixedThreadPool(threadCount, new DaemonThreadFactory(threadNamePrefix));
+	}
+
+	/**
+	 * Submits the task to the executor, or runs it on the calling thread if no executor is in use
+	 * 
+	 * @param task
+	 * @param executor
+	 *            may be null
+	 * @return the future for the task, which is already complete if executor is null
+	 */
+	public static <T> Future<T> submit(Callable<T> task, ExecutorService executor) {
+		if (executor != null) {
+			return executor.submit(task);
+		}
+		FutureTask<T> future = new FutureTask<T>(task);
+		future.run();
+		return future;
+	}
+
+	/**
+	 * Waits for the result of the future. Exceptions thrown by the task are rethrown if they are
+	 * {@link IOException}s, {@link RuntimeException}s or {@link Error}s and are otherwise
+	 * wrapped in an {@link IOException}.
+	 * 
+	 * @param future
+	 * @param activity
+	 *            describes the work being done, e.g. "building dictionary", for error messages
+	 * @return the result of the future
+	 * @throws IOException
+	 */
+	public static <T> T getResult(Future<T> future, String activity) throws IOException {
+		return getResult(future, activity, IOException.class);
+	}
+
+	/**
+	 * Waits for the result of the future. Exceptions thrown by the task are rethrown if they are
+	 * instances of checkedExceptionType, {@link IOException}s, {@link RuntimeException}s or
+	 * {@link Error}s and are otherwise wrapped in an {@link IOException}.
+	 * 
+	 * @param future
+	 * @param activity
+	 *            describes the work being done, e.g. "building dictionary", for error messages
+	 * @param checkedExceptionType
+	 *            an additional checked exception type that is rethrown as is
+	 * @return the result of the future
+	 * @throws IOException
+	 * @throws E
+	 */
+	public static <T, E extends Exception> T getResult(Future<T> future, String activity,
+			Class<E> checkedExceptionType) throws IOException, E {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while " + activity + ".", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (checkedExceptionType.isInstance(cause)) {
+				throw checkedExceptionType.cast(cause);
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException("Error while " + activity + ".", cause);
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String threadNamePrefix;
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		public DaemonThreadFactory(String threadNamePrefix) {
+			this.threadNamePrefix = threadNamePrefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, threadNamePrefix + "-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * A multi-pattern substring matcher based on the Aho-Corasick algorithm. The automaton is built
+ * once from a fixed set of patterns; {@link #containsAny(CharSequence)} then determines whether
+ * any of the patterns occurs in the input text in a single pass over the text, regardless of the
+ * number of patterns. Instances are immutable once constructed and may be shared between threads.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AhoCorasickMatcher {
+
+	private final Node root = new Node();
+
+	/**
+	 * @param patterns
+	 *            the substrings to search for
+	 */
+	public AhoCorasickMatcher(Collection<String> patterns) {
+		for (String pattern : patterns) {
+			Node node = root;
+			for (int i = 0; i < pattern.length(); i++) {
+				char c = pattern.charAt(i);
+				Node child = node.children.get(c);
+				if (child == null) {
+					child = new Node();
+					node.children.put(c, child);
+				}
+				node = child;
+			}
+			node.match = true;
+		}
+		buildFailureLinks();
+	}
+
+	/**
+	 * Breadth-first computation of the failure link for each node. A node is also marked as a
+	 * match if the node its failure link points to is a match, i.e. if a pattern is a suffix of
+	 * the path to the node.
+	 */
+	private void buildFailureLinks() {
+		Queue<Node> queue = new ArrayDeque<Node>();
+		for (Node child : root.children.values()) {
+			child.failure = root;
+			queue.add(child);
+		}
+		while (!queue.isEmpty()) {
+			Node node = queue.remove();
+			for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+				char c = entry.getKey();
+				Node child = entry.getValue();
+				Node failure = node.failure;
+				while (failure != root && !failure.children.containsKey(c)) {
+					failure = failure.failure;
+				}
+				Node target = failure.children.get(c);
+				child.failure = (target != null && target != child) ? target : root;
+				child.match |= child.failure.match;
+				queue.add(child);
+			}
+		}
+	}
+
+	/**
+	 * @param text
+	 * @return true if any of the patterns occurs in the input text
+	 */
+	public boolean containsAny(CharSequence text) {
+		if (root.match) {
+			/* the empty string is one of the patterns */
+			return true;
+		}
+		Node node = root;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			Node next = node.children.get(c);
+			while (next == null && node != root) {
+				node = node.failure;
+				next = node.children.get(c);
+			}
+			if (next != null) {
+				node = next;
+				if (node.match) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static class Node {
+		private final Map<Character, Node> children = new HashMap<Character, Node>();
+		private Node failure;
+		private boolean match;
+	}
+
+}
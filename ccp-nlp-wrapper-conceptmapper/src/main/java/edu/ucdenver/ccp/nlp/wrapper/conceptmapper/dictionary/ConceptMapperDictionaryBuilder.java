@@ -82,18 +82,46 @@ public class ConceptMapperDictionaryBuilder {
 	 * @throws IOException
 	 */
 	public void addEntry(String termIdentifier, List<String> synonyms) throws IOException {
+		String entry = renderEntry(termIdentifier, synonyms);
+		if (entry != null)
+			writer.write(entry);
+	}
+
+	/**
+	 * Writes an entry previously returned by {@link #renderEntry(String, List)}. This allows
+	 * entries to be rendered concurrently and then written in order.
+	 * 
+	 * @param renderedEntry
+	 * @throws IOException
+	 */
+	public void addRenderedEntry(String renderedEntry) throws IOException {
+		writer.write(renderedEntry);
+	}
+
+	/**
+	 * Renders the dictionary entry for a term without writing it. This method does not modify the
+	 * state of the builder and can be called from multiple threads.
+	 * 
+	 * @param termIdentifier
+	 * @param synonyms
+	 *            - first term in the list is treated as the canonical name
+	 * @return the XML for the dictionary entry, or null if no synonyms remain once terms that are
+	 *         too short have been filtered out
+	 */
+	public String renderEntry(String termIdentifier, List<String> synonyms) {
 		List<String> filteredSynonyms = filterTerms(synonyms);
 		if (filteredSynonyms.size() == 0)
-			return;
+			return null;
 
-		writer.write("<token id=\"" + termIdentifier + "\" canonical=\"" + transformTerm(filteredSynonyms.get(0)) + "\">");
-		writer.newLine();
+		String newLine = System.lineSeparator();
+		StringBuilder sb = new StringBuilder();
+		sb.append("<token id=\"").append(termIdentifier).append("\" canonical=\"")
+				.append(transformTerm(filteredSynonyms.get(0))).append("\">").append(newLine);
 		for (String syn : filteredSynonyms) {
-			writer.write("<variant base=\"" + transformTerm(syn) + "\"/>");
-			writer.newLine();
+			sb.append("<variant base=\"").append(transformTerm(syn)).append("\"/>").append(newLine);
 		}
-		writer.write("</token>");
-		writer.newLine();
+		sb.append("</token>").append(newLine);
+		return sb.toString();
 	}
 
 	/**
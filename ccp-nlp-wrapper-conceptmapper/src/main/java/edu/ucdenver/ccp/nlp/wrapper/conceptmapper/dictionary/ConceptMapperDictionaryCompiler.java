@@ -0,0 +1,244 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2017 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.conceptMapper.ConceptMapper;
+import org.apache.uima.conceptMapper.dictionaryCompiler.CompileDictionary;
+import org.apache.uima.conceptMapper.support.dictionaryResource.CompiledDictionaryResource_impl;
+import org.apache.uima.resource.ExternalResourceDescription;
+import org.apache.uima.resource.metadata.ExternalResourceBinding;
+import org.apache.uima.resource.metadata.NameValuePair;
+import org.apache.uima.resource.metadata.ResourceManagerConfiguration;
+import org.xml.sax.SAXException;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+
+/**
+ * Compiles ConceptMapper XML dictionaries so that the dictionary parsing, tokenization (using the
+ * configured OffsetTokenizer), stemming and case normalization happen once rather than every time
+ * a ConceptMapper instance is initialized. Compilation is delegated to the {@link CompileDictionary}
+ * utility that is part of the ConceptMapper distribution; the resulting file is loaded by
+ * {@link CompiledDictionaryResource_impl}.
+ * <p>
+ * Compiled dictionaries are cached in a directory and named using a key derived from the
+ * dictionary file and the ConceptMapper/tokenizer settings that affect normalization, so a
+ * dictionary is only recompiled when the source dictionary or its normalization settings change.
+ * The external resource of a description that uses a compiled dictionary is given a name derived
+ * from that key, so ConceptMapper replicas created with a shared UIMA ResourceManager (e.g. the
+ * processing units of a CPE) load the compiled dictionary once and share it.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ConceptMapperDictionaryCompiler {
+
+	private static final Logger logger = Logger.getLogger(ConceptMapperDictionaryCompiler.class);
+
+	public static final String COMPILED_DICTIONARY_SUFFIX = ".cmdict";
+
+	/**
+	 * the key used by ConceptMapper for its dictionary resource dependency
+	 */
+	private static final String DICTIONARY_RESOURCE_KEY = "DictionaryFile";
+
+	private static final String TOKENIZER_DESCRIPTOR_PATH_PARAM = "TokenizerDescriptorPath";
+
+	/**
+	 * Returns the compiled version of the dictionary referenced by the input ConceptMapper
+	 * description, compiling it into the specified directory if a compiled dictionary with matching
+	 * settings does not already exist there.
+	 * 
+	 * @param conceptMapperDescription
+	 *            a description as returned by the ConceptMapperFactory, i.e. one that references the
+	 *            XML dictionary
+	 * @param compiledDictionaryDirectory
+	 *            the directory where compiled dictionaries are cached
+	 * @return the compiled dictionary file
+	 * @throws IOException
+	 */
+	public static File compile(AnalysisEngineDescription conceptMapperDescription, File compiledDictionaryDirectory)
+			throws IOException {
+		File dictionaryFile = new File(getParameterValue(conceptMapperDescription, ConceptMapper.PARAM_DICT_FILE));
+		String key = computeDictionaryKey(conceptMapperDescription);
+		File compiledDictionaryFile = new File(compiledDictionaryDirectory, getBaseName(dictionaryFile) + "-" + key
+				+ COMPILED_DICTIONARY_SUFFIX);
+		if (compiledDictionaryFile.exists()) {
+			logger.info("Using previously compiled dictionary: " + compiledDictionaryFile.getAbsolutePath());
+			return compiledDictionaryFile;
+		}
+
+		Files.createDirectories(compiledDictionaryDirectory.toPath());
+		File descriptorFile = File.createTempFile("cm-desc", ".xml", compiledDictionaryDirectory);
+		File tmpCompiledFile = File.createTempFile(compiledDictionaryFile.getName(), ".tmp",
+				compiledDictionaryDirectory);
+		try {
+			try (Writer writer = FileWriterUtil.initBufferedWriter(descriptorFile, CharacterEncoding.UTF_8,
+					WriteMode.OVERWRITE, FileSuffixEnforcement.OFF)) {
+				conceptMapperDescription.toXML(writer);
+			} catch (SAXException e) {
+				throw new IOException("Unable to serialize ConceptMapper description.", e);
+			}
+			logger.info("Compiling dictionary " + dictionaryFile.getAbsolutePath() + " to "
+					+ compiledDictionaryFile.getAbsolutePath());
+			long start = System.currentTimeMillis();
+			try {
+				CompileDictionary.main(new String[] { descriptorFile.getAbsolutePath(),
+						tmpCompiledFile.getAbsolutePath() });
+			} catch (Exception e) {
+				throw new IOException("Error while compiling dictionary: " + dictionaryFile.getAbsolutePath(), e);
+			}
+			/*
+			 * the compiled file is moved into place atomically so that concurrent pipelines (in this
+			 * or other JVMs) never observe a partially written dictionary
+			 */
+			Files.move(tmpCompiledFile.toPath(), compiledDictionaryFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			logger.info("Dictionary compilation complete in " + (System.currentTimeMillis() - start) + "ms.");
+		} finally {
+			Files.deleteIfExists(descriptorFile.toPath());
+			Files.deleteIfExists(tmpCompiledFile.toPath());
+		}
+		return compiledDictionaryFile;
+	}
+
+	/**
+	 * Updates the dictionary resource of the input ConceptMapper description to load the specified
+	 * compiled dictionary
+	 * 
+	 * @param conceptMapperDescription
+	 * @param compiledDictionaryFile
+	 */
+	public static void useCompiledDictionary(AnalysisEngineDescription conceptMapperDescription,
+			File compiledDictionaryFile) {
+		ResourceManagerConfiguration rmc = conceptMapperDescription.getResourceManagerConfiguration();
+		ExternalResourceBinding binding = null;
+		for (ExternalResourceBinding b : rmc.getExternalResourceBindings()) {
+			if (b.getKey().endsWith(DICTIONARY_RESOURCE_KEY)) {
+				binding = b;
+			}
+		}
+		if (binding == null) {
+			throw new IllegalArgumentException("The input ConceptMapper description has no binding for the "
+					+ DICTIONARY_RESOURCE_KEY + " resource.");
+		}
+		String resourceName = "CompiledDictionary-" + compiledDictionaryFile.getName();
+		for (ExternalResourceDescription erd : rmc.getExternalResources()) {
+			if (erd.getName().equals(binding.getResourceName())) {
+				erd.setName(resourceName);
+				erd.setImplementationName(CompiledDictionaryResource_impl.class.getName());
+				erd.getResourceSpecifier().setAttributeValue("fileUrl",
+						compiledDictionaryFile.getAbsoluteFile().toURI().toString());
+			}
+		}
+		binding.setResourceName(resourceName);
+	}
+
+	/**
+	 * @param conceptMapperDescription
+	 * @return a key that changes whenever the dictionary file or any setting that affects how its
+	 *         entries are tokenized and normalized changes
+	 * @throws IOException
+	 */
+	static String computeDictionaryKey(AnalysisEngineDescription conceptMapperDescription) throws IOException {
+		Map<String, String> settings = new TreeMap<String, String>();
+		for (NameValuePair nvp : conceptMapperDescription.getAnalysisEngineMetaData()
+				.getConfigurationParameterSettings().getParameterSettings()) {
+			Object value = nvp.getValue();
+			settings.put(nvp.getName(), (value instanceof Object[]) ? Arrays.deepToString((Object[]) value)
+					: String.valueOf(value));
+		}
+		/*
+		 * the file paths are replaced by their content signatures; the tokenizer descriptor is
+		 * commonly written to a new temporary file each time a description is built
+		 */
+		File dictionaryFile = new File(getParameterValue(conceptMapperDescription, ConceptMapper.PARAM_DICT_FILE));
+		settings.remove(ConceptMapper.PARAM_DICT_FILE);
+		String tokenizerDescriptorPath = settings.remove(TOKENIZER_DESCRIPTOR_PATH_PARAM);
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(settings.toString().getBytes(StandardCharsets.UTF_8));
+		digest.update((dictionaryFile.getAbsolutePath() + "|" + dictionaryFile.length() + "|" + dictionaryFile
+				.lastModified()).getBytes(StandardCharsets.UTF_8));
+		if (tokenizerDescriptorPath != null) {
+			digest.update(Files.readAllBytes(new File(tokenizerDescriptorPath).toPath()));
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private static String getParameterValue(AnalysisEngineDescription description, String parameterName) {
+		Object value = description.getAnalysisEngineMetaData().getConfigurationParameterSettings()
+				.getParameterValue(parameterName);
+		if (value == null) {
+			throw new IllegalArgumentException("The input ConceptMapper description does not specify the "
+					+ parameterName + " parameter.");
+		}
+		return value.toString();
+	}
+
+	private static String getBaseName(File file) {
+		String name = file.getName();
+		int index = name.lastIndexOf('.');
+		return (index > 0) ? name.substring(0, index) : name;
+	}
+
+}
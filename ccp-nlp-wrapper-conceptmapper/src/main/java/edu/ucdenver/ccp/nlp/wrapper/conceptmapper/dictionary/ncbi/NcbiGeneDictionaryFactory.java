@@ -36,21 +36,45 @@ package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary.ncbi;
  * #L%
  */
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.log4j.Logger;
 
 import edu.ucdenver.ccp.common.collections.CollectionsUtil;
-import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileUtil;
 import edu.ucdenver.ccp.common.file.FileUtil.CleanDirectory;
 import edu.ucdenver.ccp.datasource.fileparsers.ncbi.gene.NcbiGeneInfoFileData;
 import edu.ucdenver.ccp.datasource.fileparsers.ncbi.gene.NcbiGeneInfoFileParser;
 import edu.ucdenver.ccp.datasource.identifiers.impl.bio.NcbiTaxonomyID;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConcurrencyUtil;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary.AhoCorasickMatcher;
 import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary.ConceptMapperDictionaryBuilder;
 
 /**
@@ -62,8 +86,47 @@ public class NcbiGeneDictionaryFactory {
 
 	private static final Set<String> SYNONYMS_TO_IGNORE = CollectionsUtil.createSet("NEWENTRY", "hypothetical protein",
 			"putative");
+	private static final AhoCorasickMatcher SYNONYMS_TO_IGNORE_MATCHER = new AhoCorasickMatcher(SYNONYMS_TO_IGNORE);
 	private static final Logger logger = Logger.getLogger(NcbiGeneDictionaryFactory.class);
 
+	/**
+	 * Specifies how an existing dictionary file is handled when building a dictionary from a
+	 * gene_info file
+	 */
+	public enum DictionaryUpdate {
+		/**
+		 * if the dictionary file exists it is returned as is
+		 */
+		REUSE_EXISTING,
+		/**
+		 * the dictionary file is always rebuilt
+		 */
+		REBUILD,
+		/**
+		 * the dictionary is regenerated and compared with the previous build using the per-gene
+		 * content hashes stored alongside it; the dictionary file is only replaced if at least
+		 * one gene entry was added, removed or changed
+		 */
+		INCREMENTAL
+	}
+
+	/**
+	 * suffix of the file storing the per-gene content hashes used by
+	 * {@link DictionaryUpdate#INCREMENTAL}
+	 */
+	public static final String GENE_HASH_FILE_SUFFIX = ".gene-hashes";
+
+	/* gene_info column indexes */
+	private static final int TAX_ID_COLUMN = 0;
+	private static final int GENE_ID_COLUMN = 1;
+	private static final int SYMBOL_COLUMN = 2;
+	private static final int SYNONYMS_COLUMN = 4;
+	private static final int NOMENCLATURE_SYMBOL_COLUMN = 10;
+	private static final int NOMENCLATURE_NAME_COLUMN = 11;
+	private static final int OTHER_DESIGNATIONS_COLUMN = 13;
+
+	private static final int LINES_PER_BATCH = 2048;
+
 	private static final int MINIMUM_TERM_LENGTH = 1;
 
 	/* @formatter:off */
@@ -115,8 +178,8 @@ public class NcbiGeneDictionaryFactory {
 
 	public static File buildConceptMapperDictionary(File geneInfoFile, File dictionaryFile,
 			Set<NcbiTaxonomyID> taxonomyIdsToInclude, boolean cleanDictFile) throws IOException {
-		NcbiGeneInfoFileParser parser = new NcbiGeneInfoFileParser(geneInfoFile, CharacterEncoding.UTF_8);
-		return buildConceptMapperDictionary(dictionaryFile, taxonomyIdsToInclude, parser, cleanDictFile);
+		return buildConceptMapperDictionary(geneInfoFile, dictionaryFile, taxonomyIdsToInclude,
+				cleanDictFile ? DictionaryUpdate.REBUILD : DictionaryUpdate.REUSE_EXISTING, 1);
 	}
 
 	public static File buildConceptMapperDictionary(File workDirectory, CleanDirectory cleanWorkDirectory,
@@ -127,13 +190,17 @@ public class NcbiGeneDictionaryFactory {
 	}
 
 	/**
+	 * Builds the dictionary from {@link NcbiGeneInfoFileData} records. Package-private so that
+	 * tests can compare it with the output of
+	 * {@link #buildConceptMapperDictionary(File, File, Set, DictionaryUpdate, int)}.
+	 * 
 	 * @param workDirectory
 	 * @param taxonomyIdsToInclude
 	 * @param parser
 	 * @return
 	 * @throws IOException
 	 */
-	private static File buildConceptMapperDictionary(File dictionaryFile, Set<NcbiTaxonomyID> taxonomyIdsToInclude,
+	static File buildConceptMapperDictionary(File dictionaryFile, Set<NcbiTaxonomyID> taxonomyIdsToInclude,
 			NcbiGeneInfoFileParser parser, boolean cleanDictFile) throws IOException {
 		if (dictionaryFile.exists()) {
 			if (cleanDictFile) {
@@ -194,17 +261,243 @@ public class NcbiGeneDictionaryFactory {
 	private static List<String> filterSynonyms(List<String> synonymStrs) {
 		List<String> filteredSyns = new ArrayList<String>();
 		for (String syn : synonymStrs) {
-			boolean ignore = false;
-			for (String ignoreStr : SYNONYMS_TO_IGNORE) {
-				if (syn.contains(ignoreStr)) {
-					ignore = true;
-					break;
-				}
-			}
-			if (!ignore)
+			if (!SYNONYMS_TO_IGNORE_MATCHER.containsAny(syn))
 				filteredSyns.add(syn);
 		}
 		return filteredSyns;
 	}
 
+	/**
+	 * Builds a ConceptMapper dictionary directly from a (optionally gzipped) gene_info file. Rather
+	 * than parsing every record, the tax_id column of each line is inspected first so that only
+	 * lines for the requested taxa are split into columns. Matching lines are rendered into
+	 * dictionary entries in batches on a worker pool and written in file order.
+	 * 
+	 * @param geneInfoFile
+	 * @param dictionaryFile
+	 * @param taxonomyIdsToInclude
+	 *            if null or empty, genes for all taxa are included
+	 * @param update
+	 *            how an existing dictionary file is handled
+	 * @param threadCount
+	 *            the number of threads used to render dictionary entries
+	 * @return the dictionary file
+	 * @throws IOException
+	 */
+	public static File buildConceptMapperDictionary(File geneInfoFile, File dictionaryFile,
+			Set<NcbiTaxonomyID> taxonomyIdsToInclude, DictionaryUpdate update, int threadCount) throws IOException {
+		File hashFile = new File(dictionaryFile.getParentFile(), dictionaryFile.getName() + GENE_HASH_FILE_SUFFIX);
+		if (dictionaryFile.exists() && update == DictionaryUpdate.REUSE_EXISTING) {
+			return dictionaryFile;
+		}
+
+		Set<String> taxIds = null;
+		if (taxonomyIdsToInclude != null && !taxonomyIdsToInclude.isEmpty()) {
+			taxIds = new HashSet<String>();
+			for (NcbiTaxonomyID taxId : taxonomyIdsToInclude) {
+				taxIds.add(taxId.getId().toString());
+			}
+		}
+
+		File tmpDictionaryFile = File.createTempFile(dictionaryFile.getName(), ".tmp",
+				dictionaryFile.getAbsoluteFile().getParentFile());
+		Map<String, Long> geneHashes = new HashMap<String, Long>();
+		ExecutorService executor = (threadCount > 1) ? ConcurrencyUtil.newDaemonThreadPool(threadCount,
+				"ncbi-gene-dictionary") : null;
+		long startTime = System.currentTimeMillis();
+		try {
+			ConceptMapperDictionaryBuilder dictBuilder = new ConceptMapperDictionaryBuilder(tmpDictionaryFile,
+					MINIMUM_TERM_LENGTH);
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(openStream(geneInfoFile),
+					StandardCharsets.UTF_8), 1 << 16)) {
+				Queue<Future<List<String[]>>> pending = new ArrayDeque<Future<List<String[]>>>();
+				int maxPending = (executor == null) ? 1 : threadCount * 4;
+				long lineCount = 0;
+				List<String> batch = new ArrayList<String>(LINES_PER_BATCH);
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (++lineCount % 1000000 == 0)
+						logger.info("Progress: " + lineCount + " gene_info lines in "
+								+ ((System.currentTimeMillis() - startTime) / 1000) + "s");
+					if (line.isEmpty() || line.charAt(0) == '#' || !isIncludedTaxon(line, taxIds))
+						continue;
+					batch.add(line);
+					if (batch.size() == LINES_PER_BATCH) {
+						pending.add(ConcurrencyUtil.submit(createBatchRenderer(batch, dictBuilder), executor));
+						batch = new ArrayList<String>(LINES_PER_BATCH);
+						if (pending.size() >= maxPending)
+							writeEntries(pending.remove(), dictBuilder, geneHashes);
+					}
+				}
+				if (!batch.isEmpty())
+					pending.add(ConcurrencyUtil.submit(createBatchRenderer(batch, dictBuilder), executor));
+				while (!pending.isEmpty())
+					writeEntries(pending.remove(), dictBuilder, geneHashes);
+			} finally {
+				dictBuilder.close();
+			}
+			logger.info("Rendered " + geneHashes.size() + " gene entries in "
+					+ ((System.currentTimeMillis() - startTime) / 1000) + "s");
+
+			if (update == DictionaryUpdate.INCREMENTAL && dictionaryFile.exists() && hashFile.exists()
+					&& !hasChanges(loadGeneHashes(hashFile), geneHashes)) {
+				logger.info("No gene entries changed. Keeping existing dictionary: " + dictionaryFile);
+				return dictionaryFile;
+			}
+			Files.move(tmpDictionaryFile.toPath(), dictionaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			writeGeneHashes(hashFile, geneHashes);
+			return dictionaryFile;
+		} finally {
+			if (executor != null)
+				executor.shutdownNow();
+			Files.deleteIfExists(tmpDictionaryFile.toPath());
+		}
+	}
+
+	private static InputStream openStream(File geneInfoFile) throws IOException {
+		InputStream is = new FileInputStream(geneInfoFile);
+		if (geneInfoFile.getName().endsWith(".gz"))
+			return new GZIPInputStream(is, 1 << 16);
+		return is;
+	}
+
+	/**
+	 * @return true if the tax_id in the first column of the input gene_info line is one of the
+	 *         taxa to include (or if all taxa are to be included)
+	 */
+	private static boolean isIncludedTaxon(String line, Set<String> taxIds) {
+		if (taxIds == null)
+			return true;
+		int tab = line.indexOf('\t');
+		return tab > 0 && taxIds.contains(line.substring(TAX_ID_COLUMN, tab));
+	}
+
+	/**
+	 * @return a task that renders the dictionary entries for a batch of gene_info lines. Each
+	 *         element of the returned list is a [geneId, entry] pair; the entry is null if the gene
+	 *         has no usable synonyms. Lines without a GeneID column are skipped.
+	 */
+	private static Callable<List<String[]>> createBatchRenderer(final List<String> lines,
+			final ConceptMapperDictionaryBuilder dictBuilder) {
+		return new Callable<List<String[]>>() {
+			@Override
+			public List<String[]> call() {
+				List<String[]> entries = new ArrayList<String[]>(lines.size());
+				for (String line : lines) {
+					String[] cols = line.split("\t", -1);
+					if (cols.length <= GENE_ID_COLUMN || cols[GENE_ID_COLUMN].isEmpty()) {
+						logger.warn("Skipping malformed gene_info line: " + line);
+						continue;
+					}
+					List<String> synonymStrs = new ArrayList<String>();
+					addColumnValue(cols, NOMENCLATURE_SYMBOL_COLUMN, synonymStrs);
+					addColumnValue(cols, NOMENCLATURE_NAME_COLUMN, synonymStrs);
+					addColumnValue(cols, SYMBOL_COLUMN, synonymStrs);
+					addColumnValues(cols, SYNONYMS_COLUMN, synonymStrs);
+					addColumnValues(cols, OTHER_DESIGNATIONS_COLUMN, synonymStrs);
+					String geneId = cols[GENE_ID_COLUMN];
+					entries.add(new String[] { geneId, dictBuilder.renderEntry(geneId, filterSynonyms(synonymStrs)) });
+				}
+				return entries;
+			}
+		};
+	}
+
+	/**
+	 * Adds the value of the specified column unless it is absent ("-")
+	 */
+	private static void addColumnValue(String[] cols, int column, List<String> values) {
+		if (column < cols.length && !cols[column].isEmpty() && !cols[column].equals("-"))
+			values.add(cols[column]);
+	}
+
+	/**
+	 * Adds the pipe-delimited values of the specified column, skipping duplicates
+	 */
+	private static void addColumnValues(String[] cols, int column, List<String> values) {
+		if (column < cols.length && !cols[column].isEmpty() && !cols[column].equals("-")) {
+			Set<String> uniqueValues = new LinkedHashSet<String>();
+			Collections.addAll(uniqueValues, cols[column].split("\\|"));
+			values.addAll(uniqueValues);
+		}
+	}
+
+	private static void writeEntries(Future<List<String[]>> future, ConceptMapperDictionaryBuilder dictBuilder,
+			Map<String, Long> geneHashes) throws IOException {
+		for (String[] geneIdAndEntry : ConcurrencyUtil.getResult(future, "building dictionary")) {
+			String entry = geneIdAndEntry[1];
+			if (entry != null) {
+				dictBuilder.addRenderedEntry(entry);
+				geneHashes.put(geneIdAndEntry[0], hash(entry));
+			}
+		}
+	}
+
+	/**
+	 * @return a 64-bit FNV-1a hash of the input string
+	 */
+	private static long hash(String s) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < s.length(); i++) {
+			h ^= s.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * Compares the gene hashes from the previous build with those of the current build and logs
+	 * the number of added, removed and changed gene entries
+	 * 
+	 * @return true if any gene entry differs
+	 */
+	private static boolean hasChanges(Map<String, Long> previousHashes, Map<String, Long> currentHashes) {
+		int added = 0;
+		int changed = 0;
+		for (Map.Entry<String, Long> entry : currentHashes.entrySet()) {
+			Long previousHash = previousHashes.get(entry.getKey());
+			if (previousHash == null)
+				added++;
+			else if (!previousHash.equals(entry.getValue()))
+				changed++;
+		}
+		int removed = previousHashes.size() - (currentHashes.size() - added);
+		logger.info("Gene entries added: " + added + ", changed: " + changed + ", removed: " + removed);
+		return added + changed + removed > 0;
+	}
+
+	private static Map<String, Long> loadGeneHashes(File hashFile) throws IOException {
+		Map<String, Long> hashes = new HashMap<String, Long>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(hashFile)))) {
+			int count = in.readInt();
+			for (int i = 0; i < count; i++)
+				hashes.put(in.readUTF(), in.readLong());
+		}
+		return hashes;
+	}
+
+	/**
+	 * Writes the gene hashes to a uniquely named temporary file that is then moved into place, so
+	 * that concurrent builds of the same dictionary never write to the same file
+	 */
+	private static void writeGeneHashes(File hashFile, Map<String, Long> hashes) throws IOException {
+		Path tmpHashFile = Files.createTempFile(hashFile.getAbsoluteFile().getParentFile().toPath(),
+				hashFile.getName(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(tmpHashFile)))) {
+				out.writeInt(hashes.size());
+				for (Map.Entry<String, Long> entry : hashes.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeLong(entry.getValue());
+				}
+			}
+			Files.move(tmpHashFile, hashFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmpHashFile);
+		}
+	}
+
 }
@@ -39,10 +39,20 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 import org.apache.tools.ant.util.StringUtils;
@@ -52,6 +62,7 @@ import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.common.xml.XmlUtil;
 import edu.ucdenver.ccp.datasource.fileparsers.obo.OntologyUtil;
 import edu.ucdenver.ccp.datasource.fileparsers.obo.OntologyUtil.SynonymType;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConcurrencyUtil;
 import lombok.Data;
 
 /**
@@ -112,59 +123,242 @@ public class OboToDictionary {
 			SynonymType synonymType, Set<OWLClass> subTreeRootIdsToExclude, Set<OWLClass> subTreeRootIdsToInclude,
 			Map<String, Set<String>> id2externalSynonymMap, DictionaryEntryModifier dictEntryModifier,
 			IncludeExt includeExt) throws IOException {
+		buildDictionary(outputFile, ontUtil, namespacesToInclude, synonymType, subTreeRootIdsToExclude,
+				subTreeRootIdsToInclude, id2externalSynonymMap, dictEntryModifier, includeExt, 1);
+	}
+
+	/**
+	 * Builds the dictionary using the specified number of threads. Dictionary
+	 * entries are rendered in chunks on a worker pool but are always written in
+	 * the order returned by {@link OntologyUtil#getClassIterator()}, so the output
+	 * is identical regardless of the thread count. The {@link OntologyUtil} is
+	 * only ever read from the calling thread: labels, synonyms and namespaces are
+	 * read there one chunk at a time, and the workers only build the entry strings
+	 * from the values that were read.
+	 * 
+	 * @param outputFile
+	 * @param ontUtil
+	 * @param namespacesToInclude
+	 * @param synonymType             ALL to include all synonyms,EXACT_ONLY to
+	 *                                include only exact synonyms
+	 * @param subTreeRootIdsToExclude
+	 * @param subTreeRootIdsToInclude
+	 * @param id2externalSynonymMap
+	 * @param dictEntryModifier
+	 * @param includeExt
+	 * @param threadCount             the number of threads used to render
+	 *                                dictionary entries. If &gt; 1, the
+	 *                                {@link DictionaryEntryModifier}, if one is
+	 *                                specified, is called concurrently.
+	 * @throws IOException
+	 */
+	public static void buildDictionary(File outputFile, OntologyUtil ontUtil, Set<String> namespacesToInclude,
+			SynonymType synonymType, Set<OWLClass> subTreeRootIdsToExclude, Set<OWLClass> subTreeRootIdsToInclude,
+			Map<String, Set<String>> id2externalSynonymMap, DictionaryEntryModifier dictEntryModifier,
+			IncludeExt includeExt, int threadCount) throws IOException {
+		buildDictionary(outputFile, ontUtil, namespacesToInclude, synonymType, subTreeRootIdsToExclude,
+				subTreeRootIdsToInclude, id2externalSynonymMap, dictEntryModifier, includeExt, threadCount,
+				RENDER_CHUNK_SIZE);
+	}
+
+	/**
+	 * As the public method above, with the number of ontology classes processed
+	 * by a single task specified explicitly; package-private so that tests can
+	 * use chunks smaller than the ontology
+	 * 
+	 * @param chunkSize the number of ontology classes processed by a single task
+	 */
+	static void buildDictionary(File outputFile, OntologyUtil ontUtil, Set<String> namespacesToInclude,
+			SynonymType synonymType, Set<OWLClass> subTreeRootIdsToExclude, Set<OWLClass> subTreeRootIdsToInclude,
+			Map<String, Set<String>> id2externalSynonymMap, DictionaryEntryModifier dictEntryModifier,
+			IncludeExt includeExt, int threadCount, int chunkSize) throws IOException {
 		long startTime = System.currentTimeMillis();
-		try (BufferedWriter writer = Files.newBufferedWriter(
-				FileSystems.getDefault().getPath(outputFile.getAbsolutePath()), StandardCharsets.UTF_8)) {
-			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<synonym>");
-			writer.newLine();
-			logger.info("Initialized dictionary writer: " + ((System.currentTimeMillis() - startTime) / 1000) + "s");
-			int count = 0;
-			startTime = System.currentTimeMillis();
-			for (Iterator<OWLClass> ontClsIter = ontUtil.getClassIterator(); ontClsIter.hasNext();) {
-				OWLClass owlClass = ontClsIter.next();
-				if (owlClass != null // && !oboObj.getName().startsWith("obo:")
-						&& classNotInExcludedSubtree(owlClass, subTreeRootIdsToExclude, ontUtil)
-						&& classInIncludedSubtree(owlClass, subTreeRootIdsToInclude, ontUtil)) {
-					if (count++ % 1000 == 0) {
-						logger.info("Ontology processing progress: " + (count - 1) + " in "
-								+ ((System.currentTimeMillis() - startTime) / 1000) + "s");
-						startTime = System.currentTimeMillis();
-					}
-					String objToString = objToString(owlClass, synonymType, ontUtil, id2externalSynonymMap,
-							dictEntryModifier);
-					if (objToString != null) {
-						if (includeExt == IncludeExt.YES && owlClass.getIRI().toString().contains("_EXT")) {
-								writer.write(objToString);
-						} else {
-							if (namespacesToInclude == null || namespacesToInclude.isEmpty()) {
-								writer.write(objToString);
-							} else {
-								String ns = ontUtil.getNamespace(owlClass);
-								if (ns != null) {
-									if (namespacesToInclude.contains(ns)) {
-										writer.write(objToString);
-									}
-								}
-							}
-						}
+		List<OWLClass> classes = new ArrayList<OWLClass>();
+		for (Iterator<OWLClass> ontClsIter = ontUtil.getClassIterator(); ontClsIter.hasNext();) {
+			OWLClass owlClass = ontClsIter.next();
+			if (owlClass != null) {
+				classes.add(owlClass);
+			}
+		}
+		logger.info("Loaded " + classes.size() + " ontology classes: "
+				+ ((System.currentTimeMillis() - startTime) / 1000) + "s");
+
+		ExecutorService executor = (threadCount > 1)
+				? ConcurrencyUtil.newDaemonThreadPool(threadCount, "obo-to-dictionary")
+				: null;
+		try {
+			BitSet selected = computeSubtreeMembership(classes, subTreeRootIdsToExclude, subTreeRootIdsToInclude,
+					ontUtil);
+			logger.info(selected.cardinality() + " of " + classes.size()
+					+ " ontology classes pass the subtree filters: "
+					+ ((System.currentTimeMillis() - startTime) / 1000) + "s");
+
+			ExportProgress progress = new ExportProgress(selected.cardinality());
+			try (BufferedWriter writer = Files.newBufferedWriter(
+					FileSystems.getDefault().getPath(outputFile.getAbsolutePath()), StandardCharsets.UTF_8)) {
+				writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<synonym>");
+				writer.newLine();
+				/*
+				 * the ontology terms of each chunk are read on this thread, in class order,
+				 * and only the rendering is submitted; results are consumed in the same
+				 * order and the queue bounds the number of chunks held in memory
+				 */
+				Queue<Future<List<String>>> pending = new ArrayDeque<Future<List<String>>>();
+				int maxPending = (executor == null) ? 1 : threadCount * 4;
+				for (int chunkStart = 0; chunkStart < classes.size(); chunkStart += chunkSize) {
+					List<ClassTerms> chunk = readChunk(classes, selected, chunkStart,
+							Math.min(chunkStart + chunkSize, classes.size()), namespacesToInclude, synonymType,
+							ontUtil, id2externalSynonymMap, includeExt, progress);
+					pending.add(ConcurrencyUtil.submit(createChunkRenderer(chunk, dictEntryModifier), executor));
+					if (pending.size() >= maxPending) {
+						writeEntries(pending.remove(), writer, progress);
 					}
 				}
+				while (!pending.isEmpty()) {
+					writeEntries(pending.remove(), writer, progress);
+				}
+				writer.write("</synonym>");
+			}
+			progress.logProgress(true);
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
-			writer.write("</synonym>");
 		}
 	}
 
 	/**
-	 * @param oboObj
+	 * The default number of ontology classes rendered by a single task
+	 */
+	private static final int RENDER_CHUNK_SIZE = 512;
+
+	/**
+	 * Determines which classes pass the include/exclude subtree filters. The
+	 * ancestor closure of each class is computed only once (rather than once per
+	 * filter) and the result is stored in a {@link BitSet} indexed by the class
+	 * ordinal in the input list.
+	 */
+	private static BitSet computeSubtreeMembership(List<OWLClass> classes, Set<OWLClass> subTreeRootIdsToExclude,
+			Set<OWLClass> subTreeRootIdsToInclude, OntologyUtil ontUtil) {
+		BitSet selected = new BitSet(classes.size());
+		if (subTreeRootIdsToExclude == null && subTreeRootIdsToInclude == null) {
+			selected.set(0, classes.size());
+			return selected;
+		}
+		for (int i = 0; i < classes.size(); i++) {
+			Set<OWLClass> ancestors = ontUtil.getAncestors(classes.get(i));
+			if (classNotInExcludedSubtree(ancestors, subTreeRootIdsToExclude)
+					&& classInIncludedSubtree(ancestors, subTreeRootIdsToInclude)) {
+				selected.set(i);
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Reads the ontology terms needed to render the selected classes in
+	 * classes[start, end). Classes that are filtered out by namespace are omitted.
+	 * This is the only place the {@link OntologyUtil} is read while rendering, so
+	 * it must be called from the thread that owns the ontology.
+	 */
+	private static List<ClassTerms> readChunk(List<OWLClass> classes, BitSet selected, int start, int end,
+			Set<String> namespacesToInclude, SynonymType synonymType, OntologyUtil ontUtil,
+			Map<String, Set<String>> id2externalSynonymMap, IncludeExt includeExt, ExportProgress progress) {
+		List<ClassTerms> chunk = new ArrayList<ClassTerms>();
+		for (int i = selected.nextSetBit(start); i >= 0 && i < end; i = selected.nextSetBit(i + 1)) {
+			OWLClass owlClass = classes.get(i);
+			progress.classesProcessed.incrementAndGet();
+			if (isInIncludedNamespace(owlClass, namespacesToInclude, ontUtil, includeExt)) {
+				String idToLookUp = owlClass.getIRI().getShortForm().replace("_", ":");
+				Set<String> externalSynonyms = null;
+				if (id2externalSynonymMap != null && id2externalSynonymMap.containsKey(idToLookUp)) {
+					externalSynonyms = new HashSet<String>(id2externalSynonymMap.get(idToLookUp));
+				}
+				chunk.add(new ClassTerms(owlClass.getIRI().toString(), ontUtil.getLabel(owlClass),
+						ontUtil.getSynonyms(owlClass, synonymType), externalSynonyms));
+			}
+		}
+		return chunk;
+	}
+
+	/**
+	 * @return a task that renders the dictionary entries for the terms, in order.
+	 *         Terms for which no entry is generated are omitted.
+	 */
+	private static Callable<List<String>> createChunkRenderer(List<ClassTerms> chunk,
+			DictionaryEntryModifier dictEntryModifier) {
+		return () -> {
+			List<String> entries = new ArrayList<String>(chunk.size());
+			for (ClassTerms terms : chunk) {
+				String objToString = objToString(terms, dictEntryModifier);
+				if (objToString != null) {
+					entries.add(objToString);
+				}
+			}
+			return entries;
+		};
+	}
+
+	private static boolean isInIncludedNamespace(OWLClass owlClass, Set<String> namespacesToInclude,
+			OntologyUtil ontUtil, IncludeExt includeExt) {
+		if (includeExt == IncludeExt.YES && owlClass.getIRI().toString().contains("_EXT")) {
+			return true;
+		}
+		if (namespacesToInclude == null || namespacesToInclude.isEmpty()) {
+			return true;
+		}
+		String ns = ontUtil.getNamespace(owlClass);
+		return ns != null && namespacesToInclude.contains(ns);
+	}
+
+	private static void writeEntries(Future<List<String>> future, BufferedWriter writer, ExportProgress progress)
+			throws IOException {
+		for (String entry : ConcurrencyUtil.getResult(future, "building dictionary")) {
+			writer.write(entry);
+			progress.entriesWritten.incrementAndGet();
+		}
+		progress.logProgress(false);
+	}
+
+	/**
+	 * Tracks the number of ontology classes processed and dictionary entries
+	 * written, and periodically logs these counts along with throughput
+	 */
+	private static class ExportProgress {
+		private static final long LOG_INTERVAL_MS = 10000;
+
+		private final int classesToProcess;
+		private final long startTime = System.currentTimeMillis();
+		private final AtomicLong classesProcessed = new AtomicLong();
+		private final AtomicLong entriesWritten = new AtomicLong();
+		private long lastLogTime = startTime;
+
+		public ExportProgress(int classesToProcess) {
+			this.classesToProcess = classesToProcess;
+		}
+
+		public void logProgress(boolean force) {
+			long now = System.currentTimeMillis();
+			if (force || now - lastLogTime >= LOG_INTERVAL_MS) {
+				lastLogTime = now;
+				long processed = classesProcessed.get();
+				double seconds = Math.max(1, now - startTime) / 1000.0;
+				logger.info(String.format(
+						"Ontology processing progress: %d/%d classes processed, %d entries written in %.1fs (%.1f classes/s)",
+						processed, classesToProcess, entriesWritten.get(), seconds, processed / seconds));
+			}
+		}
+	}
+
+	/**
+	 * @param ancestors
 	 * @param subTreeRootIdsToInclude
 	 * @return
 	 */
-	private static boolean classInIncludedSubtree(OWLClass oboObj, Set<OWLClass> subTreeRootIdsToInclude,
-			OntologyUtil ontUtil) {
+	private static boolean classInIncludedSubtree(Set<OWLClass> ancestors, Set<OWLClass> subTreeRootIdsToInclude) {
 		if (subTreeRootIdsToInclude == null) {
 			return true;
 		}
-		Set<OWLClass> ancestors = ontUtil.getAncestors(oboObj);
 		for (OWLClass ancestor : ancestors) {
 			if (subTreeRootIdsToInclude.contains(ancestor)) {
 				return true;
@@ -174,16 +368,14 @@ public class OboToDictionary {
 	}
 
 	/**
-	 * @param owlClass
+	 * @param ancestors
 	 * @param subTreeRootIdsToExclude
 	 * @return
 	 */
-	private static boolean classNotInExcludedSubtree(OWLClass owlClass, Set<OWLClass> subTreeRootIdsToExclude,
-			OntologyUtil ontUtil) {
+	private static boolean classNotInExcludedSubtree(Set<OWLClass> ancestors, Set<OWLClass> subTreeRootIdsToExclude) {
 		if (subTreeRootIdsToExclude == null) {
 			return true;
 		}
-		Set<OWLClass> ancestors = ontUtil.getAncestors(owlClass);
 		for (OWLClass ancestor : ancestors) {
 			if (subTreeRootIdsToExclude.contains(ancestor)) {
 				return false;
@@ -193,19 +385,36 @@ public class OboToDictionary {
 		return true;
 	}
 
+	/**
+	 * The label, synonyms and identifier of an ontology class, read from the
+	 * {@link OntologyUtil} so that the entry can be rendered on another thread
+	 */
+	private static class ClassTerms {
+		private final String identifier;
+		private final String label;
+		private final Collection<String> synonyms;
+		private final Set<String> externalSynonyms;
+
+		public ClassTerms(String identifier, String label, Collection<String> synonyms,
+				Set<String> externalSynonyms) {
+			this.identifier = identifier;
+			this.label = label;
+			this.synonyms = synonyms;
+			this.externalSynonyms = externalSynonyms;
+		}
+	}
+
 	/**
 	 * Represent the OBO object as a XML dictionary string.
 	 * 
-	 * @param id          the ID of the OBO object
-	 * @param owlClass    the OBO object itself
-	 * @param synonymType
+	 * @param terms                   the terms read for the OBO object
+	 * @param dictionaryEntryModifier
 	 * @return an XML-formatted string in the ConceptMapper Dictionary format.
 	 */
-	private static String objToString(OWLClass owlClass, SynonymType synonymType, OntologyUtil ontUtil,
-			Map<String, Set<String>> id2externalSynonymMap, DictionaryEntryModifier dictionaryEntryModifier) {
+	private static String objToString(ClassTerms terms, DictionaryEntryModifier dictionaryEntryModifier) {
 		// StringBuffer buf = new StringBuffer();
 
-		String name = ontUtil.getLabel(owlClass);
+		String name = terms.label;
 		if (name == null || name == "" || name == "<new term>") {
 			// id without a name. Don't add to dictionary.
 			return "";
@@ -227,7 +436,7 @@ public class OboToDictionary {
 		// Set<String> alreadyAddedSyns = new HashSet<String>();
 		// buf.append(buildSynonymLine(name, alreadyAddedSyns));
 		Set<String> syns = CollectionsUtil.createSet(name);
-		syns.addAll(ontUtil.getSynonyms(owlClass, synonymType));
+		syns.addAll(terms.synonyms);
 		syns.forEach(syn -> {
 			if (syn.endsWith("\"@en")) {
 				syn = StringUtils.removeSuffix(syn, "\"@en");
@@ -239,10 +448,8 @@ public class OboToDictionary {
 		}
 
 		/* check for external synonyms here and add any if they exist */
-		Set<String> dynamicallyGeneratedSyns = null;
-		String idToLookUp = owlClass.getIRI().getShortForm().replace("_", ":");
-		if (id2externalSynonymMap != null && id2externalSynonymMap.containsKey(idToLookUp)) {
-			dynamicallyGeneratedSyns = id2externalSynonymMap.get(idToLookUp);
+		Set<String> dynamicallyGeneratedSyns = terms.externalSynonyms;
+		if (dynamicallyGeneratedSyns != null) {
 			dynamicallyGeneratedSyns.forEach(syn -> {
 				if (syn.endsWith("\"@en")) {
 					syn = StringUtils.removeSuffix(syn, "\"@en");
@@ -254,8 +461,7 @@ public class OboToDictionary {
 			}
 		}
 
-		String identifier = owlClass.getIRI().toString();
-		Concept c = new Concept(identifier, name, syns, dynamicallyGeneratedSyns);
+		Concept c = new Concept(terms.identifier, name, syns, dynamicallyGeneratedSyns);
 
 		if (dictionaryEntryModifier != null) {
 			c = dictionaryEntryModifier.modifyConcept(c);
@@ -0,0 +1,98 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.stemmer;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.FileNotFoundException;
+import java.text.ParseException;
+
+import org.apache.uima.conceptMapper.support.stemmer.Stemmer;
+
+/**
+ * Base class for stemmers that memoize the output of another {@link Stemmer}. ConceptMapper
+ * instantiates its stemmer reflectively using a no-argument constructor, so each cached stemmer is
+ * a concrete subclass that supplies its delegate. Each instance holds its own delegate, as the
+ * underlying stemmers are not necessarily thread-safe, while the {@link StemCache} is normally
+ * shared among all instances wrapping the same stemmer class.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public abstract class CachingStemmer implements Stemmer {
+
+	private final Stemmer delegate;
+	private final StemCache cache;
+
+	/**
+	 * @param delegate
+	 *            the stemmer whose output is cached
+	 * @param cache
+	 */
+	protected CachingStemmer(Stemmer delegate, StemCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public String stem(String token) {
+		return cache.getStem(token, delegate);
+	}
+
+	@Override
+	public void initialize(String dictionary) throws FileNotFoundException, ParseException {
+		delegate.initialize(dictionary);
+	}
+
+	/**
+	 * Populates the cache with the stems of the input tokens, e.g. the tokens of the dictionary
+	 * vocabulary, prior to processing
+	 * 
+	 * @param tokens
+	 */
+	public void prewarm(Iterable<String> tokens) {
+		for (String token : tokens) {
+			cache.getStem(token, delegate);
+		}
+	}
+
+	/**
+	 * @return the cache used by this stemmer, e.g. for reporting its hit rate
+	 */
+	public StemCache getCache() {
+		return cache;
+	}
+
+}
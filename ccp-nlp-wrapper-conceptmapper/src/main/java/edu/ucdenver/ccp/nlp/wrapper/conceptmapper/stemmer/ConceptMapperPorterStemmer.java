@@ -63,7 +63,7 @@ public class ConceptMapperPorterStemmer implements Stemmer {
 	 */
 	@Override
 	public String stem(String token) {
-		stemmer.add(token.toCharArray(), token.toCharArray().length);
+		stemmer.add(token.toCharArray(), token.length());
 		stemmer.stem();
 		return stemmer.toString();
 	}
@@ -60,6 +60,29 @@ public class ConceptMapperStemmerFactory {
 			throw new IllegalArgumentException("Unhandled stemmer type: " + stemmerType.name());
 		}
 	}
+
+	/**
+	 * @param stemmerType
+	 * @param cacheStems
+	 *            if true, the returned stemmer class memoizes its output in a {@link StemCache}
+	 *            shared by all of its instances in the JVM
+	 * @return the stemmer class to use with ConceptMapper
+	 */
+	public static Class<? extends Stemmer> getStemmerClass(StemmerType stemmerType, boolean cacheStems) {
+		if (!cacheStems) {
+			return getStemmerClass(stemmerType);
+		}
+		switch (stemmerType) {
+		case PORTER:
+			return CachingConceptMapperPorterStemmer.class;
+		case BIOLEMMATIZER:
+			return CachingConceptMapperBioLemmatizer.class;
+		case NONE:
+			return ConceptMapperNullStemmer.class;
+		default:
+			throw new IllegalArgumentException("Unhandled stemmer type: " + stemmerType.name());
+		}
+	}
 	
 	
 }
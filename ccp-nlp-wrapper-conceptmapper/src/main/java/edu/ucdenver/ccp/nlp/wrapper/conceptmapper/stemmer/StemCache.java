@@ -0,0 +1,228 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.stemmer;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.uima.conceptMapper.support.stemmer.Stemmer;
+
+/**
+ * A bounded, thread-safe cache of token to stem mappings. The cache is split into a fixed number
+ * of segments, each an access-ordered LRU map guarded by its own lock, so that concurrent
+ * ConceptMapper instances rarely contend. Hit and miss counts, and the time spent computing stems
+ * on a miss, are recorded so that the effectiveness of the cache can be monitored.
+ * <p>
+ * Caches are shared per delegate stemmer class via {@link #getSharedCache(Class)} so that all
+ * analysis engine replicas in a JVM benefit from each other's work.
+ * 
+ * @author Colorado Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class StemCache {
+
+	/**
+	 * default maximum number of cached stems
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 1 << 18;
+
+	private static final int SEGMENT_COUNT = 16;
+
+	private static final ConcurrentMap<Class<? extends Stemmer>, StemCache> SHARED_CACHES = new ConcurrentHashMap<Class<? extends Stemmer>, StemCache>();
+
+	private final Segment[] segments;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder missNanos = new LongAdder();
+
+	/**
+	 * @param maximumSize
+	 *            the maximum number of stems to cache; once reached the least recently used
+	 *            entries are evicted
+	 */
+	public StemCache(int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("Maximum cache size must be positive: " + maximumSize);
+		}
+		int segmentSize = Math.max(1, maximumSize / SEGMENT_COUNT);
+		segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * @param stemmerClass
+	 * @return the cache shared by all caching stemmers that delegate to the specified stemmer class
+	 */
+	public static StemCache getSharedCache(Class<? extends Stemmer> stemmerClass) {
+		StemCache cache = SHARED_CACHES.get(stemmerClass);
+		if (cache == null) {
+			StemCache newCache = new StemCache(DEFAULT_MAXIMUM_SIZE);
+			cache = SHARED_CACHES.putIfAbsent(stemmerClass, newCache);
+			if (cache == null) {
+				cache = newCache;
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Returns the cached stem for the input token, computing it with the specified stemmer (and
+	 * caching it) if it is not already present
+	 * 
+	 * @param token
+	 * @param stemmer
+	 * @return the stem of the input token
+	 */
+	public String getStem(String token, Stemmer stemmer) {
+		Segment segment = segments[(spread(token.hashCode())) & (SEGMENT_COUNT - 1)];
+		String stem;
+		synchronized (segment) {
+			stem = segment.get(token);
+		}
+		if (stem != null) {
+			hitCount.increment();
+			return stem;
+		}
+		long start = System.nanoTime();
+		stem = stemmer.stem(token);
+		missNanos.add(System.nanoTime() - start);
+		missCount.increment();
+		if (stem != null) {
+			synchronized (segment) {
+				segment.put(token, stem);
+			}
+		}
+		return stem;
+	}
+
+	private static int spread(int h) {
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return the number of cached stems
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Removes all cached stems and resets the statistics
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		hitCount.reset();
+		missCount.reset();
+		missNanos.reset();
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * @return the fraction of lookups that were served from the cache, or 0 if there have been no
+	 *         lookups
+	 */
+	public double getHitRate() {
+		long hits = hitCount.sum();
+		long total = hits + missCount.sum();
+		return (total == 0) ? 0.0 : (double) hits / total;
+	}
+
+	/**
+	 * @return the total time, in nanoseconds, spent computing stems for tokens that were not
+	 *         cached
+	 */
+	public long getTotalMissNanos() {
+		return missNanos.sum();
+	}
+
+	/**
+	 * @return the average time, in nanoseconds, spent computing a stem for a token that was not
+	 *         cached, or 0 if there have been no misses
+	 */
+	public double getAverageMissNanos() {
+		long misses = missCount.sum();
+		return (misses == 0) ? 0.0 : (double) missNanos.sum() / misses;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StemCache [size=%d, hits=%d, misses=%d, hitRate=%.4f, averageMissNanos=%.1f]", size(),
+				getHitCount(), getMissCount(), getHitRate(), getAverageMissNanos());
+	}
+
+	/**
+	 * An access-ordered map that evicts its least recently used entry once its capacity is
+	 * exceeded. Callers synchronize on the segment.
+	 */
+	private static class Segment extends LinkedHashMap<String, String> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		public Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > capacity;
+		}
+	}
+
+}
@@ -217,4 +217,45 @@ public class ConceptMapperFactoryTest extends DefaultUIMATestCase {
 		assertEquals("nucleotide-excision repair complex", termList.get(1).getCoveredText());
 		assertEquals("GO:0000109", termList.get(1).getID());
 	}
+
+	@Test
+	public void testBuildCmWithCompiledDictionary() throws UIMAException, IOException {
+		CaseMatchParamValue caseMatchParamValue = CaseMatchParamValue.CASE_INSENSITIVE;
+		Object[] tokenizerConfigData = OffsetTokenizerFactory.buildConfigurationData(caseMatchParamValue);
+		AnalysisEngineDescription offsetTokenizerDescription = (AnalysisEngineDescription) ResourceCreationSpecifierFactory
+				.createResourceCreationSpecifier(tokenizerXmlFile.getAbsolutePath(), tokenizerConfigData);
+		offsetTokenizerDescription.getAnalysisEngineMetaData().setTypeSystem(tsd);
+
+		File compiledDictionaryDirectory = folder.newFolder("compiled-dictionaries");
+		AnalysisEngineDescription conceptMapperDescription = ConceptMapperFactory.buildConceptMapperDescription(tsd,
+				dictionaryFile, caseMatchParamValue, SearchStrategyParamValue.CONTIGUOUS_MATCH, null, new String[0],
+				false, false, false, Sentence.class, tokenizerXmlFile);
+		ConceptMapperFactory.useCompiledDictionary(conceptMapperDescription, compiledDictionaryDirectory);
+
+		File[] compiledDictionaries = compiledDictionaryDirectory.listFiles();
+		assertEquals("a single compiled dictionary should have been written", 1, compiledDictionaries.length);
+		long lastModified = compiledDictionaries[0].lastModified();
+
+		/* the same settings should reuse the previously compiled dictionary */
+		AnalysisEngineDescription conceptMapperDescription2 = ConceptMapperFactory.buildConceptMapperDescription(
+				tsd, dictionaryFile, caseMatchParamValue, SearchStrategyParamValue.CONTIGUOUS_MATCH, null,
+				new String[0], false, false, false, Sentence.class, tokenizerXmlFile);
+		ConceptMapperFactory.useCompiledDictionary(conceptMapperDescription2, compiledDictionaryDirectory);
+		assertEquals(1, compiledDictionaryDirectory.listFiles().length);
+		assertEquals(lastModified, compiledDictionaries[0].lastModified());
+
+		AnalysisEngine tokenizerEngine = UIMAFramework.produceAnalysisEngine(offsetTokenizerDescription);
+		AnalysisEngine conceptMapperEngine = UIMAFramework.produceAnalysisEngine(conceptMapperDescription);
+
+		tokenizerEngine.process(jcas);
+		conceptMapperEngine.process(jcas);
+
+		List<OntologyTerm> termList = CollectionsUtil.createList(JCasUtil.iterator(jcas, OntologyTerm.class));
+
+		assertEquals("Two ontology terms should have been found", 2, termList.size());
+		assertEquals("NEF1 complex", termList.get(0).getCoveredText());
+		assertEquals("GO:0000110", termList.get(0).getID());
+		assertEquals("nucleotide-excision repair complex", termList.get(1).getCoveredText());
+		assertEquals("GO:0000109", termList.get(1).getID());
+	}
 }
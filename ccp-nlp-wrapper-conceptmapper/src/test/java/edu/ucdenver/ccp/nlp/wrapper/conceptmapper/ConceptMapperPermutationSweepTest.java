@@ -0,0 +1,159 @@
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.io.ClassPathUtil;
+import edu.ucdenver.ccp.datasource.fileparsers.obo.OntologyUtil.SynonymType;
+import edu.ucdenver.ccp.nlp.core.annotation.TextAnnotation;
+import edu.ucdenver.ccp.nlp.core.annotation.comparison.StrictSpanComparator;
+import edu.ucdenver.ccp.nlp.core.annotation.impl.DefaultTextAnnotation;
+import edu.ucdenver.ccp.nlp.core.mention.comparison.IdenticalMentionComparator;
+import edu.ucdenver.ccp.nlp.core.mention.impl.DefaultClassMention;
+import edu.ucdenver.ccp.nlp.uima.test.DefaultUIMATestCase;
+import edu.ucdenver.ccp.nlp.uima.util.UIMA_Util;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConceptMapperPermutationSweep.CorpusDocument;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.ConceptMapperPermutationSweep.PermutationResult;
+
+/**
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ConceptMapperPermutationSweepTest extends DefaultUIMATestCase {
+
+	private static final String SAMPLE_CM_DICTIONARY_NAME = "sample-cm-dictionary.xml";
+	private static final String DOCUMENT_ID = "12345";
+
+	private File dictionaryFile;
+
+	@Override
+	protected TypeSystemDescription getTypeSystem() {
+		return TypeSystemDescriptionFactory.createTypeSystemDescription("edu.ucdenver.ccp.nlp.core.uima.TypeSystem",
+				"edu.ucdenver.ccp.nlp.wrapper.conceptmapper.TypeSystem",
+				"edu.ucdenver.ccp.nlp.wrapper.conceptmapper.TestTypeSystem", "analysis_engine.primitive.DictTerm",
+				"org.apache.uima.conceptMapper.support.tokenizer.TokenAnnotation", "uima.tt.TokenAnnotation");
+	}
+
+	@Override
+	protected void initJCas() throws UIMAException {
+		String sentence1 = "Here is some text with some GO terms.";
+		String sentence2 = "The NEF1 complex is known to be a part of the nucleotide-excision repair complex.";
+
+		jcas.setDocumentText(sentence1 + " " + sentence2);
+		UIMA_Util.setDocumentID(jcas, DOCUMENT_ID);
+
+		new Sentence(jcas, 0, sentence1.length()).addToIndexes();
+		new Sentence(jcas, sentence1.length() + 1, sentence1.length() + 1 + sentence2.length()).addToIndexes();
+	}
+
+	@Override
+	public void setUp() throws UIMAException, IOException {
+		super.setUp();
+		dictionaryFile = folder.newFile("cm-dict.xml");
+		ClassPathUtil.copyClasspathResourceToFile(getClass(), SAMPLE_CM_DICTIONARY_NAME, dictionaryFile);
+	}
+
+	@Test
+	public void testSweepSharesTokenizationGroup() throws UIMAException, IOException {
+		/*
+		 * the two permutations differ only by stop word list so they share a tokenization group;
+		 * both should find the two GO terms in the sample text
+		 */
+		List<Integer> permutationNumbers = new ArrayList<Integer>();
+		for (int i = 0; i < ConceptMapperPermutationFactory.PARAM_COMBINATIONS.size(); i++) {
+			List<String> params = ConceptMapperPermutationFactory.PARAM_COMBINATIONS.get(i);
+			if (params.containsAll(CollectionsUtil.createList("SearchStrategy:CONTIGUOUS_MATCH",
+					"CaseMatch:CASE_INSENSITIVE", "Stemmer:NONE", "OrderIndependentLookup:OFF", "FindAllMatches:NO",
+					"SynonymType:ALL"))) {
+				permutationNumbers.add(i);
+			}
+		}
+		assertEquals(2, permutationNumbers.size());
+		assertEquals(ConceptMapperPermutationFactory.getTokenizationGroupKey(permutationNumbers.get(0)),
+				ConceptMapperPermutationFactory.getTokenizationGroupKey(permutationNumbers.get(1)));
+
+		Map<String, Collection<TextAnnotation>> goldAnnotations = new HashMap<String, Collection<TextAnnotation>>();
+		goldAnnotations.put(DOCUMENT_ID, CollectionsUtil.createList(createGoldAnnotation(42, 54, "GO:0000110"),
+				createGoldAnnotation(84, 118, "GO:0000109")));
+
+		Map<SynonymType, File> dictionaryFiles = new HashMap<SynonymType, File>();
+		dictionaryFiles.put(SynonymType.ALL, dictionaryFile);
+		ConceptMapperPermutationSweep sweep = new ConceptMapperPermutationSweep(tsd, dictionaryFiles, Sentence.class,
+				2, true);
+		List<CorpusDocument> corpus = CollectionsUtil.createList(ConceptMapperPermutationSweep
+				.createCorpusDocument(jcas));
+		List<PermutationResult> results = sweep.run(corpus, goldAnnotations, permutationNumbers,
+				new StrictSpanComparator(), new IdenticalMentionComparator());
+
+		assertEquals(2, results.size());
+		for (PermutationResult result : results) {
+			assertEquals(2, result.getPRFResult().getTruePositiveCount());
+			assertEquals(0, result.getPRFResult().getFalsePositiveCount());
+			assertEquals(0, result.getPRFResult().getFalseNegativeCount());
+		}
+		/* ties are ranked by permutation number */
+		assertTrue(results.get(0).getPermutationNumber() < results.get(1).getPermutationNumber());
+
+		StringWriter writer = new StringWriter();
+		ConceptMapperPermutationSweep.writeRankedTable(results, writer);
+		String[] lines = writer.toString().split("\\r?\\n");
+		assertEquals(3, lines.length);
+		assertTrue(lines[1].startsWith("1\t" + results.get(0).getPermutationNumber() + "\t1.0000"));
+	}
+
+	private static TextAnnotation createGoldAnnotation(int spanStart, int spanEnd, String conceptId) {
+		DefaultTextAnnotation ta = new DefaultTextAnnotation(spanStart, spanEnd);
+		ta.setDocumentID(DOCUMENT_ID);
+		ta.setClassMention(new DefaultClassMention(conceptId));
+		return ta;
+	}
+
+}
@@ -0,0 +1,168 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary.ncbi;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.io.ClassPathUtil;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+import edu.ucdenver.ccp.datasource.fileparsers.ncbi.gene.NcbiGeneInfoFileParser;
+import edu.ucdenver.ccp.datasource.identifiers.impl.bio.NcbiTaxonomyID;
+import edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary.ncbi.NcbiGeneDictionaryFactory.DictionaryUpdate;
+
+/**
+ * @author Colorado Computational Pharmacology, UC Denver;
+ *         ccpsupport@ucdenver.edu
+ * 
+ */
+public class NcbiGeneDictionaryFactoryTest extends DefaultTestCase {
+
+	private static final String SAMPLE_GENE_INFO_FILE_NAME = "sample.gene_info";
+
+	private static final Pattern TOKEN_PATTERN = Pattern.compile("<token id=\"([^\"]*)\" canonical=\"([^\"]*)\">");
+	private static final Pattern VARIANT_PATTERN = Pattern.compile("<variant base=\"([^\"]*)\"/>");
+
+	@Test
+	public void testGeneInfoBuildMatchesParserBuild() throws IOException {
+		File geneInfoFile = ClassPathUtil.copyClasspathResourceToDirectory(getClass(), SAMPLE_GENE_INFO_FILE_NAME,
+				folder.newFolder("input"));
+		for (Set<NcbiTaxonomyID> taxonomyIds : Arrays.asList(null,
+				CollectionsUtil.createSet(new NcbiTaxonomyID(9606), new NcbiTaxonomyID(7227)))) {
+			File parserDictionaryFile = folder.newFile();
+			NcbiGeneDictionaryFactory.buildConceptMapperDictionary(parserDictionaryFile, taxonomyIds,
+					new NcbiGeneInfoFileParser(geneInfoFile, CharacterEncoding.UTF_8), true);
+			for (int threadCount : new int[] { 1, 2 }) {
+				File dictionaryFile = folder.newFile();
+				NcbiGeneDictionaryFactory.buildConceptMapperDictionary(geneInfoFile, dictionaryFile, taxonomyIds,
+						DictionaryUpdate.REBUILD, threadCount);
+				Map<String, Set<String>> expectedEntries = readDictionary(parserDictionaryFile);
+				assertEquals(expectedEntries, readDictionary(dictionaryFile));
+				assertEquals((taxonomyIds == null) ? 4 : 3, expectedEntries.size());
+			}
+		}
+	}
+
+	@Test
+	public void testIncrementalBuildLeavesUnchangedDictionaryUntouched() throws IOException {
+		File geneInfoFile = ClassPathUtil.copyClasspathResourceToDirectory(getClass(), SAMPLE_GENE_INFO_FILE_NAME,
+				folder.newFolder("input"));
+		File dictionaryFile = new File(folder.getRoot(), "gene-dict.xml");
+		NcbiGeneDictionaryFactory.buildConceptMapperDictionary(geneInfoFile, dictionaryFile, null,
+				DictionaryUpdate.INCREMENTAL, 1);
+		File hashFile = new File(folder.getRoot(), dictionaryFile.getName()
+				+ NcbiGeneDictionaryFactory.GENE_HASH_FILE_SUFFIX);
+		assertTrue(hashFile.exists());
+		long lastModified = 1000000000000L;
+		assertTrue(dictionaryFile.setLastModified(lastModified));
+		assertTrue(hashFile.setLastModified(lastModified));
+
+		NcbiGeneDictionaryFactory.buildConceptMapperDictionary(geneInfoFile, dictionaryFile, null,
+				DictionaryUpdate.INCREMENTAL, 2);
+		assertEquals(lastModified, dictionaryFile.lastModified());
+		assertEquals(lastModified, hashFile.lastModified());
+		assertNoTemporaryFiles();
+
+		String geneInfo = new String(Files.readAllBytes(geneInfoFile.toPath()), StandardCharsets.UTF_8);
+		Files.write(geneInfoFile.toPath(), geneInfo.replace("A2MD|", "A2MD|DL4|").getBytes(StandardCharsets.UTF_8));
+		NcbiGeneDictionaryFactory.buildConceptMapperDictionary(geneInfoFile, dictionaryFile, null,
+				DictionaryUpdate.INCREMENTAL, 1);
+		assertNotEquals(lastModified, dictionaryFile.lastModified());
+		assertTrue(readDictionary(dictionaryFile).get("2").contains("DL4"));
+		assertNoTemporaryFiles();
+	}
+
+	@Test
+	public void testMalformedLinesAreSkipped() throws IOException {
+		File geneInfoFile = ClassPathUtil.copyClasspathResourceToDirectory(getClass(), SAMPLE_GENE_INFO_FILE_NAME,
+				folder.newFolder("input"));
+		Files.write(geneInfoFile.toPath(), "9606\n9606\t\ttruncated\n".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+		File dictionaryFile = folder.newFile();
+		NcbiGeneDictionaryFactory.buildConceptMapperDictionary(geneInfoFile, dictionaryFile, null,
+				DictionaryUpdate.REBUILD, 1);
+		assertEquals(CollectionsUtil.createSet("1", "2", "11287", "30970"), readDictionary(dictionaryFile).keySet());
+	}
+
+	private void assertNoTemporaryFiles() {
+		for (File file : folder.getRoot().listFiles()) {
+			assertFalse("temporary file was not removed: " + file, file.getName().endsWith(".tmp"));
+		}
+	}
+
+	/**
+	 * @return a mapping from gene ID to the canonical name (prefixed with "canonical:") and the
+	 *         variants of its dictionary entry. Variant order is ignored as the gene_info parser
+	 *         returns synonyms as a set.
+	 */
+	private static Map<String, Set<String>> readDictionary(File dictionaryFile) throws IOException {
+		Map<String, Set<String>> entries = new HashMap<String, Set<String>>();
+		Set<String> currentEntry = null;
+		for (String line : Files.readAllLines(dictionaryFile.toPath(), StandardCharsets.UTF_8)) {
+			Matcher tokenMatcher = TOKEN_PATTERN.matcher(line);
+			Matcher variantMatcher = VARIANT_PATTERN.matcher(line);
+			if (tokenMatcher.matches()) {
+				currentEntry = new TreeSet<String>();
+				currentEntry.add("canonical:" + tokenMatcher.group(2));
+				entries.put(tokenMatcher.group(1), currentEntry);
+			} else if (variantMatcher.matches()) {
+				currentEntry.add(variantMatcher.group(1));
+			}
+		}
+		return entries;
+	}
+
+}
@@ -36,10 +36,14 @@ package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.dictionary.obo;
  * #L%
  */
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -47,6 +51,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.junit.Test;
+import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 
 import edu.ucdenver.ccp.common.collections.CollectionsUtil;
@@ -72,6 +77,8 @@ public class OboToDictionaryTest extends DefaultTestCase {
 
 	private static final String SAMPLE_SO_OBO_FILE_NAME = "sample.so.obo";
 	private static final String SAMPLE_CL_OBO_FILE_NAME = "sample.cl.obo";
+	private static final String SAMPLE_HIERARCHY_OBO_FILE_NAME = "sample.hierarchy.obo";
+	private static final String SAMPLE_HIERARCHY_IRI_PREFIX = "http://purl.obolibrary.org/obo/TST_";
 
 	@Test
 	public void testExactSynonymOnly_SO_OBO() throws IOException, OWLOntologyCreationException {
@@ -225,6 +232,33 @@ public class OboToDictionaryTest extends DefaultTestCase {
 				LineOrder.ANY_ORDER, ColumnOrder.AS_IN_FILE, LineTrim.ON, ShowWhiteSpace.ON));
 	}
 
+	@Test
+	public void testParallelBuildMatchesSequentialBuild() throws IOException, OWLOntologyCreationException {
+		File oboFile = ClassPathUtil.copyClasspathResourceToDirectory(getClass(), SAMPLE_HIERARCHY_OBO_FILE_NAME,
+				folder.newFolder("input"));
+		OntologyUtil ontUtil = new OntologyUtil(oboFile);
+		Set<OWLClass> subTreeRootsToInclude = CollectionsUtil.createSet(
+				ontUtil.getOWLClassFromId(SAMPLE_HIERARCHY_IRI_PREFIX + "0000002"),
+				ontUtil.getOWLClassFromId(SAMPLE_HIERARCHY_IRI_PREFIX + "0000003"));
+		Set<OWLClass> subTreeRootsToExclude = CollectionsUtil.createSet(
+				ontUtil.getOWLClassFromId(SAMPLE_HIERARCHY_IRI_PREFIX + "0000004"));
+		File sequentialOutputFile = folder.newFile("dict.xml");
+		OboToDictionary.buildDictionary(sequentialOutputFile, ontUtil, null, SynonymType.ALL, subTreeRootsToExclude,
+				subTreeRootsToInclude, null, null, IncludeExt.NO, 1);
+		List<String> sequentialLines = Files.readAllLines(sequentialOutputFile.toPath(), StandardCharsets.UTF_8);
+		assertTrue(sequentialLines.toString().contains("alpha leaf 1"));
+		assertTrue(sequentialLines.toString().contains("beta leaf 2"));
+		assertFalse(sequentialLines.toString().contains("gamma leaf 3"));
+
+		/* the ontology spans several chunks, so the chunk results must be merged in class order */
+		for (int chunkSize : new int[] { 1, 4, 7 }) {
+			File parallelOutputFile = folder.newFile("dict.parallel." + chunkSize + ".xml");
+			OboToDictionary.buildDictionary(parallelOutputFile, ontUtil, null, SynonymType.ALL, subTreeRootsToExclude,
+					subTreeRootsToInclude, null, null, IncludeExt.NO, 3, chunkSize);
+			assertEquals(sequentialLines, Files.readAllLines(parallelOutputFile.toPath(), StandardCharsets.UTF_8));
+		}
+	}
+
 	private static class MyDictEntryModifier implements DictionaryEntryModifier {
 
 		@Override
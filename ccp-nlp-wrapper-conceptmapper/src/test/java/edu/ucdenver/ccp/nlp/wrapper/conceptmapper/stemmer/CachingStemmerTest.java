@@ -0,0 +1,97 @@
+/**
+ * 
+ */
+package edu.ucdenver.ccp.nlp.wrapper.conceptmapper.stemmer;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's nlp module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.text.ParseException;
+
+import org.apache.uima.conceptMapper.support.stemmer.Stemmer;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+
+public class CachingStemmerTest {
+
+	@Test
+	public void testCachedStemsMatchDelegate() {
+		ConceptMapperPorterStemmer porterStemmer = new ConceptMapperPorterStemmer();
+		CachingConceptMapperPorterStemmer cachingStemmer = new CachingConceptMapperPorterStemmer();
+		for (String token : CollectionsUtil.createList("genes", "regulating", "proteins", "genes", "regulating")) {
+			assertEquals(porterStemmer.stem(token), cachingStemmer.stem(token));
+		}
+	}
+
+	@Test
+	public void testCacheStatisticsAndEviction() {
+		CountingStemmer countingStemmer = new CountingStemmer();
+		StemCache cache = new StemCache(16);
+		CachingStemmer cachingStemmer = new CachingStemmer(countingStemmer, cache) {
+		};
+
+		cachingStemmer.prewarm(CollectionsUtil.createList("cells", "mice"));
+		assertEquals("cell", cachingStemmer.stem("cells"));
+		assertEquals("mice", cachingStemmer.stem("mice"));
+		assertEquals("rat", cachingStemmer.stem("rats"));
+		assertEquals(3, countingStemmer.count);
+		assertEquals(2, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(0.4, cache.getHitRate(), 0.0001);
+
+		for (int i = 0; i < 1000; i++) {
+			cachingStemmer.stem("token" + i + "s");
+		}
+		assertTrue(cache.size() <= 16);
+	}
+
+	private static class CountingStemmer implements Stemmer {
+		private int count = 0;
+
+		@Override
+		public String stem(String token) {
+			count++;
+			return token.endsWith("s") ? token.substring(0, token.length() - 1) : token;
+		}
+
+		@Override
+		public void initialize(String dictionary) throws FileNotFoundException, ParseException {
+		}
+	}
+
+}